@@ -9,6 +9,7 @@ import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
+import client.connector.Protocol;
 import client.gameclient.GameClient;
 import client.gui.ClientGUI;
 import logger.LogLevel;
@@ -17,11 +18,13 @@ import logger.Logger;
 public class Octothorpe
 {
     private static final String LOG_FOLDER = "log";
+    private static final String USAGE = "Usage: java Octothorpe <host> <port number> [--protocol=<text|binary>]";
+
     public static void main(String[] args)
     {
-        if (args.length < 2)
+        if (args.length < 2 || args.length > 3)
         {
-            System.err.println("Usage: java Octothorpe <host> <port number>");
+            System.err.println(USAGE);
             System.exit(1);
         }
 
@@ -29,7 +32,8 @@ public class Octothorpe
              PrintStream logger = new PrintStream(createLogFile()))
         {
             Logger.setLogLevel(LogLevel.Info, logger);
-            GameClient client = new GameClient(args[0], getPort(args[1]));
+            Protocol protocol = args.length == 3 ? getProtocol(args[2]) : Protocol.Text;
+            GameClient client = new GameClient(args[0], getPort(args[1]), protocol);
             ClientGUI gui = new ClientGUI(client);
             gui.start();
         }
@@ -60,6 +64,21 @@ public class Octothorpe
         return out;
     }
 
+    // Gets the protocol requested to the game server from the protocol option
+    private static Protocol getProtocol(String option)
+    {
+        Protocol protocol = Protocol.Unknown;
+        if (option.startsWith("--protocol="))
+            protocol = Protocol.fromString(option.substring("--protocol=".length()));
+        if (protocol == Protocol.Unknown)
+        {
+            System.err.println("Invalid option: \"" + option + "\"");
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        return protocol;
+    }
+
     // Gets the port number from command line arguments
     private static int getPort(String portString)
     {
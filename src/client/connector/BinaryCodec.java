@@ -0,0 +1,310 @@
+package client.connector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+import logger.LogLevel;
+import logger.Logger;
+
+/**
+ * Encodes requests and decodes responses of the Binary protocol.
+ * Each message is prefixed by its length, as a varint, and starts with an opcode followed by the fields of the message.
+ * Responses are decoded into the same Responses the Text protocol delivers, so the rest of the client does not depend
+ * on the protocol in use. The server identifies players by their IDs, sending each player's name once: the codec keeps
+ * the names received to rebuild the responses.
+ */
+public class BinaryCodec
+{
+    private static final int MAX_MESSAGE_LENGTH = 16 * 1024 * 1024; // longest message accepted from the server
+    private static final String[] DIRECTIONS = { "unknown", "north", "south", "east", "west" }; // move directions
+
+    // request opcodes
+    private static final int UNKNOWN = 0;
+    private static final int LOGIN = 1;
+    private static final int MAP = 2;
+    private static final int MESSAGE = 3;
+    private static final int MOVE = 4;
+    private static final int PLAYERS = 5;
+    private static final int QUIT = 6;
+    private static final int NEARBY = 7;
+    private static final int GOTO = 8;
+
+    // response opcodes
+    private static final int TEXT = 32;
+    private static final int PLAYER_NAME = 33;
+    private static final int PLAYER_UPDATE = 34;
+    private static final int PLAYER_JOINED = 35;
+    private static final int PLAYER_LEFT = 36;
+    private static final int ITEM_DATA = 37;
+    private static final int ITEM_TAKEN = 38;
+    private static final int MAP_DATA = 39;
+    private static final int MAP_REGION = 40;
+    private static final int PLAYER_OUT_OF_RANGE = 41;
+
+    private Map<Integer, String> playerNames = new HashMap<Integer, String>(); // names of the players by ID
+
+    /**
+     * Writes the request specified into the output stream as a Binary message.
+     * 
+     * @param request the request to be written
+     * @param out     the output stream the request is written into
+     * @throws IOException if an I/O error occurs while writing into the output stream
+     */
+    public void writeRequest(Request request, OutputStream out) throws IOException
+    {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        int opcode = getOpcode(request.getCommand());
+        message.write(opcode);
+        if (opcode == MOVE)
+        {
+            String direction = request.getArgs().isEmpty() ? "" : request.getArgs().get(0);
+            int code = getDirection(direction);
+            message.write(code);
+            if (code == 0)
+                writeString(message, direction);
+        }
+        else
+        {
+            writeVarint(message, request.getArgs().size());
+            for (String arg : request.getArgs())
+                writeString(message, arg);
+        }
+        writeVarint(out, message.size());
+        message.writeTo(out);
+    }
+
+    /**
+     * Reads the next Binary message from the input stream and decodes it into responses.
+     * Blocks until a complete message is available.
+     * 
+     * @param in        the input stream the message is read from
+     * @param responses the queue the decoded responses are added to; a message can hold no responses (e.g. a player's
+     *                  name) or many responses (e.g. the map)
+     * @return true if a message was read; false if the end of the stream was reached
+     * @throws IOException if an I/O error occurs while reading from the input stream or the message is malformed
+     */
+    public boolean readResponses(InputStream in, Queue<Response> responses) throws IOException
+    {
+        int first = in.read();
+        if (first < 0)
+            return false;
+        int length = readVarint(in, first);
+        if (length <= 0 || length > MAX_MESSAGE_LENGTH)
+            throw new IOException("Invalid message length: " + length);
+        byte[] message = in.readNBytes(length);
+        if (message.length < length)
+            return false;
+        decode(new MessageReader(message), responses);
+        return true;
+    }
+
+    // Decodes a message into responses, in the format used by the Text protocol.
+    private void decode(MessageReader reader, Queue<Response> responses) throws IOException
+    {
+        int opcode = reader.readByte();
+        if (opcode == TEXT)
+        {
+            ResponseCode code = ResponseCode.fromCode(reader.readVarint());
+            responses.add(new Response(code, reader.readString()));
+        }
+        else if (opcode == PLAYER_NAME)
+            playerNames.put(reader.readVarint(), reader.readString());
+        else if (opcode == PLAYER_UPDATE)
+            responses.add(new Response(ResponseCode.PlayerUpdate, readPlayer(reader)));
+        else if (opcode == PLAYER_JOINED)
+            responses.add(new Response(ResponseCode.PlayerUpdate, readPlayer(reader) + ", connected"));
+        else if (opcode == PLAYER_LEFT)
+        {
+            String name = getPlayerName(reader.readVarint());
+            responses.add(new Response(ResponseCode.PlayerUpdate, name + ", -1, -1, 0, disconnected"));
+        }
+        else if (opcode == PLAYER_OUT_OF_RANGE)
+        {
+            String name = getPlayerName(reader.readVarint());
+            responses.add(new Response(ResponseCode.PlayerUpdate, name + ", -1, -1, 0, out of range"));
+        }
+        else if (opcode == ITEM_DATA)
+        {
+            int id = reader.readVarint();
+            int x = reader.readSignedVarint();
+            int y = reader.readSignedVarint();
+            int value = reader.readSignedVarint();
+            String data = id + ", " + x + ", " + y + ", " + value + " points";
+            responses.add(new Response(ResponseCode.ItemNotification, data));
+        }
+        else if (opcode == ITEM_TAKEN)
+        {
+            String name = getPlayerName(reader.readVarint());
+            int id = reader.readVarint();
+            int value = reader.readSignedVarint();
+            String data = name + ", " + id + ", " + value + ", " + name + " found " + id;
+            responses.add(new Response(ResponseCode.ItemTaken, data));
+        }
+        else if (opcode == MAP_DATA)
+        {
+            int cols = reader.readVarint();
+            int rows = reader.readVarint();
+            responses.add(new Response(ResponseCode.MapData, cols + ", " + rows));
+            for (int i = 0; i < rows; i++)
+                responses.add(new Response(ResponseCode.MapData, reader.readString()));
+        }
+        else if (opcode == MAP_REGION)
+        {
+            int x = reader.readVarint();
+            int y = reader.readVarint();
+            int cols = reader.readVarint();
+            int rows = reader.readVarint();
+            responses.add(new Response(ResponseCode.MapData, cols + ", " + rows + ", " + x + ", " + y));
+            for (int i = 0; i < rows; i++)
+                responses.add(new Response(ResponseCode.MapData, reader.readString()));
+        }
+        else
+            Logger.log(LogLevel.Error, "Unknown message received from game server: opcode " + opcode);
+    }
+
+    // Reads the fields of a player update: "<name>, <x>, <y>, <score>"
+    private String readPlayer(MessageReader reader) throws IOException
+    {
+        String name = getPlayerName(reader.readVarint());
+        int x = reader.readSignedVarint();
+        int y = reader.readSignedVarint();
+        int score = reader.readSignedVarint();
+        return name + ", " + x + ", " + y + ", " + score;
+    }
+
+    // Gets the name of the player with the ID specified.
+    private String getPlayerName(int id)
+    {
+        String name = playerNames.get(id);
+        if (name == null)
+        {
+            Logger.log(LogLevel.Error, "Unknown player ID received from game server: " + id);
+            return "player" + id;
+        }
+        return name;
+    }
+
+    // Gets the opcode of a command
+    private int getOpcode(Command command)
+    {
+        if (command == Command.Login)
+            return LOGIN;
+        if (command == Command.Map)
+            return MAP;
+        if (command == Command.Message)
+            return MESSAGE;
+        if (command == Command.Move)
+            return MOVE;
+        if (command == Command.Players)
+            return PLAYERS;
+        if (command == Command.Quit)
+            return QUIT;
+        if (command == Command.Nearby)
+            return NEARBY;
+        if (command == Command.Goto)
+            return GOTO;
+        return UNKNOWN;
+    }
+
+    // Gets the code of a move direction
+    private int getDirection(String direction)
+    {
+        for (int i = 1; i < DIRECTIONS.length; i++)
+        {
+            if (DIRECTIONS[i].equalsIgnoreCase(direction))
+                return i;
+        }
+        return 0;
+    }
+
+    // Writes an unsigned varint: 7 bits per byte, least significant group first.
+    private void writeVarint(OutputStream out, int value) throws IOException
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    // Writes a string: its length in bytes, as a varint, followed by its UTF-8 bytes.
+    private void writeString(OutputStream out, String value) throws IOException
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    // Reads an unsigned varint from the input stream, given its first byte.
+    private int readVarint(InputStream in, int first) throws IOException
+    {
+        int value = first & 0x7F;
+        int b = first;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7)
+        {
+            if (shift > 28 || (b = in.read()) < 0)
+                throw new IOException("Malformed message length");
+            value |= (b & 0x7F) << shift;
+        }
+        return value;
+    }
+
+    // Reads the fields of a message.
+    private static class MessageReader
+    {
+        private byte[] bytes = null; // the message being read
+        private int position = 0;    // position of the next byte to be read
+
+        private MessageReader(byte[] bytes)
+        {
+            this.bytes = bytes;
+        }
+
+        // Reads an unsigned byte.
+        private int readByte() throws IOException
+        {
+            if (position == bytes.length)
+                throw new IOException("Unexpected end of message");
+            return bytes[position++] & 0xFF;
+        }
+
+        // Reads an unsigned varint.
+        private int readVarint() throws IOException
+        {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7)
+            {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        // Reads a zigzag encoded signed varint.
+        private int readSignedVarint() throws IOException
+        {
+            int value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        // Reads a string: its length in bytes, as a varint, followed by its UTF-8 bytes.
+        private String readString() throws IOException
+        {
+            int length = readVarint();
+            if (length < 0 || length > bytes.length - position)
+                throw new IOException("Invalid string length: " + length);
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -5,12 +5,15 @@ package client.connector;
  */
 public enum Command
 {
-    Login,   // login as a player
-    Map,     // request map information
-    Message, // send a message
-    Move,    // move towards a direction
-    Players, // request player information
-    Quit,    // exit
+    Goto,     // walk to a position
+    Login,    // login as a player
+    Map,      // request map information
+    Message,  // send a message
+    Move,     // move towards a direction
+    Nearby,   // request the players nearest to the player
+    Players,  // request player information
+    Protocol, // negotiate the protocol of the connection
+    Quit,     // exit
     Unknown;
     
     /**
@@ -21,6 +24,8 @@ public enum Command
      */
     public static Command fromString(String action)
     {
+        if (action.equalsIgnoreCase("goto"))
+            return Goto;
         if (action.equalsIgnoreCase("login"))
             return Login;
         if (action.equalsIgnoreCase("map"))
@@ -29,8 +34,12 @@ public enum Command
             return Message;
         if (action.equalsIgnoreCase("move"))
             return Move;
+        if (action.equalsIgnoreCase("nearby"))
+            return Nearby;
         if (action.equalsIgnoreCase("players"))
             return Players;
+        if (action.equalsIgnoreCase("protocol"))
+            return Protocol;
         if (action.equalsIgnoreCase("quit"))
             return Quit;
         return Unknown;
@@ -44,6 +53,8 @@ public enum Command
      */
     public static String toString(Command command)
     {
+        if (command == Goto)
+            return "goto";
         if (command == Login)
             return "login";
         if (command == Map)
@@ -52,8 +63,12 @@ public enum Command
             return "message";
         if (command == Move)
             return "move";
+        if (command == Nearby)
+            return "nearby";
         if (command == Players)
             return "players";
+        if (command == Protocol)
+            return "protocol";
         if (command == Quit)
             return "quit";
         return "unknown";
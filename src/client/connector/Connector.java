@@ -1,11 +1,19 @@
 package client.connector;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
 
 import logger.LogLevel;
 import logger.Logger;
@@ -13,13 +21,18 @@ import logger.Logger;
 /**
  * Represents a connection with the game server.
  * Establishes a connection with the game server through a socket and manages the communication through that socket.
+ * The connection starts with the Text protocol. The Binary protocol can be negotiated right after connecting; if the
+ * game server does not support it, the connection keeps using the Text protocol.
  */
 public class Connector implements Closeable
 {
-    private Socket socket = null;         // the socket connected to the game server.
-    private BufferedReader reader = null; // reads data from the socket.
-    private PrintWriter writer = null;    // writes data into the socket.
-    private boolean connected = false;    // indicates whether this connector is connected to the game server
+    private Socket socket = null;                  // the socket connected to the game server.
+    private InputStream reader = null;             // reads data from the socket.
+    private OutputStream writer = null;            // writes data into the socket.
+    private boolean connected = false;             // indicates whether this connector is connected to the game server
+    private Protocol protocol = Protocol.Text;     // the protocol used in the connection
+    private BinaryCodec codec = new BinaryCodec(); // encodes and decodes messages of the Binary protocol
+    private Queue<Response> decoded = new ArrayDeque<Response>(); // responses decoded but not received yet
     
     /**
      * Establishes a new connection to the specified port number on the named host.
@@ -34,8 +47,8 @@ public class Connector implements Closeable
         {
             Logger.log(LogLevel.Info, "Connecting to \"" + host + ":" + port + "\"...");
             socket = new Socket(host, port);
-            reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            writer = new PrintWriter(socket.getOutputStream());
+            reader = new BufferedInputStream(socket.getInputStream());
+            writer = new BufferedOutputStream(socket.getOutputStream());
             connected = true;
             Logger.log(LogLevel.Info, "Connection established!");
         }
@@ -47,6 +60,33 @@ public class Connector implements Closeable
         }
     }
 
+    /**
+     * Negotiates the protocol specified with the game server.
+     * Must be called right after connecting, before any other request is sent or response is received.
+     * 
+     * @param requested the protocol requested
+     * @return the protocol used in the connection: the protocol requested if the game server supports it; the Text
+     *         protocol otherwise
+     * @throws IOException if an error occurs while exchanging the handshake with the game server
+     */
+    public Protocol negotiate(Protocol requested) throws IOException
+    {
+        if (requested == Protocol.Text || requested == protocol)
+            return protocol;
+        String name = Protocol.toString(requested);
+        send(new Request(Command.Protocol, new ArrayList<String>(Arrays.asList(name, Protocol.toString(protocol)))));
+        Response response = receive();
+        if (response != null && response.getResponseCode() == ResponseCode.Success
+            && Protocol.fromString(response.getMessage()) == requested)
+        {
+            protocol = requested;
+            Logger.log(LogLevel.Info, "Using the " + name + " protocol");
+        }
+        else
+            Logger.log(LogLevel.Info, "Game server does not support the " + name + " protocol. Using text protocol");
+        return protocol;
+    }
+
     /**
      * Checks whether the Connector is connected to the game server.
      * 
@@ -71,17 +111,35 @@ public class Connector implements Closeable
 
     /**
      * Sends the specified request through the connection.
-     * A line termination sequence, "\r\n", is appended to the request being sent.
+     * In the Text protocol, a line termination sequence, "\r\n", is appended to the request being sent.
      * 
      * @param request the request to be sent
      * @throws IOException if it's not possible to send the request because the connection isn't set up correctly
      */
     public void send(Request request) throws IOException
+    {
+        send(Arrays.asList(request));
+    }
+
+    /**
+     * Sends the specified requests through the connection in a single write, without waiting for their responses.
+     * The game server processes pipelined requests in order and sends their responses in the same order.
+     * 
+     * @param requests the requests to be sent, in order
+     * @throws IOException if it's not possible to send the requests because the connection isn't set up correctly
+     */
+    public void send(List<Request> requests) throws IOException
     {
         if (isConnected() && writer != null)
         {
-            Logger.log(LogLevel.Debug, "Sending request: \"" + request + "\"");
-            writer.print(request + "\r\n");
+            for (Request request : requests)
+            {
+                Logger.log(LogLevel.Debug, "Sending request: \"" + request + "\"");
+                if (protocol == Protocol.Binary)
+                    codec.writeRequest(request, writer);
+                else
+                    writer.write((request + "\r\n").getBytes(StandardCharsets.UTF_8));
+            }
             writer.flush();
             return;
         }
@@ -102,17 +160,47 @@ public class Connector implements Closeable
         {
             Logger.log(LogLevel.Debug, "Waiting for message from socket");
             Response response = null;
-            String message = null;
-            if ((message = reader.readLine()) != null)
+            if (protocol == Protocol.Binary)
+                response = receiveBinary();
+            else
             {
-                response = new Response(message);
-                Logger.log(LogLevel.Info, "Response received: \"" + response + "\"");
+                String message = readLine();
+                if (message != null)
+                    response = new Response(message);
             }
+            if (response != null)
+                Logger.log(LogLevel.Info, "Response received: \"" + response + "\"");
             return response;
         }
         throw new IOException("Connection is not set up correctly.");
     }
 
+    // Retrieves the next response decoded from Binary messages, reading messages until a response is available.
+    // Returns null if the end of the stream is reached.
+    private Response receiveBinary() throws IOException
+    {
+        while (decoded.isEmpty())
+        {
+            if (!codec.readResponses(reader, decoded))
+                return null;
+        }
+        return decoded.poll();
+    }
+
+    // Reads a "\n" or "\r\n" terminated line of the Text protocol.
+    // Returns null if the end of the stream is reached.
+    private String readLine() throws IOException
+    {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b = 0;
+        while ((b = reader.read()) >= 0 && b != '\n')
+            line.write(b);
+        if (b < 0 && line.size() == 0)
+            return null;
+        String message = line.toString(StandardCharsets.UTF_8);
+        return message.endsWith("\r") ? message.substring(0, message.length() - 1) : message;
+    }
+
     @Override
     public void close()
     {
@@ -0,0 +1,41 @@
+package client.connector;
+
+/**
+ * Represents the wire protocol used to exchange requests and responses with the game server.
+ */
+public enum Protocol
+{
+    Text,   // "\r\n" terminated lines, "<code>:<message>" responses
+    Binary, // length-prefixed messages with an opcode and varint fields
+    Unknown;
+
+    /**
+     * Retrieves the Protocol based on a string.
+     * 
+     * @param protocol the string representing the protocol
+     * @return the Protocol represented by the specified string
+     */
+    public static Protocol fromString(String protocol)
+    {
+        if (protocol.equalsIgnoreCase("text"))
+            return Text;
+        if (protocol.equalsIgnoreCase("binary"))
+            return Binary;
+        return Unknown;
+    }
+
+    /**
+     * Retrieves a string representation for the protocol, as sent in the protocol handshake.
+     * 
+     * @param protocol the protocol
+     * @return the name of the protocol
+     */
+    public static String toString(Protocol protocol)
+    {
+        if (protocol == Text)
+            return "text";
+        if (protocol == Binary)
+            return "binary";
+        return "unknown";
+    }
+}
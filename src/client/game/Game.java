@@ -101,6 +101,16 @@ public class Game
         items.put(item.getId(), item);
     }
 
+    /**
+     * Removes an item from the list of map items, e.g. once it has been taken.
+     * 
+     * @param id ID of the item to be removed
+     */
+    public void removeItem(String id)
+    {
+        items.remove(id);
+    }
+
     /**
      * Retrieves an item from the list of map items
      * 
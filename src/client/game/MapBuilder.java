@@ -37,12 +37,13 @@ public class MapBuilder
     }
 
     // Checks if mapData contains map dimensions.
-    // Map dimensions is expected to be in the form "<rows>, <cols>".
+    // Map dimensions is expected to be in the form "<cols>, <rows>", followed by ", <x>, <y>" when the server sends a
+    // region of a chunked world. The position of regions is not used: regions are built as maps of their own.
     // ',' is not expected to appear anywhere in the map data.
     private static boolean isMapDimensions(String mapData)
     {
         String[] tokens = mapData.split(", ");
-        return tokens.length == 2;
+        return tokens.length == 2 || tokens.length == 4;
     }
     
     // Initializes a new map with dimensions provided in map data.
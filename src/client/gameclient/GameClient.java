@@ -1,10 +1,15 @@
 package client.gameclient;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingDeque;
 
 import client.connector.Connector;
+import client.connector.Protocol;
 import client.connector.Request;
 import client.connector.Response;
 import client.event.Event;
@@ -22,8 +27,9 @@ import logger.Logger;
  * Observes ResponseEvents. When a response event is received, acts as a proxy and notifies its observers of the new 
  * respose event.
  * Expects one single synchronous response for each request sent. These responses have response code greater than or 
- * equal to 200. After sending a request to the game server, blocks until a synchronous response is received, not 
- * sending aditional requests.
+ * equal to 200. Requests are pipelined: they are sent as soon as they are received, without waiting for the responses
+ * of the requests already sent. The game server responds in order, so each synchronous response is matched to the
+ * oldest request still waiting for a response.
  */
 public class GameClient extends Observable implements Observer, Runnable
 {
@@ -31,6 +37,7 @@ public class GameClient extends Observable implements Observer, Runnable
     private Connector conn = null; // the connection with the game server
     private String host = null;    // the game server host
     private int port = 0;          // the port in which the game server is listening for new connections
+    private Protocol protocol = Protocol.Text; // the protocol requested to the game server
 
     // state
     private boolean running = false;  // indicates whether the game client is running
@@ -43,7 +50,7 @@ public class GameClient extends Observable implements Observer, Runnable
 
     // synchrononous messages
     private BlockingDeque<RequestEvent> requestQueue = new LinkedBlockingDeque<RequestEvent>();
-    private BlockingDeque<ResponseEvent> responseQueue = new LinkedBlockingDeque<ResponseEvent>();
+    private Queue<Request> inFlight = new ConcurrentLinkedQueue<Request>(); // requests waiting for a response
     
     /**
      * Constructor.
@@ -53,10 +60,24 @@ public class GameClient extends Observable implements Observer, Runnable
      * @param port the port where the game server is listening for connections
      */
     public GameClient(String host, int port) throws IOException
+    {
+        this(host, port, Protocol.Text);
+    }
+
+    /**
+     * Constructor.
+     * Receives the parameters to connect with the game server and the protocol to be negotiated with it.
+     * 
+     * @param host     the host where the game server is running
+     * @param port     the port where the game server is listening for connections
+     * @param protocol the protocol requested to the game server
+     */
+    public GameClient(String host, int port, Protocol protocol) throws IOException
     {
         super("GameClient");
         this.host = host;
         this.port = port;
+        this.protocol = protocol;
         registerSubject(Subject.Response);
         initialize(host, port);
     }
@@ -64,10 +85,12 @@ public class GameClient extends Observable implements Observer, Runnable
     // Setters and Getters
     public String getHost() { return host; }
     public int getPort() { return port; }
+    public Protocol getProtocol() { return protocol; }
     public NotificationManager getNotificationManager() { return notifier; }
 
     /**
      * Starts running the game client.
+     * Sends the requests received in batches: all the requests waiting to be sent go out in a single write.
      */
     public void run()
     {
@@ -77,10 +100,11 @@ public class GameClient extends Observable implements Observer, Runnable
             running = true;
             while (running)
             {
-                Request request = receiveRequest();
-                conn.send(request);
-                Response response = receiveResponse();
-                handleEvent(request, response);
+                List<Request> requests = receiveRequests();
+                if (requests.isEmpty())
+                    continue;
+                inFlight.addAll(requests); // registered before sending, so no response arrives before its request
+                conn.send(requests);
             }
             terminate();
         }
@@ -121,9 +145,9 @@ public class GameClient extends Observable implements Observer, Runnable
         {
             ResponseEvent responseEvent = (ResponseEvent) event;
             if (responseEvent.getResponse().getResponseCode().getCode() >= 200) 
-                responseQueue.add(responseEvent); // consume synchronous response
+                handleEvent(inFlight.poll(), responseEvent.getResponse()); // match synchronous response to request
             else
-                notify(event);                    // forward responses
+                notify(event);                                             // forward responses
         }
     }
 
@@ -133,6 +157,7 @@ public class GameClient extends Observable implements Observer, Runnable
         Logger.log(LogLevel.Info, "Initializing game client...");
         conn = new Connector();
         conn.connectTo(host, port);
+        protocol = conn.negotiate(protocol);
         initializeNotifier(conn);
         notifierThread = new Thread(notifier);
         notifierThread.setName("GameClientNotifier");
@@ -147,42 +172,26 @@ public class GameClient extends Observable implements Observer, Runnable
         notifier.subscribe(this, Subject.Response);
     }
 
-    // Retrieves the first element from request queue.
+    // Retrieves all the requests in the request queue.
     // Blocks if request queue is empty, until a request becomes available.
-    private Request receiveRequest()
+    private List<Request> receiveRequests()
     {
-        Request request = null;
+        List<Request> requests = new ArrayList<Request>();
         try
         {
-            RequestEvent event = requestQueue.takeFirst();
-            request = event.getRequest();
+            requests.add(requestQueue.takeFirst().getRequest());
+            RequestEvent event = null;
+            while ((event = requestQueue.pollFirst()) != null)
+                requests.add(event.getRequest());
         }
         catch (InterruptedException e)
         {
             Logger.log(LogLevel.Error, "Waiting for a request was interrupted", e);
         }
-        return request;
-    }
-    
-    // Retrieves the first element from response queue.
-    // Blocks if response queue is empty, until a response becomes available.
-    private Response receiveResponse()
-    {
-        Response response = null;
-        try
-        {
-            ResponseEvent event = responseQueue.takeFirst();
-            response = event.getResponse();
-
-        }
-        catch (InterruptedException e)
-        {
-            Logger.log(LogLevel.Error, "Waiting for a response was interrupted", e);
-        }
-        return response;
+        return requests;
     }
 
-    // Prints the response.
+    // Notifies observers of the response to a request.
     private void handleEvent(Request request, Response response)
     {
         ResponseEvent event = new  ResponseEvent();
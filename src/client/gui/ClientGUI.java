@@ -369,7 +369,11 @@ public class ClientGUI extends Observable implements Observer
         {
             ItemTakenEvent event = getItemTakenFromResponse(response);
             if (event != null)
+            {
+                game.removeItem(event.getItemId());
                 notify(event);
+                sendMapUpdate();
+            }
         }
     }
 
@@ -33,6 +33,18 @@ public class Logger
         Logger.level = level;
     }
     
+    /**
+     * Checks whether messages of the specified level are logged.
+     * Allows callers to skip building expensive messages that would not be logged.
+     * 
+     * @param level the level to be checked
+     * @return true if messages of the specified level are logged; false otherwise
+     */
+    public static boolean isEnabled(LogLevel level)
+    {
+        return level.compareTo(Logger.level) >= 0;
+    }
+
     /**
      * Prints message into standard output
      * 
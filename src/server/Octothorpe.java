@@ -1,26 +1,285 @@
 package server;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import logger.LogLevel;
 import logger.Logger;
+import server.game.MapStorage;
+import server.game.PathAlgorithm;
 import server.gameserver.GameServer;
+import server.gameserver.IoMode;
+import server.gameserver.ServerConfig;
+import server.gameserver.ThreadMode;
 
 public class Octothorpe
 {
     private static final String DEFAULT_MAP = "res/default.map";
+    private static final String USAGE = "Usage: java Octothorpe <port number> [<map file>] [options]\r\n"
+                                        + "Options:\r\n"
+                                        + "  --io=<blocking|nio>           I/O mode used to serve"
+                                        + " player connections\r\n"
+                                        + "  --reactors=<count>            number of reactor threads in nio mode\r\n"
+                                        + "  --threads=<platform|virtual>  threads running"
+                                        + " player handlers and events\r\n"
+                                        + "  --dispatchers=<count>         number of event dispatcher threads\r\n"
+                                        + "  --flush-bytes=<bytes>         queued response bytes that force a write\r\n"
+                                        + "  --flush-delay=<ms>            maximum delay of coalesced writes"
+                                        + " (0 = none)\r\n"
+                                        + "  --map-storage=<auto|heap|offheap>  where the map"
+                                        + " obstacle grid is stored\r\n"
+                                        + "  --world=<seed>                chunked world generated from the seed\r\n"
+                                        + "  --chunk-dir=<directory>       directory of world chunk files\r\n"
+                                        + "  --chunk-cache=<chunks>        world chunks kept in memory\r\n"
+                                        + "  --seed=<seed>                 seed of random spawn points and items\r\n"
+                                        + "  --item-respawn=<ms>           delay of item respawns (0 = no respawns)\r\n"
+                                        + "  --tick-rate=<ticks>           simulation ticks per second"
+                                        + " (0 = no ticks)\r\n"
+                                        + "  --regions=<cols>x<rows>       regions of the map simulated in parallel\r\n"
+                                        + "  --view-radius=<cells>         players a player is updated about"
+                                        + " (0 = all)\r\n"
+                                        + "  --reveal-radius=<cells>       items a player is sent (0 = all)\r\n"
+                                        + "  --fov=<masks>                 line of sight masks cached"
+                                        + " (0 = walls hide nothing)\r\n"
+                                        + "  --pathfinding=<astar|jps>     search finding the paths of goto commands";
 
     public static void main(String[] args)
     {
-        if (args.length < 1 || args.length > 2)
+        List<String> positional = getPositionalArgs(args);
+        if (positional.size() < 1 || positional.size() > 2)
         {
-            System.err.println("Usage: java Octothorpe <port number> [<map file>]");
+            System.err.println(USAGE);
             System.exit(1);
         }
         
         Logger.setLogLevel(LogLevel.Info);
-        int port = getPort(args[0]);
-        File mapFile = getMapFile(args);
-        new GameServer(port).runGameServer(mapFile);
+        ServerConfig config = new ServerConfig(getPort(positional.get(0)));
+        getOptions(args, config);
+        File mapFile = getMapFile(positional);
+        new GameServer(config).runGameServer(mapFile);
+    }
+
+    // Gets the command line arguments that are not options
+    private static List<String> getPositionalArgs(String[] args)
+    {
+        List<String> positional = new ArrayList<String>();
+        for (String arg : args)
+        {
+            if (!arg.startsWith("--"))
+                positional.add(arg);
+        }
+        return positional;
+    }
+
+    // Gets the server options from command line arguments.
+    // Options are expected in the form "--name=value".
+    private static void getOptions(String[] args, ServerConfig config)
+    {
+        for (String arg : args)
+        {
+            if (!arg.startsWith("--"))
+                continue;
+            int separator = arg.indexOf('=');
+            String name = separator < 0 ? arg.substring(2) : arg.substring(2, separator);
+            String value = separator < 0 ? "" : arg.substring(separator + 1);
+            if (name.equalsIgnoreCase("io"))
+                config.setIoMode(getIoMode(value));
+            else if (name.equalsIgnoreCase("reactors"))
+                config.setReactorCount(getCount(name, value));
+            else if (name.equalsIgnoreCase("threads"))
+                config.setThreadMode(getThreadMode(value));
+            else if (name.equalsIgnoreCase("dispatchers"))
+                config.setDispatcherCount(getCount(name, value));
+            else if (name.equalsIgnoreCase("flush-bytes"))
+                config.setFlushBytes(getCount(name, value));
+            else if (name.equalsIgnoreCase("flush-delay"))
+                config.setFlushDelay(getDelay(name, value));
+            else if (name.equalsIgnoreCase("map-storage"))
+                config.setMapStorage(getMapStorage(value));
+            else if (name.equalsIgnoreCase("world"))
+                config.setWorldSeed(getSeed(name, value));
+            else if (name.equalsIgnoreCase("chunk-dir"))
+                config.setChunkDir(getDirectory(name, value));
+            else if (name.equalsIgnoreCase("chunk-cache"))
+                config.setChunkCacheSize(getCount(name, value));
+            else if (name.equalsIgnoreCase("seed"))
+                config.setSeed(getSeed(name, value));
+            else if (name.equalsIgnoreCase("item-respawn"))
+                config.setItemRespawnDelay(getDelay(name, value));
+            else if (name.equalsIgnoreCase("tick-rate"))
+                config.setTickRate(getRate(name, value));
+            else if (name.equalsIgnoreCase("regions"))
+                setRegions(name, value, config);
+            else if (name.equalsIgnoreCase("view-radius"))
+                config.setViewRadius(getDistance(name, value));
+            else if (name.equalsIgnoreCase("reveal-radius"))
+                config.setRevealRadius(getDistance(name, value));
+            else if (name.equalsIgnoreCase("fov"))
+                config.setFovCacheSize(getSize(name, value));
+            else if (name.equalsIgnoreCase("pathfinding"))
+                config.setPathAlgorithm(getPathAlgorithm(value));
+            else
+                exitWithUsage("Unknown option: \"" + arg + "\"");
+        }
+        if (config.getTickRate() > 0 && config.getRegionCols() > 0)
+            exitWithUsage("Options tick-rate and regions cannot be used together");
+    }
+
+    // Gets the I/O mode from the value of the io option
+    private static IoMode getIoMode(String value)
+    {
+        IoMode mode = IoMode.fromString(value);
+        if (mode == IoMode.Unknown)
+            exitWithUsage("Invalid value for io: \"" + value + "\"");
+        return mode;
+    }
+
+    // Gets the path algorithm from the value of the pathfinding option
+    private static PathAlgorithm getPathAlgorithm(String value)
+    {
+        PathAlgorithm algorithm = PathAlgorithm.fromString(value);
+        if (algorithm == PathAlgorithm.Unknown)
+            exitWithUsage("Invalid value for pathfinding: \"" + value + "\"");
+        return algorithm;
+    }
+
+    // Gets the thread mode from the value of the threads option
+    private static ThreadMode getThreadMode(String value)
+    {
+        ThreadMode mode = ThreadMode.fromString(value);
+        if (mode == ThreadMode.Unknown)
+            exitWithUsage("Invalid value for threads: \"" + value + "\"");
+        return mode;
+    }
+
+    // Gets the map storage from the value of the map-storage option
+    private static MapStorage getMapStorage(String value)
+    {
+        MapStorage storage = MapStorage.fromString(value);
+        if (storage == MapStorage.Unknown)
+            exitWithUsage("Invalid value for map-storage: \"" + value + "\"");
+        return storage;
+    }
+
+    // Gets a seed from the value of an option
+    private static long getSeed(String name, String value)
+    {
+        try
+        {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e)
+        {
+            exitWithUsage("Invalid value for " + name + ": \"" + value + "\". Expected a number");
+        }
+        return 0;
+    }
+
+    // Gets an existing directory from the value of an option
+    private static File getDirectory(String name, String value)
+    {
+        File directory = new File(value);
+        if (!directory.isDirectory())
+            exitWithUsage("Invalid value for " + name + ": \"" + value + "\". Expected a directory");
+        return directory;
+    }
+
+    // Gets a positive count from the value of an option
+    private static int getCount(String name, String value)
+    {
+        try
+        {
+            int count = Integer.parseInt(value);
+            if (count > 0)
+                return count;
+        }
+        catch (NumberFormatException e)
+        {
+        }
+        exitWithUsage("Invalid value for " + name + ": \"" + value + "\". Expected a positive number");
+        return 0;
+    }
+
+    // Gets a non-negative delay, in milliseconds, from the value of an option
+    private static int getDelay(String name, String value)
+    {
+        try
+        {
+            int delay = Integer.parseInt(value);
+            if (delay >= 0)
+                return delay;
+        }
+        catch (NumberFormatException e)
+        {
+        }
+        exitWithUsage("Invalid value for " + name + ": \"" + value + "\". Expected a number of milliseconds");
+        return 0;
+    }
+
+    // Gets a non-negative rate, per second, from the value of an option
+    private static int getRate(String name, String value)
+    {
+        try
+        {
+            int rate = Integer.parseInt(value);
+            if (rate >= 0 && rate <= 1000)
+                return rate;
+        }
+        catch (NumberFormatException e)
+        {
+        }
+        exitWithUsage("Invalid value for " + name + ": \"" + value + "\". Expected a number between 0 and 1000");
+        return 0;
+    }
+
+    // Gets a non-negative distance, in cells, from the value of an option
+    private static int getDistance(String name, String value)
+    {
+        try
+        {
+            int distance = Integer.parseInt(value);
+            if (distance >= 0)
+                return distance;
+        }
+        catch (NumberFormatException e)
+        {
+        }
+        exitWithUsage("Invalid value for " + name + ": \"" + value + "\". Expected a number of cells");
+        return 0;
+    }
+
+    // Gets a non-negative size from the value of an option
+    private static int getSize(String name, String value)
+    {
+        try
+        {
+            int size = Integer.parseInt(value);
+            if (size >= 0)
+                return size;
+        }
+        catch (NumberFormatException e)
+        {
+        }
+        exitWithUsage("Invalid value for " + name + ": \"" + value + "\". Expected a non-negative number");
+        return 0;
+    }
+
+    // Sets the grid of regions from the value of an option, in the form "<cols>x<rows>"
+    private static void setRegions(String name, String value, ServerConfig config)
+    {
+        int separator = value.toLowerCase().indexOf('x');
+        if (separator < 0)
+            exitWithUsage("Invalid value for " + name + ": \"" + value + "\". Expected <cols>x<rows>");
+        config.setRegionCols(getCount(name, value.substring(0, separator)));
+        config.setRegionRows(getCount(name, value.substring(separator + 1)));
+    }
+
+    // Prints the error and the usage message, then exits
+    private static void exitWithUsage(String error)
+    {
+        System.err.println(error);
+        System.err.println(USAGE);
+        System.exit(1);
     }
     
     // Gets the port number from command line arguments
@@ -47,11 +306,11 @@ public class Octothorpe
     }
 
     // Gets the file name for the map file from command line arguments
-    private static File getMapFile(String[] args)
+    private static File getMapFile(List<String> args)
     {
         File mapFile = new File(DEFAULT_MAP);
-        if (args.length == 2)
-            mapFile = new File("res/" + args[1]);
+        if (args.size() == 2)
+            mapFile = new File("res/" + args.get(1));
         if (!mapFile.exists())
         {
             System.err.println("Could not find map fils \"" + mapFile.getAbsolutePath() + "\"");
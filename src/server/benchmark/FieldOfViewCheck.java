@@ -0,0 +1,101 @@
+package server.benchmark;
+
+import java.io.IOException;
+import java.util.Random;
+
+import logger.LogLevel;
+import logger.Logger;
+import server.game.FieldOfView;
+import server.game.GameMap;
+import server.game.Position;
+
+/**
+ * Checks the FieldOfView used by the game on random maps, for every pair of floor cells within its radius:
+ * - symmetry: a floor cell is visible from another exactly when the other is visible from it
+ * - the cells next to a position, and the position itself, are visible from it
+ * - along a row or a column, a cell is visible exactly when no obstacle stands between it and the position
+ * Maps have random sizes, densities of obstacles (up to 45%) and view radii.
+ * Exits with status 1 if a check fails.
+ *
+ * Usage: java server.benchmark.FieldOfViewCheck [<maps>]
+ */
+public class FieldOfViewCheck
+{
+    private static final int DEFAULT_MAPS = 50;     // random maps checked
+    private static final int MAX_RADIUS = 12;       // largest view radius checked, in cells
+    private static final double MAX_DENSITY = 0.45; // largest probability of a cell being an obstacle
+
+    private static long pairs = 0;            // pairs of floor cells within the radius of each other
+    private static long asymmetric = 0;       // pairs where a cell sees the other, but not the other way round
+    private static long neighboursHidden = 0; // cells next to a position, or the position, hidden from it
+    private static long axisMismatches = 0;   // cells along a row or column from a position, wrongly seen or hidden
+
+    public static void main(String[] args) throws IOException
+    {
+        Logger.setLogLevel(LogLevel.Error);
+        int maps = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MAPS;
+        Random random = new Random(42);
+        for (int i = 0; i < maps; i++)
+        {
+            GameMap map = RandomMaps.create(10 + random.nextInt(50), 10 + random.nextInt(30),
+                                            random.nextDouble() * MAX_DENSITY, random);
+            int radius = 1 + random.nextInt(MAX_RADIUS);
+            check(map, new FieldOfView(map, radius, map.getRowsCount() * map.getColsCount()), radius);
+        }
+        System.out.printf("Maps: %d, %d pairs of floor cells; %d asymmetric, %d neighbours hidden, "
+                          + "%d cells along rows and columns wrongly seen or hidden%n",
+                          maps, pairs, asymmetric, neighboursHidden, axisMismatches);
+        boolean passed = asymmetric == 0 && neighboursHidden == 0 && axisMismatches == 0;
+        System.out.println(passed ? "All checks passed" : "Some checks FAILED");
+        if (!passed)
+            System.exit(1);
+    }
+
+    // Checks the field of view from every floor cell of the map.
+    private static void check(GameMap map, FieldOfView fieldOfView, int radius)
+    {
+        for (int y = 0; y < map.getRowsCount(); y++)
+        {
+            for (int x = 0; x < map.getColsCount(); x++)
+            {
+                if (!map.isValidPosition(x, y))
+                    continue;
+                FieldOfView.Mask mask = fieldOfView.getMask(new Position(x, y));
+                for (int dy = -radius; dy <= radius; dy++)
+                {
+                    for (int dx = -radius; dx <= radius; dx++)
+                        checkPair(map, fieldOfView, mask, x, y, x + dx, y + dy);
+                }
+            }
+        }
+    }
+
+    // Checks whether the cell at (toX, toY) is seen from the floor cell at (x, y) as it should be.
+    private static void checkPair(GameMap map, FieldOfView fieldOfView, FieldOfView.Mask mask, int x, int y, int toX,
+                                  int toY)
+    {
+        boolean visible = mask.isVisible(toX, toY);
+        if (Math.abs(toX - x) <= 1 && Math.abs(toY - y) <= 1 && !visible)
+            neighboursHidden++;
+        if ((toX == x || toY == y) && visible != isAxisClear(map, x, y, toX, toY))
+            axisMismatches++;
+        if (!map.isValidPosition(toX, toY))
+            return;
+        pairs++;
+        if (visible != fieldOfView.getMask(new Position(toX, toY)).isVisible(x, y))
+            asymmetric++;
+    }
+
+    // Checks whether no obstacle stands strictly between two cells of the same row or column.
+    private static boolean isAxisClear(GameMap map, int x, int y, int toX, int toY)
+    {
+        int stepX = Integer.signum(toX - x);
+        int stepY = Integer.signum(toY - y);
+        for (int cx = x + stepX, cy = y + stepY; cx != toX || cy != toY; cx += stepX, cy += stepY)
+        {
+            if (!map.isValidPosition(cx, cy))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,189 @@
+package server.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+
+import logger.LogLevel;
+import logger.Logger;
+import server.game.GameMap;
+import server.game.MoveDirection;
+import server.game.PathAlgorithm;
+import server.game.Pathfinder;
+import server.game.Position;
+
+/**
+ * Checks the paths found by the Pathfinder used by the game against a breadth-first search, on random maps:
+ * - A* and jump point search, toward random targets
+ * - distance fields, toward a few targets requested often enough to get a field, before and after obstacles are added
+ *   to the map (which empties the fields cached)
+ * Each path must be as long as the shortest path found by the breadth-first search, move through floor cells only and
+ * end on the target; no path must be found exactly when the target cannot be reached. Maps are small enough for every
+ * search to stay within the pathfinder's budget of cells.
+ * Exits with status 1 if a check fails.
+ *
+ * Usage: java server.benchmark.PathfinderCheck [<maps>]
+ */
+public class PathfinderCheck
+{
+    private static final int DEFAULT_MAPS = 100;    // random maps checked
+    private static final int SEARCHES = 200;        // paths searched toward random targets on each map
+    private static final int FIELD_TARGETS = 3;     // targets of the distance fields on each map
+    private static final int FIELD_PATHS = 300;     // paths toward the targets of the fields on each map
+    private static final double MAX_DENSITY = 0.45; // largest probability of a cell being an obstacle
+
+    private static final PathAlgorithm[] ALGORITHMS = { PathAlgorithm.AStar, PathAlgorithm.JumpPoint }; // searches
+
+    private static long[] paths = new long[ALGORITHMS.length + 1];      // paths checked, by algorithm, then fields
+    private static long[] mismatches = new long[ALGORITHMS.length + 1]; // wrong paths, by algorithm, then fields
+    private static long fieldPaths = 0;                                 // paths read from distance fields
+
+    public static void main(String[] args) throws IOException
+    {
+        Logger.setLogLevel(LogLevel.Error);
+        int maps = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MAPS;
+        Random random = new Random(42);
+        for (int i = 0; i < maps; i++)
+        {
+            GameMap map = RandomMaps.create(10 + random.nextInt(60), 10 + random.nextInt(30),
+                                            random.nextDouble() * MAX_DENSITY, random);
+            checkSearches(map, random);
+            checkFields(map, random);
+        }
+        boolean passed = true;
+        for (int i = 0; i <= ALGORITHMS.length; i++)
+        {
+            System.out.printf("%-10s %d paths, %d mismatches%n", i < ALGORITHMS.length ? ALGORITHMS[i] : "Fields",
+                              paths[i], mismatches[i]);
+            passed &= mismatches[i] == 0;
+        }
+        System.out.printf("%d of the paths toward the targets of fields read from the fields, the others searched%n",
+                          fieldPaths);
+        passed &= fieldPaths > 0;
+        System.out.println(passed ? "All checks passed" : "Some checks FAILED");
+        if (!passed)
+            System.exit(1);
+    }
+
+    // Searches paths between random floor cells with each algorithm.
+    private static void checkSearches(GameMap map, Random random)
+    {
+        Pathfinder[] pathfinders = new Pathfinder[ALGORITHMS.length];
+        for (int i = 0; i < ALGORITHMS.length; i++)
+            pathfinders[i] = new Pathfinder(map, ALGORITHMS[i], 1);
+        for (int i = 0; i < SEARCHES; i++)
+        {
+            Position from = getFloorCell(map, random);
+            Position to = getFloorCell(map, random);
+            int length = getShortestLength(map, from, to);
+            for (int j = 0; j < ALGORITHMS.length; j++)
+                check(map, from, to, length, pathfinders[j].findPath(from, to), j);
+        }
+    }
+
+    // Reads paths toward a few targets from their distance fields, then again once obstacles are added to the map.
+    private static void checkFields(GameMap map, Random random)
+    {
+        Pathfinder pathfinder = new Pathfinder(map, PathAlgorithm.AStar, FIELD_TARGETS);
+        Position[] targets = new Position[FIELD_TARGETS];
+        for (int i = 0; i < FIELD_TARGETS; i++)
+            targets[i] = getFloorCell(map, random);
+        checkFieldPaths(map, pathfinder, targets, random);
+        for (int i = 0; i < map.getRowsCount() * map.getColsCount() / 20; i++)
+        {
+            Position pos = getFloorCell(map, random);
+            if (!Arrays.asList(targets).contains(pos))
+                map.setObstacle(pos.getX(), pos.getY(), true);
+        }
+        checkFieldPaths(map, pathfinder, targets, random);
+        fieldPaths += pathfinder.getFieldPathCount();
+    }
+
+    // Finds paths from random floor cells toward the targets, in turn.
+    private static void checkFieldPaths(GameMap map, Pathfinder pathfinder, Position[] targets, Random random)
+    {
+        for (int i = 0; i < FIELD_PATHS; i++)
+        {
+            Position from = getFloorCell(map, random);
+            Position to = targets[i % targets.length];
+            check(map, from, to, getShortestLength(map, from, to), pathfinder.findPath(from, to), ALGORITHMS.length);
+        }
+    }
+
+    // Checks a path against the length of the shortest path between its ends; -1 if there is none.
+    private static void check(GameMap map, Position from, Position to, int length, List<MoveDirection> path, int kind)
+    {
+        paths[kind]++;
+        if (path == null ? length == -1 : path.size() == length && isValidPath(map, from, to, path))
+            return;
+        mismatches[kind]++;
+        System.out.println((kind < ALGORITHMS.length ? ALGORITHMS[kind] : "Field") + " path from " + from + " to " + to
+                           + ": " + (path == null ? "none" : path.size() + " steps") + ", shortest "
+                           + (length == -1 ? "none" : length + " steps"));
+    }
+
+    // Checks whether a path moves through floor cells only, from one position to the other.
+    private static boolean isValidPath(GameMap map, Position from, Position to, List<MoveDirection> path)
+    {
+        int x = from.getX();
+        int y = from.getY();
+        for (MoveDirection direction : path)
+        {
+            if (direction == MoveDirection.North)
+                y--;
+            else if (direction == MoveDirection.South)
+                y++;
+            else if (direction == MoveDirection.East)
+                x++;
+            else
+                x--;
+            if (!map.isValidPosition(x, y))
+                return false;
+        }
+        return x == to.getX() && y == to.getY();
+    }
+
+    // Gets the length of the shortest path between two floor cells with a breadth-first search; -1 if there is none.
+    private static int getShortestLength(GameMap map, Position from, Position to)
+    {
+        int cols = map.getColsCount();
+        int[] distances = new int[cols * map.getRowsCount()];
+        Arrays.fill(distances, -1);
+        Queue<Integer> queue = new ArrayDeque<Integer>();
+        distances[from.getY() * cols + from.getX()] = 0;
+        queue.add(from.getY() * cols + from.getX());
+        int[][] moves = { { 0, -1 }, { 0, 1 }, { 1, 0 }, { -1, 0 } };
+        while (!queue.isEmpty())
+        {
+            int cell = queue.poll();
+            int x = cell % cols;
+            int y = cell / cols;
+            if (x == to.getX() && y == to.getY())
+                return distances[cell];
+            for (int[] move : moves)
+            {
+                int next = (y + move[1]) * cols + x + move[0];
+                if (map.isValidPosition(x + move[0], y + move[1]) && distances[next] == -1)
+                {
+                    distances[next] = distances[cell] + 1;
+                    queue.add(next);
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Gets a random floor cell of the map.
+    private static Position getFloorCell(GameMap map, Random random)
+    {
+        while (true)
+        {
+            Position pos = new Position(random.nextInt(map.getColsCount()), random.nextInt(map.getRowsCount()));
+            if (map.isValidPosition(pos))
+                return pos;
+        }
+    }
+}
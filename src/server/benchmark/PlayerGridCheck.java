@@ -0,0 +1,142 @@
+package server.benchmark;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import logger.LogLevel;
+import logger.Logger;
+import server.game.Player;
+import server.game.PlayerGrid;
+import server.game.Position;
+
+/**
+ * Checks the queries of the PlayerGrid used by the game against brute force over every player:
+ * - getNearestPlayers: the same players, in the same order (nearest first, then by ID), for random counts, largest
+ *   distances and excluded players
+ * - getPlayersNear: the same players within a random distance
+ * Each trial places random players on a grid with a random bucket size, moves some of them, runs random queries from
+ * inside and outside the area the players stand in, and removes every player, after which the grid must be empty.
+ * Players are packed close together in half of the trials and scattered far apart in the others, so queries both
+ * scan rings of buckets and fall back on the occupied buckets.
+ * Exits with status 1 if a check fails.
+ *
+ * Usage: java server.benchmark.PlayerGridCheck [<trials>]
+ */
+public class PlayerGridCheck
+{
+    private static final int DEFAULT_TRIALS = 400;  // grids checked
+    private static final int MAX_PLAYERS = 200;     // largest number of players on a grid
+    private static final int MAX_BUCKET_SIZE = 20;  // largest bucket size of a grid, in cells
+    private static final int QUERIES = 20;          // queries of each kind on each grid
+    private static final int MAX_COUNT = 10;        // largest number of players asked for by getNearestPlayers
+    private static final int PACKED_SPAN = 50;      // width and height of the area of packed players, in cells
+    private static final int SCATTERED_SPAN = 5000; // width and height of the area of scattered players, in cells
+
+    public static void main(String[] args)
+    {
+        Logger.setLogLevel(LogLevel.Error);
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TRIALS;
+        Random random = new Random(42);
+        int nearestQueries = 0;
+        int nearestMismatches = 0;
+        int rangeQueries = 0;
+        int rangeMismatches = 0;
+        int leftovers = 0;
+        for (int trial = 0; trial < trials; trial++)
+        {
+            PlayerGrid grid = new PlayerGrid(1 + random.nextInt(MAX_BUCKET_SIZE));
+            int span = 1 + random.nextInt(trial % 2 == 0 ? PACKED_SPAN : SCATTERED_SPAN);
+            List<Player> players = addPlayers(grid, random.nextInt(MAX_PLAYERS), span, random);
+            for (int i = 0; i < players.size(); i++)
+                players.get(random.nextInt(players.size())).updatePosition(random.nextInt(span), random.nextInt(span));
+            for (int query = 0; query < QUERIES; query++)
+            {
+                Position pos = new Position(random.nextInt(span * 2) - span / 2, random.nextInt(span * 2) - span / 2);
+                int count = 1 + random.nextInt(MAX_COUNT);
+                int maxDistance = random.nextBoolean() ? Integer.MAX_VALUE : random.nextInt(span);
+                Player excluded = !players.isEmpty() && random.nextBoolean()
+                                  ? players.get(random.nextInt(players.size())) : null;
+                nearestQueries++;
+                List<Player> expected = getNearestPlayers(players, pos, count, maxDistance, excluded);
+                if (!grid.getNearestPlayers(pos, count, maxDistance, excluded).equals(expected))
+                {
+                    nearestMismatches++;
+                    report("getNearestPlayers", grid, pos, "count " + count + ", max distance " + maxDistance);
+                }
+                int distance = random.nextInt(span / 4 + 1);
+                rangeQueries++;
+                if (!new HashSet<Player>(grid.getPlayersNear(pos, distance))
+                        .equals(getPlayersNear(players, pos, distance)))
+                {
+                    rangeMismatches++;
+                    report("getPlayersNear", grid, pos, "distance " + distance);
+                }
+            }
+            for (Player player : players)
+                grid.remove(player);
+            if (grid.getBucketCount() != 0 || grid.getPlayerCount() != 0)
+            {
+                leftovers++;
+                System.out.println("Grid not empty once its players were removed: " + grid);
+            }
+        }
+        System.out.printf("getNearestPlayers: %d queries, %d mismatches%n", nearestQueries, nearestMismatches);
+        System.out.printf("getPlayersNear: %d queries, %d mismatches%n", rangeQueries, rangeMismatches);
+        System.out.printf("Grids: %d, %d not empty once their players were removed%n", trials, leftovers);
+        boolean passed = nearestMismatches == 0 && rangeMismatches == 0 && leftovers == 0;
+        System.out.println(passed ? "All checks passed" : "Some checks FAILED");
+        if (!passed)
+            System.exit(1);
+    }
+
+    // Adds players at random positions to the grid, some of them outside the area they are later moved within.
+    private static List<Player> addPlayers(PlayerGrid grid, int count, int span, Random random)
+    {
+        List<Player> players = new ArrayList<Player>();
+        for (int i = 0; i < count; i++)
+        {
+            Player player = new Player("player" + i, random.nextInt(span) - span / 3, random.nextInt(span) - span / 3,
+                                       0);
+            grid.add(player);
+            players.add(player);
+        }
+        return players;
+    }
+
+    // Retrieves the players nearest to a position by sorting every player by distance, then by ID.
+    private static List<Player> getNearestPlayers(List<Player> players, Position pos, int count, int maxDistance,
+                                                  Player excluded)
+    {
+        List<Player> nearest = new ArrayList<Player>();
+        for (Player player : players)
+        {
+            if (player != excluded && PlayerGrid.getDistance(player.getPosition(), pos) <= maxDistance)
+                nearest.add(player);
+        }
+        nearest.sort(Comparator.comparingLong((Player player) -> PlayerGrid.getDistance(player.getPosition(), pos))
+                               .thenComparingInt(Player::getId));
+        return nearest.subList(0, Math.min(count, nearest.size()));
+    }
+
+    // Retrieves the players within a distance of a position by looking at every player.
+    private static Set<Player> getPlayersNear(List<Player> players, Position pos, int distance)
+    {
+        Set<Player> near = new HashSet<Player>();
+        for (Player player : players)
+        {
+            if (PlayerGrid.isNear(player.getPosition(), pos, distance))
+                near.add(player);
+        }
+        return near;
+    }
+
+    // Prints a query whose result differs from brute force.
+    private static void report(String query, PlayerGrid grid, Position pos, String args)
+    {
+        System.out.println(query + " mismatch from " + pos + " (" + args + ") on " + grid);
+    }
+}
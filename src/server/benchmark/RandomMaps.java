@@ -0,0 +1,46 @@
+package server.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+import server.game.GameMap;
+import server.game.MapStorage;
+
+/**
+ * Creates random maps for the checks: cells are obstacles with a given probability, inside a border of obstacles.
+ * Maps are written to temporary text map files, deleted when the checks exit, and loaded like any other map.
+ */
+class RandomMaps
+{
+    /**
+     * Creates a random map.
+     *
+     * @param cols    the number of columns of the map
+     * @param rows    the number of rows of the map
+     * @param density the probability of a cell inside the border being an obstacle
+     * @param random  the random generator placing the obstacles
+     * @return the map created
+     * @throws IOException if the temporary map file cannot be written
+     */
+    static GameMap create(int cols, int rows, double density, Random random) throws IOException
+    {
+        File file = File.createTempFile("random", ".map");
+        file.deleteOnExit();
+        try (PrintWriter writer = new PrintWriter(file))
+        {
+            for (int y = 0; y < rows; y++)
+            {
+                StringBuilder row = new StringBuilder();
+                for (int x = 0; x < cols; x++)
+                {
+                    boolean border = x == 0 || y == 0 || x == cols - 1 || y == rows - 1;
+                    row.append(border || random.nextDouble() < density ? '#' : ' ');
+                }
+                writer.print(row + "\r\n");
+            }
+        }
+        return new GameMap(file, MapStorage.Auto, new Random(random.nextLong()));
+    }
+}
@@ -0,0 +1,111 @@
+package server.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import logger.LogLevel;
+import logger.Logger;
+import server.command.Command;
+import server.command.Result;
+import server.game.Player;
+import server.gameserver.Request;
+import server.protocol.InvalidRequestException;
+import server.protocol.Protocol;
+import server.protocol.RequestParser;
+
+/**
+ * Measures the memory allocated, and the time taken, to turn the bytes of a "move north" request into the Command
+ * processed by the game.
+ * Compares the previous path (a String for the line, a Request built by splitting the line, a new Command and a new
+ * Result for every request) with the request parsers of the Text and Binary protocols, which reuse the Request,
+ * Command and Result of a connection. Game processing is not included.
+ * 
+ * Usage: java server.benchmark.RequestParserBenchmark [<requests>]
+ */
+public class RequestParserBenchmark
+{
+    private static final int DEFAULT_REQUESTS = 2000000; // requests parsed in each measurement
+    private static final int WARMUP_ROUNDS = 3;          // measurements discarded while the JIT compiles the code
+
+    private static Player player = new Player("benchmark"); // the player issuing the requests
+    private static long checksum = 0;                       // consumes the results, so no work is optimized away
+
+    public static void main(String[] args) throws InvalidRequestException
+    {
+        Logger.setLogLevel(LogLevel.Error);
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_REQUESTS;
+        byte[] textRequest = "move north\r\n".getBytes(StandardCharsets.UTF_8);
+        byte[] binaryRequest = { 2, 4, 1 }; // length 2, Move opcode, north
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+        {
+            runSplitParser(textRequest, requests);
+            runRequestParser(Protocol.Text, textRequest, requests);
+            runRequestParser(Protocol.Binary, binaryRequest, requests);
+        }
+        report("split (previous)", requests, () -> runSplitParser(textRequest, requests));
+        report("text parser", requests, () -> runRequestParser(Protocol.Text, textRequest, requests));
+        report("binary parser", requests, () -> runRequestParser(Protocol.Binary, binaryRequest, requests));
+        System.out.println("checksum: " + checksum);
+    }
+
+    // Parses the requests the way the server did before the request parsers: one String per line, split into a new
+    // Request, and a new Command and Result for each request.
+    private static void runSplitParser(byte[] input, int requests)
+    {
+        for (int i = 0; i < requests; i++)
+        {
+            String line = new String(input, 0, input.length - 2, StandardCharsets.UTF_8);
+            Request request = new Request(line);
+            Command command = new Command(player, request.getAction(), request.getArgs());
+            Result result = new Result();
+            result.setPlayer(command.getPlayer().getName());
+            consume(command);
+        }
+    }
+
+    // Parses the requests with the request parser of the protocol specified, reusing the Command and the Result.
+    private static void runRequestParser(Protocol protocol, byte[] input, int requests) throws InvalidRequestException
+    {
+        RequestParser parser = protocol.createRequestParser();
+        Command command = new Command();
+        Result result = new Result();
+        for (int i = 0; i < requests; i++)
+        {
+            Request request = null;
+            for (byte b : input)
+                request = parser.parse(b);
+            command.setPlayer(player);
+            command.setAction(request.getAction());
+            command.setArgs(request.getArgs());
+            result.reset();
+            result.setPlayer(command.getPlayer().getName());
+            consume(command);
+        }
+    }
+
+    // Folds the parsed command into the checksum.
+    private static void consume(Command command)
+    {
+        checksum += command.getAction().ordinal() + command.getArgs().get(0).length();
+    }
+
+    // Runs a measurement and prints the bytes allocated and the time taken per request.
+    private static void report(String name, int requests, Measurement measurement) throws InvalidRequestException
+    {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        measurement.run();
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        System.out.printf("%-18s %8.1f bytes/request %8.1f ns/request%n", name, (double) allocated / requests,
+                          (double) elapsed / requests);
+    }
+
+    // A measurement run by report().
+    private interface Measurement
+    {
+        void run() throws InvalidRequestException;
+    }
+}
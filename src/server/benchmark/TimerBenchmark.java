@@ -0,0 +1,159 @@
+package server.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import logger.LogLevel;
+import logger.Logger;
+import server.timer.Timeout;
+import server.timer.TimingWheel;
+
+/**
+ * Compares the TimingWheel used by the game with a ScheduledThreadPoolExecutor holding the same number of pending
+ * timers (1M by default), all running a trivial task:
+ * - schedule: time taken by the caller to schedule the timers, delays spread over the next hour, and the heap retained
+ *   by the pending timers
+ * - cancel: time taken by the caller to cancel all those timers (the executor removes cancelled timers from its queue)
+ * - expire: time taken to run timers whose delays are spread over the next 2 seconds, and their average lateness
+ *
+ * Usage: java server.benchmark.TimerBenchmark [<timers>]
+ */
+public class TimerBenchmark
+{
+    private static final int DEFAULT_TIMERS = 1000000; // pending timers in each measurement
+    private static final long LONG_DELAY = 3600000;   // maximum delay of the timers scheduled and cancelled (ms)
+    private static final long SHORT_DELAY = 2000;     // maximum delay of the timers run (ms)
+    private static final int WARMUP_ROUNDS = 1;       // measurements discarded while the JIT compiles the code
+
+    private static AtomicLong expired = new AtomicLong(0);  // timers run in the current measurement
+    private static AtomicLong lateness = new AtomicLong(0); // total lateness of the timers run, in nanoseconds
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        Logger.setLogLevel(LogLevel.Error);
+        int timers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TIMERS;
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+        {
+            runTimingWheel(timers, false);
+            runExecutor(timers, false);
+        }
+        runTimingWheel(timers, true);
+        runExecutor(timers, true);
+    }
+
+    // Schedules, cancels and runs timers on a timing wheel with the game's tick duration.
+    private static void runTimingWheel(int timers, boolean print) throws InterruptedException
+    {
+        TimingWheel wheel = new TimingWheel("BenchmarkWheel");
+        Timeout[] timeouts = new Timeout[timers];
+        long[] delays = getDelays(timers, LONG_DELAY);
+        long heapBefore = getUsedHeap();
+        long start = System.nanoTime();
+        for (int i = 0; i < timers; i++)
+            timeouts[i] = wheel.schedule(TimerBenchmark::run, delays[i], TimeUnit.MILLISECONDS);
+        long scheduleTime = System.nanoTime() - start;
+        Thread.sleep(TimingWheel.DEFAULT_TICK * 10); // let the ticker link the timeouts into the wheels
+        long heap = getUsedHeap() - heapBefore;
+        start = System.nanoTime();
+        for (Timeout timeout : timeouts)
+            timeout.cancel();
+        long cancelTime = System.nanoTime() - start;
+        long expireTime = runExpiring(timers, (task, delay) -> wheel.schedule(task, delay, TimeUnit.NANOSECONDS));
+        wheel.stop();
+        if (print)
+            report("TimingWheel", timers, scheduleTime, heap, cancelTime, expireTime);
+    }
+
+    // Schedules, cancels and runs timers on a single-threaded ScheduledThreadPoolExecutor.
+    private static void runExecutor(int timers, boolean print) throws InterruptedException
+    {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        ScheduledFuture<?>[] futures = new ScheduledFuture<?>[timers];
+        long[] delays = getDelays(timers, LONG_DELAY);
+        long heapBefore = getUsedHeap();
+        long start = System.nanoTime();
+        for (int i = 0; i < timers; i++)
+            futures[i] = executor.schedule(TimerBenchmark::run, delays[i], TimeUnit.MILLISECONDS);
+        long scheduleTime = System.nanoTime() - start;
+        long heap = getUsedHeap() - heapBefore;
+        start = System.nanoTime();
+        for (ScheduledFuture<?> future : futures)
+            future.cancel(false);
+        long cancelTime = System.nanoTime() - start;
+        long expireTime = runExpiring(timers, (task, delay) -> executor.schedule(task, delay, TimeUnit.NANOSECONDS));
+        executor.shutdownNow();
+        if (print)
+            report("ScheduledThreadPool", timers, scheduleTime, heap, cancelTime, expireTime);
+    }
+
+    // Schedules timers due within SHORT_DELAY, each recording its lateness, and waits until all of them have run.
+    // Returns the time taken until the last timer ran.
+    private static long runExpiring(int timers, Scheduler scheduler) throws InterruptedException
+    {
+        long[] delays = getDelays(timers, SHORT_DELAY);
+        expired.set(0);
+        lateness.set(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < timers; i++)
+        {
+            long delay = TimeUnit.MILLISECONDS.toNanos(delays[i]);
+            long due = System.nanoTime() + delay;
+            scheduler.schedule(() -> record(due), delay);
+        }
+        while (expired.get() < timers)
+            Thread.sleep(1);
+        return System.nanoTime() - start;
+    }
+
+    // Task of the timers that are cancelled before running.
+    private static void run()
+    {
+        expired.incrementAndGet();
+    }
+
+    // Task of the timers that run: records the lateness of the timer due at the specified time.
+    private static void record(long due)
+    {
+        lateness.addAndGet(Math.max(0, System.nanoTime() - due));
+        expired.incrementAndGet();
+    }
+
+    // Gets the specified number of random delays, in milliseconds, up to the specified maximum.
+    private static long[] getDelays(int count, long maxDelay)
+    {
+        Random random = new Random(42);
+        long[] delays = new long[count];
+        for (int i = 0; i < count; i++)
+            delays[i] = 1 + (long) (random.nextDouble() * maxDelay);
+        return delays;
+    }
+
+    // Gets the heap in use after a garbage collection.
+    private static long getUsedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Prints the outcome of the measurements of a scheduler.
+    private static void report(String name, int timers, long scheduleTime, long heap, long cancelTime, long expireTime)
+    {
+        System.out.printf("%-20s schedule %6.1f ns/timer %6.1f bytes/timer, cancel %6.1f ns/timer, "
+                          + "expire %d timers in %d ms (%.2f ms average lateness)%n",
+                          name, (double) scheduleTime / timers, (double) heap / timers, (double) cancelTime / timers,
+                          timers, TimeUnit.NANOSECONDS.toMillis(expireTime),
+                          lateness.get() / 1e6 / Math.max(1, expired.get()));
+    }
+
+    // Schedules a timer on the scheduler being measured.
+    private interface Scheduler
+    {
+        void schedule(Runnable task, long delayNanos);
+    }
+}
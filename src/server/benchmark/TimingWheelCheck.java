@@ -0,0 +1,138 @@
+package server.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import logger.LogLevel;
+import logger.Logger;
+import server.timer.Timeout;
+import server.timer.TimingWheel;
+
+/**
+ * Checks the TimingWheel used by the game against the times its tasks are due:
+ * - expiry: timers with random delays, spread over every wheel up to the third, run once each, not before they are
+ *   due, and in the order they are due (within a tick of rounding; a timer is due after its delay from some time
+ *   between the calls before and after scheduling it)
+ * - cancellation: a random half of the timers is cancelled while the others expire; a timer whose cancellation
+ *   succeeded never runs, and a timer whose cancellation failed had already run
+ * - periodic timers run about once per period, and no more once cancelled
+ * Exits with status 1 if a check fails.
+ *
+ * Usage: java server.benchmark.TimingWheelCheck [<timers>]
+ */
+public class TimingWheelCheck
+{
+    private static final int DEFAULT_TIMERS = 100000; // timers scheduled by the expiry check
+    private static final long TICK = 1;               // tick duration of the wheel checked (ms)
+    private static final long MAX_DELAY = 6000;       // maximum delay of the timers, past the second wheel (ms)
+    private static final long PERIOD = 5;             // period of the periodic timer (ms)
+    private static final long PERIODIC_RUN = 500;     // time the periodic timer runs before it is cancelled (ms)
+
+    private static long[] earliestDue = null;                      // System.nanoTime() before scheduling + delay
+    private static long[] latestDue = null;                        // System.nanoTime() after scheduling + delay
+    private static AtomicIntegerArray runs = null;                 // number of runs of each timer
+    private static int[] order = null;                             // timers in the order they ran
+    private static AtomicInteger runCount = new AtomicInteger(0);  // timers run so far
+    private static AtomicInteger earlyRuns = new AtomicInteger(0); // timers run before they were due
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        Logger.setLogLevel(LogLevel.Error);
+        int timers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TIMERS;
+        TimingWheel wheel = new TimingWheel("CheckWheel", TICK, TimeUnit.MILLISECONDS);
+        boolean passed = checkExpiry(wheel, timers) & checkPeriodic(wheel);
+        wheel.stop();
+        System.out.println(passed ? "All checks passed" : "Some checks FAILED");
+        if (!passed)
+            System.exit(1);
+    }
+
+    // Schedules timers with random delays, cancels half of them while the others expire, and checks the runs.
+    private static boolean checkExpiry(TimingWheel wheel, int timers) throws InterruptedException
+    {
+        Random random = new Random(42);
+        earliestDue = new long[timers];
+        latestDue = new long[timers];
+        runs = new AtomicIntegerArray(timers);
+        order = new int[timers];
+        Timeout[] timeouts = new Timeout[timers];
+        for (int i = 0; i < timers; i++)
+        {
+            int timer = i;
+            long delay = TimeUnit.MILLISECONDS.toNanos(1 + (long) (random.nextDouble() * MAX_DELAY));
+            earliestDue[i] = System.nanoTime() + delay;
+            timeouts[i] = wheel.schedule(() -> record(timer), delay, TimeUnit.NANOSECONDS);
+            latestDue[i] = System.nanoTime() + delay;
+        }
+        boolean[] cancelled = new boolean[timers];
+        for (int i = 0; i < timers; i++)
+        {
+            if (random.nextBoolean())
+            {
+                Thread.sleep(random.nextInt(100) == 0 ? 1 : 0); // let some of the timers expire meanwhile
+                cancelled[i] = timeouts[i].cancel();
+            }
+        }
+        Thread.sleep(MAX_DELAY + 100 * TICK);
+        while (wheel.getPendingTimeoutCount() > 0)
+            Thread.sleep(10);
+
+        int missing = 0;
+        int extra = 0;
+        int cancelledCount = 0;
+        for (int i = 0; i < timers; i++)
+        {
+            int expected = cancelled[i] ? 0 : 1;
+            if (runs.get(i) < expected)
+                missing++;
+            else if (runs.get(i) > expected)
+                extra++;
+            if (cancelled[i])
+                cancelledCount++;
+        }
+        int outOfOrder = 0;
+        long tolerance = TimeUnit.MILLISECONDS.toNanos(TICK);
+        long previousDue = Long.MIN_VALUE; // latest earliest due time of the timers run so far
+        for (int i = 0; i < Math.min(runCount.get(), timers); i++)
+        {
+            if (latestDue[order[i]] + tolerance < previousDue)
+                outOfOrder++;
+            previousDue = Math.max(previousDue, earliestDue[order[i]]);
+        }
+        System.out.printf("Expiry: %d timers, %d cancelled, %d run; %d not run, %d run too often or after being "
+                          + "cancelled, %d run out of order, %d run early%n",
+                          timers, cancelledCount, runCount.get(), missing, extra, outOfOrder, earlyRuns.get());
+        return missing == 0 && extra == 0 && outOfOrder == 0 && earlyRuns.get() == 0;
+    }
+
+    // Runs a periodic timer for a while, then cancels it and checks that it stopped.
+    private static boolean checkPeriodic(TimingWheel wheel) throws InterruptedException
+    {
+        AtomicInteger periodicRuns = new AtomicInteger(0);
+        Timeout timeout = wheel.scheduleAtFixedRate(periodicRuns::incrementAndGet, PERIOD, PERIOD,
+                                                    TimeUnit.MILLISECONDS);
+        Thread.sleep(PERIODIC_RUN);
+        boolean cancelled = timeout.cancel();
+        int runsWhenCancelled = periodicRuns.get();
+        Thread.sleep(10 * PERIOD);
+        int runsAfter = periodicRuns.get() - runsWhenCancelled;
+        long expected = PERIODIC_RUN / PERIOD;
+        System.out.printf("Periodic: %d runs in %d ms, %d expected; cancelled: %b, %d runs after cancelling%n",
+                          runsWhenCancelled, PERIODIC_RUN, expected, cancelled, runsAfter);
+        return cancelled && runsAfter == 0 && runsWhenCancelled >= expected / 2 && runsWhenCancelled <= expected + 1;
+    }
+
+    // Task of the timers of the expiry check: records the run of the specified timer.
+    // Timers run on the ticker thread only, so runs are recorded in the order the wheel ran them.
+    private static void record(int timer)
+    {
+        if (System.nanoTime() < earliestDue[timer] - TimeUnit.MILLISECONDS.toNanos(TICK))
+            earlyRuns.incrementAndGet();
+        runs.incrementAndGet(timer);
+        int run = runCount.getAndIncrement();
+        if (run < order.length)
+            order[run] = timer;
+    }
+}
@@ -5,11 +5,14 @@ package server.command;
  */
 public enum Action
 {
+    Goto,
     Login,
     Map, 
     Message, 
     Move, 
+    Nearby,
     Players, 
+    Protocol,
     Quit, 
     Unknown;
     
@@ -21,6 +24,8 @@ public enum Action
      */
     public static Action fromString(String action)
     {
+        if (action.equalsIgnoreCase("goto"))
+            return Goto;
         if (action.equalsIgnoreCase("login"))
             return Login;
         if (action.equalsIgnoreCase("map"))
@@ -29,10 +34,62 @@ public enum Action
             return Message;
         if (action.equalsIgnoreCase("move"))
             return Move;
+        if (action.equalsIgnoreCase("nearby"))
+            return Nearby;
         if (action.equalsIgnoreCase("players"))
             return Players;
+        if (action.equalsIgnoreCase("protocol"))
+            return Protocol;
         if (action.equalsIgnoreCase("quit"))
             return Quit;
         return Unknown;
     }
+
+    /**
+     * Retrieves the Action named by a sequence of ASCII bytes, ignoring case.
+     * Selects the candidate actions by the length of the name before comparing bytes, so no String is created.
+     * 
+     * @param bytes  the buffer holding the name of the action
+     * @param offset the position of the name in the buffer
+     * @param length the length of the name
+     * @return the Action named by the bytes specified
+     */
+    public static Action fromBytes(byte[] bytes, int offset, int length)
+    {
+        switch (length)
+        {
+            case 3:
+                return matches(bytes, offset, "map") ? Map : Unknown;
+            case 4:
+                if (matches(bytes, offset, "goto"))
+                    return Goto;
+                if (matches(bytes, offset, "move"))
+                    return Move;
+                return matches(bytes, offset, "quit") ? Quit : Unknown;
+            case 5:
+                return matches(bytes, offset, "login") ? Login : Unknown;
+            case 6:
+                return matches(bytes, offset, "nearby") ? Nearby : Unknown;
+            case 7:
+                if (matches(bytes, offset, "message"))
+                    return Message;
+                return matches(bytes, offset, "players") ? Players : Unknown;
+            case 8:
+                return matches(bytes, offset, "protocol") ? Protocol : Unknown;
+            default:
+                return Unknown;
+        }
+    }
+
+    // Checks whether the bytes at offset spell the lower case name specified, ignoring case.
+    // Setting bit 0x20 lower-cases ASCII letters, and turns no other byte into a lower case letter.
+    private static boolean matches(byte[] bytes, int offset, String name)
+    {
+        for (int i = 0; i < name.length(); i++)
+        {
+            if ((bytes[offset + i] | 0x20) != name.charAt(i))
+                return false;
+        }
+        return true;
+    }
 }
@@ -40,6 +40,16 @@ public class Result
     public void setMessage(String message) { this.message = message; }
     public String getMessage() { return message; }
 
+    /**
+     * Clears this result so it can be reused for the next command processed.
+     */
+    public void reset()
+    {
+        player = null;
+        code = null;
+        message = null;
+    }
+
     @Override
     public String toString()
     {
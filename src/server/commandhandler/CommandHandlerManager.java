@@ -1,6 +1,6 @@
 package server.commandhandler;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 
 import logger.LogLevel;
@@ -14,7 +14,7 @@ import server.command.Action;
  */
 public class CommandHandlerManager
 {
-    private Map<Action, CommandHandler> handlers = new HashMap<Action, CommandHandler>(); // list of handlers
+    private Map<Action, CommandHandler> handlers = new EnumMap<Action, CommandHandler>(Action.class); // by action
     
     /**
      * Installs a new command handler.
@@ -0,0 +1,219 @@
+package server.commandhandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import logger.LogLevel;
+import logger.Logger;
+import server.command.Action;
+import server.command.Command;
+import server.command.Result;
+import server.command.ResultCode;
+import server.game.Game;
+import server.game.GameMap;
+import server.game.MoveDirection;
+import server.game.Pathfinder;
+import server.game.Player;
+import server.game.Position;
+import server.timer.Timeout;
+import server.timer.TimingWheel;
+
+/**
+ * Processes commands whose action is Action.Goto.
+ * Receives an instance of the list of players in the game, of the game map and of the pathfinder when installed.
+ * Action.Goto expects two arguments: the x and y coordinates of the position to walk to.
+ * Finds a shortest path from the player's position to the target, and responds with its number of steps. The player
+ * then walks along the path, one move every STEP_DELAY milliseconds: each step is submitted to the game as an
+ * Action.Move command, so it is applied like any other move (e.g. by the tick engine or the region owning the player),
+ * and initiates the same events. Steps are timed by the game's timer, which only hands them off to the game's workers:
+ * when the game applies commands on the thread submitting them, the whole move runs on the worker.
+ * A player walks a single route at a time: another goto replaces the route being walked. The route is dropped when a
+ * step cannot be applied, when the player moves on its own, or when the player leaves the game.
+ */
+public class GotoCommandHandler implements CommandHandler
+{
+    public static final long STEP_DELAY = 100; // delay between two steps of a route, in milliseconds
+
+    private final Action EXPECTED_ACTION = Action.Goto; // expected command action
+    private final int EXPECTED_ARGS_COUNT = 2;          // expected number of args for the Goto action
+
+    private Map<String, Player> players = null;                                  // reference to the list of players
+    private GameMap map = null;                                                  // reference to the game map
+    private Pathfinder pathfinder = null;                                        // finds the routes
+    private Game game = null;                                                    // applies the steps of the routes
+    private TimingWheel timer = null;                                            // schedules the steps of the routes
+    private Executor workers = null;                                             // submits the steps of the routes
+    private Map<String, Route> routes = new ConcurrentHashMap<String, Route>(); // routes being walked, by player name
+
+    /**
+     * Constructor.
+     * Receives a reference to the list of players in the game, to the map the game is using and to the pathfinder
+     * finding routes on it, and to the game, timer and workers applying, scheduling and submitting the steps of the
+     * routes.
+     *
+     * @param players    the list of players in the game
+     * @param map        the game map
+     * @param pathfinder the pathfinder finding routes on the map
+     * @param game       the game the steps of the routes are submitted to
+     * @param timer      the timing wheel scheduling the steps of the routes
+     * @param workers    the threads submitting the steps of the routes, off the timer's thread
+     */
+    public GotoCommandHandler(Map<String, Player> players, GameMap map, Pathfinder pathfinder, Game game,
+                              TimingWheel timer, Executor workers)
+    {
+        this.players = players;
+        this.map = map;
+        this.pathfinder = pathfinder;
+        this.game = game;
+        this.timer = timer;
+        this.workers = workers;
+    }
+
+    @Override
+    public void processCommand(Command command, Result result)
+    {
+        if (isValidCommand(command, EXPECTED_ACTION, EXPECTED_ARGS_COUNT, result))
+        {
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Start processing command: \"" + command + "\"");
+            Player player = command.getPlayer();
+            Position target = new Position(Integer.parseInt(command.getArgs().get(0)),
+                                           Integer.parseInt(command.getArgs().get(1)));
+            Position start = player.getPosition();
+            List<MoveDirection> path = pathfinder.findPath(start, target);
+            if (path == null)
+            {
+                result.setResultCode(ResultCode.BadRequest);
+                result.setMessage("Error. No path to " + target + ".");
+            }
+            else
+            {
+                startRoute(new Route(player, start, path));
+                result.setResultCode(ResultCode.Success);
+                result.setMessage("OK. " + path.size() + (path.size() == 1 ? " step" : " steps") + " to " + target
+                                  + ".");
+            }
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Processing command finished. Result: \"" + result + "\"");
+        }
+    }
+
+    @Override
+    public boolean isValidCommand(Command command, Action expectedAction, int expectedArgsCount, Result result)
+    {
+        return CommandHandler.super.isValidCommand(command, expectedAction, expectedArgsCount, result)
+               && isValidTarget(command.getArgs(), result);
+    }
+
+    /**
+     * Checks whether the coordinates received are those of a position on the map, free of obstacles.
+     * If not, updates result to communicate the unexpected argument values. Result returns a 400-BadRequest code.
+     *
+     * @param args   the list of arguments received in the command being processed
+     * @param result the result to be returned once the command has been processed
+     * @return true if the arguments are the coordinates of a free position; false otherwise
+     */
+    public boolean isValidTarget(List<String> args, Result result)
+    {
+        try
+        {
+            if (map.isValidPosition(Integer.parseInt(args.get(0)), Integer.parseInt(args.get(1))))
+                return true;
+            result.setResultCode(ResultCode.BadRequest);
+            result.setMessage("Error. Cannot go to (" + args.get(0) + ", " + args.get(1) + ").");
+        }
+        catch (NumberFormatException e)
+        {
+            result.setResultCode(ResultCode.BadRequest);
+            result.setMessage("Error. Expected the x and y coordinates of a position.");
+        }
+        return false;
+    }
+
+    // Starts walking a route, dropping the route the player was walking, if any.
+    private void startRoute(Route route)
+    {
+        Route previous = routes.put(route.player.getName(), route);
+        if (previous != null && previous.timeout != null)
+            previous.timeout.cancel();
+        if (!route.steps.isEmpty())
+            scheduleStep(route);
+        else
+            routes.remove(route.player.getName(), route);
+    }
+
+    // Submits the next step of a route, unless the route was replaced, the player left the game or moved on its own.
+    private void step(Route route)
+    {
+        String name = route.player.getName();
+        if (routes.get(name) != route)
+            return;
+        if (players.get(name) != route.player || !route.player.getPosition().equals(route.expected))
+        {
+            routes.remove(name, route);
+            return;
+        }
+        List<String> args = new ArrayList<String>();
+        args.add(route.steps.get(route.next).toString().toLowerCase());
+        Position expected = getNewPosition(route.expected, route.steps.get(route.next));
+        Command move = new Command(route.player, Action.Move, args);
+        game.submitCommand(move, result -> stepApplied(route, expected, result));
+    }
+
+    // Schedules the step following the one applied, or drops the route if the step failed or was the last one.
+    private void stepApplied(Route route, Position expected, Result result)
+    {
+        String name = route.player.getName();
+        if (result.getResultCode() != ResultCode.Success || !route.player.getPosition().equals(expected))
+        {
+            routes.remove(name, route);
+            return;
+        }
+        route.expected = expected;
+        route.next++;
+        if (route.next == route.steps.size())
+            routes.remove(name, route);
+        else if (routes.get(name) == route)
+            scheduleStep(route);
+    }
+
+    // Schedules the next step of a route on the timer, which hands it off to the workers once due.
+    private void scheduleStep(Route route)
+    {
+        route.timeout = timer.schedule(() -> workers.execute(() -> step(route)), STEP_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    // Gets the position one move away from a position in the specified direction.
+    private Position getNewPosition(Position pos, MoveDirection direction)
+    {
+        if (direction == MoveDirection.North)
+            return new Position(pos.getX(), pos.getY() - 1);
+        if (direction == MoveDirection.South)
+            return new Position(pos.getX(), pos.getY() + 1);
+        if (direction == MoveDirection.East)
+            return new Position(pos.getX() + 1, pos.getY());
+        return new Position(pos.getX() - 1, pos.getY());
+    }
+
+    // A route walked by a player: the moves along the path, and the position the player should be at.
+    private static class Route
+    {
+        private Player player = null;            // the player walking the route
+        private List<MoveDirection> steps = null; // the moves along the path
+        private int next = 0;                    // index of the next move
+        private Position expected = null;        // position of the player once the moves before the next are applied
+        private volatile Timeout timeout = null; // the scheduled step; null if none was scheduled yet
+
+        // Constructor.
+        Route(Player player, Position start, List<MoveDirection> steps)
+        {
+            this.player = player;
+            this.expected = start;
+            this.steps = steps;
+        }
+    }
+}
@@ -9,25 +9,29 @@ import server.command.Command;
 import server.command.Result;
 import server.command.ResultCode;
 import server.datapersistence.PlayerDataPersistence;
-import server.event.ItemDataEvent;
 import server.event.MapDataEvent;
 import server.event.PlayerConnectedEvent;
 import server.event.PlayerUpdateEvent;
-import server.event.Subject;
+import server.eventmanager.EventListener;
 import server.eventmanager.EventManager;
+import server.game.AreaOfInterest;
 import server.game.GameMap;
-import server.game.Item;
+import server.game.ItemVisibility;
 import server.game.Player;
+import server.game.PlayerGrid;
 
 /**
  * Processes commands whose action is Action.Login.
  * Receives an instance of the list of players in the game and an instance of the game map when installed.
  * Receives an instance of the game's event manager in order to generate events.
  * Action.Login expects a single argument: the player's name.
- * The player is added to the game if not already logged in and if there are no players with the same name in the game.
+ * The player is added to the game if not already logged in and if there are no players with the same name in the game,
+ * and to the grid indexing the positions of the players.
  * Initiates synchronous map_data event for the player.
- * Initiates synchronous item_data events for the player.
+ * Initiates synchronous item_data events for the items the player sees (see ItemVisibility).
  * Initiates an asynchronous player_connected event containing the new player information.
+ * If the game limits players to their area of interest, player_update and player_connected events are only exchanged
+ * with the players in the new player's area.
  */
 public class LoginCommandHandler implements CommandHandler
 {
@@ -37,20 +41,32 @@ public class LoginCommandHandler implements CommandHandler
     private Map<String, Player> players = null; // reference to the list of players in the game
     private GameMap map = null;                 // reference to the map the game is running
     private EventManager eventManager = null;   // reference to the game's event manager
+    private PlayerGrid grid = null;             // positions of the players in the game; null if not indexed
+    private AreaOfInterest interest = null;     // areas of interest of the players; null if updates are broadcast
+    private ItemVisibility visibility = null;   // items seen by the players
     
     /**
      * Constructor.
-     * Receives a reference to the list of players in the game and a reference to the map the game is using.
+     * Receives a reference to the list of players in the game, a reference to the map the game is using, a reference
+     * to the grid indexing the positions of the players, a reference to the areas of interest of the players and a
+     * reference to the items the players see.
      * 
      * @param players      the list of players in the game
      * @param map          the game map
      * @param eventManager the game's event manager
+     * @param grid         the grid indexing the positions of the players; null if positions are not indexed
+     * @param interest     the areas of interest of the players; null if player updates are broadcast
+     * @param visibility   the items the players see
      */
-    public LoginCommandHandler(Map<String, Player> players, GameMap map, EventManager eventManager)
+    public LoginCommandHandler(Map<String, Player> players, GameMap map, EventManager eventManager, PlayerGrid grid,
+                               AreaOfInterest interest, ItemVisibility visibility)
     {
         this.players = players;
         this.map = map;
         this.eventManager = eventManager;
+        this.grid = grid;
+        this.interest = interest;
+        this.visibility = visibility;
     }
     
     @Override
@@ -58,7 +74,8 @@ public class LoginCommandHandler implements CommandHandler
     {
         if (isValidCommand(command, EXPECTED_ACTION, EXPECTED_ARGS_COUNT, result))
         {
-            Logger.log(LogLevel.Debug, "Start processing command: \"" + command + "\"");
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Start processing command: \"" + command + "\"");
             String name = command.getArgs().get(0);
             if (command.getPlayer().getName() != null) // player has already logged in
                 getPlayerLoggedInResult(result);
@@ -73,11 +90,14 @@ public class LoginCommandHandler implements CommandHandler
                 PlayerDataPersistence.getStoredPlayerData(player); // update position and score
                 if (!map.isValidPosition(player.getPosition()))    // if map changed, check if it's still valid position
                     player.updatePosition(map.getSpawnPoint());
+                if (grid != null)
+                    grid.add(player);
                 getSuccessResult(result, player.getName());
                 installPlayerListeners(player);
                 generateEvents(player);
             }
-            Logger.log(LogLevel.Debug, "Processing command finished. Result: \"" + result + "\"");
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Processing command finished. Result: \"" + result + "\"");
         }
     }
     
@@ -111,26 +131,26 @@ public class LoginCommandHandler implements CommandHandler
         result.setMessage("Welcome to Octothorpe # The Game, <" + name + ">");
     }
 
-    // Installs player's listeners to the games event manager.
+    // Installs player's listener to the games event manager.
+    // The player's event handler manager listens to events of all subjects.
     private void installPlayerListeners(Player player)
     {
-        eventManager.subscribe(Subject.MapData, player.getEventHandlerManager().getEventHandler(Subject.MapData));
-        eventManager.subscribe(Subject.ItemCollected, player.getEventHandlerManager().getEventHandler(Subject.ItemCollected));
-        eventManager.subscribe(Subject.ItemData, player.getEventHandlerManager().getEventHandler(Subject.ItemData));
-        eventManager.subscribe(Subject.PlayerConnected, player.getEventHandlerManager().getEventHandler(Subject.PlayerConnected));
-        eventManager.subscribe(Subject.PlayerDisconnected, player.getEventHandlerManager().getEventHandler(Subject.PlayerDisconnected));
-        eventManager.subscribe(Subject.PlayerUpdate, player.getEventHandlerManager().getEventHandler(Subject.PlayerUpdate));
-        eventManager.subscribe(Subject.SendMessage, player.getEventHandlerManager().getEventHandler(Subject.SendMessage));
+        eventManager.subscribe(player.getEventHandlerManager());
     }
 
     // Generates events triggered by a successful login
     private void generateEvents(Player player)
     {
-        eventManager.notify(player.getEventHandlerManager().getEventHandler(Subject.MapData), new MapDataEvent(map));
-        for (Item item : map.getItems())
-            eventManager.notify(player.getEventHandlerManager().getEventHandler(Subject.ItemData), new ItemDataEvent(item));
+        EventListener listener = player.getEventHandlerManager();
+        eventManager.notify(listener, new MapDataEvent(map, map.getRegionAround(player.getPosition())));
+        visibility.playerJoined(player);
+        if (interest != null)
+        {
+            interest.playerJoined(player);
+            return;
+        }
         for (String p : players.keySet())
-            eventManager.notify(player.getEventHandlerManager().getEventHandler(Subject.PlayerUpdate), new PlayerUpdateEvent(players.get(p)));
+            eventManager.notify(listener, new PlayerUpdateEvent(players.get(p)));
         eventManager.notify(new PlayerConnectedEvent(player));
     }
 }
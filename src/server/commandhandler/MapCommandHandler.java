@@ -7,16 +7,17 @@ import server.command.Command;
 import server.command.Result;
 import server.command.ResultCode;
 import server.event.MapDataEvent;
-import server.event.Subject;
 import server.eventmanager.EventManager;
 import server.game.GameMap;
+import server.game.MapRegion;
 
 /**
  * Processes commands whose action is Action.Map.
  * Receives an instance of the game map when installed.
  * Receives an instance of the game's event manager in order to generate events.
  * Action.Map does not expect any arguments (command args should be empty).
- * Initiates synchronous map_data events containing map data.
+ * Initiates synchronous map_data events containing map data: the whole map, or the region around the player in chunked
+ * worlds.
  */
 public class MapCommandHandler implements CommandHandler
 {
@@ -44,11 +45,14 @@ public class MapCommandHandler implements CommandHandler
     {
         if (isValidCommand(command, EXPECTED_ACTION, EXPECTED_ARGS_COUNT, result))
         {
-            Logger.log(LogLevel.Debug, "Start processing command: \"" + command + "\"");
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Start processing command: \"" + command + "\"");
             result.setResultCode(ResultCode.Success);
             result.setMessage(getSuccessMessage());
-            eventManager.notify(command.getPlayer().getEventHandlerManager().getEventHandler(Subject.MapData), new MapDataEvent(map));
-            Logger.log(LogLevel.Debug, "Processing command finished. Result: \"" + result + "\"");
+            MapRegion region = map.getRegionAround(command.getPlayer().getPosition());
+            eventManager.notify(command.getPlayer().getEventHandlerManager(), new MapDataEvent(map, region));
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Processing command finished. Result: \"" + result + "\"");
         }
     }
     
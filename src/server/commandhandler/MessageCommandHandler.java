@@ -39,11 +39,13 @@ public class MessageCommandHandler implements CommandHandler
     {
         if (isValidCommand(command, EXPECTED_ACTION, result))
         {
-            Logger.log(LogLevel.Debug, "Start processing command: \"" + command + "\"");
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Start processing command: \"" + command + "\"");
             result.setResultCode(ResultCode.Success);
             result.setMessage("OK. Message sent.");
             eventManager.notify(new SendMessageEvent(buildMessage(command.getPlayer().getName(), command.getArgs())));
-            Logger.log(LogLevel.Debug, "Processing command finished. Result: \"" + result + "\"");
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Processing command finished. Result: \"" + result + "\"");
         }
     }
     
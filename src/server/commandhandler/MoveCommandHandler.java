@@ -7,15 +7,19 @@ import server.command.Command;
 import server.command.Result;
 import server.command.ResultCode;
 import server.event.ItemCollectedEvent;
-import server.event.ItemDataEvent;
+import server.event.MapDataEvent;
 import server.event.PlayerUpdateEvent;
-import server.event.Subject;
 import server.eventmanager.EventManager;
+import server.game.AreaOfInterest;
 import server.game.GameMap;
 import server.game.Item;
+import server.game.ItemRespawner;
+import server.game.ItemVisibility;
+import server.game.MapRegion;
 import server.game.MoveDirection;
 import server.game.Player;
 import server.game.Position;
+import server.game.RegionSimulation;
 
 /**
  * Processes commands whose action is Action.Move.
@@ -27,28 +31,51 @@ import server.game.Position;
  * - South: increments the player's y coordinate by 1
  * - East: increments the player's x coordinate by 1
  * - West: decrements the player's x coordinate by 1
- * Initiates synchronous treasure_found event for the player.
+ * Initiates synchronous treasure_found event for the player. Items are collected only once: they are removed from the
+ * map, and their respawn is scheduled.
+ * In chunked worlds, initiates synchronous map_data and item_data events for the player when the region of the world
+ * around the player changes.
+ * Initiates synchronous item_data events for the items the player sees that it did not know yet (see ItemVisibility).
  * Initiates an asynchronous player_update event containing the updated player information.
+ * If the map is partitioned into regions, items are looked up in the index of the region applying the move.
+ * If the game limits players to their area of interest, the player_update event only goes to the players in the
+ * player's area, and players entering or leaving the area are notified.
+ * Moves of the same player are applied one at a time, since the steps of a goto route are submitted on the game's
+ * timer while the player may submit moves of its own.
  */
 public class MoveCommandHandler implements CommandHandler
 {
     private final Action EXPECTED_ACTION = Action.Move; // expected command action
     private final int EXPECTED_ARGS_COUNT = 1;          // expected number of args for the Move action
     
-    private GameMap map = null;                 // reference to the map the game is running
+    private GameMap map = null;               // reference to the map the game is running
     private EventManager eventManager = null; // reference to the game's event manager
+    private ItemRespawner respawner = null;   // replaces the items collected
+    private RegionSimulation regions = null;  // regions of the map; null if the map is not partitioned
+    private AreaOfInterest interest = null;   // areas of interest of the players; null if updates are broadcast
+    private ItemVisibility visibility = null; // items seen by the players
     
     /**
      * Constructor.
-     * Receives a reference to the list of players in the game and a reference to the map the game is using.
+     * Receives a reference to the map the game is using, to the regions it is partitioned into, to the areas of
+     * interest of the players and to the items the players see.
      * 
      * @param map          the game map
      * @param eventManager the game's event manager
+     * @param respawner    the respawner of the items collected
+     * @param regions      the regions of the map; null if the map is not partitioned
+     * @param interest     the areas of interest of the players; null if player updates are broadcast
+     * @param visibility   the items the players see
      */
-    public MoveCommandHandler(GameMap map, EventManager eventManager)
+    public MoveCommandHandler(GameMap map, EventManager eventManager, ItemRespawner respawner, RegionSimulation regions,
+                              AreaOfInterest interest, ItemVisibility visibility)
     {
         this.map = map;
         this.eventManager = eventManager;
+        this.respawner = respawner;
+        this.regions = regions;
+        this.interest = interest;
+        this.visibility = visibility;
     }
     
     @Override
@@ -56,15 +83,24 @@ public class MoveCommandHandler implements CommandHandler
     {
         if (isValidCommand(command, EXPECTED_ACTION, EXPECTED_ARGS_COUNT, result))
         {
-            Logger.log(LogLevel.Debug, "Start processing command: \"" + command + "\"");
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Start processing command: \"" + command + "\"");
             Player player = command.getPlayer();
             MoveDirection direction = MoveDirection.fromString(command.getArgs().get(0));
-            Position currentPos = player.getPosition();
-            Position newPos = getNewPosition(currentPos, direction);
-            movePlayer(player, newPos, result);
-            eventManager.notify(new PlayerUpdateEvent(player));
-            revealItemsNearby(player);
-            Logger.log(LogLevel.Debug, "Processing command finished. Result: \"" + result + "\"");
+            synchronized (player)
+            {
+                Position currentPos = player.getPosition();
+                Position newPos = getNewPosition(currentPos, direction);
+                movePlayer(player, newPos, result);
+                if (interest != null)
+                    interest.playerMoved(player);
+                else
+                    eventManager.notify(new PlayerUpdateEvent(player));
+                if (player.getPosition() != currentPos)
+                    visibility.playerMoved(player, currentPos);
+            }
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Processing command finished. Result: \"" + result + "\"");
         }
     }
     
@@ -99,7 +135,10 @@ public class MoveCommandHandler implements CommandHandler
     {
         if (map.isValidPosition(newPos))
         {
+            MapRegion region = map.getRegionAround(player.getPosition());
             player.updatePosition(newPos);
+            if (region != null)
+                updateRegion(player, region);
             grabItem(player);
             getValidMovementResult(result, player);
         }
@@ -140,39 +179,38 @@ public class MoveCommandHandler implements CommandHandler
         result.setMessage(sb.toString());
     }
 
-    // Updates player's score if movement lands player on a space that contains an item.
-    // Notifies player of item collected.
+    // Updates player's score if movement lands player on a space that contains an item, and the player is the first
+    // to collect it.
+    // Notifies player of item collected and schedules its respawn.
     private void grabItem(Player player)
     {
         Position pos = player.getPosition();
-        Item item = map.getItemAtPosition(pos);
-        if (item != null)
+        Item item = getItemAtPosition(pos.getX(), pos.getY());
+        if (item != null && map.collectItem(item))
         {
+            if (regions != null)
+                regions.itemCollected(item);
+            visibility.itemCollected(item);
             player.updateScore(item.getValue());
             eventManager.notify(new ItemCollectedEvent(player, item));
+            respawner.itemCollected(item);
         }
     }
 
-    // Reveals items at positions surrounding the player's position.
-    private void revealItemsNearby(Player player)
+    // Sends the region of a chunked world around the player, and the items it sees in it, if the player moved out of
+    // the region previously sent.
+    private void updateRegion(Player player, MapRegion previousRegion)
     {
-        int x = player.getPosition().getX();
-        int y = player.getPosition().getY();
-        revealItemAtPosition(player, x - 1, y - 1); // top left
-        revealItemAtPosition(player, x, y - 1);     // top
-        revealItemAtPosition(player, x + 1, y - 1); // top right
-        revealItemAtPosition(player, x - 1, y);     // left
-        revealItemAtPosition(player, x + 1, y);     // right
-        revealItemAtPosition(player, x - 1, y + 1); // bottom left
-        revealItemAtPosition(player, x, y + 1);     // bottom
-        revealItemAtPosition(player, x + 1, y + 1); // bottom right
+        MapRegion region = map.getRegionAround(player.getPosition());
+        if (region.equals(previousRegion))
+            return;
+        eventManager.notify(player.getEventHandlerManager(), new MapDataEvent(map, region));
+        visibility.regionChanged(player);
     }
 
-    // Notifies player if there is an itam at position (x, y).
-    private void revealItemAtPosition(Player player, int x, int y)
+    // Retrieves the item at position (x, y), from the index of the region applying the move if the map is partitioned.
+    private Item getItemAtPosition(int x, int y)
     {
-        Item item = map.getItemAtPosition(x, y);
-        if (item != null)
-            eventManager.notify(player.getEventHandlerManager().getEventHandler(Subject.ItemData), new ItemDataEvent(item));
+        return regions == null ? map.getItemAtPosition(x, y) : regions.getItemAtPosition(x, y);
     }
 }
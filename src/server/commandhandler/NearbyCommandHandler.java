@@ -0,0 +1,121 @@
+package server.commandhandler;
+
+import java.util.List;
+
+import logger.LogLevel;
+import logger.Logger;
+import server.command.Action;
+import server.command.Command;
+import server.command.Result;
+import server.command.ResultCode;
+import server.game.Player;
+import server.game.PlayerGrid;
+
+/**
+ * Processes commands whose action is Action.Nearby.
+ * Receives an instance of the grid indexing the positions of the players in the game when installed.
+ * Action.Nearby expects at most one argument: the number of players wanted, DEFAULT_COUNT if not specified.
+ * Responds with the names of the players nearest to the player, nearest first, each followed by its distance: the
+ * largest of its distances to the player along x and along y.
+ */
+public class NearbyCommandHandler implements CommandHandler
+{
+    public static final int DEFAULT_COUNT = 5; // players retrieved if the command does not specify a number
+    public static final int MAX_COUNT = 100;   // largest number of players retrieved
+
+    private final Action EXPECTED_ACTION = Action.Nearby; // expected command action
+
+    private PlayerGrid grid = null; // reference to the grid indexing the positions of the players
+
+    /**
+     * Constructor.
+     * Receives a reference to the grid indexing the positions of the players in the game.
+     * 
+     * @param grid the grid indexing the positions of the players
+     */
+    public NearbyCommandHandler(PlayerGrid grid)
+    {
+        this.grid = grid;
+    }
+
+    @Override
+    public void processCommand(Command command, Result result)
+    {
+        if (isValidCommand(command, EXPECTED_ACTION, result))
+        {
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Start processing command: \"" + command + "\"");
+            Player player = command.getPlayer();
+            int count = command.getArgs().isEmpty() ? DEFAULT_COUNT : Integer.parseInt(command.getArgs().get(0));
+            List<Player> nearest = grid.getNearestPlayers(player.getPosition(), count, Integer.MAX_VALUE, player);
+            result.setResultCode(ResultCode.Success);
+            result.setMessage(getSuccessMessage(player, nearest));
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Processing command finished. Result: \"" + result + "\"");
+        }
+    }
+
+    /**
+     * Checks whether the command received is valid.
+     * Condenses all default command checkers into a single function.
+     * Updates result according to the checkers performed.
+     * 
+     * @param command        the command to be processed
+     * @param expectedAction the action expected by the command handler
+     * @param result         the result to be returned once the command has been processed
+     * @return true if command passes all chackers; false if command fails any checkers
+     */
+    public boolean isValidCommand(Command command, Action expectedAction, Result result)
+    {
+        return hasValidAction(command.getAction(), result)
+               && hasValidPlayer(command.getPlayer(), result)
+               && isExpectedAction(expectedAction, command.getAction(), result)
+               && isValidCount(command.getArgs(), result);
+    }
+
+    /**
+     * Checks whether the arguments hold at most a number of players between 1 and MAX_COUNT.
+     * If not, updates result to communicate the unexpected arguments. Result returns a 400-BadRequest code.
+     * 
+     * @param args   the list of arguments received in the command being processed
+     * @param result the result to be returned once the command has been processed
+     * @return true if the arguments are empty or hold a valid number of players; false otherwise
+     */
+    public boolean isValidCount(List<String> args, Result result)
+    {
+        if (args.isEmpty())
+            return true;
+        if (args.size() == 1)
+        {
+            try
+            {
+                int count = Integer.parseInt(args.get(0));
+                if (count >= 1 && count <= MAX_COUNT)
+                    return true;
+            }
+            catch (NumberFormatException e)
+            {
+            }
+        }
+        result.setResultCode(ResultCode.BadRequest);
+        result.setMessage("Error. Expected a number of players between 1 and " + MAX_COUNT + ".");
+        return false;
+    }
+
+    // Builds the message to be sent in a successful result: "OK. <n> players nearby: <name> (<distance>), ..."
+    private String getSuccessMessage(Player player, List<Player> nearest)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("OK. ");
+        sb.append(nearest.size());
+        sb.append(nearest.size() == 1 ? " player" : " players");
+        sb.append(" nearby");
+        for (int i = 0; i < nearest.size(); i++)
+        {
+            sb.append(i == 0 ? ": " : ", ");
+            sb.append(nearest.get(i).getName());
+            sb.append(" (" + PlayerGrid.getDistance(nearest.get(i).getPosition(), player.getPosition()) + ")");
+        }
+        return sb.toString();
+    }
+}
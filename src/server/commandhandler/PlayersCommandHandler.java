@@ -9,7 +9,6 @@ import server.command.Command;
 import server.command.Result;
 import server.command.ResultCode;
 import server.event.PlayerUpdateEvent;
-import server.event.Subject;
 import server.eventmanager.EventManager;
 import server.game.Player;
 
@@ -46,12 +45,14 @@ public class PlayersCommandHandler implements CommandHandler
     {
         if (isValidCommand(command, EXPECTED_ACTION, EXPECTED_ARGS_COUNT, result))
         {
-            Logger.log(LogLevel.Debug, "Start processing command: \"" + command + "\"");
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Start processing command: \"" + command + "\"");
             result.setResultCode(ResultCode.Success);
             result.setMessage(getSuccessMessage());
             for (String player : players.keySet())
-                eventManager.notify(command.getPlayer().getEventHandlerManager().getEventHandler(Subject.PlayerUpdate), new PlayerUpdateEvent(players.get(player)));
-            Logger.log(LogLevel.Debug, "Processing command finished. Result: \"" + result + "\"");
+                eventManager.notify(command.getPlayer().getEventHandlerManager(), new PlayerUpdateEvent(players.get(player)));
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Processing command finished. Result: \"" + result + "\"");
         }
     }
     
@@ -11,8 +11,9 @@ import server.command.Result;
 import server.command.ResultCode;
 import server.datapersistence.PlayerDataPersistence;
 import server.event.PlayerDisconnectedEvent;
-import server.eventmanager.EventListener;
 import server.eventmanager.EventManager;
+import server.game.AreaOfInterest;
+import server.game.PlayerGrid;
 import server.game.Player;
 
 /**
@@ -30,18 +31,26 @@ public class QuitCommandHandler implements CommandHandler
     
     private Map<String, Player> players = null; // reference to the list of players in the game
     private EventManager eventManager = null; // reference to the game's event manager
+    private PlayerGrid grid = null;           // positions of the players in the game; null if not indexed
+    private AreaOfInterest interest = null;   // areas of interest of the players; null if updates are broadcast
     
     /**
      * Constructor.
-     * Receives a reference to the list of players in the game.
+     * Receives a reference to the list of players in the game, to the grid indexing their positions and to the areas
+     * of interest of the players.
      * 
      * @param players      the list of players in the game
      * @param eventManager the game's event manager
+     * @param grid         the grid indexing the positions of the players; null if positions are not indexed
+     * @param interest     the areas of interest of the players; null if player updates are broadcast
      */
-    public QuitCommandHandler(Map<String, Player> players, EventManager eventManager)
+    public QuitCommandHandler(Map<String, Player> players, EventManager eventManager, PlayerGrid grid,
+                              AreaOfInterest interest)
     {
         this.players = players;
         this.eventManager = eventManager;
+        this.grid = grid;
+        this.interest = interest;
     }
     
     @Override
@@ -49,15 +58,20 @@ public class QuitCommandHandler implements CommandHandler
     {
         if (isValidCommand(command, EXPECTED_ACTION, EXPECTED_ARGS_COUNT, result))
         {
-            Logger.log(LogLevel.Debug, "Start processing command: \"" + command + "\"");
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Start processing command: \"" + command + "\"");
             PlayerDataPersistence.storePlayersData(new ArrayList<Player>(players.values()));
             Player player = players.remove(command.getPlayer().getName());
             result.setResultCode(ResultCode.Success);
             result.setMessage("So long, and thanks for all the fish!");
-            for (EventListener listener : player.getEventHandlerManager().getEventHandlerList())
-                eventManager.unsubscribe(listener);
+            eventManager.unsubscribe(player.getEventHandlerManager());
+            if (grid != null)
+                grid.remove(player);
+            if (interest != null)
+                interest.playerLeft(player);
             eventManager.notify(new PlayerDisconnectedEvent(player));
-            Logger.log(LogLevel.Debug, "Processing command finished. Result: \"" + result + "\"");
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Processing command finished. Result: \"" + result + "\"");
         }
     }
 }
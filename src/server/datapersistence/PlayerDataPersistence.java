@@ -6,6 +6,8 @@ import java.io.PrintWriter;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import logger.LogLevel;
 import logger.Logger;
@@ -14,27 +16,38 @@ import server.game.Position;
 
 /**
  * Provides synchronized read and write operations on a file storing player data.
+ * Operations are serialized with a lock rather than a monitor so that virtual threads doing file I/O do not pin their
+ * carrier thread.
  */
 public class PlayerDataPersistence
 {
     private static final File FILE = new File("res/players.data");
+    private static final Lock LOCK = new ReentrantLock(); // serializes access to the player data file
     
     /**
      * Updates the files containing player data with the data from the list of players provided.
      * 
      * @param players list of players whose information should be updated
      */
-    public static synchronized void storePlayersData(List<Player> players)
+    public static void storePlayersData(List<Player> players)
     {
-        List<PlayerData> dataList = readPlayerData();
-        for (Player player : players)
+        LOCK.lock();
+        try
         {
-            PlayerData newData = new PlayerData(player);
-            if (dataList.contains(newData))
-                dataList.remove(newData);
-            dataList.add(newData);
+            List<PlayerData> dataList = readPlayerData();
+            for (Player player : players)
+            {
+                PlayerData newData = new PlayerData(player);
+                if (dataList.contains(newData))
+                    dataList.remove(newData);
+                dataList.add(newData);
+            }
+            writePlayerData(dataList);
+        }
+        finally
+        {
+            LOCK.unlock();
         }
-        writePlayerData(dataList);
     }
     
     /**
@@ -44,22 +57,30 @@ public class PlayerDataPersistence
      * 
      * @param player the player whose information should be retrieved from storage
      */
-    public static synchronized void getStoredPlayerData(Player player)
+    public static void getStoredPlayerData(Player player)
     {
-        List<PlayerData> dataList = readPlayerData();
-        for (PlayerData data : dataList)
+        LOCK.lock();
+        try
         {
-            if (data.name.equalsIgnoreCase(player.getName()))
+            List<PlayerData> dataList = readPlayerData();
+            for (PlayerData data : dataList)
             {
-                player.updatePosition(new Position(data.x, data.y));
-                player.resetScore(data.score);
+                if (data.name.equalsIgnoreCase(player.getName()))
+                {
+                    player.updatePosition(new Position(data.x, data.y));
+                    player.resetScore(data.score);
+                }
             }
         }
+        finally
+        {
+            LOCK.unlock();
+        }
     }
     
     // Reads data currently stored in the file storing player data.
     // Player data is stored as a list of <name,x,y,score> entries, one entry per line.
-    private static synchronized List<PlayerData> readPlayerData()
+    private static List<PlayerData> readPlayerData()
     {
         List<PlayerData> dataList = new LinkedList<PlayerData>();
         
@@ -78,7 +99,7 @@ public class PlayerDataPersistence
     
     // Writes player data into the file storing player data.
     // Wipes out the entire data from file, replacing it with the new data.
-    private static synchronized void writePlayerData(List<PlayerData> dataList)
+    private static void writePlayerData(List<PlayerData> dataList)
     {
         try (PrintWriter writer = new PrintWriter(FILE)) // PrintWriter truncates file
         {
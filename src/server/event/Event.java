@@ -1,13 +1,20 @@
 package server.event;
 
+import server.gameserver.Frame;
+import server.protocol.Protocol;
+
 /**
  * An event generated by an entity in the application.
  * Events must have a subject.
  * Objects can extend Event to add more information.
+ * Once an event has been encoded to be delivered to players, the encoded frame is kept with the event so that every
+ * player receiving the same event reuses it.
  */
 public class Event
 {
     protected Subject subject = Subject.Unknown; // the event's subject
+    private volatile Frame frame = null;         // the event encoded in the Text protocol; null until encoded
+    private volatile Frame binaryFrame = null;   // the event encoded in the Binary protocol; null until encoded
     
     /**
      * Default constructor.
@@ -30,4 +37,30 @@ public class Event
     // Setters and Getters
     public void setSubject(Subject subject) { this.subject = subject; }
     public Subject getSubject() { return subject; }
+
+    /**
+     * Keeps the event encoded in the protocol specified, so it can be delivered to other players without encoding it
+     * again.
+     * 
+     * @param protocol the protocol the event was encoded in
+     * @param frame    the encoded event
+     */
+    public void setFrame(Protocol protocol, Frame frame)
+    {
+        if (protocol == Protocol.Binary)
+            binaryFrame = frame;
+        else
+            this.frame = frame;
+    }
+
+    /**
+     * Retrieves the event encoded in the protocol specified.
+     * 
+     * @param protocol the protocol the event was encoded in
+     * @return the encoded event; null if the event was not encoded in the protocol yet
+     */
+    public Frame getFrame(Protocol protocol)
+    {
+        return protocol == Protocol.Binary ? binaryFrame : frame;
+    }
 }
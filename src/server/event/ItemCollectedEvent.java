@@ -6,7 +6,7 @@ import server.game.Player;
 /**
  * Event generated when a player collects an item.
  */
-public class ItemCollectedEvent extends Event
+public class ItemCollectedEvent extends Event implements PlayerEvent
 {
     private Player player; //player who collected the item
     private Item item; // the item that was collected
@@ -1,13 +1,16 @@
 package server.event;
 
 import server.game.GameMap;
+import server.game.MapRegion;
 
 /**
  * Event generated to provide game map information.
+ * Carries either the whole map, or a region of the map for chunked worlds.
  */
 public class MapDataEvent extends Event
 {
-    private GameMap map; // the game map
+    private GameMap map;             // the game map
+    private MapRegion region = null; // the region of the map provided; null for the whole map
     
     /**
      * Default constructor.
@@ -31,13 +34,29 @@ public class MapDataEvent extends Event
         this.map = map;   
     }
     
+    /**
+     * Constructor.
+     * Sets the event subject to Subject.MapData.
+     * Sets the map and the region of the map provided.
+     * 
+     * @param map    the game map
+     * @param region the region of the map provided; null for the whole map
+     */
+    public MapDataEvent(GameMap map, MapRegion region)
+    {
+        this(map);
+        this.region = region;
+    }
+    
     // Setters and Getters
     public void setMap(GameMap map) { this.map = map; }
     public GameMap getMap() { return map; }
+    public void setRegion(MapRegion region) { this.region = region; }
+    public MapRegion getRegion() { return region; }
 
     @Override
     public String toString()
     {
-        return "Event " + subject + ": " + map;
+        return "Event " + subject + ": " + map + (region == null ? "" : ", " + region);
     }
 }
@@ -5,7 +5,7 @@ import server.game.Player;
 /**
  * Event generated when a new player logs into the game.
  */
-public class PlayerConnectedEvent extends Event
+public class PlayerConnectedEvent extends Event implements PlayerEvent
 {
     private Player player; // the player that just connected
     
@@ -5,7 +5,7 @@ import server.game.Player;
 /**
  * Event generated when a new player quits the game.
  */
-public class PlayerDisconnectedEvent extends Event
+public class PlayerDisconnectedEvent extends Event implements PlayerEvent
 {
     private Player player; // the player that just disconnected
     
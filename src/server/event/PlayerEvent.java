@@ -0,0 +1,18 @@
+package server.event;
+
+import server.game.Player;
+
+/**
+ * An event about a player.
+ * Player events identify the player by its ID in the Binary protocol, so the player's name must have been sent to a
+ * client before a player event can be delivered to it.
+ */
+public interface PlayerEvent
+{
+    /**
+     * Retrieves the player this event is about.
+     * 
+     * @return the player this event is about
+     */
+    public abstract Player getPlayer();
+}
@@ -0,0 +1,44 @@
+package server.event;
+
+import server.game.Player;
+
+/**
+ * Event generated when a player moves out of the area of interest of another player, who stops receiving updates
+ * about the player.
+ */
+public class PlayerOutOfRangeEvent extends Event implements PlayerEvent
+{
+    private Player player; // the player out of range
+    
+    /**
+     * Default constructor.
+     * Sets the event subject to Subject.PlayerOutOfRange.
+     */
+    public PlayerOutOfRangeEvent()
+    {
+        super(Subject.PlayerOutOfRange);
+    }
+    
+    /**
+     * Default constructor.
+     * Sets the event subject to Subject.PlayerOutOfRange.
+     * Sets the player out of range.
+     * 
+     * @param player the player out of range
+     */
+    public PlayerOutOfRangeEvent(Player player)
+    {
+        this();
+        this.player = player;   
+    }
+    
+    // Setters and Getters
+    public void setPlayer(Player player) { this.player = player; }
+    public Player getPlayer() { return player; }
+
+    @Override
+    public String toString()
+    {
+        return "Event " + subject + ": " + player;
+    }
+}
@@ -5,7 +5,7 @@ import server.game.Player;
 /**
  * Event generated when a new player moves.
  */
-public class PlayerUpdateEvent extends Event
+public class PlayerUpdateEvent extends Event implements PlayerEvent
 {
     private Player player; // the player that was updated
     
@@ -10,6 +10,7 @@ public enum Subject
     MapData,
     PlayerConnected,
     PlayerDisconnected,
+    PlayerOutOfRange,
     PlayerUpdate,
     SendMessage,
     Unknown;
@@ -3,13 +3,16 @@ package server.eventhandler;
 import java.util.List;
 
 import server.event.Event;
-import server.eventmanager.EventListener;
+import server.gameserver.Frame;
 import server.gameserver.Response;
+import server.protocol.BinaryWriter;
+import server.protocol.Protocol;
 
 /**
- * Defines a method to process an event and return a response built based on the event.
+ * Defines a method to encode an event into the responses delivered to a player.
+ * Event handlers are installed in a player's EventHandlerManager, one for each event subject.
  */
-public interface EventHandler extends EventListener
+public interface EventHandler
 {
     /**
      * Processes the event received.
@@ -18,4 +21,37 @@ public interface EventHandler extends EventListener
      * @return A Response containing the result of the event processing
      */
     public abstract List<Response> eventToResponse(Event event);
+
+    /**
+     * Encodes the event received into a frame ready to be sent to players using the protocol specified.
+     * The default implementation encodes the responses built by eventToResponse() in the Text protocol, and the
+     * messages written by eventToBinary() in the Binary protocol. Event handlers can override it to reuse frames that
+     * were encoded previously.
+     * 
+     * @param event    the event received
+     * @param protocol the protocol the event is encoded in
+     * @return A Frame containing the encoded responses
+     */
+    public default Frame eventToFrame(Event event, Protocol protocol)
+    {
+        if (protocol != Protocol.Binary)
+            return Frame.of(eventToResponse(event));
+        BinaryWriter writer = new BinaryWriter();
+        eventToBinary(event, writer);
+        return writer.toFrame();
+    }
+
+    /**
+     * Writes the event received as messages of the Binary protocol.
+     * The default implementation writes the responses built by eventToResponse() as Text messages. Event handlers
+     * override it to write the fields of the event with dedicated opcodes.
+     * 
+     * @param event  the event received
+     * @param writer the writer the messages are written into
+     */
+    public default void eventToBinary(Event event, BinaryWriter writer)
+    {
+        for (Response response : eventToResponse(event))
+            writer.writeResponse(response);
+    }
 }
@@ -1,20 +1,50 @@
 package server.eventhandler;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
 import logger.LogLevel;
 import logger.Logger;
+import server.event.Event;
+import server.event.PlayerEvent;
 import server.event.Subject;
+import server.eventmanager.EventQueue;
+import server.game.Player;
+import server.gameserver.Frame;
+import server.gameserver.PlayerConnection;
+import server.gameserver.PlayerHandler;
+import server.protocol.BinaryWriter;
+import server.protocol.Opcode;
+import server.protocol.Protocol;
 
 /**
- * Manages a list of event handlers.
+ * Manages a list of event handlers and delivers a player's notifications.
+ * The EventHandlerManager is the player's single outbound channel: it listens to events of every subject, queues them
+ * in the order they arrive, encodes each event through the event handler installed for the event's subject, and sends
+ * the responses to the player. Since a single queue is used for all subjects, the responses of an event (e.g. the rows
+ * of a MapData event) are never interleaved with the responses of other events.
+ * In the Binary protocol, players are identified by their IDs: the EventHandlerManager sends a player's name to the
+ * player's client before the first event about that player.
  */
-public class EventHandlerManager
+public class EventHandlerManager extends EventQueue
 {
-    private Map<Subject, EventHandler> handlers = new HashMap<Subject, EventHandler>(); // list of handlers
+    private PlayerHandler handler = null; // the player handler whose player receives the notifications
+    private Map<Subject, EventHandler> handlers = new EnumMap<Subject, EventHandler>(Subject.class); // list of handlers
+    private BitSet boundPlayers = new BitSet(); // IDs of the players whose names were sent in the Binary protocol
+
+    /**
+     * Constructor.
+     * 
+     * @param handler the player handler whose player receives the notifications
+     */
+    public EventHandlerManager(PlayerHandler handler)
+    {
+        this.handler = handler;
+    }
     
     /**
      * Installs a new event handler.
@@ -44,10 +74,7 @@ public class EventHandlerManager
 
     public List<EventHandler> getEventHandlerList()
     {
-        List<EventHandler> list = new ArrayList<EventHandler>();
-        for (Subject subject : handlers.keySet())
-            list.add(handlers.get(subject));
-        return list;
+        return new ArrayList<EventHandler>(handlers.values());
     }
     
     /**
@@ -61,4 +88,95 @@ public class EventHandlerManager
         Logger.log(LogLevel.Info, "Removing event handler for " + subject);
         handlers.remove(subject);
     }
+
+    /**
+     * Flushes the responses written to the player, once the notifications queued so far are sent.
+     * The flush runs on the dispatcher worker draining this queue, so it never overlaps the sending of notifications.
+     */
+    public void flush()
+    {
+        schedule();
+    }
+
+    @Override
+    protected void processQueuedEvent(Event event)
+    {
+        EventHandler eventHandler = handlers.get(event.getSubject());
+        if (eventHandler == null)
+        {
+            Logger.log(LogLevel.Debug, "No event handler installed for " + event.getSubject());
+            return;
+        }
+        try
+        {
+            PlayerConnection socket = handler.getSocket();
+            Protocol protocol = socket.getProtocol();
+            if (protocol == Protocol.Binary && event instanceof PlayerEvent)
+                bindPlayerName(((PlayerEvent) event).getPlayer(), socket);
+            Frame frame = encode(event, eventHandler, protocol);
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Sending notification: \"" + frame + "\"");
+            socket.send(frame);
+        }
+        catch (IOException e)
+        {
+            Logger.log(LogLevel.Error, "Socket error sending message", e);
+            handler.setConnected(false);
+        }
+    }
+
+    /**
+     * Flushes the notifications sent while processing the batch, so they are written to the player together.
+     * Does nothing once the player is disconnected.
+     */
+    @Override
+    protected void queueDrained()
+    {
+        if (!handler.isConnected())
+            return;
+        try
+        {
+            handler.getSocket().flush();
+        }
+        catch (IOException e)
+        {
+            Logger.log(LogLevel.Error, "Socket error flushing messages", e);
+            handler.setConnected(false);
+        }
+    }
+
+    // Sends the name of the player specified, unless it was already sent to this player's client.
+    // Only called from the dispatcher worker draining this queue, so the bound IDs need no synchronization.
+    private void bindPlayerName(Player player, PlayerConnection socket) throws IOException
+    {
+        if (boundPlayers.get(player.getId()))
+            return;
+        BinaryWriter writer = new BinaryWriter();
+        writer.begin(Opcode.PlayerName);
+        writer.writeVarint(player.getId());
+        writer.writeString(player.getName());
+        writer.end();
+        socket.send(writer.toFrame());
+        boundPlayers.set(player.getId());
+    }
+
+    // Encodes the event into a frame using the protocol specified.
+    // The frame is kept with the event, so an event broadcast to many players is encoded only once per protocol and
+    // the same frame is sent to every player using that protocol.
+    private Frame encode(Event event, EventHandler eventHandler, Protocol protocol)
+    {
+        Frame frame = event.getFrame(protocol);
+        if (frame != null)
+            return frame;
+        synchronized (event)
+        {
+            frame = event.getFrame(protocol);
+            if (frame == null)
+            {
+                frame = eventHandler.eventToFrame(event, protocol);
+                event.setFrame(protocol, frame);
+            }
+        }
+        return frame;
+    }
 }
@@ -1,27 +1,17 @@
 package server.eventhandler;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import logger.LogLevel;
-import logger.Logger;
 import server.command.ResultCode;
 import server.event.Event;
 import server.event.ItemCollectedEvent;
-import server.eventmanager.EventQueue;
-import server.gameserver.PlayerHandler;
 import server.gameserver.Response;
+import server.protocol.BinaryWriter;
+import server.protocol.Opcode;
 
-public class ItemCollectedEventHandler extends EventQueue implements EventHandler
+public class ItemCollectedEventHandler implements EventHandler
 {
-    private PlayerHandler handler;
-    
-    public ItemCollectedEventHandler(PlayerHandler handler)
-    {
-        this.handler = handler;
-    }
-    
     @Override
     public List<Response> eventToResponse(Event event)
     {
@@ -45,27 +35,17 @@ public class ItemCollectedEventHandler extends EventQueue implements EventHandle
         }
         return list;
     }
-    
+
     @Override
-    protected void processQueuedEvent(Event event)
+    public void eventToBinary(Event event, BinaryWriter writer)
     {
-        if (event instanceof ItemCollectedEvent)
-        {
-            try
-            {
-                List<Response> responses = eventToResponse(event);
-                for (Response response : responses)
-                {
-                    Logger.log(LogLevel.Info, "Sending notification: \"" + response.toString() + "\"");
-                    handler.getSocket().send(response);
-                    Logger.log(LogLevel.Info, "Notification sent");
-                }
-            }
-            catch (IOException e)
-            {
-                Logger.log(LogLevel.Error, "Socket error sending message", e);
-                handler.setConnected(false);
-            }
-        }
+        if (!(event instanceof ItemCollectedEvent))
+            return;
+        ItemCollectedEvent itemCollectedEvent = (ItemCollectedEvent) event;
+        writer.begin(Opcode.ItemTaken);
+        writer.writeVarint(itemCollectedEvent.getPlayer().getId());
+        writer.writeVarint(itemCollectedEvent.getItem().getId());
+        writer.writeSignedVarint(itemCollectedEvent.getItem().getValue());
+        writer.end();
     }
 }
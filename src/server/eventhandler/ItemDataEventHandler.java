@@ -1,27 +1,18 @@
 package server.eventhandler;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import logger.LogLevel;
-import logger.Logger;
 import server.command.ResultCode;
 import server.event.Event;
 import server.event.ItemDataEvent;
-import server.eventmanager.EventQueue;
-import server.gameserver.PlayerHandler;
+import server.game.Item;
 import server.gameserver.Response;
+import server.protocol.BinaryWriter;
+import server.protocol.Opcode;
 
-public class ItemDataEventHandler extends EventQueue implements EventHandler
+public class ItemDataEventHandler implements EventHandler
 {
-    private PlayerHandler handler;
-    
-    public ItemDataEventHandler(PlayerHandler handler)
-    {
-        this.handler = handler;
-    }
-    
     @Override
     public List<Response> eventToResponse(Event event)
     {
@@ -43,27 +34,18 @@ public class ItemDataEventHandler extends EventQueue implements EventHandler
         }
         return list;
     }
-    
+
     @Override
-    protected void processQueuedEvent(Event event)
+    public void eventToBinary(Event event, BinaryWriter writer)
     {
-        if (event instanceof ItemDataEvent)
-        {
-            try
-            {
-                List<Response> responses = eventToResponse(event);
-                for (Response response : responses)
-                {
-                    Logger.log(LogLevel.Info, "Sending notification: \"" + response.toString() + "\"");
-                    handler.getSocket().send(response);
-                    Logger.log(LogLevel.Info, "Notification sent");
-                }
-            }
-            catch (IOException e)
-            {
-                Logger.log(LogLevel.Error, "Socket error sending message", e);
-                handler.setConnected(false);
-            }
-        }
+        if (!(event instanceof ItemDataEvent))
+            return;
+        Item item = ((ItemDataEvent) event).getItem();
+        writer.begin(Opcode.ItemData);
+        writer.writeVarint(item.getId());
+        writer.writeSignedVarint(item.getPosition().getX());
+        writer.writeSignedVarint(item.getPosition().getY());
+        writer.writeSignedVarint(item.getValue());
+        writer.end();
     }
 }
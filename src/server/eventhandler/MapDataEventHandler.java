@@ -1,27 +1,77 @@
 package server.eventhandler;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import logger.LogLevel;
-import logger.Logger;
 import server.command.ResultCode;
 import server.event.Event;
 import server.event.MapDataEvent;
-import server.eventmanager.EventQueue;
-import server.gameserver.PlayerHandler;
+import server.game.GameMap;
+import server.game.MapRegion;
+import server.gameserver.Frame;
 import server.gameserver.Response;
+import server.protocol.BinaryWriter;
+import server.protocol.Opcode;
+import server.protocol.Protocol;
 
-public class MapDataEventHandler extends EventQueue implements EventHandler
+/**
+ * Encodes MapData events.
+ * Regions of chunked worlds are encoded with their position: the first text response holds "<cols>, <rows>, <x>, <y>"
+ * and the Binary protocol uses the MapRegion opcode. Regions are encoded for each event.
+ * The encoded map is cached as a single frame for each protocol, tagged with the map and the version of its layout,
+ * and shared by all players. The frame is rebuilt only when the map layout changes.
+ */
+public class MapDataEventHandler implements EventHandler
 {
-    private PlayerHandler handler;
-    
-    public MapDataEventHandler(PlayerHandler handler)
+    private static volatile CachedMap cache = null;       // the last map encoded in the Text protocol
+    private static volatile CachedMap binaryCache = null; // the last map encoded in the Binary protocol
+
+    @Override
+    public Frame eventToFrame(Event event, Protocol protocol)
     {
-        this.handler = handler;
+        if (!(event instanceof MapDataEvent) || ((MapDataEvent) event).getRegion() != null)
+            return EventHandler.super.eventToFrame(event, protocol);
+        GameMap map = ((MapDataEvent) event).getMap();
+        CachedMap cached = protocol == Protocol.Binary ? binaryCache : cache;
+        if (cached == null || cached.map != map || cached.version != map.getVersion())
+        {
+            int version = map.getVersion();
+            cached = new CachedMap(map, version, EventHandler.super.eventToFrame(event, protocol));
+            if (protocol == Protocol.Binary)
+                binaryCache = cached;
+            else
+                cache = cached;
+        }
+        return cached.frame;
     }
-    
+
+    @Override
+    public void eventToBinary(Event event, BinaryWriter writer)
+    {
+        if (!(event instanceof MapDataEvent))
+            return;
+        GameMap map = ((MapDataEvent) event).getMap();
+        MapRegion region = ((MapDataEvent) event).getRegion();
+        if (region != null)
+        {
+            writer.begin(Opcode.MapRegion);
+            writer.writeVarint(region.getX());
+            writer.writeVarint(region.getY());
+            writer.writeVarint(region.getColsCount());
+            writer.writeVarint(region.getRowsCount());
+            for (int i = 0; i < region.getRowsCount(); i++)
+                writer.writeString(map.getMapRow(region.getY() + i, region.getX(), region.getColsCount()));
+            writer.end();
+            return;
+        }
+        writer.begin(Opcode.MapData);
+        writer.writeVarint(map.getColsCount());
+        writer.writeVarint(map.getRowsCount());
+        for (int i = 0; i < map.getRowsCount(); i++)
+            writer.writeString(map.getMapRow(i));
+        writer.end();
+    }
+
     @Override
     public List<Response> eventToResponse(Event event)
     {
@@ -29,6 +79,8 @@ public class MapDataEventHandler extends EventQueue implements EventHandler
         if (event instanceof MapDataEvent)
         {
             MapDataEvent mapDataEvent = (MapDataEvent) event;
+            if (mapDataEvent.getRegion() != null)
+                return regionToResponses(mapDataEvent.getMap(), mapDataEvent.getRegion());
             {
                 Response response = new Response();
                 response.setResponseCode(ResultCode.MapData);
@@ -46,27 +98,38 @@ public class MapDataEventHandler extends EventQueue implements EventHandler
         }
         return list;
     }
-    
-    @Override
-    protected void processQueuedEvent(Event event)
+
+    // Builds the responses for a region of the map: its dimensions and position, then its rows.
+    private List<Response> regionToResponses(GameMap map, MapRegion region)
     {
-        if (event instanceof MapDataEvent)
+        List<Response> list = new ArrayList<Response>();
+        Response header = new Response();
+        header.setResponseCode(ResultCode.MapData);
+        header.setMessage(region.getColsCount() + ", " + region.getRowsCount() + ", " + region.getX() + ", "
+                          + region.getY());
+        list.add(header);
+        for (int i = 0; i < region.getRowsCount(); i++)
         {
-            try
-            {
-                List<Response> responses = eventToResponse(event);
-                for (Response response : responses)
-                {
-                    Logger.log(LogLevel.Info, "Sending notification: \"" + response.toString() + "\"");
-                    handler.getSocket().send(response);
-                    Logger.log(LogLevel.Info, "Notification sent");
-                }
-            }
-            catch (IOException e)
-            {
-                Logger.log(LogLevel.Error, "Socket error sending message", e);
-                handler.setConnected(false);
-            }
+            Response response = new Response();
+            response.setResponseCode(ResultCode.MapData);
+            response.setMessage(map.getMapRow(region.getY() + i, region.getX(), region.getColsCount()));
+            list.add(response);
+        }
+        return list;
+    }
+
+    // A map encoded into a frame, along with the version of the map layout encoded.
+    private static class CachedMap
+    {
+        private final GameMap map; // the map encoded
+        private final int version; // the version of the map layout encoded
+        private final Frame frame; // the encoded map
+
+        private CachedMap(GameMap map, int version, Frame frame)
+        {
+            this.map = map;
+            this.version = version;
+            this.frame = frame;
         }
     }
 }
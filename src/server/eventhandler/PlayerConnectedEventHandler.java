@@ -1,27 +1,18 @@
 package server.eventhandler;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import logger.LogLevel;
-import logger.Logger;
 import server.command.ResultCode;
 import server.event.Event;
 import server.event.PlayerConnectedEvent;
-import server.eventmanager.EventQueue;
-import server.gameserver.PlayerHandler;
+import server.game.Player;
 import server.gameserver.Response;
+import server.protocol.BinaryWriter;
+import server.protocol.Opcode;
 
-public class PlayerConnectedEventHandler extends EventQueue implements EventHandler
+public class PlayerConnectedEventHandler implements EventHandler
 {
-    private PlayerHandler handler; 
-    
-    public PlayerConnectedEventHandler(PlayerHandler handler)
-    {
-        this.handler = handler;
-    }
-    
     @Override
     public List<Response> eventToResponse(Event event)
     {
@@ -42,27 +33,18 @@ public class PlayerConnectedEventHandler extends EventQueue implements EventHand
         }
         return list;
     }
-    
+
     @Override
-    protected void processQueuedEvent(Event event)
+    public void eventToBinary(Event event, BinaryWriter writer)
     {
-        if (event instanceof PlayerConnectedEvent)
-        {
-            try
-            {
-                List<Response> responses = eventToResponse(event);
-                for (Response response : responses)
-                {
-                    Logger.log(LogLevel.Info, "Sending notification: \"" + response.toString() + "\"");
-                    handler.getSocket().send(response);
-                    Logger.log(LogLevel.Info, "Notification sent");
-                }
-            }
-            catch (IOException e)
-            {
-                Logger.log(LogLevel.Error, "Socket error sending message", e);
-                handler.setConnected(false);
-            }
-        }
+        if (!(event instanceof PlayerConnectedEvent))
+            return;
+        Player player = ((PlayerConnectedEvent) event).getPlayer();
+        writer.begin(Opcode.PlayerJoined);
+        writer.writeVarint(player.getId());
+        writer.writeSignedVarint(player.getPosition().getX());
+        writer.writeSignedVarint(player.getPosition().getY());
+        writer.writeSignedVarint(player.getScore());
+        writer.end();
     }
 }
@@ -1,27 +1,17 @@
 package server.eventhandler;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import logger.LogLevel;
-import logger.Logger;
 import server.command.ResultCode;
 import server.event.Event;
 import server.event.PlayerDisconnectedEvent;
-import server.eventmanager.EventQueue;
-import server.gameserver.PlayerHandler;
 import server.gameserver.Response;
+import server.protocol.BinaryWriter;
+import server.protocol.Opcode;
 
-public class PlayerDisconnectedEventHandler extends EventQueue implements EventHandler
+public class PlayerDisconnectedEventHandler implements EventHandler
 {
-    private PlayerHandler handler;
-    
-    public PlayerDisconnectedEventHandler(PlayerHandler handler)
-    {
-        this.handler = handler;
-    }
-    
     @Override
     public List<Response> eventToResponse(Event event)
     {
@@ -42,27 +32,14 @@ public class PlayerDisconnectedEventHandler extends EventQueue implements EventH
         }
         return list;
     }
-    
+
     @Override
-    protected void processQueuedEvent(Event event)
+    public void eventToBinary(Event event, BinaryWriter writer)
     {
-        if (event instanceof PlayerDisconnectedEvent)
-        {
-            try
-            {
-                List<Response> responses = eventToResponse(event);
-                for (Response response : responses)
-                {
-                    Logger.log(LogLevel.Info, "Sending notification: \"" + response.toString() + "\"");
-                    handler.getSocket().send(response);
-                    Logger.log(LogLevel.Info, "Notification sent");
-                }
-            }
-            catch (IOException e)
-            {
-                Logger.log(LogLevel.Error, "Socket error sending message", e);
-                handler.setConnected(false);
-            }
-        }
+        if (!(event instanceof PlayerDisconnectedEvent))
+            return;
+        writer.begin(Opcode.PlayerLeft);
+        writer.writeVarint(((PlayerDisconnectedEvent) event).getPlayer().getId());
+        writer.end();
     }
 }
@@ -0,0 +1,49 @@
+package server.eventhandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import server.command.ResultCode;
+import server.event.Event;
+import server.event.PlayerOutOfRangeEvent;
+import server.gameserver.Response;
+import server.protocol.BinaryWriter;
+import server.protocol.Opcode;
+
+/**
+ * Informs a player that another player moved out of range: in the Text protocol, as an update placing the player out of
+ * the map, which clients handle like a disconnection.
+ */
+public class PlayerOutOfRangeEventHandler implements EventHandler
+{
+    @Override
+    public List<Response> eventToResponse(Event event)
+    {
+        List<Response> list = new ArrayList<Response>();
+        if (event instanceof PlayerOutOfRangeEvent)
+        {
+            Response response = new Response();
+            PlayerOutOfRangeEvent playerOutOfRange = (PlayerOutOfRangeEvent) event;
+            response.setResponseCode(ResultCode.PlayerUpdate);
+            StringBuilder data = new StringBuilder();
+            data.append(playerOutOfRange.getPlayer().getName());
+            data.append(", -1");
+            data.append(", -1");
+            data.append(", " + playerOutOfRange.getPlayer().getScore());
+            data.append(", out of range");
+            response.setMessage(data.toString());
+            list.add(response);
+        }
+        return list;
+    }
+
+    @Override
+    public void eventToBinary(Event event, BinaryWriter writer)
+    {
+        if (!(event instanceof PlayerOutOfRangeEvent))
+            return;
+        writer.begin(Opcode.PlayerOutOfRange);
+        writer.writeVarint(((PlayerOutOfRangeEvent) event).getPlayer().getId());
+        writer.end();
+    }
+}
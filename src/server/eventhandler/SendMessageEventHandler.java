@@ -1,27 +1,15 @@
 package server.eventhandler;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import logger.LogLevel;
-import logger.Logger;
 import server.command.ResultCode;
 import server.event.Event;
 import server.event.SendMessageEvent;
-import server.eventmanager.EventQueue;
-import server.gameserver.PlayerHandler;
 import server.gameserver.Response;
 
-public class SendMessageEventHandler extends EventQueue implements EventHandler
+public class SendMessageEventHandler implements EventHandler
 {
-    private PlayerHandler handler;
-    
-    public SendMessageEventHandler(PlayerHandler handler)
-    {
-        this.handler = handler;
-    }
-    
     @Override
     public List<Response> eventToResponse(Event event)
     {
@@ -38,27 +26,4 @@ public class SendMessageEventHandler extends EventQueue implements EventHandler
         }
         return list;
     }
-    
-    @Override
-    protected void processQueuedEvent(Event event)
-    {
-        if (event instanceof SendMessageEvent)
-        {
-            try
-            {
-                List<Response> responses = eventToResponse(event);
-                for (Response response : responses)
-                {
-                    Logger.log(LogLevel.Info, "Sending notification: \"" + response.toString() + "\"");
-                    handler.getSocket().send(response);
-                    Logger.log(LogLevel.Info, "Notification sent");
-                }
-            }
-            catch (IOException e)
-            {
-                Logger.log(LogLevel.Error, "Socket error sending message", e);
-                handler.setConnected(false);
-            }
-        }
-    }
 }
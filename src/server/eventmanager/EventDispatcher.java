@@ -0,0 +1,138 @@
+package server.eventmanager;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import logger.LogLevel;
+import logger.Logger;
+
+/**
+ * A fixed-size pool of worker threads that process the events queued in event queues.
+ * An event queue is scheduled on the dispatcher only while it has events waiting to be processed, and is drained by a
+ * single worker at a time, so events of the same queue are processed in the order they were queued.
+ * The dispatcher exposes gauges (pool size, scheduled queues, pending events) that can be used to tune the pool.
+ */
+public class EventDispatcher
+{
+    private static EventDispatcher defaultDispatcher = null; // dispatcher used by event queues by default
+
+    private BlockingQueue<EventQueue> readyQueues = new LinkedBlockingQueue<EventQueue>(); // queues to be drained
+    private Thread[] workers = null;                        // worker threads
+    private volatile boolean running = false;               // indicates whether the workers should keep running
+    private AtomicLong pendingEvents = new AtomicLong(0);   // events queued and not processed yet
+    private AtomicLong processedEvents = new AtomicLong(0); // events processed since the dispatcher started
+    private AtomicLong maxQueueDepth = new AtomicLong(0);   // deepest event queue observed
+
+    /**
+     * Constructor.
+     * Creates and starts the worker threads.
+     * 
+     * @param poolSize      the number of worker threads
+     * @param threadFactory the factory creating the worker threads
+     */
+    public EventDispatcher(int poolSize, ThreadFactory threadFactory)
+    {
+        running = true;
+        workers = new Thread[Math.max(poolSize, 1)];
+        for (int i = 0; i < workers.length; i++)
+        {
+            workers[i] = threadFactory.newThread(this::runWorker);
+            workers[i].setName("EventDispatcher" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        Logger.log(LogLevel.Info, "Event dispatcher started with " + workers.length + " workers");
+    }
+
+    /**
+     * Retrieves the dispatcher used by event queues by default.
+     * Creates a dispatcher with one worker per available processor if no default dispatcher has been set.
+     * 
+     * @return the default dispatcher
+     */
+    public static synchronized EventDispatcher getDefault()
+    {
+        if (defaultDispatcher == null)
+            defaultDispatcher = new EventDispatcher(Runtime.getRuntime().availableProcessors(), Thread::new);
+        return defaultDispatcher;
+    }
+
+    /**
+     * Sets the dispatcher used by event queues created from now on.
+     * 
+     * @param dispatcher the new default dispatcher
+     */
+    public static synchronized void setDefault(EventDispatcher dispatcher)
+    {
+        defaultDispatcher = dispatcher;
+    }
+
+    // Gauges
+    public int getPoolSize() { return workers.length; }
+    public int getScheduledQueueCount() { return readyQueues.size(); }
+    public long getPendingEventCount() { return pendingEvents.get(); }
+    public long getProcessedEventCount() { return processedEvents.get(); }
+    public long getMaxQueueDepth() { return maxQueueDepth.get(); }
+
+    /**
+     * Stops the worker threads.
+     * Events still queued are not processed.
+     */
+    public void shutdown()
+    {
+        running = false;
+        for (Thread worker : workers)
+            worker.interrupt();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Event dispatcher: " + getPoolSize() + " workers, " + getScheduledQueueCount() + " scheduled queues, "
+               + getPendingEventCount() + " pending events, " + getProcessedEventCount() + " processed events, "
+               + "max queue depth " + getMaxQueueDepth();
+    }
+
+    // Schedules an event queue that has events waiting to be processed.
+    void schedule(EventQueue queue)
+    {
+        readyQueues.add(queue);
+    }
+
+    // Updates the gauges when an event is queued in a queue that now holds depth events.
+    void eventQueued(int depth)
+    {
+        pendingEvents.incrementAndGet();
+        if (depth > maxQueueDepth.get())
+            maxQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    // Updates the gauges when an event has been taken from a queue to be processed.
+    void eventProcessed()
+    {
+        pendingEvents.decrementAndGet();
+        processedEvents.incrementAndGet();
+    }
+
+    // Takes scheduled event queues and drains them until the dispatcher is shut down.
+    private void runWorker()
+    {
+        while (running)
+        {
+            try
+            {
+                readyQueues.take().drain();
+            }
+            catch (InterruptedException e)
+            {
+                Logger.log(LogLevel.Debug, "Event dispatcher worker interrupted");
+            }
+            catch (RuntimeException e)
+            {
+                Logger.log(LogLevel.Error, "Error processing queued events", e);
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package server.eventmanager;
 
+import java.util.List;
+
 import server.event.Event;
 
 /**
@@ -13,4 +15,16 @@ public interface EventListener
      * @param event the event to be processed
      */
     public abstract void processEvent(Event event);
+
+    /**
+     * Processes the events specified, in order, consuming them.
+     * Listeners that process events asynchronously can take the events as a single batch.
+     * 
+     * @param events the events to be processed; may be empty
+     */
+    public default void processEvents(List<Event> events)
+    {
+        for (Event event : events)
+            processEvent(event);
+    }
 }
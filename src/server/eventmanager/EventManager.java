@@ -1,9 +1,11 @@
 package server.eventmanager;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import logger.LogLevel;
 import logger.Logger;
@@ -16,10 +18,17 @@ import server.event.Subject;
  * Event listeners can subscribe to events generated by an event manager.
  * Multiple listeners can subscribe to an event subject.
  * A listener can subscribe to multiple event subjects.
+ * Subscriptions are kept in copy-on-write lists: events are broadcast far more often than players log in or quit, so
+ * notifying listeners never blocks nor copies while subscriptions can change concurrently.
+ * A thread can batch the events it notifies (see beginBatch): they are held, per listener, until the batch ends, and
+ * each listener then receives all its events at once.
  */
 public class EventManager
 {
-    private Map<Subject, List<EventListener>> registrar = new HashMap<Subject, List<EventListener>>(); // listeners
+    // listeners of each subject
+    private Map<Subject, List<EventListener>> registrar = new ConcurrentHashMap<Subject, List<EventListener>>();
+    private volatile Thread batchThread = null; // the thread whose events are batched; null if none
+    private Map<EventListener, List<Event>> batch = new LinkedHashMap<EventListener, List<Event>>(); // held events
     
     /**
      * Adds the subject specified to the list of event subjects generated by this event manager.
@@ -30,7 +39,7 @@ public class EventManager
     public void registerSubject(Subject subject)
     {
         Logger.log(LogLevel.Info, "Registering event subject: " + subject);
-        registrar.putIfAbsent(subject, new ArrayList<EventListener>());
+        registrar.putIfAbsent(subject, new CopyOnWriteArrayList<EventListener>());
     }
     
     /**
@@ -102,6 +111,38 @@ public class EventManager
             registrar.get(subject).remove(listener);
     }
 
+    /**
+     * Starts batching the events notified by the calling thread: they are held until endBatch() is called.
+     * Events notified by other threads are delivered immediately.
+     */
+    public void beginBatch()
+    {
+        batchThread = Thread.currentThread();
+    }
+
+    /**
+     * Adds the listener specified to the current batch, so it is handed the batch even if no events are notified to it.
+     * Must be called by the thread batching events.
+     * 
+     * @param listener the listener to be included in the batch
+     */
+    public void includeInBatch(EventListener listener)
+    {
+        batch.computeIfAbsent(listener, l -> new ArrayList<Event>());
+    }
+
+    /**
+     * Stops batching the events notified by the calling thread, and hands every listener the events held for it.
+     * Must be called by the thread batching events.
+     */
+    public void endBatch()
+    {
+        batchThread = null;
+        for (Map.Entry<EventListener, List<Event>> entry : batch.entrySet())
+            entry.getKey().processEvents(entry.getValue());
+        batch.clear();
+    }
+
     /**
      * Notifies the event specified to all event listeners listening to this event manager's events.
      * 
@@ -112,8 +153,14 @@ public class EventManager
         Logger.log(LogLevel.Debug, "Notifying event listeners: \"" + event + "\"");
         if (registrar.containsKey(event.getSubject()))
         {
+            boolean batched = isBatching();
             for (EventListener listener : registrar.get(event.getSubject()))
-                listener.processEvent(event);
+            {
+                if (batched)
+                    hold(listener, event);
+                else
+                    listener.processEvent(event);
+            }
         }
     }
     
@@ -128,6 +175,23 @@ public class EventManager
     {
         Logger.log(LogLevel.Debug, "Notifying event listener: \"" + event + "\"");
         if (registrar.containsKey(event.getSubject()) /*&& registrar.get(event.getSubject()).contains(listener)*/)
-            listener.processEvent(event);
+        {
+            if (isBatching())
+                hold(listener, event);
+            else
+                listener.processEvent(event);
+        }
+    }
+
+    // Checks whether the calling thread is batching its events.
+    private boolean isBatching()
+    {
+        return batchThread == Thread.currentThread();
+    }
+
+    // Holds an event for a listener until the current batch ends.
+    private void hold(EventListener listener, Event event)
+    {
+        batch.computeIfAbsent(listener, l -> new ArrayList<Event>()).add(event);
     }
 }
@@ -1,102 +1,127 @@
 package server.eventmanager;
 
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import logger.LogLevel;
-import logger.Logger;
 import server.event.Event;
 
 /**
  * Provides a mechanism to process events asynchronously.
- * Events can be queued to be processed. An internal thread polls the event queue and processes the events queued,
- * consuming them. Events are processed in the order they are queued.
- * The event processor thread is started when a new instance is created.
+ * Events can be queued to be processed. The event queue is a lock-free mailbox: any number of threads can queue
+ * events, and the queue is scheduled on an EventDispatcher while it has events waiting to be processed. A single
+ * dispatcher worker drains the queue at a time, so events are processed in the order they are queued.
  */
 public abstract class EventQueue implements EventListener
 {
-    private Queue<Event> eventQueue = new LinkedList<Event>(); // queue of events to be processed
-    private Thread eventProcessor = null;                        // internal thread that processes events
-    private boolean running = false;                             // synchronization flag to start/stop internal thread
+    private static final int MAX_BATCH = 64; // events processed before yielding the worker to other queues
+
+    private Queue<Event> eventQueue = new ConcurrentLinkedQueue<Event>(); // queue of events to be processed
+    private AtomicInteger depth = new AtomicInteger(0);                   // number of events waiting to be processed
+    private AtomicBoolean scheduled = new AtomicBoolean(false);           // whether the queue is on the dispatcher
+    private EventDispatcher dispatcher = null;                            // dispatcher processing the queued events
     
     /**
      * Constructor.
-     * Initializes the internal event processor thread.
+     * Uses the default event dispatcher.
      */
     public EventQueue()
     {
-        startProcessing();
+        this(EventDispatcher.getDefault());
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param dispatcher the dispatcher that will process the events queued
+     */
+    public EventQueue(EventDispatcher dispatcher)
+    {
+        this.dispatcher = dispatcher;
     }
+
+    // Setters and Getters
+    public int getDepth() { return depth.get(); }
     
     /**
      * Adds the event specified to the event queue.
+     * Schedules the queue on the dispatcher if it is not scheduled yet.
      * 
      * @param event the event to be queued
      */
     public void processEvent(Event event)
     {
         eventQueue.add(event);
-        if (!isRunning())
-            startProcessing();
+        dispatcher.eventQueued(depth.incrementAndGet());
+        schedule();
     }
     
     /**
-     * Starts processing events from the event queue.
+     * Adds the events specified to the event queue, scheduling the queue once for all of them.
+     * The queue is scheduled even if no events are specified, so it is drained (and queueDrained() called) anyway.
+     * 
+     * @param events the events to be queued
      */
-    public void startProcessing()
+    @Override
+    public void processEvents(List<Event> events)
     {
-        if (!isRunning())
+        for (Event event : events)
         {
-            Logger.log(LogLevel.Debug, "Starting event processor thread");
-            setRunning(true);
-            eventProcessor = new Thread(() ->
-            {
-                while (isRunning() && !eventQueue.isEmpty())
-                    processQueuedEvent(eventQueue.poll());
-                stopProcessing();
-            });
-            eventProcessor.start();
-            Logger.log(LogLevel.Debug, "Event processor thread started");
+            eventQueue.add(event);
+            dispatcher.eventQueued(depth.incrementAndGet());
         }
+        schedule();
     }
-    
+
     /**
-     * Stops processing events from the event queue.
+     * Processes an event that has been added to the event queue.
+     * 
+     * @param event the event to be processed
      */
-    public void stopProcessing()
+    protected abstract void processQueuedEvent(Event event);
+
+    /**
+     * Called once a batch of queued events has been processed.
+     * Does nothing by default.
+     */
+    protected void queueDrained()
     {
-        if (isRunning())
+    }
+
+    // Processes a batch of queued events.
+    // Called by a dispatcher worker. Reschedules the queue if events are still waiting once the batch is processed.
+    void drain()
+    {
+        try
         {
-            try
+            Event event = null;
+            int processed = 0;
+            while (processed < MAX_BATCH && (event = eventQueue.poll()) != null)
             {
-                Logger.log(LogLevel.Debug, "Stopping event processor thread");
-                setRunning(false);
-                eventProcessor.join();
-                Logger.log(LogLevel.Error, "Event processor thread stopped");
-            }
-            catch (InterruptedException e)
-            {
-                Logger.log(LogLevel.Error, "Error joining event processor thread", e);
+                depth.decrementAndGet();
+                dispatcher.eventProcessed();
+                processQueuedEvent(event);
+                processed++;
             }
+            queueDrained();
+        }
+        finally
+        {
+            scheduled.set(false);
+            if (!eventQueue.isEmpty())
+                schedule();
         }
     }
-    
+
     /**
-     * Processes an event that has been added to the event queue.
-     * 
-     * @param event the event to be processed
+     * Schedules the queue on the dispatcher, unless it is already scheduled.
+     * Once scheduled, the queue is drained, and queueDrained() called, even if no events are waiting.
      */
-    protected abstract void processQueuedEvent(Event event);
-    
-    // Updates the event queue state.
-    private synchronized void setRunning(boolean running)
-    {
-        this.running = running;
-    }
-    
-    // Retrieves the event queue state.
-    private synchronized boolean isRunning()
+    protected void schedule()
     {
-        return running;
+        if (scheduled.compareAndSet(false, true))
+            dispatcher.schedule(this);
     }
 }
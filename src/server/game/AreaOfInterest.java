@@ -0,0 +1,178 @@
+package server.game;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import server.event.Event;
+import server.event.PlayerConnectedEvent;
+import server.event.PlayerOutOfRangeEvent;
+import server.event.PlayerUpdateEvent;
+import server.eventmanager.EventListener;
+import server.eventmanager.EventManager;
+
+/**
+ * Limits the player updates each player receives to the players within a radius of its position, its area of
+ * interest, instead of broadcasting every move to every player in the game.
+ * The players near a position are found in the game's PlayerGrid, whose buckets are as large as the radius, so a
+ * query looks at 9 buckets at most. Each player's update is sent to the players within its radius, itself included,
+ * and each player keeps the set of players it was informed of:
+ * - a player entering the area of another is made known to the other player by its update, and is sent an update of
+ *   the other player if it did not know it yet
+ * - a player leaving the area of another is notified to both with a PlayerOutOfRange event
+ * If the game has a FieldOfView, players hidden behind obstacles are out of the area too.
+ * Areas are symmetric: if a player sees another, the other sees the player. Sets of players informed of are updated
+ * atomically, so each enter and leave is notified once even when both players move at the same time.
+ * Updates still go to every player whose area a player is within, so traffic grows with the number of players in range
+ * rather than with the square of the number of players in the game.
+ */
+public class AreaOfInterest
+{
+    private int radius = 0;                   // largest distance, along x and y, of the players a player is informed of
+    private EventManager eventManager = null; // the game's event manager
+    private PlayerGrid grid = null;           // positions of the players in the game
+    private FieldOfView fieldOfView = null;   // cells seen from each position; null if obstacles do not hide players
+    private Map<Integer, Map<Integer, Player>> known = new ConcurrentHashMap<Integer, Map<Integer, Player>>(); // by ID
+    private LongAdder updatesSent = new LongAdder();  // player updates sent to players in range
+    private LongAdder updatesSaved = new LongAdder(); // player updates not sent to players out of range
+
+    /**
+     * Constructor.
+     *
+     * @param radius       the largest distance, along the x and y axes, of the players a player is informed of
+     * @param grid         the grid indexing the positions of the players in the game
+     * @param fieldOfView  the cells seen from each position, covering at least the radius; null if obstacles do not
+     *                     hide players
+     * @param eventManager the game's event manager
+     */
+    public AreaOfInterest(int radius, PlayerGrid grid, FieldOfView fieldOfView, EventManager eventManager)
+    {
+        this.radius = radius;
+        this.grid = grid;
+        this.fieldOfView = fieldOfView;
+        this.eventManager = eventManager;
+    }
+
+    // Setters and Getters
+    public int getRadius() { return radius; }
+    public long getUpdatesSent() { return updatesSent.sum(); }
+    public long getUpdatesSaved() { return updatesSaved.sum(); }
+
+    /**
+     * Adds a player who just logged in.
+     * Informs the players within the player's area of the player's connection, and the player of them.
+     *
+     * @param player the player who logged in, at its initial position, already added to the grid
+     */
+    public void playerJoined(Player player)
+    {
+        Map<Integer, Player> playerKnown = new ConcurrentHashMap<Integer, Player>();
+        known.put(player.getId(), playerKnown);
+        PlayerConnectedEvent connected = new PlayerConnectedEvent(player);
+        notify(player, new PlayerUpdateEvent(player));
+        notify(player, connected);
+        for (Player other : getPlayersInArea(player))
+        {
+            if (other == player)
+                continue;
+            notify(other, connected);
+            addKnown(other, player);
+            if (playerKnown.put(other.getId(), other) == null)
+                notify(player, new PlayerUpdateEvent(other));
+        }
+    }
+
+    /**
+     * Sends the update of a player who moved to the players within its area, and notifies both the player and the
+     * other players of the players entering or leaving its area.
+     *
+     * @param player the player who moved, at its new position
+     */
+    public void playerMoved(Player player)
+    {
+        Map<Integer, Player> playerKnown = known.get(player.getId());
+        if (playerKnown == null)
+            return;
+        PlayerUpdateEvent update = new PlayerUpdateEvent(player);
+        notify(player, update);
+        List<Player> near = getPlayersInArea(player);
+        Set<Integer> nearIds = new HashSet<Integer>();
+        for (Player other : near)
+        {
+            if (other == player)
+                continue;
+            nearIds.add(other.getId());
+            notify(other, update);
+            addKnown(other, player);
+            if (playerKnown.put(other.getId(), other) == null)
+                notify(player, new PlayerUpdateEvent(other));
+        }
+        updatesSent.add(near.size());
+        updatesSaved.add(Math.max(0, known.size() - near.size()));
+        for (Player other : playerKnown.values())
+        {
+            if (nearIds.contains(other.getId()))
+                continue;
+            if (playerKnown.remove(other.getId()) != null)
+                notify(player, new PlayerOutOfRangeEvent(other));
+            Map<Integer, Player> otherKnown = known.get(other.getId());
+            if (otherKnown != null && otherKnown.remove(player.getId()) != null)
+                notify(other, new PlayerOutOfRangeEvent(player));
+        }
+    }
+
+    /**
+     * Removes a player who quit the game, so the players who were informed of the player forget it.
+     *
+     * @param player the player who quit
+     */
+    public void playerLeft(Player player)
+    {
+        Map<Integer, Player> playerKnown = known.remove(player.getId());
+        if (playerKnown == null)
+            return;
+        for (Player other : playerKnown.values())
+        {
+            Map<Integer, Player> otherKnown = known.get(other.getId());
+            if (otherKnown != null)
+                otherKnown.remove(player.getId());
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Area of interest: radius " + radius + ", " + known.size() + " players, " + getUpdatesSent()
+               + " updates sent, " + getUpdatesSaved() + " updates saved";
+    }
+
+    // Retrieves the players within the player's area, itself included, leaving out the players it does not see.
+    private List<Player> getPlayersInArea(Player player)
+    {
+        List<Player> near = grid.getPlayersNear(player.getPosition(), radius);
+        if (fieldOfView == null)
+            return near;
+        FieldOfView.Mask mask = fieldOfView.getMask(player.getPosition());
+        near.removeIf(other -> !mask.isVisible(other.getPosition().getX(), other.getPosition().getY()));
+        return near;
+    }
+
+    // Marks a player as informed of another player.
+    private void addKnown(Player player, Player other)
+    {
+        Map<Integer, Player> playerKnown = known.get(player.getId());
+        if (playerKnown != null)
+            playerKnown.put(other.getId(), other);
+    }
+
+    // Notifies a player of an event.
+    private void notify(Player player, Event event)
+    {
+        EventListener listener = player.getEventHandlerManager();
+        if (listener != null)
+            eventManager.notify(listener, event);
+    }
+}
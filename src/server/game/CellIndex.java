@@ -0,0 +1,138 @@
+package server.game;
+
+import java.util.Arrays;
+
+/**
+ * Maps cells of a map to int values, for map layers that only hold data for a few cells (e.g. spawn points, items).
+ * Cells are identified by their index in the map, y * cols + x. Uses open addressing with linear probing over
+ * primitive arrays, so looking up a cell takes constant time and does not allocate.
+ * Zero is not a valid value: it is returned for cells that are not in the index.
+ * Not thread-safe: writes must be serialized by the caller, and must not overlap reads once the index is shared.
+ */
+public class CellIndex
+{
+    private static final long EMPTY = -1L;      // key of free slots
+    private static final int INITIAL_SIZE = 16; // initial number of slots; always a power of two
+
+    private long[] keys = newKeys(INITIAL_SIZE);  // cell of each slot
+    private int[] values = new int[INITIAL_SIZE]; // value of each slot
+    private int size = 0;                         // number of cells in the index
+
+    // Setters and Getters
+    public int size() { return size; }
+
+    /**
+     * Retrieves the value associated with the specified cell.
+     * 
+     * @param cell the index of the cell
+     * @return the value associated with the cell; 0 if the cell is not in the index
+     */
+    public int get(long cell)
+    {
+        int mask = keys.length - 1;
+        for (int slot = hash(cell) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask)
+        {
+            if (keys[slot] == cell)
+                return values[slot];
+        }
+        return 0;
+    }
+
+    /**
+     * Associates the specified value with the specified cell, replacing any value already associated with it.
+     * 
+     * @param cell  the index of the cell
+     * @param value the value to be associated with the cell; must not be 0
+     */
+    public void put(long cell, int value)
+    {
+        if (value == 0)
+            throw new IllegalArgumentException("Cannot index the value 0");
+        if ((size + 1) * 2 > keys.length)
+            resize(keys.length * 2);
+        int mask = keys.length - 1;
+        int slot = hash(cell) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != cell)
+            slot = (slot + 1) & mask;
+        if (keys[slot] == EMPTY)
+            size++;
+        keys[slot] = cell;
+        values[slot] = value;
+    }
+
+    /**
+     * Removes the specified cell from the index.
+     * Entries following the removed one in its probe sequence are shifted back into the freed slot, so lookups never
+     * need tombstones and removal takes constant expected time.
+     * 
+     * @param cell the index of the cell
+     * @return the value that was associated with the cell; 0 if the cell was not in the index
+     */
+    public int remove(long cell)
+    {
+        int mask = keys.length - 1;
+        int slot = hash(cell) & mask;
+        while (keys[slot] != cell)
+        {
+            if (keys[slot] == EMPTY)
+                return 0;
+            slot = (slot + 1) & mask;
+        }
+        int value = values[slot];
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask)
+        {
+            int ideal = hash(keys[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) // the entry can move back into the hole
+            {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+        values[hole] = 0;
+        size--;
+        return value;
+    }
+
+    /**
+     * Removes all the cells from the index, keeping its slots.
+     */
+    public void clear()
+    {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    // Moves all the cells into arrays with the specified number of slots.
+    private void resize(int slots)
+    {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = newKeys(slots);
+        values = new int[slots];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != EMPTY)
+                put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    // Creates an array of free slots.
+    private static long[] newKeys(int slots)
+    {
+        long[] keys = new long[slots];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+    // Spreads the bits of the cell index, so neighbouring cells do not fill consecutive slots.
+    private static int hash(long cell)
+    {
+        long h = cell * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
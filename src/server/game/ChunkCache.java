@@ -0,0 +1,92 @@
+package server.game;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds the chunks of a ChunkedWorld that were recently used, up to a maximum number of chunks.
+ * Chunks not in the cache are generated on first use. When the cache is full, the least recently used chunk is evicted;
+ * chunks whose obstacles were modified are never evicted, so their changes are not lost.
+ * Evicting a chunk where items were collected keeps the cells of those items, a few bytes per item, and drops the items
+ * from the chunk once it is generated again. The cache thus holds at most its capacity of unmodified chunks, along with
+ * the chunks whose obstacles were modified and the cells of the items collected.
+ */
+public class ChunkCache
+{
+    private int capacity = 0;                 // maximum number of unmodified chunks kept in the cache
+    private ChunkGenerator generator = null;  // generates the chunks not in the cache
+    private Map<Long, WorldChunk> chunks = new LinkedHashMap<Long, WorldChunk>(16, 0.75f, true); // in access order
+    private Map<Long, CellIndex> collectedCells = new HashMap<Long, CellIndex>(); // of the items of evicted chunks
+    private long generatedCount = 0;          // number of chunks generated
+    private long evictedCount = 0;            // number of chunks evicted
+
+    /**
+     * Constructor.
+     * 
+     * @param capacity  the maximum number of chunks kept in the cache
+     * @param generator the generator of the chunks not in the cache
+     */
+    public ChunkCache(int capacity, ChunkGenerator generator)
+    {
+        this.capacity = capacity;
+        this.generator = generator;
+    }
+
+    // Setters and Getters
+    public int getCapacity() { return capacity; }
+    public synchronized int size() { return chunks.size(); }
+    public synchronized long getGeneratedCount() { return generatedCount; }
+    public synchronized long getEvictedCount() { return evictedCount; }
+
+    /**
+     * Retrieves the chunk at the specified chunk coordinates, generating it if it is not in the cache.
+     * 
+     * @param chunkX the x coordinate of the chunk, in chunks
+     * @param chunkY the y coordinate of the chunk, in chunks
+     * @return the chunk at the specified chunk coordinates
+     */
+    public synchronized WorldChunk getChunk(int chunkX, int chunkY)
+    {
+        long key = ((long) chunkY << 32) | (chunkX & 0xFFFFFFFFL);
+        WorldChunk chunk = chunks.get(key);
+        if (chunk == null)
+        {
+            chunk = generator.generate(chunkX, chunkY);
+            generatedCount++;
+            CellIndex collected = collectedCells.remove(key);
+            if (collected != null)
+                chunk.dropCollectedItems(collected);
+            chunks.put(key, chunk);
+            evict();
+        }
+        return chunk;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return chunks.size() + "/" + capacity + " chunks cached, " + generatedCount + " generated, " + evictedCount
+               + " evicted, " + collectedCells.size() + " evicted with items collected";
+    }
+
+    // Evicts the least recently used chunks that were not modified, until the cache is within its capacity, keeping the
+    // cells of the items collected in them.
+    private void evict()
+    {
+        Iterator<Map.Entry<Long, WorldChunk>> it = chunks.entrySet().iterator();
+        while (chunks.size() > capacity && it.hasNext())
+        {
+            Map.Entry<Long, WorldChunk> entry = it.next();
+            if (!entry.getValue().isModified())
+            {
+                it.remove();
+                evictedCount++;
+                CellIndex collected = entry.getValue().takeCollectedCells();
+                if (collected != null)
+                    collectedCells.put(entry.getKey(), collected);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package server.game;
+
+/**
+ * Generates the chunks of a ChunkedWorld.
+ * Generators are called concurrently for different chunks, and may be called again for a chunk that was evicted from
+ * the chunk cache; they should generate the same obstacles every time.
+ */
+public interface ChunkGenerator
+{
+    /**
+     * Generates the chunk at the specified chunk coordinates.
+     * 
+     * @param chunkX the x coordinate of the chunk, in chunks
+     * @param chunkY the y coordinate of the chunk, in chunks
+     * @return the chunk generated
+     */
+    WorldChunk generate(int chunkX, int chunkY);
+}
@@ -0,0 +1,194 @@
+package server.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a world split into square chunks, WorldChunk.SIZE x WorldChunk.SIZE cells, which are generated, or loaded
+ * from disk, only when they are used, and evicted through an LRU cache when they are no longer used.
+ * The world is SIZE_IN_CHUNKS chunks wide and tall, so its size is bound by the coordinates of the game rather than by
+ * the heap. Players spawn near the center of the world.
+ */
+public class ChunkedWorld
+{
+    public static final int SIZE_IN_CHUNKS = 1 << 20;                 // chunks in each row and column of the world
+    public static final int SIZE = SIZE_IN_CHUNKS * WorldChunk.SIZE;  // cells in each row and column of the world
+    public static final int VIEW_DISTANCE = 1;                        // chunks around a player's chunk sent to it
+
+    private ChunkCache cache = null;    // the chunks recently used
+    private String name = null;         // the name of the world
+    private Position spawnPoint = null; // spawn point of players, found when first needed
+
+    /**
+     * Constructor.
+     *
+     * @param name      the name of the world
+     * @param generator the generator of the world chunks
+     * @param cacheSize the maximum number of chunks kept in memory
+     */
+    public ChunkedWorld(String name, ChunkGenerator generator, int cacheSize)
+    {
+        this.name = name;
+        cache = new ChunkCache(cacheSize, generator);
+    }
+
+    // Setters and Getters
+    public String getName() { return name; }
+    public ChunkCache getCache() { return cache; }
+
+    /**
+     * Checks whether the cell at the specified coordinates holds an obstacle.
+     * Generates the chunk containing the cell if needed.
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @return true if the cell holds an obstacle or is outside the world; false otherwise
+     */
+    public boolean isObstacle(int x, int y)
+    {
+        if (x < 0 || x >= SIZE || y < 0 || y >= SIZE)
+            return true;
+        return getChunkAt(x, y).isObstacle(x & WorldChunk.MASK, y & WorldChunk.MASK);
+    }
+
+    /**
+     * Adds or removes an obstacle at the specified coordinates.
+     * The chunk containing the cell is kept in memory from then on.
+     *
+     * @param x        the x coordinate of the cell
+     * @param y        the y coordinate of the cell
+     * @param obstacle true to place an obstacle at the cell; false to clear it
+     */
+    public void setObstacle(int x, int y, boolean obstacle)
+    {
+        if (x < 0 || x >= SIZE || y < 0 || y >= SIZE)
+            return;
+        getChunkAt(x, y).setObstacle(x & WorldChunk.MASK, y & WorldChunk.MASK, obstacle);
+    }
+
+    /**
+     * Retrieves the item at the specified coordinates.
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @return the item at the specified coordinates; null if there are no items at the specified position
+     */
+    public Item getItem(int x, int y)
+    {
+        if (x < 0 || x >= SIZE || y < 0 || y >= SIZE)
+            return null;
+        return getChunkAt(x, y).getItem(x & WorldChunk.MASK, y & WorldChunk.MASK);
+    }
+
+    /**
+     * Removes a collected item from the chunk containing it.
+     * The chunk is kept in memory from then on, so the item is not generated again.
+     *
+     * @param item the item to be removed
+     * @return true if the item was removed; false if it was not in the world
+     */
+    public boolean removeItem(Item item)
+    {
+        int x = item.getPosition().getX();
+        int y = item.getPosition().getY();
+        if (x < 0 || x >= SIZE || y < 0 || y >= SIZE)
+            return false;
+        return getChunkAt(x, y).removeItem(item);
+    }
+
+    /**
+     * Retrieves the region of the world sent to a player at the specified position: the player's chunk and the chunks
+     * within VIEW_DISTANCE chunks of it.
+     *
+     * @param pos the player's position
+     * @return the region of the world around the position
+     */
+    public MapRegion getRegionAround(Position pos)
+    {
+        int firstX = Math.max(0, (pos.getX() >> WorldChunk.SHIFT) - VIEW_DISTANCE);
+        int firstY = Math.max(0, (pos.getY() >> WorldChunk.SHIFT) - VIEW_DISTANCE);
+        int lastX = Math.min(SIZE_IN_CHUNKS - 1, (pos.getX() >> WorldChunk.SHIFT) + VIEW_DISTANCE);
+        int lastY = Math.min(SIZE_IN_CHUNKS - 1, (pos.getY() >> WorldChunk.SHIFT) + VIEW_DISTANCE);
+        return new MapRegion(firstX << WorldChunk.SHIFT, firstY << WorldChunk.SHIFT,
+                             (lastX - firstX + 1) << WorldChunk.SHIFT, (lastY - firstY + 1) << WorldChunk.SHIFT);
+    }
+
+    /**
+     * Retrieves the items within the specified region, which must be aligned on chunk borders.
+     *
+     * @param region the region of the world
+     * @return the items within the region
+     */
+    public List<Item> getItems(MapRegion region)
+    {
+        List<Item> items = new ArrayList<Item>();
+        int endX = (region.getX() + region.getColsCount()) >> WorldChunk.SHIFT;
+        int endY = (region.getY() + region.getRowsCount()) >> WorldChunk.SHIFT;
+        for (int chunkY = region.getY() >> WorldChunk.SHIFT; chunkY < endY; chunkY++)
+        {
+            for (int chunkX = region.getX() >> WorldChunk.SHIFT; chunkX < endX; chunkX++)
+                items.addAll(cache.getChunk(chunkX, chunkY).getItems());
+        }
+        return items;
+    }
+
+    /**
+     * Retrieves a range of a row of the world.
+     * Obstacles are represented by '#'; any other cell by ' '.
+     *
+     * @param y     the y coordinate of the row
+     * @param fromX the x coordinate of the first cell in the range
+     * @param count the number of cells in the range
+     * @return a String containing the characters in the range
+     */
+    public String getRow(int y, int fromX, int count)
+    {
+        char[] row = new char[count];
+        int x = fromX;
+        while (x < fromX + count)
+        {
+            int length = Math.min(WorldChunk.SIZE - (x & WorldChunk.MASK), fromX + count - x);
+            getChunkAt(x, y).getRow(y & WorldChunk.MASK, x & WorldChunk.MASK, length, row, x - fromX);
+            x += length;
+        }
+        return new String(row);
+    }
+
+    /**
+     * Retrieves the spawn point of players: the free cell closest to the center of the world, found by scanning the
+     * rows of the central chunks.
+     *
+     * @return the spawn point of players
+     */
+    public synchronized Position getSpawnPoint()
+    {
+        if (spawnPoint != null)
+            return spawnPoint;
+        int center = SIZE / 2;
+        for (int distance = 0; spawnPoint == null; distance++)
+        {
+            for (int y = center - distance; y <= center + distance && spawnPoint == null; y++)
+            {
+                for (int x = center - distance; x <= center + distance && spawnPoint == null; x++)
+                {
+                    if (!isObstacle(x, y) && getItem(x, y) == null)
+                        spawnPoint = new Position(x, y);
+                }
+            }
+        }
+        return spawnPoint;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "World " + name + ": " + SIZE + "x" + SIZE + " in " + WorldChunk.SIZE + "x" + WorldChunk.SIZE
+               + " chunks, " + cache;
+    }
+
+    // Retrieves the chunk containing the cell at the specified coordinates
+    private WorldChunk getChunkAt(int x, int y)
+    {
+        return cache.getChunk(x >> WorldChunk.SHIFT, y >> WorldChunk.SHIFT);
+    }
+}
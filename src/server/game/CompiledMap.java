@@ -0,0 +1,185 @@
+package server.game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Defines the compiled map format: a binary encoding of a map that is loaded without parsing text.
+ * A compiled map file has a header followed by the body:
+ * - magic number "OCTM", format version (int)
+ * - rows (int), columns (int)
+ * - cell of the spawn point (long; -1 if the map doesn't define one)
+ * - item count (int), body length in bytes (int)
+ * - hash of the map (long), a 64-bit FNV-1a hash of the rows, columns, spawn point cell and item count, in this
+ *   order and big-endian, followed by the body
+ * The body holds, for every row, the number of runs in the row followed by the length of each run. Runs alternate
+ * between floor and walls, starting with floor (the first run is empty if the row starts with a wall). Then come the
+ * item cells, in ascending order, each as the difference from the previous item cell. All body values are varints.
+ * Header values are big-endian.
+ */
+public class CompiledMap
+{
+    public static final int MAGIC = 0x4F43544D;    // "OCTM"
+    public static final int VERSION = 2;           // version of the compiled map format
+    public static final int HEADER_SIZE = 40;      // bytes in the header
+    public static final String EXTENSION = ".mapc"; // extension of compiled map files
+
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L; // FNV-1a offset basis
+    private static final long FNV_PRIME = 0x100000001B3L;       // FNV-1a prime
+
+    /**
+     * Checks whether the specified file starts with the compiled map magic number.
+     *
+     * @param mapFile the map file being checked
+     * @return true if the file is a compiled map; false otherwise
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isCompiledMap(File mapFile) throws IOException
+    {
+        if (mapFile.length() < HEADER_SIZE)
+            return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(mapFile)))
+        {
+            return in.readInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Writes the map loaded by the specified loader to a compiled map file.
+     *
+     * @param loader  the loader holding the map
+     * @param outFile the compiled map file to be written
+     * @return the hash of the compiled map
+     * @throws IOException if the file cannot be written
+     */
+    public static long write(MapLoader loader, File outFile) throws IOException
+    {
+        byte[] body = encodeBody(loader);
+        long hash = hash(loader, body);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(outFile)))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(loader.getRowsCount());
+            out.writeInt(loader.getColsCount());
+            out.writeLong(loader.getSpawnCell());
+            out.writeInt(loader.getItemCells().length);
+            out.writeInt(body.length);
+            out.writeLong(hash);
+            out.write(body);
+        }
+        return hash;
+    }
+
+    /**
+     * Encodes the body of a compiled map: the runs of floor and walls of each row, then the item cells.
+     *
+     * @param loader the loader holding the map
+     * @return the encoded body
+     */
+    public static byte[] encodeBody(MapLoader loader)
+    {
+        ObstacleGrid obstacles = loader.getObstacles();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int[] runs = new int[loader.getColsCount() + 1];
+        for (int y = 0; y < loader.getRowsCount(); y++)
+        {
+            int runCount = 0;
+            boolean wall = false;
+            int length = 0;
+            for (int x = 0; x < loader.getColsCount(); x++)
+            {
+                if (obstacles.isObstacle(x, y) != wall)
+                {
+                    runs[runCount++] = length;
+                    wall = !wall;
+                    length = 0;
+                }
+                length++;
+            }
+            runs[runCount++] = length;
+            writeVarint(body, runCount);
+            for (int i = 0; i < runCount; i++)
+                writeVarint(body, runs[i]);
+        }
+        long previous = 0;
+        for (long cell : loader.getItemCells())
+        {
+            writeVarint(body, cell - previous);
+            previous = cell;
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Computes the hash of a compiled map: the hash of its header fields, followed by its body.
+     *
+     * @param loader the loader holding the map
+     * @param body   the encoded body
+     * @return the 64-bit FNV-1a hash of the map
+     */
+    public static long hash(MapLoader loader, byte[] body)
+    {
+        long hash = headerHash(loader.getRowsCount(), loader.getColsCount(), loader.getSpawnCell(),
+                               loader.getItemCells().length);
+        for (byte b : body)
+            hash = hash(hash, b);
+        return hash;
+    }
+
+    /**
+     * Computes the hash of the header fields of a compiled map identifying the map: its dimensions, spawn point and
+     * item count. The hash of the body continues from it.
+     *
+     * @param rows      the number of rows of the map
+     * @param cols      the number of columns of the map
+     * @param spawnCell the cell of the spawn point; -1 if the map doesn't define one
+     * @param itemCount the number of items on the map
+     * @return the 64-bit FNV-1a hash of the header fields
+     */
+    public static long headerHash(int rows, int cols, long spawnCell, int itemCount)
+    {
+        long hash = FNV_OFFSET;
+        hash = hash(hash, rows, 4);
+        hash = hash(hash, cols, 4);
+        hash = hash(hash, spawnCell, 8);
+        return hash(hash, itemCount, 4);
+    }
+
+    /**
+     * Adds a byte to a 64-bit FNV-1a hash.
+     *
+     * @param hash the hash of the bytes preceding b
+     * @param b    the byte to be added
+     * @return the hash including b
+     */
+    public static long hash(long hash, byte b)
+    {
+        return (hash ^ (b & 0xFF)) * FNV_PRIME;
+    }
+
+    // Adds the bytes of a value to a hash, most significant first.
+    private static long hash(long hash, long value, int bytes)
+    {
+        for (int i = bytes - 1; i >= 0; i--)
+            hash = hash(hash, (byte) (value >>> (8 * i)));
+        return hash;
+    }
+
+    // Writes a non-negative value as a varint: 7 bits per byte, least significant first, high bit set on all bytes but
+    // the last.
+    private static void writeVarint(ByteArrayOutputStream out, long value)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
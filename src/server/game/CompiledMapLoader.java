@@ -0,0 +1,116 @@
+package server.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Loads the layout of a map from a compiled map file (see CompiledMap).
+ * The runs of each row are decoded straight into an ObstacleGrid, filling whole words of the bitset at a time, and the
+ * body is hashed in the same pass, following the header fields, to check the map against the hash in the header.
+ * Header fields are range-checked before anything is allocated from them.
+ */
+public class CompiledMapLoader extends MapLoader
+{
+    private MappedByteBuffer buffer = null; // the content of the compiled map file
+    private int position = 0;               // position of the next body byte to be read
+    private long bodyHash = 0;              // hash of the header fields and body bytes read so far
+
+    /**
+     * Constructor.
+     *
+     * @param mapFile the compiled map file
+     * @param storage where the obstacle grid should be stored
+     */
+    public CompiledMapLoader(File mapFile, MapStorage storage)
+    {
+        super(mapFile, storage);
+    }
+
+    @Override
+    protected void parse(MappedByteBuffer buffer) throws IOException
+    {
+        this.buffer = buffer;
+        readHeader();
+        obstacles = new ObstacleGrid(rows, cols, storage);
+        bodyHash = CompiledMap.headerHash(rows, cols, spawnCell, itemCells.length);
+        long cell = 0;
+        for (int y = 0; y < rows; y++)
+        {
+            long runCount = readVarint();
+            long rowEnd = cell + cols;
+            boolean wall = false;
+            for (long i = 0; i < runCount; i++)
+            {
+                long length = readVarint();
+                if (cell + length > rowEnd)
+                    throw invalid("row " + y + " is longer than " + cols + " columns");
+                if (wall)
+                    obstacles.setObstacles(cell, length);
+                cell += length;
+                wall = !wall;
+            }
+            if (cell != rowEnd)
+                throw invalid("row " + y + " is shorter than " + cols + " columns");
+        }
+        long previous = 0;
+        for (int i = 0; i < itemCells.length; i++)
+        {
+            previous += readVarint();
+            if (previous >= cell)
+                throw invalid("item " + i + " is outside the map");
+            itemCells[i] = previous;
+        }
+        if (position != buffer.limit())
+            throw invalid("unexpected data after the body");
+        if (bodyHash != hash)
+            throw invalid("hash mismatch");
+        this.buffer = null;
+    }
+
+    // Reads the header, setting the map dimensions, spawn point, item count and hash.
+    private void readHeader() throws IOException
+    {
+        if (buffer.getInt(0) != CompiledMap.MAGIC)
+            throw invalid("not a compiled map");
+        if (buffer.getInt(4) != CompiledMap.VERSION)
+            throw invalid("unsupported version " + buffer.getInt(4));
+        rows = buffer.getInt(8);
+        cols = buffer.getInt(12);
+        spawnCell = buffer.getLong(16);
+        int itemCount = buffer.getInt(24);
+        int bodyLength = buffer.getInt(28);
+        hash = buffer.getLong(32);
+        if (rows <= 0 || cols <= 0 || itemCount < 0 || bodyLength != buffer.limit() - CompiledMap.HEADER_SIZE)
+            throw invalid("corrupted header");
+        if (spawnCell < -1 || spawnCell >= (long) rows * cols)
+            throw invalid("spawn point outside the map");
+        if (itemCount > bodyLength) // every item takes at least one byte of the body
+            throw invalid("item count larger than the body");
+        itemCells = new long[itemCount];
+        position = CompiledMap.HEADER_SIZE;
+    }
+
+    // Reads a varint from the body, adding its bytes to the body hash.
+    private long readVarint() throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            if (position >= buffer.limit())
+                throw invalid("truncated body");
+            byte b = buffer.get(position++);
+            bodyHash = CompiledMap.hash(bodyHash, b);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw invalid("malformed varint");
+    }
+
+    // Creates the exception reporting an invalid compiled map file.
+    private IOException invalid(String reason)
+    {
+        return new IOException("Invalid compiled map file, " + reason + ": \"" + mapFile.getAbsolutePath() + "\"");
+    }
+}
@@ -0,0 +1,83 @@
+package server.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import logger.LogLevel;
+import logger.Logger;
+
+/**
+ * Loads chunks from compiled map files in a directory, falling back to another generator for chunks without a file.
+ * The chunk at chunk coordinates (x, y) is stored in the file "<x>_<y>.mapc", a compiled map of WorldChunk.SIZE rows
+ * and columns (see CompiledMap and MapCompiler). Item values are defined randomly, using the random number generator
+ * of the game.
+ */
+public class DiskChunkGenerator implements ChunkGenerator
+{
+    private static final int MAX_ITEM_VALUE = 100; // items have values between 0 and MAX_ITEM_VALUE - 1
+
+    private File directory = null;          // the directory containing the chunk files
+    private ChunkGenerator fallback = null; // generates the chunks without a file
+    private Random random = null;           // random number generator for item values
+
+    /**
+     * Constructor.
+     * 
+     * @param directory the directory containing the chunk files
+     * @param fallback  the generator of the chunks without a file
+     * @param random    the random number generator for item values
+     */
+    public DiskChunkGenerator(File directory, ChunkGenerator fallback, Random random)
+    {
+        this.directory = directory;
+        this.fallback = fallback;
+        this.random = random;
+    }
+
+    @Override
+    public WorldChunk generate(int chunkX, int chunkY)
+    {
+        File chunkFile = new File(directory, chunkX + "_" + chunkY + CompiledMap.EXTENSION);
+        if (!chunkFile.isFile())
+            return fallback.generate(chunkX, chunkY);
+        try
+        {
+            return loadChunk(chunkFile, chunkX, chunkY);
+        }
+        catch (IOException e)
+        {
+            Logger.log(LogLevel.Error, "Could not load chunk file: \"" + chunkFile.getAbsolutePath() + "\"", e);
+            return fallback.generate(chunkX, chunkY);
+        }
+    }
+
+    // Loads a chunk from a compiled map file.
+    private WorldChunk loadChunk(File chunkFile, int chunkX, int chunkY) throws IOException
+    {
+        CompiledMapLoader loader = new CompiledMapLoader(chunkFile, MapStorage.Heap);
+        loader.load();
+        if (loader.getRowsCount() != WorldChunk.SIZE || loader.getColsCount() != WorldChunk.SIZE)
+            throw new IOException("Chunk files must be " + WorldChunk.SIZE + "x" + WorldChunk.SIZE + " maps");
+        WorldChunk chunk = new WorldChunk(chunkX, chunkY);
+        for (int y = 0; y < WorldChunk.SIZE; y++)
+        {
+            long bits = 0;
+            for (int x = 0; x < WorldChunk.SIZE; x++)
+            {
+                if (loader.getObstacles().isObstacle(x, y))
+                    bits |= 1L << x;
+            }
+            chunk.setRow(y, bits);
+        }
+        int originX = chunkX << WorldChunk.SHIFT;
+        int originY = chunkY << WorldChunk.SHIFT;
+        for (long cell : loader.getItemCells())
+        {
+            int x = originX + (int) (cell % WorldChunk.SIZE);
+            int y = originY + (int) (cell / WorldChunk.SIZE);
+            chunk.addItem(new Item(x, y, random.nextInt(MAX_ITEM_VALUE)));
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,231 @@
+package server.game;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Computes the cells a player sees from a position: the cells within a radius, along both axes, that are not hidden
+ * behind obstacles.
+ * Visible cells are found by symmetric shadowcasting: each of the four quadrants around the position is scanned row by
+ * row, moving away from the position, and obstacles cast shadows, ranges of slopes, on the rows behind them. Slopes
+ * are kept as fractions so that no cell is lost to rounding. A floor cell is visible from another floor cell exactly
+ * when the other is visible from it, so two players always see each other, or neither does. Obstacles are visible, but
+ * hide what lies behind them.
+ * The cells visible from a position are kept in a visibility mask, a bit set over the square around the position.
+ * Masks are cached, by position, in a least recently used cache of fixed size, since players keep standing on, and
+ * coming back to, the same cells. The cache is emptied whenever the version of the map layout changes.
+ */
+public class FieldOfView
+{
+    private static final int NORTH = 0; // quadrant above the position
+    private static final int EAST = 1;  // quadrant right of the position
+    private static final int SOUTH = 2; // quadrant below the position
+    private static final int WEST = 3;  // quadrant left of the position
+
+    private GameMap map = null;                       // the game map
+    private int radius = 0;                           // largest distance, along x and y, of the cells seen
+    private int cacheSize = 0;                        // largest number of masks cached
+    private Map<Long, Mask> masks = null;             // masks by position, least recently used first
+    private int version = 0;                          // version of the map layout the cached masks were computed on
+    private LongAdder hitCount = new LongAdder();     // masks found in the cache
+    private LongAdder missCount = new LongAdder();    // masks computed
+
+    /**
+     * Constructor.
+     *
+     * @param map       the game map
+     * @param radius    the largest distance, along the x and y axes, of the cells seen from a position
+     * @param cacheSize the largest number of visibility masks cached
+     */
+    public FieldOfView(GameMap map, int radius, int cacheSize)
+    {
+        this.map = map;
+        this.radius = radius;
+        this.cacheSize = Math.max(1, cacheSize);
+        version = map.getVersion();
+        masks = new LinkedHashMap<Long, Mask>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Mask> eldest)
+            {
+                return size() > FieldOfView.this.cacheSize;
+            }
+        };
+    }
+
+    // Gauges
+    public int getRadius() { return radius; }
+    public int getCacheSize() { return cacheSize; }
+    public long getHitCount() { return hitCount.sum(); }
+    public long getMissCount() { return missCount.sum(); }
+
+    /**
+     * Retrieves the visibility mask of a position, from the cache if it holds it; computes and caches it otherwise.
+     *
+     * @param pos the position seen from
+     * @return the cells visible from the position
+     */
+    public Mask getMask(Position pos)
+    {
+        long key = ((long) pos.getX() << 32) | (pos.getY() & 0xFFFFFFFFL);
+        int mapVersion = map.getVersion();
+        Mask mask = null;
+        synchronized (masks)
+        {
+            if (version != mapVersion)
+            {
+                masks.clear();
+                version = mapVersion;
+            }
+            mask = masks.get(key);
+        }
+        if (mask != null)
+        {
+            hitCount.increment();
+            return mask;
+        }
+        missCount.increment();
+        mask = computeMask(pos.getX(), pos.getY());
+        synchronized (masks)
+        {
+            if (version == mapVersion)
+                masks.put(key, mask);
+        }
+        return mask;
+    }
+
+    /**
+     * Checks whether a position is visible from another position.
+     *
+     * @param from the position seen from
+     * @param to   the position being checked
+     * @return true if the position is within the radius and not hidden by obstacles; false otherwise
+     */
+    public boolean isVisible(Position from, Position to)
+    {
+        return getMask(from).isVisible(to.getX(), to.getY());
+    }
+
+    @Override
+    public String toString()
+    {
+        int cached = 0;
+        synchronized (masks)
+        {
+            cached = masks.size();
+        }
+        return "Field of view: radius " + radius + ", " + cached + "/" + cacheSize + " masks cached, " + getHitCount()
+               + " hits, " + getMissCount() + " misses";
+    }
+
+    // Computes the mask of the cells visible from (x, y), scanning each quadrant from its first row.
+    private Mask computeMask(int x, int y)
+    {
+        Mask mask = new Mask(x, y, radius);
+        mask.set(x, y);
+        for (int quadrant = NORTH; quadrant <= WEST; quadrant++)
+            scanRow(mask, quadrant, 1, -1, 1, 1, 1);
+        return mask;
+    }
+
+    // Scans a row of a quadrant at the specified depth, between the start and end slopes, each given as a fraction.
+    // Marks the visible cells, and scans the next row for every range of slopes not hidden by the row's obstacles.
+    private void scanRow(Mask mask, int quadrant, int depth, int startNum, int startDen, int endNum, int endDen)
+    {
+        if (depth > radius)
+            return;
+        int minCol = Math.floorDiv(2 * depth * startNum + startDen, 2 * startDen);  // depth * start, ties rounded up
+        int maxCol = -Math.floorDiv(endDen - 2 * depth * endNum, 2 * endDen);      // depth * end, ties rounded down
+        Boolean previousWall = null;
+        for (int col = minCol; col <= maxCol; col++)
+        {
+            int x = getX(mask, quadrant, depth, col);
+            int y = getY(mask, quadrant, depth, col);
+            boolean wall = !map.isValidPosition(x, y);
+            if (wall || isSymmetric(depth, col, startNum, startDen, endNum, endDen))
+                mask.set(x, y);
+            if (previousWall != null && previousWall && !wall)
+            {
+                startNum = 2 * col - 1; // the slope of the cell's left edge
+                startDen = 2 * depth;
+            }
+            if (previousWall != null && !previousWall && wall)
+                scanRow(mask, quadrant, depth + 1, startNum, startDen, 2 * col - 1, 2 * depth);
+            previousWall = wall;
+        }
+        if (previousWall != null && !previousWall)
+            scanRow(mask, quadrant, depth + 1, startNum, startDen, endNum, endDen);
+    }
+
+    // Checks whether the center of a cell lies between the start and end slopes, so that the cell is seen from the
+    // position exactly when the position is seen from the cell.
+    private boolean isSymmetric(int depth, int col, int startNum, int startDen, int endNum, int endDen)
+    {
+        return (long) col * startDen >= (long) depth * startNum && (long) col * endDen <= (long) depth * endNum;
+    }
+
+    // Gets the x coordinate of a cell given by its depth and column within a quadrant.
+    private int getX(Mask mask, int quadrant, int depth, int col)
+    {
+        if (quadrant == EAST)
+            return mask.x + depth;
+        if (quadrant == WEST)
+            return mask.x - depth;
+        return mask.x + col;
+    }
+
+    // Gets the y coordinate of a cell given by its depth and column within a quadrant.
+    private int getY(Mask mask, int quadrant, int depth, int col)
+    {
+        if (quadrant == NORTH)
+            return mask.y - depth;
+        if (quadrant == SOUTH)
+            return mask.y + depth;
+        return mask.y + col;
+    }
+
+    /**
+     * The cells visible from a position: a bit set over the square of cells within the radius of the position.
+     * Masks are not modified once computed, so they are shared by threads without locking.
+     */
+    public static class Mask
+    {
+        private int x = 0;                // x coordinate of the position seen from
+        private int y = 0;                // y coordinate of the position seen from
+        private int radius = 0;           // largest distance of the cells in the mask
+        private BitSet cells = null;      // visible cells, row by row from the top left corner of the square
+
+        // Constructor.
+        Mask(int x, int y, int radius)
+        {
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+            cells = new BitSet((2 * radius + 1) * (2 * radius + 1));
+        }
+
+        /**
+         * Checks whether the cell at (x, y) is visible.
+         *
+         * @param x the cell's x coordinate
+         * @param y the cell's y coordinate
+         * @return true if the cell is within the radius and not hidden by obstacles; false otherwise
+         */
+        public boolean isVisible(int x, int y)
+        {
+            int dx = x - this.x;
+            int dy = y - this.y;
+            if (Math.abs(dx) > radius || Math.abs(dy) > radius)
+                return false;
+            return cells.get((dy + radius) * (2 * radius + 1) + dx + radius);
+        }
+
+        // Marks the cell at (x, y) as visible.
+        void set(int x, int y)
+        {
+            cells.set((y - this.y + radius) * (2 * radius + 1) + x - this.x + radius);
+        }
+    }
+}
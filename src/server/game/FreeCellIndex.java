@@ -0,0 +1,134 @@
+package server.game;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Indexes the free cells of a map, i.e. the cells where a player can spawn or an item can be placed, so a uniformly
+ * random free cell can be picked in constant time.
+ * Free cells are kept in a bitset, one bit per cell, and the words of the bitset holding free cells are listed in a
+ * dense array. A pick chooses a listed word and a bit of that word at random, retrying if the bit is not set: every
+ * free cell has the same chance of being picked, and at most 64 tries are expected per listed word. Words left without
+ * free cells are dropped from the array when a pick hits them, swapping the last listed word into their slot.
+ * Adding and removing cells only sets or clears their bits, listing their word if needed.
+ * The index takes about 1.5 bits per cell, so it fits large maps.
+ */
+public class FreeCellIndex
+{
+    private static final int INITIAL_CAPACITY = 16; // initial number of slots in the array of listed words
+
+    private long[] free;                              // bitset of the free cells
+    private long[] listed;                            // bitset of the words listed in the array of listed words
+    private int[] words = new int[INITIAL_CAPACITY];  // listed words: words that hold, or held, free cells
+    private int listedCount = 0;                      // number of listed words
+    private long size = 0;                            // number of free cells
+
+    /**
+     * Constructor.
+     * Creates an index without free cells.
+     *
+     * @param cellCount the number of cells in the map
+     */
+    public FreeCellIndex(long cellCount)
+    {
+        long wordCount = (cellCount + 63) >>> 6;
+        if (wordCount > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many cells: " + cellCount);
+        free = new long[(int) wordCount];
+        listed = new long[(int) ((wordCount + 63) >>> 6)];
+    }
+
+    // Setters and Getters
+    public synchronized long size() { return size; }
+
+    /**
+     * Adds a cell to the index, e.g. once the item occupying it is taken.
+     *
+     * @param cell the index of the cell, y * cols + x
+     */
+    public synchronized void add(long cell)
+    {
+        int word = (int) (cell >>> 6);
+        if ((free[word] & (1L << cell)) != 0)
+            return;
+        free[word] |= 1L << cell;
+        size++;
+        if ((listed[word >>> 6] & (1L << word)) == 0)
+        {
+            if (listedCount == words.length)
+                words = Arrays.copyOf(words, listedCount * 2);
+            words[listedCount++] = word;
+            listed[word >>> 6] |= 1L << word;
+        }
+    }
+
+    /**
+     * Removes a cell from the index, e.g. once an item is placed on it.
+     *
+     * @param cell the index of the cell, y * cols + x
+     */
+    public synchronized void remove(long cell)
+    {
+        int word = (int) (cell >>> 6);
+        if ((free[word] & (1L << cell)) == 0)
+            return;
+        free[word] &= ~(1L << cell);
+        size--;
+    }
+
+    /**
+     * Checks whether a cell is free.
+     *
+     * @param cell the index of the cell, y * cols + x
+     * @return true if the cell is in the index; false otherwise
+     */
+    public synchronized boolean contains(long cell)
+    {
+        return (free[(int) (cell >>> 6)] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Picks a uniformly random free cell, leaving it in the index.
+     *
+     * @param random the random number generator used for the pick
+     * @return the index of the cell picked; -1 if there are no free cells
+     */
+    public synchronized long pick(Random random)
+    {
+        while (size > 0)
+        {
+            int slot = random.nextInt(listedCount);
+            int word = words[slot];
+            if (free[word] == 0)
+            {
+                words[slot] = words[--listedCount]; // drop the word left without free cells
+                listed[word >>> 6] &= ~(1L << word);
+                continue;
+            }
+            int bit = random.nextInt(64);
+            if ((free[word] & (1L << bit)) != 0)
+                return ((long) word << 6) | bit;
+        }
+        return -1;
+    }
+
+    /**
+     * Picks a uniformly random free cell and removes it from the index.
+     *
+     * @param random the random number generator used for the pick
+     * @return the index of the cell picked; -1 if there are no free cells
+     */
+    public synchronized long take(Random random)
+    {
+        long cell = pick(random);
+        if (cell >= 0)
+            remove(cell);
+        return cell;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return size + " free cells";
+    }
+}
@@ -1,26 +1,41 @@
 package server.game;
 
-import java.io.File;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+import logger.LogLevel;
+import logger.Logger;
 import server.command.Action;
 import server.command.Command;
 import server.command.Result;
 import server.command.ResultCode;
 import server.commandhandler.CommandHandlerManager;
+import server.commandhandler.GotoCommandHandler;
 import server.commandhandler.LoginCommandHandler;
 import server.commandhandler.MapCommandHandler;
 import server.commandhandler.MessageCommandHandler;
 import server.commandhandler.MoveCommandHandler;
+import server.commandhandler.NearbyCommandHandler;
 import server.commandhandler.PlayersCommandHandler;
 import server.commandhandler.QuitCommandHandler;
 import server.event.Subject;
 import server.eventmanager.EventManager;
+import server.gameserver.ServerConfig;
+import server.timer.TimingWheel;
 
 /**
  * An instance of the Octothorpe Game.
+ * The game has a timing wheel on which command handlers and event handlers schedule time-based work (e.g. item
+ * respawns), rather than starting threads of their own. Timed tasks doing more than a little work, like the steps of
+ * goto routes, hand it off to the game's pool of workers, so they do not delay the other tasks of the wheel.
+ * Commands are processed on the thread submitting them, unless the game runs a TickEngine: commands are then applied in
+ * batches, once per tick, on the simulation thread. Alternatively, the map can be partitioned into regions
+ * (see RegionSimulation): commands are then applied by the region owning the player, in parallel across regions.
  */
 public class Game
 {
@@ -28,19 +43,100 @@ public class Game
     private Map<String, Player> players = new ConcurrentHashMap<String, Player>();  // list of players in the game
     private CommandHandlerManager handlers = new CommandHandlerManager();           // command handler manager
     private EventManager eventManager = new EventManager();                         // list of event managers
+    private TimingWheel timer = new TimingWheel("GameTimer");                       // runs the game's timed tasks
+    private ExecutorService workers = createWorkers();                              // run work handed off by tasks
+    private ItemRespawner respawner = null;                                         // replaces the items collected
+    private TickEngine tickEngine = null;                                           // applies commands; null if none
+    private RegionSimulation regions = null;                                        // applies commands; null if none
+    private PlayerGrid playerGrid = null;                                           // positions of the players
+    private AreaOfInterest interest = null;                                         // null if updates are broadcast
+    private ItemVisibility visibility = null;                                       // items seen by the players
+    private FieldOfView fieldOfView = null;                                         // null if obstacles hide nothing
+    private Pathfinder pathfinder = null;                                           // finds the paths of goto commands
     
     /**
      * Constructor.
-     * Initializes the game map.
-     * Installs command handlers.
+     * Uses the specified game map, with the game settings of the specified server configuration: the delay of item
+     * respawns; the tick rate of a tick engine or, without one, the regions the map is partitioned into; the radii
+     * limiting the players and items each player is told about, and the field of view hiding those behind obstacles;
+     * the search finding the paths of goto commands.
+     * Installs command handlers, and starts the tick engine, if any.
      * 
-     * @param mapFile the file containing the map information
+     * @param map    the game map
+     * @param config the server configuration holding the game settings
      */
-    public Game(File mapFile)
+    public Game(server.game.GameMap map, ServerConfig config)
     {
-        map = new server.game.GameMap(mapFile);
+        this.map = map;
+        int viewRadius = config.getViewRadius();
+        int revealRadius = config.getRevealRadius();
+        if (config.getFovCacheSize() > 0 && Math.max(viewRadius, revealRadius) > 0)
+            fieldOfView = new FieldOfView(map, Math.max(viewRadius, revealRadius), config.getFovCacheSize());
+        playerGrid = new PlayerGrid(viewRadius > 0 ? viewRadius : PlayerGrid.DEFAULT_BUCKET_SIZE);
+        if (viewRadius > 0)
+            interest = new AreaOfInterest(viewRadius, playerGrid, fieldOfView, eventManager);
+        if (config.getTickRate() == 0 && config.getRegionCols() > 0 && config.getRegionRows() > 0)
+            regions = new RegionSimulation(this, map, config.getRegionCols(), config.getRegionRows());
+        visibility = new ItemVisibility(map, players.values(), revealRadius, regions, playerGrid,
+                                        revealRadius > 0 ? fieldOfView : null, eventManager);
+        pathfinder = new Pathfinder(map, config.getPathAlgorithm(), Pathfinder.DEFAULT_FIELD_CACHE_SIZE);
+        respawner = new ItemRespawner(map, config.getItemRespawnDelay(), timer, this::itemSpawned);
         installCommandHandlers();
         registerEvents();
+        if (config.getTickRate() > 0)
+        {
+            tickEngine = new TickEngine(this, eventManager, config.getTickRate());
+            tickEngine.start();
+        }
+    }
+    
+    // Setters and Getters
+    public TimingWheel getTimer() { return timer; }
+    public TickEngine getTickEngine() { return tickEngine; }
+    public RegionSimulation getRegions() { return regions; }
+    public PlayerGrid getPlayerGrid() { return playerGrid; }
+    public AreaOfInterest getAreaOfInterest() { return interest; }
+    public ItemVisibility getItemVisibility() { return visibility; }
+    public FieldOfView getFieldOfView() { return fieldOfView; }
+    public Pathfinder getPathfinder() { return pathfinder; }
+    public boolean queuesCommands() { return tickEngine != null || regions != null; }
+
+    /**
+     * Stops the game's tick engine, if any, timing wheel and workers. Commands still queued, timed tasks still pending
+     * and work still handed off do not run.
+     */
+    public void stop()
+    {
+        if (tickEngine != null)
+            tickEngine.stop();
+        if (regions != null)
+            regions.stop();
+        if (interest != null)
+            Logger.log(LogLevel.Info, interest.toString());
+        Logger.log(LogLevel.Info, visibility.toString());
+        if (fieldOfView != null)
+            Logger.log(LogLevel.Info, fieldOfView.toString());
+        Logger.log(LogLevel.Info, pathfinder.toString());
+        Logger.log(LogLevel.Info, timer.toString());
+        timer.stop();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Submits a command to the game. The command is applied on the next tick if the game runs a tick engine; by the
+     * region owning the player if the map is partitioned into regions; immediately, on the calling thread, otherwise.
+     * 
+     * @param command   the command to be applied; must not be reused by the caller until it is applied
+     * @param onApplied receives the result of the command once applied
+     */
+    public void submitCommand(Command command, Consumer<Result> onApplied)
+    {
+        if (tickEngine != null)
+            tickEngine.submit(command, onApplied);
+        else if (regions != null)
+            regions.submit(command, onApplied);
+        else
+            onApplied.accept(processCommand(command));
     }
     
     /**
@@ -52,6 +148,19 @@ public class Game
     public Result processCommand(Command command)
     {
         Result result = new Result();
+        processCommand(command, result);
+        return result;
+    }
+
+    /**
+     * Processes a command, updating the result specified with the outcome of the command processing.
+     * Allows callers to reuse the same Result for every command they process.
+     * 
+     * @param command the command to be processed
+     * @param result  the result to be updated with the outcome of the command
+     */
+    public void processCommand(Command command, Result result)
+    {
         result.setPlayer(command.getPlayer().getName());
         if (handlers.getCommandHandler(command.getAction()) == null)
         {
@@ -60,7 +169,6 @@ public class Game
         }
         else
             handlers.getCommandHandler(command.getAction()).processCommand(command, result);
-        return result;
     }
 
     // run the game
@@ -88,12 +196,39 @@ public class Game
     // Installs command handlers for the game.
     private void installCommandHandlers()
     {
-        handlers.installCommandHandler(Action.Login, new LoginCommandHandler(players, map, eventManager));
+        handlers.installCommandHandler(Action.Goto, new GotoCommandHandler(players, map, pathfinder, this, timer,
+                                                                            workers));
+        handlers.installCommandHandler(Action.Login, new LoginCommandHandler(players, map, eventManager, playerGrid,
+                                                                              interest, visibility));
         handlers.installCommandHandler(Action.Map, new MapCommandHandler(map, eventManager));
         handlers.installCommandHandler(Action.Message, new MessageCommandHandler(eventManager));
-        handlers.installCommandHandler(Action.Move, new MoveCommandHandler(map, eventManager));
+        handlers.installCommandHandler(Action.Move,
+                                       new MoveCommandHandler(map, eventManager, respawner, regions, interest,
+                                                                      visibility));
+        handlers.installCommandHandler(Action.Nearby, new NearbyCommandHandler(playerGrid));
         handlers.installCommandHandler(Action.Players, new PlayersCommandHandler(players, eventManager));
-        handlers.installCommandHandler(Action.Quit, new QuitCommandHandler(players, eventManager));
+        handlers.installCommandHandler(Action.Quit,
+                                       new QuitCommandHandler(players, eventManager, playerGrid, interest));
+    }
+
+    // Creates the pool of daemon threads running the work handed off by timed tasks, one per processor.
+    private static ExecutorService createWorkers()
+    {
+        AtomicInteger count = new AtomicInteger(0);
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task ->
+        {
+            Thread thread = new Thread(task, "GameWorker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Informs players of an item respawned, once the region owning it indexes it.
+    private void itemSpawned(Item item)
+    {
+        if (regions != null)
+            regions.itemSpawned(item);
+        visibility.itemSpawned(item);
     }
 
     // Register events generated by the game.
@@ -104,6 +239,7 @@ public class Game
         eventManager.registerSubject(Subject.MapData);
         eventManager.registerSubject(Subject.PlayerConnected);
         eventManager.registerSubject(Subject.PlayerDisconnected);
+        eventManager.registerSubject(Subject.PlayerOutOfRange);
         eventManager.registerSubject(Subject.PlayerUpdate);
         eventManager.registerSubject(Subject.SendMessage);
     }
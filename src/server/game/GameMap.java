@@ -1,24 +1,38 @@
 package server.game;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.Scanner;
 
 import logger.LogLevel;
 import logger.Logger;
 
 /**
  * Represents a map within the game.
- * A map is represented essentially by a 2-dimmensional array of characters: each row represents a tick for the y
- * coordinate and each column represents a tick for the x coordinate.
+ * A map file is essentially a 2-dimmensional array of characters: each row represents a tick for the y coordinate and
+ * each column represents a tick for the x coordinate.
  * The character '#' represents an obstacle on the map. A player cannot move into a position represented by '#'.
  * Players spawn at the spawn point at their login. The character 'S' represents a spawn point for players.
  * Maps can have a list of items. The character 'i' represents an item on the map.
  * If the map file doesn't define the spawn point or items, these are defined randomly once the map is loaded.
  * Item values are defined randomly.
+ * Random positions are picked from an index of the free cells (without obstacles, spawn point or items), built on first
+ * use, using a random number generator that can be seeded and shared with the rest of the game.
+ * Once loaded, obstacles are kept in a bitset (one bit per cell), which can be stored off the heap for very large maps.
+ * Spawn points and items are kept in separate sparse layers, indexed by the cell they occupy, so looking up the item
+ * at a position takes constant time.
+ * Items are removed from the map once collected. Removal takes constant time too: the last item in the list of items
+ * takes the slot of the item removed, and the cell it leaves is returned to the free cells, where new items can be
+ * spawned.
+ * A map can also be a ChunkedWorld, whose chunks are generated only when players get near them. Such maps are not
+ * sent whole to players: players receive the region of the world around them (see getRegionAround).
+ * The map layout has a version that changes whenever obstacles are added or removed, so that data derived from the
+ * layout (e.g. the encoded map sent to players) can be cached until the layout changes.
  */
 public class GameMap
 {
@@ -32,9 +46,17 @@ public class GameMap
     private String name = null;                       // the name of the map
     private int rows = 0;                             // the number of rows in the map
     private int cols = 0;                             // the number of columns in the map
-    private char[][] map;                             // the map representation
+    private MapStorage storage = MapStorage.Auto;     // where the obstacle grid is stored
+    private ObstacleGrid obstacles = null;            // obstacles on the map
     private Position spawnPoint = null;               // spawn point of players
+    private CellIndex spawnCells = new CellIndex();   // spawn points defined by the map file
     private List<Item> items = new ArrayList<Item>(); // list of items contained in the map
+    private CellIndex itemCells = new CellIndex();    // slot in items + 1 of the first item in each cell
+    private Map<Long, List<Item>> overflowItems = new HashMap<Long, List<Item>>(); // further items, by cell
+    private ChunkedWorld world = null;                // the world, for chunked maps; null for maps loaded from a file
+    private Random random = null;                     // random number generator for positions and item values
+    private FreeCellIndex freeCells = null;           // cells where random positions are picked; built on first use
+    private volatile int version = 0;                 // version of the map layout
     
     /**
      * Constructor.
@@ -44,17 +66,77 @@ public class GameMap
      */
     public GameMap(File mapFile)
     {
+        this(mapFile, MapStorage.Auto);
+    }
+
+    /**
+     * Constructor.
+     * Loads a map from the specified file, storing its obstacles as specified.
+     * 
+     * @param map     the file containing the map layout
+     * @param storage where the obstacle grid should be stored
+     */
+    public GameMap(File mapFile, MapStorage storage)
+    {
+        this(mapFile, storage, new Random());
+    }
+
+    /**
+     * Constructor.
+     * Loads a map from the specified file, storing its obstacles as specified.
+     * Uses the specified random number generator to define random positions and item values.
+     * 
+     * @param map     the file containing the map layout
+     * @param storage where the obstacle grid should be stored
+     * @param random  the random number generator
+     */
+    public GameMap(File mapFile, MapStorage storage, Random random)
+    {
+        this.storage = storage;
+        this.random = random;
         loadMapFromFile(mapFile);
         checkItems();
-        Logger.log(LogLevel.Info, "Map loaded:\r\n" + getMapString());
+        if (Logger.isEnabled(LogLevel.Debug))
+            Logger.log(LogLevel.Debug, "Map loaded:\r\n" + getMapString());
+    }
+
+    /**
+     * Constructor.
+     * Creates a map over a chunked world.
+     * 
+     * @param world  the chunked world
+     * @param random the random number generator
+     */
+    public GameMap(ChunkedWorld world, Random random)
+    {
+        this.world = world;
+        this.random = random;
+        name = world.getName();
+        rows = ChunkedWorld.SIZE;
+        cols = ChunkedWorld.SIZE;
+        Logger.log(LogLevel.Info, world.toString());
     }
 
     // Setters and Getters
     public String getName() { return name; }
-    public List<Item> getItems() { return items; }
+    public boolean isChunked() { return world != null; }
+    public ChunkedWorld getWorld() { return world; }
+    public Random getRandom() { return random; }
     public int getRowsCount() { return rows; }
     public int getColsCount() { return cols; }
+    public int getVersion() { return version; }
+    public boolean hasSpawnPoint() { return world != null || spawnPoint != null; }
     
+    /**
+     * Retrieves the items on the map.
+     * 
+     * @return a copy of the list of items on the map; an empty list for chunked worlds
+     */
+    public synchronized List<Item> getItems()
+    {
+        return new ArrayList<Item>(items);
+    }
+
     /**
      * Retrieves the map spawn point.
      * If the map doesn't define a spawn point, return a randomized position.
@@ -63,10 +145,12 @@ public class GameMap
      */
     public Position getSpawnPoint()
     {
+        if (world != null)
+            return world.getSpawnPoint();
         if (spawnPoint == null)
         {
             Position pos = getRandomPosition();
-            Logger.log(LogLevel.Info, "Spawn point randomly defined at " + spawnPoint);
+            Logger.log(LogLevel.Info, "Spawn point randomly defined at " + pos);
             return pos;
         }
         return spawnPoint;
@@ -80,9 +164,7 @@ public class GameMap
      */
     public boolean isValidPosition(Position pos)
     {
-        return pos.getX() < cols
-               && pos.getY() < rows
-               && map[pos.getY()][pos.getX()] != OBSTACLE;
+        return isValidPosition(pos.getX(), pos.getY());
     }
 
     /**
@@ -90,11 +172,35 @@ public class GameMap
      * 
      * @param x the x coordinate being checked
      * @param y the y coordinate being checked
-     * @return true if the coordinates are not represented on the map by an obstacle character; false otherwise
+     * @return true if the coordinates are within the map and not represented by an obstacle character; false otherwise
      */
     public boolean isValidPosition(int x, int y)
     {
-        return isValidPosition(new Position(x, y));
+        if (world != null)
+            return !world.isObstacle(x, y);
+        return !obstacles.isObstacle(x, y);
+    }
+
+    /**
+     * Retrieves the region of the map sent to a player at the specified position.
+     * 
+     * @param pos the player's position
+     * @return the region of a chunked world around the position; null for maps loaded from a file, sent whole
+     */
+    public MapRegion getRegionAround(Position pos)
+    {
+        return world == null ? null : world.getRegionAround(pos);
+    }
+
+    /**
+     * Retrieves the items a player at the specified position is informed of.
+     * 
+     * @param pos the player's position
+     * @return the items in the region of a chunked world around the position; all the items for other maps
+     */
+    public List<Item> getItemsAround(Position pos)
+    {
+        return world == null ? getItems() : world.getItems(world.getRegionAround(pos));
     }
 
     /**
@@ -102,13 +208,55 @@ public class GameMap
      * 
      * @param row the row to be retrieved
      * @return A String containing the characters in the specified map row; null if the specified row is out of bounds
+     *         or the map is a chunked world
      */
     public String getMapRow(int row)
     {
-        if (row < 0 || row > rows)
+        if (row < 0 || row >= rows || world != null)
+            return null;
+        char[] mapRow = new char[cols];
+        for (int i = 0; i < cols; i++)
+            mapRow[i] = obstacles.isObstacle(i, row) ? OBSTACLE : SPACE; // do not show spawn point or items
+        return new String(mapRow);
+    }
+
+    /**
+     * Retrieves a range of the specified row of the map
+     * 
+     * @param row     the row to be retrieved
+     * @param fromCol the first column of the range
+     * @param count   the number of columns in the range
+     * @return A String containing the characters in the range; null if the range is out of bounds
+     */
+    public String getMapRow(int row, int fromCol, int count)
+    {
+        if (row < 0 || row >= rows || fromCol < 0 || count < 0 || fromCol + count > cols)
             return null;
-        String mapRow = new String(map[row]);
-        return mapRow.replaceAll("[^#]", " "); // do not show spawn point or items
+        if (world != null)
+            return world.getRow(row, fromCol, count);
+        char[] mapRow = new char[count];
+        for (int i = 0; i < count; i++)
+            mapRow[i] = obstacles.isObstacle(fromCol + i, row) ? OBSTACLE : SPACE; // do not show spawn point or items
+        return new String(mapRow);
+    }
+
+    /**
+     * Adds or removes an obstacle at the specified coordinates.
+     * Updates the version of the map layout.
+     * 
+     * @param x        the x coordinate of the position
+     * @param y        the y coordinate of the position
+     * @param obstacle true to place an obstacle at the position; false to clear it
+     */
+    public synchronized void setObstacle(int x, int y, boolean obstacle)
+    {
+        if (x < 0 || x >= cols || y < 0 || y >= rows)
+            return;
+        if (world != null)
+            world.setObstacle(x, y, obstacle);
+        else
+            obstacles.setObstacle(x, y, obstacle);
+        version++;
     }
 
     /**
@@ -120,12 +268,7 @@ public class GameMap
      */
     public Item getItemAtPosition(Position pos)
     {
-        for (Item item : items)
-        {
-            if (item.getPosition().equals(pos))
-                return item;
-        }
-        return null;
+        return getItemAtPosition(pos.getX(), pos.getY());
     }
 
     /**
@@ -138,54 +281,117 @@ public class GameMap
      */
     public Item getItemAtPosition(int x, int y)
     {
-        return getItemAtPosition(new Position(x, y));
+        if (world != null)
+            return world.getItem(x, y);
+        if (x < 0 || x >= cols || y < 0 || y >= rows)
+            return null;
+        synchronized (this)
+        {
+            int slot = itemCells.get((long) y * cols + x);
+            return slot == 0 ? null : items.get(slot - 1);
+        }
+    }
+
+    /**
+     * Retrieves all the items at the specified coordinates.
+     * 
+     * @param x the position's x coordinate
+     * @param y the position's y coordinate
+     * @return the items at the specified coordinates; an empty list if there are no items at the specified position
+     */
+    public List<Item> getItemsAtPosition(int x, int y)
+    {
+        List<Item> cellItems = new ArrayList<Item>();
+        Item item = getItemAtPosition(x, y);
+        if (item == null)
+            return cellItems;
+        cellItems.add(item);
+        if (world != null)
+            return cellItems;
+        synchronized (this)
+        {
+            List<Item> overflow = overflowItems.get((long) y * cols + x);
+            if (overflow != null)
+                cellItems.addAll(overflow);
+        }
+        return cellItems;
+    }
+
+    /**
+     * Collects the specified item on behalf of a player, removing it from the map.
+     * Only the first call for an item succeeds, so players moving onto the same item concurrently cannot both collect
+     * it.
+     * 
+     * @param item the item being collected
+     * @return true if the item was collected by this call; false if it had already been collected
+     */
+    public boolean collectItem(Item item)
+    {
+        if (!item.collect())
+            return false;
+        if (world != null)
+            world.removeItem(item);
+        else
+            removeItem(item);
+        if (Logger.isEnabled(LogLevel.Debug))
+            Logger.log(LogLevel.Debug, "Item collected: " + item);
+        return true;
+    }
+
+    /**
+     * Spawns a new item, with a random value, at a random free position of the map.
+     * 
+     * @return the new item; null if the map has no free positions left or is a chunked world, whose items are defined
+     *         by its chunks
+     */
+    public synchronized Item spawnRandomItem()
+    {
+        if (world != null)
+            return null;
+        Position pos = getRandomPosition();
+        if (pos == null)
+            return null;
+        Item item = new Item(pos, getRandomItemValue());
+        addItem(item);
+        return item;
     }
 
     @Override
     public String toString()
     {
-        return "Map size: " + rows + "x" + cols;
+        if (world != null)
+            return world.toString();
+        return "Map size: " + rows + "x" + cols + ", " + obstacles;
     }
     
-    // Loads a map layout from the specified file.
-    // Assumes all lines in the file have the same lenght
+    // Loads a map layout from the specified file, either a text map file or a compiled map file.
     private void loadMapFromFile(File mapFile)
     {
         Logger.log(LogLevel.Info, "Loading map from file: \"" + mapFile.getAbsolutePath() + "\"");
         name = mapFile.getName().substring(0, mapFile.getName().indexOf('.'));
-        List<String> lines = readFileLines(mapFile);
-        rows = lines.size();
-        cols = lines.get(0).length();
-        map = new char[rows][cols];
-        for (int i = 0; i < rows; i++)
+        MapLoader loader = null;
+        try
         {
-            String line = lines.get(i);
-            for (int j = 0; j < cols; j++)
-            {
-                map[i][j] = line.charAt(j);
-                if (map[i][j] == SPAWN)
-                    spawnPoint = new Position(j, i);
-                if (map[i][j] == ITEM)
-                    items.add(new Item(j, i, getRandomItemValue()));
-            }
+            loader = MapLoader.create(mapFile, storage);
+            loader.load();
         }
-    }
-    
-    // Reads the file lines.
-    private List<String> readFileLines(File mapFile)
-    {
-        List<String> lines = new ArrayList<String>();
-        try (Scanner sc = new Scanner(mapFile))
+        catch (IOException e)
         {
-            while (sc.hasNextLine())
-                lines.add(sc.nextLine());
+            String message = "Could not load map from file: \"" + mapFile.getAbsolutePath() + "\"";
+            Logger.log(LogLevel.Error, message, e);
+            throw new UncheckedIOException(message, e);
         }
-        catch (FileNotFoundException e)
+        rows = loader.getRowsCount();
+        cols = loader.getColsCount();
+        obstacles = loader.getObstacles();
+        if (loader.getSpawnCell() >= 0)
         {
-            String message = "Could not open file containing map: \"" + mapFile.getAbsolutePath() + "\"";
-            Logger.log(LogLevel.Error, message, e);
+            spawnPoint = new Position((int) (loader.getSpawnCell() % cols), (int) (loader.getSpawnCell() / cols));
+            spawnCells.put(loader.getSpawnCell(), 1);
         }
-        return lines;
+        for (long cell : loader.getItemCells())
+            addItem(new Item((int) (cell % cols), (int) (cell / cols), getRandomItemValue()));
+        Logger.log(LogLevel.Info, loader.toString());
     }
 
     // Checks whether there are items on the map.
@@ -194,40 +400,118 @@ public class GameMap
     {
         if (items.isEmpty())
         {
-            Random rand = new Random();
-            int maxItemCount = (int) (rows * cols * MAX_ITEM_RATIO);
-            int itemCount = rand.nextInt(maxItemCount);
+            int maxItemCount = (int) Math.min(Integer.MAX_VALUE, (long) rows * cols * MAX_ITEM_RATIO);
+            int itemCount = maxItemCount > 0 ? random.nextInt(maxItemCount) : 0;
             for (int i = 0; i < itemCount; i++)
             {
                 Position pos = getRandomPosition();
+                if (pos == null)
+                    break;
                 Item item = new Item(pos, getRandomItemValue());
-                items.add(item);
-                map[pos.getY()][pos.getX()] = ITEM;
+                addItem(item);
                 Logger.log(LogLevel.Info, "New item generated: " + item);
             }
         }
     }
 
-    // Gets a random valid position within the map
-    private Position getRandomPosition()
+    // Adds an item to the map and indexes it by the cell it occupies.
+    // The first item in a cell is referenced by the cell index; further items in the same cell go to the overflow.
+    // Called while the map is loaded, or holding the map lock.
+    private void addItem(Item item)
+    {
+        item.setSlot(items.size());
+        items.add(item);
+        long cell = getCell(item);
+        if (itemCells.get(cell) == 0)
+            itemCells.put(cell, items.size());
+        else
+            overflowItems.computeIfAbsent(cell, c -> new ArrayList<Item>()).add(item);
+        if (freeCells != null)
+            freeCells.remove(cell);
+    }
+
+    // Removes an item from the map and from the index of the cell it occupies.
+    // An item from the overflow of the cell, if any, takes its place in the cell index. The last item in the list of
+    // items is moved into the slot of the item removed. Returns the cell to the free cells once it holds no items.
+    private synchronized void removeItem(Item item)
+    {
+        int slot = item.getSlot();
+        if (slot < 0 || slot >= items.size() || items.get(slot) != item)
+            return;
+        long cell = getCell(item);
+        List<Item> overflow = overflowItems.get(cell);
+        if (itemCells.get(cell) != slot + 1)
+        {
+            if (overflow != null)
+                overflow.remove(item);
+        }
+        else if (overflow == null)
+            itemCells.remove(cell);
+        else
+            itemCells.put(cell, overflow.remove(overflow.size() - 1).getSlot() + 1);
+        if (overflow != null && overflow.isEmpty())
+            overflowItems.remove(cell);
+        Item last = items.remove(items.size() - 1);
+        if (last != item)
+        {
+            items.set(slot, last);
+            last.setSlot(slot);
+            long lastCell = getCell(last);
+            if (itemCells.get(lastCell) == items.size() + 1)
+                itemCells.put(lastCell, slot + 1);
+        }
+        item.setSlot(-1);
+        if (freeCells != null && itemCells.get(cell) == 0 && spawnCells.get(cell) == 0
+            && !obstacles.isObstacle(item.getPosition().getX(), item.getPosition().getY()))
+            freeCells.add(cell);
+    }
+
+    // Retrieves the cell occupied by an item, y * cols + x
+    private long getCell(Item item)
+    {
+        return (long) item.getPosition().getY() * cols + item.getPosition().getX();
+    }
+
+    // Gets a uniformly random free position within the map: not an obstacle, not a spawn point and without items.
+    // Returns null if the map has no free cells.
+    private synchronized Position getRandomPosition()
+    {
+        if (freeCells == null)
+            freeCells = buildFreeCells();
+        long cell = freeCells.pick(random);
+        if (cell < 0)
+        {
+            Logger.log(LogLevel.Error, "No free position left on map " + name);
+            return null;
+        }
+        return new Position((int) (cell % cols), (int) (cell / cols));
+    }
+
+    // Builds the index of free cells: all the cells without obstacles, except the spawn point and the item cells.
+    private FreeCellIndex buildFreeCells()
     {
-        Random rand = new Random();
-        int x = 0;
-        int y = 0;
-        do
+        FreeCellIndex index = new FreeCellIndex((long) rows * cols);
+        long cell = 0;
+        for (int y = 0; y < rows; y++)
         {
-            x = rand.nextInt(cols);
-            y = rand.nextInt(rows);
-        } while (map[y][x] != SPACE);
-        map[y][x] = SPAWN;
-        return new Position(x, y);
+            for (int x = 0; x < cols; x++, cell++)
+            {
+                if (!obstacles.isObstacle(x, y))
+                    index.add(cell);
+            }
+        }
+        if (spawnPoint != null)
+            index.remove((long) spawnPoint.getY() * cols + spawnPoint.getX());
+        for (Item item : items)
+            index.remove(getCell(item));
+        Logger.log(LogLevel.Info, "Free cell index built for map " + name + ": " + index);
+        return index;
     }
 
     // Gets a random value for an item
     private int getRandomItemValue()
     {
-        Random rand = new Random();
-        return rand.nextInt(MAX_ITEM_VALUE);
+        return random.nextInt(MAX_ITEM_VALUE);
     }
 
     // Retrieves a string representation of the map
@@ -235,7 +519,24 @@ public class GameMap
     {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < rows; i++)
-            sb.append(new String(map[i]) + "\r\n");
+        {
+            for (int j = 0; j < cols; j++)
+                sb.append(getCellChar(j, i));
+            sb.append("\r\n");
+        }
         return sb.toString();
     }
+
+    // Retrieves the character representing the cell at (x, y) in a map file
+    private char getCellChar(int x, int y)
+    {
+        long cell = (long) y * cols + x;
+        if (obstacles.isObstacle(x, y))
+            return OBSTACLE;
+        if (itemCells.get(cell) != 0)
+            return ITEM;
+        if (spawnCells.get(cell) != 0)
+            return SPAWN;
+        return SPACE;
+    }
 }
@@ -1,15 +1,22 @@
 package server.game;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Represents an item on the map.
  * Each item has an ID, a position on the map, and a value.
+ * An item can be collected only once: players moving onto it concurrently race to claim it, and only the winner
+ * scores its value.
  */
 public class Item
 {
-    private static int itemCount = 0;      // global item id
-    private int itemId = 0;                // item ID
-    private Position pos = new Position(); // item position on the game map
-    private int value = 0;                 // item value
+    private static AtomicInteger itemCount = new AtomicInteger(); // global item id
+    private int itemId = 0;                                       // item ID
+    private Position pos = new Position();                        // item position on the game map
+    private int value = 0;                                        // item value
+    private AtomicBoolean collected = new AtomicBoolean(false);   // set once a player claims the item
+    private int slot = -1;                                        // slot in the map's list of items; -1 if not listed
     
     /**
      * Default constructor.
@@ -31,7 +38,7 @@ public class Item
      */
     public Item(Position pos, int value)
     {
-        itemId = ++itemCount;
+        itemId = itemCount.incrementAndGet();
         this.pos = pos;
         this.value = value;
     }
@@ -54,6 +61,19 @@ public class Item
     public int getId() { return itemId; }
     public Position getPosition() { return pos; }
     public int getValue() { return value; }
+    public boolean isCollected() { return collected.get(); }
+    int getSlot() { return slot; }
+    void setSlot(int slot) { this.slot = slot; }
+
+    /**
+     * Claims the item for the player collecting it.
+     * 
+     * @return true if the item was claimed by this call; false if it had already been collected
+     */
+    public boolean collect()
+    {
+        return collected.compareAndSet(false, true);
+    }
 
     @Override
     public String toString()
@@ -0,0 +1,78 @@
+package server.game;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import logger.LogLevel;
+import logger.Logger;
+import server.timer.TimingWheel;
+
+/**
+ * Replaces the items collected on a map: once an item is collected, a new item is spawned at a random free position
+ * of the map after a delay, so the number of items on the map stays the same over time.
+ * Respawns are scheduled on the game's timing wheel. Maps over chunked worlds do not respawn items.
+ */
+public class ItemRespawner
+{
+    public static final int DEFAULT_DELAY = 10000; // default delay of respawns, in milliseconds
+
+    private GameMap map = null;             // the map items are spawned on
+    private int delay = DEFAULT_DELAY;      // delay (ms) from the collection of an item to its respawn; 0 disables
+    private TimingWheel timer = null;       // runs the scheduled respawns
+    private Consumer<Item> listener = null; // notified of every item spawned
+
+    /**
+     * Constructor.
+     *
+     * @param map      the map items are spawned on
+     * @param delay    the delay, in milliseconds, between the collection of an item and its respawn; 0 to disable
+     *                 respawns
+     * @param timer    the timing wheel running the scheduled respawns
+     * @param listener notified of every item spawned, e.g. to inform players of it
+     */
+    public ItemRespawner(GameMap map, int delay, TimingWheel timer, Consumer<Item> listener)
+    {
+        this.map = map;
+        this.delay = delay;
+        this.timer = timer;
+        this.listener = listener;
+    }
+
+    // Setters and Getters
+    public int getDelay() { return delay; }
+    public boolean isEnabled() { return delay > 0 && !map.isChunked(); }
+
+    /**
+     * Schedules the respawn of an item that has just been collected.
+     *
+     * @param item the item collected
+     */
+    public void itemCollected(Item item)
+    {
+        if (isEnabled())
+            timer.schedule(this::respawn, delay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String toString()
+    {
+        return isEnabled() ? "items respawn after " + delay + " ms" : "items do not respawn";
+    }
+
+    // Spawns a new item on the map and notifies the listener.
+    private void respawn()
+    {
+        try
+        {
+            Item item = map.spawnRandomItem();
+            if (item == null)
+                return;
+            Logger.log(LogLevel.Info, "Item respawned: " + item);
+            listener.accept(item);
+        }
+        catch (RuntimeException e)
+        {
+            Logger.log(LogLevel.Error, "Could not respawn item", e);
+        }
+    }
+}
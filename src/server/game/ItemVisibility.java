@@ -0,0 +1,234 @@
+package server.game;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+import server.event.ItemDataEvent;
+import server.eventmanager.EventListener;
+import server.eventmanager.EventManager;
+
+/**
+ * Reveals the items on the map to the players who can see them, sending each item to each player only once.
+ * Each player keeps the cells of the items it was sent, so an item is not sent again when the player walks back past
+ * it, nor when the region of a chunked world around the player is sent again, even if the chunks holding it were
+ * evicted and generated again meanwhile. Collected items are notified to every player, so their cells are dropped
+ * from every player's known items: an item respawned in the same cell is sent again, and each player only keeps the
+ * cells of the items it saw that are still on the map.
+ * The items a player can see depend on the reveal radius:
+ * - 0: every item on the map, or in the region of the world around the player in chunked worlds. Items are sent on
+ *   login and when the player enters another region; respawned items are sent to every player.
+ * - a number of cells: the items within that distance of the player, along both axes. Moves only look at the cells
+ *   entering the radius, a single row or column for a move of one cell; respawned items are sent to the players
+ *   within the radius.
+ * With a radius, the game can also have a FieldOfView: items hidden behind obstacles are then not sent until the
+ * player sees them. Moves then look at every cell the player sees, since cells seen from the previous position may
+ * have hidden the cells around them.
+ */
+public class ItemVisibility
+{
+    private static final int KNOWN = 1; // value of the cells of the items known by a player
+
+    private GameMap map = null;                       // the game map
+    private Collection<Player> players = null;        // the players in the game
+    private int radius = 0;                           // largest distance of the items a player sees; 0 for all items
+    private RegionSimulation regions = null;          // regions of the map; null if the map is not partitioned
+    private PlayerGrid grid = null;                   // positions of the players in the game
+    private FieldOfView fieldOfView = null;           // cells seen from each position; null if items are not hidden
+    private EventManager eventManager = null;         // the game's event manager
+    private LongAdder itemsSent = new LongAdder();    // items sent to players
+    private LongAdder itemsSkipped = new LongAdder(); // items not sent again to players who knew them
+
+    /**
+     * Constructor.
+     *
+     * @param map          the game map
+     * @param players      the players in the game
+     * @param radius       the largest distance, along the x and y axes, of the items a player sees; 0 for all items
+     * @param regions      the regions of the map; null if the map is not partitioned
+     * @param grid         the grid indexing the positions of the players in the game
+     * @param fieldOfView  the cells seen from each position, covering at least the radius; null if obstacles do not
+     *                     hide items
+     * @param eventManager the game's event manager
+     */
+    public ItemVisibility(GameMap map, Collection<Player> players, int radius, RegionSimulation regions,
+                          PlayerGrid grid, FieldOfView fieldOfView, EventManager eventManager)
+    {
+        this.map = map;
+        this.players = players;
+        this.radius = radius;
+        this.regions = regions;
+        this.grid = grid;
+        this.fieldOfView = fieldOfView;
+        this.eventManager = eventManager;
+    }
+
+    // Setters and Getters
+    public int getRadius() { return radius; }
+    public long getItemsSent() { return itemsSent.sum(); }
+    public long getItemsSkipped() { return itemsSkipped.sum(); }
+
+    /**
+     * Sends a player who just logged in the items it sees from its initial position.
+     *
+     * @param player the player who logged in
+     */
+    public void playerJoined(Player player)
+    {
+        synchronized (player.knownItems)
+        {
+            player.knownItems.clear();
+        }
+        if (radius == 0)
+            revealRegion(player);
+        else
+            revealCells(player, null);
+    }
+
+    /**
+     * Sends a player who moved the items entering its radius, if any.
+     *
+     * @param player the player who moved, at its new position
+     * @param from   the position the player moved from
+     */
+    public void playerMoved(Player player, Position from)
+    {
+        if (radius > 0)
+            revealCells(player, from);
+    }
+
+    /**
+     * Sends a player who entered another region of a chunked world the items of the region, if the player sees all
+     * the items around it.
+     *
+     * @param player the player who entered the region
+     */
+    public void regionChanged(Player player)
+    {
+        if (radius == 0)
+            revealRegion(player);
+    }
+
+    /**
+     * Sends a respawned item to the players who see it.
+     *
+     * @param item the item spawned
+     */
+    public void itemSpawned(Item item)
+    {
+        if (radius == 0)
+        {
+            eventManager.notify(new ItemDataEvent(item));
+            return;
+        }
+        for (Player player : grid.getPlayersNear(item.getPosition(), radius))
+        {
+            if (fieldOfView == null || fieldOfView.isVisible(player.getPosition(), item.getPosition()))
+                reveal(player, item);
+        }
+    }
+
+    /**
+     * Drops a collected item from the items known by the players, so an item respawned in its cell is sent again.
+     * Must be called once the item is claimed, before its respawn is scheduled.
+     *
+     * @param item the item collected
+     */
+    public void itemCollected(Item item)
+    {
+        long cell = getCell(item);
+        for (Player player : players)
+        {
+            synchronized (player.knownItems)
+            {
+                player.knownItems.remove(cell);
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Item visibility: " + (radius == 0 ? "all items" : "radius " + radius) + ", " + getItemsSent()
+               + " items sent, " + getItemsSkipped() + " items already known";
+    }
+
+    // Sends the player the items on the map, or in the region of the world around the player.
+    private void revealRegion(Player player)
+    {
+        for (Item item : map.getItemsAround(player.getPosition()))
+            reveal(player, item);
+    }
+
+    // Sends the player the items in the cells within the radius of its position, skipping the cells that were within
+    // the radius of the position it moved from, if any. Only looks at the cells the player sees if the game has a field
+    // of view.
+    private void revealCells(Player player, Position from)
+    {
+        Position pos = player.getPosition();
+        if (fieldOfView != null)
+        {
+            revealVisibleCells(player, fieldOfView.getMask(pos));
+            return;
+        }
+        for (int y = pos.getY() - radius; y <= pos.getY() + radius; y++)
+        {
+            boolean rowSeen = from != null && Math.abs(y - from.getY()) <= radius;
+            for (int x = pos.getX() - radius; x <= pos.getX() + radius; x++)
+            {
+                if (rowSeen && Math.abs(x - from.getX()) <= radius)
+                {
+                    x = from.getX() + radius; // skip to the first cell past the previous radius
+                    continue;
+                }
+                Item item = regions == null ? map.getItemAtPosition(x, y) : regions.getItemAtPosition(x, y);
+                if (item != null)
+                    reveal(player, item);
+            }
+        }
+    }
+
+    // Sends the player the items in the cells within the radius of its position that it sees.
+    private void revealVisibleCells(Player player, FieldOfView.Mask mask)
+    {
+        Position pos = player.getPosition();
+        for (int y = pos.getY() - radius; y <= pos.getY() + radius; y++)
+        {
+            for (int x = pos.getX() - radius; x <= pos.getX() + radius; x++)
+            {
+                if (!mask.isVisible(x, y))
+                    continue;
+                Item item = regions == null ? map.getItemAtPosition(x, y) : regions.getItemAtPosition(x, y);
+                if (item != null)
+                    reveal(player, item);
+            }
+        }
+    }
+
+    // Sends an item to the player, unless the player already knows it or it was collected. Collected items are checked
+    // while holding the player's known items, so the cell of an item being collected is either not added or dropped.
+    private void reveal(Player player, Item item)
+    {
+        long cell = getCell(item);
+        synchronized (player.knownItems)
+        {
+            if (item.isCollected())
+                return;
+            if (player.knownItems.get(cell) == KNOWN)
+            {
+                itemsSkipped.increment();
+                return;
+            }
+            player.knownItems.put(cell, KNOWN);
+        }
+        itemsSent.increment();
+        EventListener listener = player.getEventHandlerManager();
+        if (listener != null)
+            eventManager.notify(listener, new ItemDataEvent(item));
+    }
+
+    // Retrieves the cell of an item, y * cols + x.
+    private long getCell(Item item)
+    {
+        return (long) item.getPosition().getY() * map.getColsCount() + item.getPosition().getX();
+    }
+}
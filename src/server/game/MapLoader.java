@@ -0,0 +1,139 @@
+package server.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Loads the layout of a map from a map file.
+ * The map file is memory-mapped and parsed straight into an ObstacleGrid. Spawn points and items found in the file are
+ * collected as cell indexes, y * cols + x.
+ * Map files are either text files or compiled map files (see CompiledMap); the loader for a file is chosen by its
+ * content.
+ */
+public abstract class MapLoader
+{
+    protected File mapFile = null;                  // the file containing the map layout
+    protected MapStorage storage = MapStorage.Auto; // where the obstacle grid is stored
+    protected int rows = 0;                         // the number of rows in the map
+    protected int cols = 0;                         // the number of columns in the map
+    protected ObstacleGrid obstacles = null;        // obstacles found in the map file
+    protected long spawnCell = -1;                  // cell of the spawn point; -1 if the map doesn't define one
+    protected long[] itemCells = new long[0];       // cells of the items, in ascending order
+    protected long hash = 0;                        // hash of the map content; 0 until computed
+    private long loadTime = 0;                      // time taken to load the map, in milliseconds
+    private long peakHeap = 0;                      // peak heap usage while loading the map, in bytes
+
+    /**
+     * Constructor.
+     *
+     * @param mapFile the file containing the map layout
+     * @param storage where the obstacle grid should be stored
+     */
+    protected MapLoader(File mapFile, MapStorage storage)
+    {
+        this.mapFile = mapFile;
+        this.storage = storage;
+    }
+
+    /**
+     * Creates the loader for the specified map file: a CompiledMapLoader if the file starts with the compiled map
+     * magic number; a TextMapLoader otherwise.
+     *
+     * @param mapFile the file containing the map layout
+     * @param storage where the obstacle grid should be stored
+     * @return the loader for the map file
+     * @throws IOException if the map file cannot be read
+     */
+    public static MapLoader create(File mapFile, MapStorage storage) throws IOException
+    {
+        if (CompiledMap.isCompiledMap(mapFile))
+            return new CompiledMapLoader(mapFile, storage);
+        return new TextMapLoader(mapFile, storage);
+    }
+
+    // Setters and Getters
+    public File getMapFile() { return mapFile; }
+    public int getRowsCount() { return rows; }
+    public int getColsCount() { return cols; }
+    public ObstacleGrid getObstacles() { return obstacles; }
+    public long getSpawnCell() { return spawnCell; }
+    public long[] getItemCells() { return itemCells; }
+    public long getLoadTime() { return loadTime; }
+    public long getPeakHeap() { return peakHeap; }
+
+    /**
+     * Retrieves the hash of the map content, which identifies the map layout, spawn point and items.
+     * Compiled maps store the hash; for other maps it is computed on first use.
+     *
+     * @return the hash of the map content
+     */
+    public long getHash()
+    {
+        if (hash == 0)
+            hash = CompiledMap.hash(this, CompiledMap.encodeBody(this));
+        return hash;
+    }
+
+    /**
+     * Loads the map layout from the map file.
+     *
+     * @throws IOException if the map file cannot be read or is invalid
+     */
+    public void load() throws IOException
+    {
+        long start = System.nanoTime();
+        resetPeakHeap();
+        try (FileChannel channel = FileChannel.open(mapFile.toPath(), StandardOpenOption.READ))
+        {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Map file too large: " + channel.size() + " bytes");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            parse(buffer);
+        }
+        loadTime = (System.nanoTime() - start) / 1_000_000;
+        peakHeap = measurePeakHeap();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Map file " + mapFile.getName() + ": " + rows + "x" + cols + " loaded in " + loadTime + " ms, "
+               + (peakHeap >> 20) + " MB peak heap, " + obstacles;
+    }
+
+    /**
+     * Parses the content of the map file, setting the map dimensions, obstacles, spawn point and items.
+     *
+     * @param buffer the content of the map file
+     * @throws IOException if the content of the map file is invalid
+     */
+    protected abstract void parse(MappedByteBuffer buffer) throws IOException;
+
+    // Resets the peak usage of the heap memory pools.
+    private static void resetPeakHeap()
+    {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid())
+                pool.resetPeakUsage();
+        }
+    }
+
+    // Retrieves the peak heap usage since the last reset, adding the peak usage of all the heap memory pools.
+    private static long measurePeakHeap()
+    {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid() && pool.getPeakUsage() != null)
+                peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,55 @@
+package server.game;
+
+/**
+ * Represents a rectangular region of a map: the position of its top left cell and its dimensions.
+ */
+public class MapRegion
+{
+    private int x = 0;    // the x coordinate of the top left cell
+    private int y = 0;    // the y coordinate of the top left cell
+    private int cols = 0; // the number of columns in the region
+    private int rows = 0; // the number of rows in the region
+
+    /**
+     * Constructor.
+     * 
+     * @param x    the x coordinate of the top left cell
+     * @param y    the y coordinate of the top left cell
+     * @param cols the number of columns in the region
+     * @param rows the number of rows in the region
+     */
+    public MapRegion(int x, int y, int cols, int rows)
+    {
+        this.x = x;
+        this.y = y;
+        this.cols = cols;
+        this.rows = rows;
+    }
+
+    // Setters and Getters
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getColsCount() { return cols; }
+    public int getRowsCount() { return rows; }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (!(obj instanceof MapRegion))
+            return false;
+        MapRegion region = (MapRegion) obj;
+        return x == region.x && y == region.y && cols == region.cols && rows == region.rows;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return ((x * 31 + y) * 31 + cols) * 31 + rows;
+    }
+
+    @Override
+    public String toString()
+    {
+        return cols + "x" + rows + " region at (" + x + ", " + y + ")";
+    }
+}
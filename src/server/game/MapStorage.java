@@ -0,0 +1,32 @@
+package server.game;
+
+/**
+ * Represents where the obstacle grid of a map is stored.
+ * - Auto: on the heap, unless the map is large enough to be stored off the heap
+ * - Heap: in a long array on the Java heap
+ * - OffHeap: in a direct buffer outside the Java heap, so very large maps do not require a large heap
+ */
+public enum MapStorage
+{
+    Auto,
+    Heap,
+    OffHeap,
+    Unknown;
+
+    /**
+     * Retrieves the MapStorage based on a string.
+     * 
+     * @param storage the string representing the map storage
+     * @return the MapStorage represented by the specified string
+     */
+    public static MapStorage fromString(String storage)
+    {
+        if (storage.equalsIgnoreCase("auto"))
+            return Auto;
+        if (storage.equalsIgnoreCase("heap"))
+            return Heap;
+        if (storage.equalsIgnoreCase("offheap"))
+            return OffHeap;
+        return Unknown;
+    }
+}
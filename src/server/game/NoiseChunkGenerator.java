@@ -0,0 +1,87 @@
+package server.game;
+
+/**
+ * Generates chunks procedurally from a seed.
+ * Obstacles follow a value noise: random values are assigned to the points of a lattice, SCALE cells apart, and
+ * interpolated between them; cells where the noise is above a threshold hold an obstacle. The lattice values are
+ * derived from the seed and the world coordinates of the points, so chunks are continuous across their borders and
+ * the same chunk is generated every time.
+ * Items are placed on a small fraction of the cells without obstacles.
+ */
+public class NoiseChunkGenerator implements ChunkGenerator
+{
+    private static final int SCALE = 8;               // cells between lattice points
+    private static final int WALL_THRESHOLD = 650;    // noise, out of 1000, above which a cell holds an obstacle
+    private static final int ITEM_PER_MILLE = 5;      // cells without obstacles holding an item, per thousand
+    private static final int MAX_ITEM_VALUE = 100;    // items have values between 0 and MAX_ITEM_VALUE - 1
+    private static final long ITEM_SALT = 0x17E4L;    // distinguishes item hashes from lattice hashes
+
+    private long seed = 0; // the seed of the world
+
+    /**
+     * Constructor.
+     * 
+     * @param seed the seed of the world
+     */
+    public NoiseChunkGenerator(long seed)
+    {
+        this.seed = seed;
+    }
+
+    // Setters and Getters
+    public long getSeed() { return seed; }
+
+    @Override
+    public WorldChunk generate(int chunkX, int chunkY)
+    {
+        WorldChunk chunk = new WorldChunk(chunkX, chunkY);
+        int originX = chunkX << WorldChunk.SHIFT;
+        int originY = chunkY << WorldChunk.SHIFT;
+        for (int y = 0; y < WorldChunk.SIZE; y++)
+        {
+            long bits = 0;
+            for (int x = 0; x < WorldChunk.SIZE; x++)
+            {
+                if (getNoise(originX + x, originY + y) > WALL_THRESHOLD)
+                    bits |= 1L << x;
+                else if (mix(seed ^ ITEM_SALT, originX + x, originY + y) % 1000 < ITEM_PER_MILLE)
+                {
+                    int value = (int) (mix(seed, originY + y, originX + x) % MAX_ITEM_VALUE);
+                    chunk.addItem(new Item(originX + x, originY + y, value));
+                }
+            }
+            chunk.setRow(y, bits);
+        }
+        return chunk;
+    }
+
+    // Retrieves the noise at the specified world coordinates, between 0 and 999, interpolating bilinearly between the
+    // values of the four surrounding lattice points.
+    private int getNoise(int x, int y)
+    {
+        int latticeX = Math.floorDiv(x, SCALE);
+        int latticeY = Math.floorDiv(y, SCALE);
+        int fractionX = Math.floorMod(x, SCALE);
+        int fractionY = Math.floorMod(y, SCALE);
+        long top = getLatticeValue(latticeX, latticeY) * (SCALE - fractionX)
+                   + getLatticeValue(latticeX + 1, latticeY) * fractionX;
+        long bottom = getLatticeValue(latticeX, latticeY + 1) * (SCALE - fractionX)
+                      + getLatticeValue(latticeX + 1, latticeY + 1) * fractionX;
+        return (int) ((top * (SCALE - fractionY) + bottom * fractionY) / (SCALE * SCALE));
+    }
+
+    // Retrieves the value of a lattice point, between 0 and 999
+    private long getLatticeValue(int latticeX, int latticeY)
+    {
+        return mix(seed, latticeX, latticeY) % 1000;
+    }
+
+    // Mixes a seed and a pair of coordinates into a non-negative pseudo-random value
+    private static long mix(long seed, int x, int y)
+    {
+        long h = seed ^ ((long) x * 0x9E3779B97F4A7C15L) ^ ((long) y * 0xC2B2AE3D27D4EB4FL);
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return (h ^ (h >>> 33)) >>> 1;
+    }
+}
@@ -0,0 +1,125 @@
+package server.game;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Represents the obstacles of a map as a bitset: each cell takes a single bit, set if the cell holds an obstacle.
+ * The bits are kept in a LongBuffer, either wrapping a long array on the heap or viewing a direct buffer allocated
+ * outside the heap. Checking a cell is bounds-checked and does not allocate.
+ * Writes must be serialized by the caller.
+ */
+public class ObstacleGrid
+{
+    public static final long OFF_HEAP_CELLS = 20_000L * 20_000L; // cells from which Auto storage goes off the heap
+
+    private int rows = 0;       // the number of rows in the grid
+    private int cols = 0;       // the number of columns in the grid
+    private LongBuffer bits;    // one bit per cell, row by row
+    private boolean offHeap;    // true if the bits are stored outside the heap
+
+    /**
+     * Constructor.
+     * Creates a grid without obstacles.
+     * 
+     * @param rows    the number of rows in the grid
+     * @param cols    the number of columns in the grid
+     * @param storage where the bits should be stored
+     */
+    public ObstacleGrid(int rows, int cols, MapStorage storage)
+    {
+        this.rows = rows;
+        this.cols = cols;
+        long words = ((long) rows * cols + 63) >>> 6;
+        if (words > Integer.MAX_VALUE / Long.BYTES)
+            throw new IllegalArgumentException("Map too large: " + rows + "x" + cols);
+        offHeap = storage == MapStorage.OffHeap
+                  || (storage == MapStorage.Auto && (long) rows * cols >= OFF_HEAP_CELLS);
+        if (offHeap)
+            bits = ByteBuffer.allocateDirect((int) words * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        else
+            bits = LongBuffer.wrap(new long[(int) words]);
+    }
+
+    // Setters and Getters
+    public int getRowsCount() { return rows; }
+    public int getColsCount() { return cols; }
+    public boolean isOffHeap() { return offHeap; }
+
+    /**
+     * Retrieves the number of bytes used to store the grid.
+     * 
+     * @return the size of the bitset, in bytes
+     */
+    public long getSizeInBytes()
+    {
+        return (long) bits.capacity() * Long.BYTES;
+    }
+
+    /**
+     * Checks whether the cell at the specified coordinates holds an obstacle.
+     * 
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @return true if the cell holds an obstacle or is outside the grid; false otherwise
+     */
+    public boolean isObstacle(int x, int y)
+    {
+        if (x < 0 || x >= cols || y < 0 || y >= rows)
+            return true;
+        long cell = (long) y * cols + x;
+        return (bits.get((int) (cell >>> 6)) & (1L << cell)) != 0;
+    }
+
+    /**
+     * Adds or removes an obstacle at the specified coordinates.
+     * Coordinates outside the grid are ignored.
+     * 
+     * @param x        the x coordinate of the cell
+     * @param y        the y coordinate of the cell
+     * @param obstacle true to place an obstacle at the cell; false to clear it
+     */
+    public void setObstacle(int x, int y, boolean obstacle)
+    {
+        if (x < 0 || x >= cols || y < 0 || y >= rows)
+            return;
+        long cell = (long) y * cols + x;
+        int word = (int) (cell >>> 6);
+        if (obstacle)
+            bits.put(word, bits.get(word) | (1L << cell));
+        else
+            bits.put(word, bits.get(word) & ~(1L << cell));
+    }
+
+    // Sets the obstacles of the specified bits in the specified word of the bitset.
+    // Used by the MapLoader, whose tasks each own a distinct range of words.
+    void orWord(int word, long wordBits)
+    {
+        bits.put(word, bits.get(word) | wordBits);
+    }
+
+    // Places obstacles at count consecutive cells, starting at the specified cell, filling whole words at a time.
+    // Used by the CompiledMapLoader to decode runs of walls.
+    void setObstacles(long fromCell, long count)
+    {
+        long cell = fromCell;
+        long end = fromCell + count;
+        while (cell < end)
+        {
+            int word = (int) (cell >>> 6);
+            int bit = (int) (cell & 63);
+            int length = (int) Math.min(64 - bit, end - cell);
+            long mask = length == 64 ? -1L : ((1L << length) - 1) << bit;
+            bits.put(word, bits.get(word) | mask);
+            cell += length;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return rows + "x" + cols + " obstacle grid, " + getSizeInBytes() + " bytes " + (offHeap ? "off" : "on")
+               + " the heap";
+    }
+}
@@ -0,0 +1,29 @@
+package server.game;
+
+/**
+ * Represents the search used by the Pathfinder to find paths toward targets without a distance field.
+ * - AStar: A* search expanding every cell of the path, one step at a time
+ * - JumpPoint: jump point search, scanning straight lines and only expanding the cells where the path may turn, which
+ *   queues far fewer cells in open areas, but looks at far more of them on large open maps
+ */
+public enum PathAlgorithm
+{
+    AStar,
+    JumpPoint,
+    Unknown;
+
+    /**
+     * Retrieves the PathAlgorithm based on a string.
+     *
+     * @param algorithm the string representing the path algorithm
+     * @return the PathAlgorithm represented by the specified string
+     */
+    public static PathAlgorithm fromString(String algorithm)
+    {
+        if (algorithm.equalsIgnoreCase("astar"))
+            return AStar;
+        if (algorithm.equalsIgnoreCase("jps"))
+            return JumpPoint;
+        return Unknown;
+    }
+}
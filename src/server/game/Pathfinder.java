@@ -0,0 +1,469 @@
+package server.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds the shortest paths between cells of the map, moving one cell north, south, east or west at a time.
+ * Paths toward popular targets are read from distance fields: the distance of every cell of the map to the target,
+ * computed once by a breadth-first search, so that the next step from any cell is the neighbour one cell closer. A
+ * field is built for the map's spawn point when the pathfinder is created, and for any target requested
+ * POPULAR_REQUESTS times. Fields are kept in a least recently used cache, emptied whenever the version of the map
+ * layout changes; they are only built for maps of at most MAX_FIELD_CELLS cells, and never for chunked worlds.
+ * Paths toward other targets are searched, with A* or jump point search, using the Manhattan distance to the target
+ * as heuristic. Jump point search scans straight lines from each cell it expands, and only stops at the cells where a
+ * shortest path may have to turn: it prefers paths moving vertically first, so it stops where a horizontal scan meets
+ * the target or passes the corner of an obstacle. Each vertical step of a scan runs two horizontal scans, so on large
+ * open maps jump point search looks at far more cells than A*, though it queues far fewer.
+ * Searches run on the threads applying commands, so their cost is bounded: every cell a search looks at, whether
+ * expanding a node or scanning a line, is charged against a budget of MAX_CHECKED cells, and the search gives up,
+ * finding no path, once the budget runs out. In chunked worlds, searches are also limited to the cells within
+ * WORLD_MARGIN of the rectangle spanning both ends of the path.
+ * Pathfinders are used concurrently: searches do not share state, and fields are not modified once built.
+ */
+public class Pathfinder
+{
+    public static final int DEFAULT_FIELD_CACHE_SIZE = 8; // default number of distance fields cached
+
+    private static final int POPULAR_REQUESTS = 3;       // requests for a target before a field is built for it
+    private static final int MAX_TRACKED_TARGETS = 4096; // targets whose requests are counted at once
+    private static final int MAX_FIELD_CELLS = 1 << 20;  // cells of the largest map fields are built for
+    private static final int MAX_CHECKED = 1 << 16;      // cells looked at by a search before it gives up
+    private static final int WORLD_MARGIN = 64;          // cells searched around the ends of a path in chunked worlds
+    private static final long NO_CELL = -1;              // key of no cell, returned by scans that find none
+
+    private GameMap map = null;                                        // the game map
+    private PathAlgorithm algorithm = PathAlgorithm.AStar;             // search used without a distance field
+    private int fieldCacheSize = 0;                                    // largest number of fields cached
+    private Map<Long, DistanceField> fields = null;                    // fields by target, least recently used first
+    private Map<Long, Integer> requests = new HashMap<Long, Integer>(); // requests by target without a field
+    private int version = 0;                                           // version of the map layout of the fields
+    private LongAdder searchCount = new LongAdder();                   // paths searched
+    private LongAdder fieldPathCount = new LongAdder();                // paths read from distance fields
+    private LongAdder checkedCount = new LongAdder();                  // cells looked at by searches
+
+    /**
+     * Constructor.
+     * Builds the distance field of the map's spawn point, if the map has one.
+     *
+     * @param map            the game map
+     * @param algorithm      the search used toward targets without a distance field
+     * @param fieldCacheSize the largest number of distance fields cached
+     */
+    public Pathfinder(GameMap map, PathAlgorithm algorithm, int fieldCacheSize)
+    {
+        this.map = map;
+        this.algorithm = algorithm;
+        this.fieldCacheSize = Math.max(1, fieldCacheSize);
+        version = map.getVersion();
+        fields = new LinkedHashMap<Long, DistanceField>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, DistanceField> eldest)
+            {
+                return size() > Pathfinder.this.fieldCacheSize;
+            }
+        };
+        if (map.hasSpawnPoint())
+            getField(map.getSpawnPoint(), true);
+    }
+
+    // Gauges
+    public PathAlgorithm getAlgorithm() { return algorithm; }
+    public long getSearchCount() { return searchCount.sum(); }
+    public long getFieldPathCount() { return fieldPathCount.sum(); }
+    public long getCheckedCount() { return checkedCount.sum(); }
+
+    /**
+     * Finds a shortest path between two positions.
+     *
+     * @param from the position the path starts from
+     * @param to   the position the path leads to
+     * @return the directions of the moves along the path, empty if both positions are the same; null if there is no
+     *         path between the positions, or none was found within the search limits
+     */
+    public List<MoveDirection> findPath(Position from, Position to)
+    {
+        if (!map.isValidPosition(from) || !map.isValidPosition(to))
+            return null;
+        if (from.equals(to))
+            return new ArrayList<MoveDirection>();
+        DistanceField field = getField(to, false);
+        if (field != null)
+        {
+            fieldPathCount.increment();
+            return field.getPath(from);
+        }
+        searchCount.increment();
+        Search search = new Search(from, to);
+        List<MoveDirection> path = search.run(algorithm == PathAlgorithm.JumpPoint);
+        checkedCount.add(search.checked);
+        return path;
+    }
+
+    @Override
+    public String toString()
+    {
+        int cached = 0;
+        synchronized (fields)
+        {
+            cached = fields.size();
+        }
+        return "Pathfinder: " + algorithm + " search, " + getSearchCount() + " paths searched, " + getCheckedCount()
+               + " cells checked, " + getFieldPathCount() + " paths read from " + cached + "/" + fieldCacheSize
+               + " distance fields";
+    }
+
+    // Retrieves the distance field of a target, building it if the target is popular. Returns null if the target has
+    // no field, or the map is too large or chunked.
+    private DistanceField getField(Position target, boolean popular)
+    {
+        if (map.isChunked() || (long) map.getColsCount() * map.getRowsCount() > MAX_FIELD_CELLS)
+            return null;
+        long key = getKey(target.getX(), target.getY());
+        int mapVersion = map.getVersion();
+        synchronized (fields)
+        {
+            if (version != mapVersion)
+            {
+                fields.clear();
+                requests.clear();
+                version = mapVersion;
+            }
+            DistanceField field = fields.get(key);
+            if (field != null)
+                return field;
+            if (map.hasSpawnPoint() && target.equals(map.getSpawnPoint()))
+                popular = true;
+            if (!popular && countRequest(key) < POPULAR_REQUESTS)
+                return null;
+            requests.remove(key);
+        }
+        DistanceField field = new DistanceField(map, target);
+        synchronized (fields)
+        {
+            if (version == mapVersion)
+                fields.put(key, field);
+        }
+        return field;
+    }
+
+    // Counts a request for a target without a field, returning the number of requests counted for the target.
+    // Forgets all the targets counted once too many are, so that requests for scattered targets take bounded memory.
+    private int countRequest(long key)
+    {
+        if (requests.size() >= MAX_TRACKED_TARGETS && !requests.containsKey(key))
+            requests.clear();
+        return requests.merge(key, 1, Integer::sum);
+    }
+
+    // Retrieves the key of the cell at (x, y): x in the high half, y in the low half.
+    private static long getKey(int x, int y)
+    {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    // Appends to a path the moves along a straight line between two cells.
+    private static void addMoves(List<MoveDirection> path, int fromX, int fromY, int toX, int toY)
+    {
+        MoveDirection direction = toX > fromX ? MoveDirection.East : toX < fromX ? MoveDirection.West
+                                  : toY > fromY ? MoveDirection.South : MoveDirection.North;
+        for (int i = Math.abs(toX - fromX) + Math.abs(toY - fromY); i > 0; i--)
+            path.add(direction);
+    }
+
+    // A search for a path between two positions, by A* or jump point search.
+    private class Search
+    {
+        private int fromX = 0;                                   // x coordinate of the start
+        private int fromY = 0;                                   // y coordinate of the start
+        private int toX = 0;                                     // x coordinate of the target
+        private int toY = 0;                                     // y coordinate of the target
+        private int minX = 0;                                    // smallest x coordinate searched
+        private int minY = 0;                                    // smallest y coordinate searched
+        private int maxX = 0;                                    // largest x coordinate searched
+        private int maxY = 0;                                    // largest y coordinate searched
+        private long width = 0;                                  // number of columns searched
+        private Map<Long, Node> nodes = new HashMap<Long, Node>(); // best node found for each cell reached
+        private PriorityQueue<Node> open = new PriorityQueue<Node>(); // nodes to be expanded, best first
+        private int checked = 0;                                 // cells looked at so far
+
+        // Constructor.
+        Search(Position from, Position to)
+        {
+            fromX = from.getX();
+            fromY = from.getY();
+            toX = to.getX();
+            toY = to.getY();
+            if (map.isChunked())
+            {
+                minX = Math.min(fromX, toX) - WORLD_MARGIN;
+                minY = Math.min(fromY, toY) - WORLD_MARGIN;
+                maxX = Math.max(fromX, toX) + WORLD_MARGIN;
+                maxY = Math.max(fromY, toY) + WORLD_MARGIN;
+            }
+            else
+            {
+                maxX = map.getColsCount() - 1;
+                maxY = map.getRowsCount() - 1;
+            }
+            width = (long) maxX - minX + 1;
+        }
+
+        // Runs the search, returning the moves along the path found; null if none was found.
+        List<MoveDirection> run(boolean jump)
+        {
+            add(fromX, fromY, 0, null);
+            while (!open.isEmpty() && checked < MAX_CHECKED)
+            {
+                Node node = open.poll();
+                if (node.closed || nodes.get(getCell(node.x, node.y)) != node)
+                    continue; // a better node was found for the cell since this one was queued
+                if (node.x == toX && node.y == toY)
+                    return getPath(node);
+                node.closed = true;
+                if (jump)
+                    expandJumpPoints(node);
+                else
+                    expandNeighbours(node);
+            }
+            return null;
+        }
+
+        // Adds the cells next to a node, as A* does.
+        private void expandNeighbours(Node node)
+        {
+            if (isFree(node.x, node.y - 1))
+                add(node.x, node.y - 1, node.g + 1, node);
+            if (isFree(node.x, node.y + 1))
+                add(node.x, node.y + 1, node.g + 1, node);
+            if (isFree(node.x + 1, node.y))
+                add(node.x + 1, node.y, node.g + 1, node);
+            if (isFree(node.x - 1, node.y))
+                add(node.x - 1, node.y, node.g + 1, node);
+        }
+
+        // Adds the jump points found by scanning from a node in the directions a shortest path may take from it: all
+        // directions from the start; straight on and sideways after a vertical move; straight on, and vertically past
+        // the corner of an obstacle, after a horizontal move.
+        private void expandJumpPoints(Node node)
+        {
+            int dx = node.parent == null ? 0 : Integer.signum(node.x - node.parent.x);
+            int dy = node.parent == null ? 0 : Integer.signum(node.y - node.parent.y);
+            if (dx == 0)
+            {
+                if (dy <= 0)
+                    addJumpPoint(node, jumpVertical(node.x, node.y, -1));
+                if (dy >= 0)
+                    addJumpPoint(node, jumpVertical(node.x, node.y, 1));
+                addJumpPoint(node, jumpHorizontal(node.x, node.y, -1));
+                addJumpPoint(node, jumpHorizontal(node.x, node.y, 1));
+                return;
+            }
+            addJumpPoint(node, jumpHorizontal(node.x, node.y, dx));
+            if (isFree(node.x, node.y - 1) && !isFree(node.x - dx, node.y - 1))
+                addJumpPoint(node, jumpVertical(node.x, node.y, -1));
+            if (isFree(node.x, node.y + 1) && !isFree(node.x - dx, node.y + 1))
+                addJumpPoint(node, jumpVertical(node.x, node.y, 1));
+        }
+
+        // Scans horizontally from (x, y), returning the key of the first cell that is the target or lies next to the
+        // corner of an obstacle, past which a path may turn vertically; NO_CELL if an obstacle is met first.
+        private long jumpHorizontal(int x, int y, int dx)
+        {
+            while (true)
+            {
+                x += dx;
+                if (!isFree(x, y))
+                    return NO_CELL;
+                if ((x == toX && y == toY)
+                    || (isFree(x, y - 1) && !isFree(x - dx, y - 1))
+                    || (isFree(x, y + 1) && !isFree(x - dx, y + 1)))
+                    return getCell(x, y);
+            }
+        }
+
+        // Scans vertically from (x, y), returning the key of the first cell that is the target or from which a
+        // horizontal scan finds a jump point; NO_CELL if an obstacle is met first.
+        private long jumpVertical(int x, int y, int dy)
+        {
+            while (true)
+            {
+                y += dy;
+                if (!isFree(x, y))
+                    return NO_CELL;
+                if ((x == toX && y == toY) || jumpHorizontal(x, y, -1) != NO_CELL || jumpHorizontal(x, y, 1) != NO_CELL)
+                    return getCell(x, y);
+            }
+        }
+
+        // Adds a jump point found from a node, reached along a straight line.
+        private void addJumpPoint(Node node, long key)
+        {
+            if (key == NO_CELL)
+                return;
+            int x = (int) (minX + key % width);
+            int y = (int) (minY + key / width);
+            add(x, y, node.g + Math.abs(x - node.x) + Math.abs(y - node.y), node);
+        }
+
+        // Queues a node for the cell at (x, y), unless the cell was already reached at the same or a lower cost.
+        private void add(int x, int y, int g, Node parent)
+        {
+            long key = getCell(x, y);
+            Node existing = nodes.get(key);
+            if (existing != null && existing.g <= g)
+                return;
+            Node node = new Node(x, y, g, g + Math.abs(toX - x) + Math.abs(toY - y), parent);
+            nodes.put(key, node);
+            open.add(node);
+        }
+
+        // Retrieves the key of the cell at (x, y): its index, row by row, among the cells searched. Keys are small and
+        // consecutive, so they spread well across the buckets of the hash map of nodes.
+        private long getCell(int x, int y)
+        {
+            return (y - minY) * width + (x - minX);
+        }
+
+        // Checks whether the cell at (x, y) is within the cells searched and free of obstacles, charging the cell
+        // against the search's budget. Once the budget runs out, every cell is taken as an obstacle, so scans stop at
+        // once and the search ends before expanding another node.
+        private boolean isFree(int x, int y)
+        {
+            if (++checked > MAX_CHECKED)
+                return false;
+            return x >= minX && x <= maxX && y >= minY && y <= maxY && map.isValidPosition(x, y);
+        }
+
+        // Retrieves the moves from the start to the node, following the nodes' parents back to the start.
+        private List<MoveDirection> getPath(Node node)
+        {
+            List<Node> nodes = new ArrayList<Node>();
+            for (Node n = node; n != null; n = n.parent)
+                nodes.add(n);
+            List<MoveDirection> path = new ArrayList<MoveDirection>(node.g);
+            for (int i = nodes.size() - 1; i > 0; i--)
+                addMoves(path, nodes.get(i).x, nodes.get(i).y, nodes.get(i - 1).x, nodes.get(i - 1).y);
+            return path;
+        }
+    }
+
+    // A cell reached by a search, with the cost of the path reaching it. Ordered by estimated cost of the whole path,
+    // then by the cost left, so that nodes closer to the target are expanded first.
+    private static class Node implements Comparable<Node>
+    {
+        private int x = 0;              // x coordinate of the cell
+        private int y = 0;              // y coordinate of the cell
+        private int g = 0;              // length of the path from the start
+        private int f = 0;              // estimated length of the whole path through the cell
+        private Node parent = null;     // the node the path came from; null for the start
+        private boolean closed = false; // set once the node is expanded
+
+        // Constructor.
+        Node(int x, int y, int g, int f, Node parent)
+        {
+            this.x = x;
+            this.y = y;
+            this.g = g;
+            this.f = f;
+            this.parent = parent;
+        }
+
+        @Override
+        public int compareTo(Node other)
+        {
+            if (f != other.f)
+                return Integer.compare(f, other.f);
+            return Integer.compare(other.g, g);
+        }
+    }
+
+    // The distance of every cell of a map to a target, following the shortest paths around obstacles.
+    private static class DistanceField
+    {
+        private int cols = 0;          // number of columns of the map
+        private int rows = 0;          // number of rows of the map
+        private int[] distances = null; // distance of each cell to the target, row by row; -1 if unreachable
+
+        // Constructor.
+        // Fills in the distances by a breadth-first search from the target.
+        DistanceField(GameMap map, Position target)
+        {
+            cols = map.getColsCount();
+            rows = map.getRowsCount();
+            distances = new int[cols * rows];
+            Arrays.fill(distances, -1);
+            int[] queue = new int[cols * rows];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = target.getY() * cols + target.getX();
+            distances[queue[0]] = 0;
+            while (head < tail)
+            {
+                int cell = queue[head++];
+                int x = cell % cols;
+                int y = cell / cols;
+                int[][] neighbours = { { x, y - 1 }, { x, y + 1 }, { x + 1, y }, { x - 1, y } };
+                for (int[] n : neighbours)
+                {
+                    if (!map.isValidPosition(n[0], n[1]) || distances[n[1] * cols + n[0]] >= 0)
+                        continue;
+                    distances[n[1] * cols + n[0]] = distances[cell] + 1;
+                    queue[tail++] = n[1] * cols + n[0];
+                }
+            }
+        }
+
+        // Retrieves the moves from a position to the target, stepping to a neighbour one cell closer each time.
+        // Returns null if the target cannot be reached from the position.
+        List<MoveDirection> getPath(Position from)
+        {
+            int x = from.getX();
+            int y = from.getY();
+            int distance = getDistance(x, y);
+            if (distance < 0)
+                return null;
+            List<MoveDirection> path = new ArrayList<MoveDirection>(distance);
+            while (distance > 0)
+            {
+                if (getDistance(x, y - 1) == distance - 1)
+                {
+                    path.add(MoveDirection.North);
+                    y--;
+                }
+                else if (getDistance(x, y + 1) == distance - 1)
+                {
+                    path.add(MoveDirection.South);
+                    y++;
+                }
+                else if (getDistance(x + 1, y) == distance - 1)
+                {
+                    path.add(MoveDirection.East);
+                    x++;
+                }
+                else
+                {
+                    path.add(MoveDirection.West);
+                    x--;
+                }
+                distance--;
+            }
+            return path;
+        }
+
+        // Retrieves the distance of the cell at (x, y) to the target; -1 if outside the map or unreachable.
+        private int getDistance(int x, int y)
+        {
+            if (x < 0 || x >= cols || y < 0 || y >= rows)
+                return -1;
+            return distances[y * cols + x];
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package server.game;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import server.eventhandler.EventHandlerManager;
 
 /**
@@ -11,10 +13,16 @@ import server.eventhandler.EventHandlerManager;
  */
 public class Player
 {
-    String name = null;                       // the player's name
-    Position pos = new Position();            // the player's position
-    int score = 0;                            // the player's score
-    EventHandlerManager eventHandlers = null; // reference to this player's handler's event handler manager
+    private static AtomicInteger playerCount = new AtomicInteger(); // global player id
+
+    int playerId = 0;                                 // ID sent instead of the player's name in the Binary protocol
+    String name = null;                               // the player's name
+    Position pos = new Position();                    // the player's position
+    int score = 0;                                    // the player's score
+    EventHandlerManager eventHandlers = null;         // reference to this player's handler's event handler manager
+    volatile RegionSimulation.Mailbox mailbox = null; // commands waiting to be applied by a region; null if none yet
+    PlayerGrid grid = null;                           // the grid indexing the player's position; null if not indexed
+    CellIndex knownItems = new CellIndex();           // cells of the items the player was sent, until collected
     
     /**
      * Constructor.
@@ -39,6 +47,7 @@ public class Player
      */
     public Player(String name, Position pos, int score)
     {
+        playerId = playerCount.incrementAndGet();
         this.name = name;
         this.pos = pos;
         this.score = score;
@@ -59,6 +68,7 @@ public class Player
     }
     
     // Setters and Getters
+    public int getId() { return playerId; }
     public void setName(String name) { this.name = name; }
     public String getName() { return name; }
     public Position getPosition() { return pos; }
@@ -67,13 +77,16 @@ public class Player
     public EventHandlerManager getEventHandlerManager() { return eventHandlers; }
 
     /**
-     * Updates the player's positions.
+     * Updates the player's positions, and the player's bucket in the grid indexing the players, if any.
      * 
      * @param pos the player's new position
      */
     public void updatePosition(Position pos)
     {
+        Position from = this.pos;
         this.pos = pos;
+        if (grid != null)
+            grid.move(this, from);
     }
     
     /**
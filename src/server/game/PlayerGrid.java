@@ -0,0 +1,302 @@
+package server.game;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Indexes the positions of the players in the game in a uniform grid, a spatial hash, so the players near a position
+ * are found without going through every player in the game.
+ * The map is divided into square buckets of a fixed size. Each bucket holds the players standing in it, by ID, and is
+ * dropped once its last player leaves it, so the grid only takes memory for the buckets where players stand.
+ * Players added to the grid are moved in it by Player.updatePosition(), which takes constant time: at most one bucket
+ * is left and one is entered.
+ * Distances are measured along both axes: the distance between two positions is the largest of their distances along
+ * x and along y, so the players within a distance of a position stand in a square around it.
+ * Players are added, moved and removed concurrently: the buckets are concurrent maps, and each bucket is created and
+ * dropped atomically. A query sees every player that stayed in its buckets while the query ran.
+ */
+public class PlayerGrid
+{
+    public static final int DEFAULT_BUCKET_SIZE = 16; // default width and height of a bucket, in cells
+
+    private int bucketSize = 0;                               // width and height of a bucket, in cells
+    private Map<Long, Map<Integer, Player>> buckets = new ConcurrentHashMap<Long, Map<Integer, Player>>(); // by key
+    private AtomicInteger playerCount = new AtomicInteger(0); // players in the grid
+
+    /**
+     * Constructor.
+     *
+     * @param bucketSize the width and height of a bucket, in cells; queries within this distance of a position look at
+     *                   no more than 9 buckets
+     */
+    public PlayerGrid(int bucketSize)
+    {
+        this.bucketSize = Math.max(1, bucketSize);
+    }
+
+    // Setters and Getters
+    public int getBucketSize() { return bucketSize; }
+    public int getBucketCount() { return buckets.size(); }
+    public int getPlayerCount() { return playerCount.get(); }
+
+    /**
+     * Adds a player to the grid, at the player's current position. The player's moves update the grid from then on.
+     *
+     * @param player the player to be added
+     */
+    public void add(Player player)
+    {
+        add(player, getKey(player.getPosition()));
+        player.grid = this;
+        playerCount.incrementAndGet();
+    }
+
+    /**
+     * Moves a player of the grid to the player's current position.
+     * Called by Player.updatePosition().
+     *
+     * @param player the player who moved
+     * @param from   the position the player moved from
+     */
+    public void move(Player player, Position from)
+    {
+        long fromKey = getKey(from);
+        long toKey = getKey(player.getPosition());
+        if (fromKey == toKey)
+            return;
+        add(player, toKey);
+        remove(player, fromKey);
+    }
+
+    /**
+     * Removes a player from the grid.
+     *
+     * @param player the player to be removed
+     */
+    public void remove(Player player)
+    {
+        if (player.grid != this)
+            return;
+        player.grid = null;
+        remove(player, getKey(player.getPosition()));
+        playerCount.decrementAndGet();
+    }
+
+    /**
+     * Retrieves the players within the specified distance of a position.
+     *
+     * @param pos      the position
+     * @param distance the largest distance, in cells
+     * @return the players within the distance of the position
+     */
+    public List<Player> getPlayersNear(Position pos, int distance)
+    {
+        List<Player> near = new ArrayList<Player>();
+        int fromX = Math.floorDiv(pos.getX() - distance, bucketSize);
+        int toX = Math.floorDiv(pos.getX() + distance, bucketSize);
+        int fromY = Math.floorDiv(pos.getY() - distance, bucketSize);
+        int toY = Math.floorDiv(pos.getY() + distance, bucketSize);
+        for (int y = fromY; y <= toY; y++)
+        {
+            for (int x = fromX; x <= toX; x++)
+            {
+                Map<Integer, Player> bucket = buckets.get(getKey(x, y));
+                if (bucket == null)
+                    continue;
+                for (Player player : bucket.values())
+                {
+                    if (isNear(player.getPosition(), pos, distance))
+                        near.add(player);
+                }
+            }
+        }
+        return near;
+    }
+
+    /**
+     * Retrieves the players nearest to a position, nearest first; players at the same distance are ordered by ID.
+     * Looks at rings of buckets of growing size around the position, until the players found are nearer than any
+     * player in the buckets left. If the rings would take more buckets than the grid holds, e.g. because players are
+     * scattered far apart, the occupied buckets are looked at instead.
+     *
+     * @param pos         the position
+     * @param count       the largest number of players retrieved
+     * @param maxDistance the largest distance of the players retrieved, in cells
+     * @param excluded    a player not to be retrieved, e.g. the player asking; null if none
+     * @return the players nearest to the position
+     */
+    public List<Player> getNearestPlayers(Position pos, int count, int maxDistance, Player excluded)
+    {
+        List<Neighbour> found = new ArrayList<Neighbour>();
+        if (count <= 0)
+            return new ArrayList<Player>();
+        int centerX = Math.floorDiv(pos.getX(), bucketSize);
+        int centerY = Math.floorDiv(pos.getY(), bucketSize);
+        long scanned = 0;
+        for (int ring = 0; ; ring++)
+        {
+            long ringBuckets = ring == 0 ? 1 : 8L * ring;
+            if (scanned + ringBuckets > buckets.size())
+            {
+                found.clear();
+                for (Map<Integer, Player> bucket : buckets.values())
+                    addNeighbours(bucket.values(), pos, maxDistance, excluded, found);
+                break;
+            }
+            scanRing(centerX, centerY, ring, pos, maxDistance, excluded, found);
+            scanned += ringBuckets;
+            long outside = getDistanceOutside(pos, centerX, centerY, ring);
+            if (outside > maxDistance)
+                break;
+            if (found.size() >= count)
+            {
+                found.sort(null);
+                if (found.get(count - 1).distance < outside) // players outside may tie, with lower IDs
+                    break;
+            }
+        }
+        found.sort(null);
+        List<Player> nearest = new ArrayList<Player>(Math.min(count, found.size()));
+        Set<Integer> ids = new HashSet<Integer>();
+        for (int i = 0; i < found.size() && nearest.size() < count; i++)
+        {
+            if (ids.add(found.get(i).player.getId())) // a player moving during the query can be found twice
+                nearest.add(found.get(i).player);
+        }
+        return nearest;
+    }
+
+    /**
+     * Retrieves the distance between two positions: the largest of their distances along x and along y.
+     *
+     * @param a a position
+     * @param b another position
+     * @return the distance between the positions, in cells
+     */
+    public static long getDistance(Position a, Position b)
+    {
+        return Math.max(Math.abs((long) a.getX() - b.getX()), Math.abs((long) a.getY() - b.getY()));
+    }
+
+    /**
+     * Checks whether two positions are within the specified distance of each other.
+     *
+     * @param a        a position
+     * @param b        another position
+     * @param distance the largest distance, in cells
+     * @return true if the positions are within the distance; false otherwise
+     */
+    public static boolean isNear(Position a, Position b, int distance)
+    {
+        return getDistance(a, b) <= distance;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Player grid: " + bucketSize + "x" + bucketSize + " buckets, " + buckets.size() + " occupied, "
+               + playerCount.get() + " players";
+    }
+
+    // Adds a player to the bucket with the specified key, creating the bucket if needed.
+    private void add(Player player, long key)
+    {
+        buckets.compute(key, (k, bucket) ->
+        {
+            if (bucket == null)
+                bucket = new ConcurrentHashMap<Integer, Player>();
+            bucket.put(player.getId(), player);
+            return bucket;
+        });
+    }
+
+    // Removes a player from the bucket with the specified key, dropping the bucket once empty.
+    private void remove(Player player, long key)
+    {
+        buckets.computeIfPresent(key, (k, bucket) ->
+        {
+            bucket.remove(player.getId());
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+
+    // Adds the players of the ring of buckets at the specified distance, in buckets, from the center bucket.
+    private void scanRing(int centerX, int centerY, int ring, Position pos, int maxDistance, Player excluded,
+                          List<Neighbour> found)
+    {
+        for (int y = centerY - ring; y <= centerY + ring; y++)
+        {
+            boolean edge = y == centerY - ring || y == centerY + ring;
+            for (int x = centerX - ring; x <= centerX + ring; x += edge || ring == 0 ? 1 : 2 * ring)
+            {
+                Map<Integer, Player> bucket = buckets.get(getKey(x, y));
+                if (bucket != null)
+                    addNeighbours(bucket.values(), pos, maxDistance, excluded, found);
+            }
+        }
+    }
+
+    // Adds the players within the maximum distance of the position, except the excluded player, with their distance.
+    private void addNeighbours(Collection<Player> players, Position pos, int maxDistance, Player excluded,
+                               List<Neighbour> found)
+    {
+        for (Player player : players)
+        {
+            long distance = getDistance(player.getPosition(), pos);
+            if (player != excluded && distance <= maxDistance)
+                found.add(new Neighbour(player, distance));
+        }
+    }
+
+    // Gets the distance from the position to the nearest cell outside the square of buckets scanned, which spans ring
+    // buckets around the center bucket.
+    private long getDistanceOutside(Position pos, int centerX, int centerY, int ring)
+    {
+        long left = pos.getX() - ((long) centerX - ring) * bucketSize;
+        long right = ((long) centerX + ring + 1) * bucketSize - 1 - pos.getX();
+        long top = pos.getY() - ((long) centerY - ring) * bucketSize;
+        long bottom = ((long) centerY + ring + 1) * bucketSize - 1 - pos.getY();
+        return Math.min(Math.min(left, right), Math.min(top, bottom)) + 1;
+    }
+
+    // Retrieves the key of the bucket containing a position.
+    private long getKey(Position pos)
+    {
+        return getKey(Math.floorDiv(pos.getX(), bucketSize), Math.floorDiv(pos.getY(), bucketSize));
+    }
+
+    // Retrieves the key of the bucket at the specified bucket coordinates: x in the high half, y in the low half.
+    private long getKey(int x, int y)
+    {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    // A player found by a nearest-neighbour query, with its distance when found.
+    // Ordered by distance, then by player ID, so sorting does not depend on positions changing during the query.
+    private static class Neighbour implements Comparable<Neighbour>
+    {
+        private Player player = null; // the player found
+        private long distance = 0;    // the player's distance from the position queried
+
+        // Constructor.
+        Neighbour(Player player, long distance)
+        {
+            this.player = player;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(Neighbour other)
+        {
+            if (distance != other.distance)
+                return Long.compare(distance, other.distance);
+            return Integer.compare(player.getId(), other.player.getId());
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package server.game;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import logger.LogLevel;
+import logger.Logger;
+import server.command.Command;
+import server.command.Result;
+import server.command.ResultCode;
+
+/**
+ * Runs the game simulation in parallel over rectangular regions of the map.
+ * The map is partitioned into a grid of regions, each owned by a single-threaded executor applying the commands of the
+ * players standing in its area, so players in different regions move concurrently.
+ * Each region keeps its own index of the items in its area, only read and updated by its thread: moves look up and
+ * collect the items around a player without taking the map lock, except for the cells across the region's edges.
+ * A player's commands are applied one at a time, in the order they were submitted: they wait in the player's mailbox,
+ * and each one is handed to the region owning the player once the previous one is applied. A player moving across a
+ * boundary is thus handed off to the region it moved into from its next command on.
+ * Maps over chunked worlds keep their items in their chunks, which are locked separately: regions do not index them.
+ */
+public class RegionSimulation
+{
+    private Game game = null;          // the game simulated
+    private GameMap map = null;        // the map partitioned into regions
+    private int regionCols = 0;        // number of regions along the x axis
+    private int regionRows = 0;        // number of regions along the y axis
+    private Region[] regions = null;   // the regions, row by row
+    private boolean indexItems = true; // whether regions index the items in their area
+
+    /**
+     * Constructor.
+     * Partitions the map into a grid of regions and indexes the items of each region. The regions start their threads
+     * when they receive their first command.
+     *
+     * @param game       the game simulated
+     * @param map        the map partitioned into regions
+     * @param regionCols the number of regions along the x axis; at most the number of columns of the map
+     * @param regionRows the number of regions along the y axis; at most the number of rows of the map
+     */
+    public RegionSimulation(Game game, GameMap map, int regionCols, int regionRows)
+    {
+        this.game = game;
+        this.map = map;
+        this.regionCols = Math.max(1, Math.min(regionCols, map.getColsCount()));
+        this.regionRows = Math.max(1, Math.min(regionRows, map.getRowsCount()));
+        indexItems = !map.isChunked();
+        regions = new Region[this.regionCols * this.regionRows];
+        for (int row = 0; row < this.regionRows; row++)
+        {
+            for (int col = 0; col < this.regionCols; col++)
+                regions[row * this.regionCols + col] = new Region(col, row);
+        }
+        if (indexItems)
+        {
+            for (Item item : map.getItems())
+                getRegion(item.getPosition().getX(), item.getPosition().getY()).addItem(item);
+        }
+        Logger.log(LogLevel.Info, "Region simulation: " + this.regionCols + "x" + this.regionRows + " regions of about "
+                                  + map.getColsCount() / this.regionCols + "x" + map.getRowsCount() / this.regionRows
+                                  + " cells");
+    }
+
+    // Gauges
+    public int getRegionCount() { return regions.length; }
+
+    /**
+     * Retrieves the number of commands applied by all the regions.
+     *
+     * @return the number of commands applied
+     */
+    public long getCommandCount()
+    {
+        long count = 0;
+        for (Region region : regions)
+            count += region.commandCount;
+        return count;
+    }
+
+    /**
+     * Retrieves the number of times players were handed off from a region to another.
+     *
+     * @return the number of handoffs
+     */
+    public long getHandoffCount()
+    {
+        long count = 0;
+        for (Region region : regions)
+            count += region.handoffCount;
+        return count;
+    }
+
+    /**
+     * Queues a command in its player's mailbox, to be applied by the region owning the player once the player's
+     * previous commands are applied.
+     * Commands of a player may be submitted by several threads, e.g. the thread reading its connection and a worker
+     * walking the player along a goto route: commands submitted concurrently are applied in the order they reach the
+     * mailbox.
+     *
+     * @param command   the command to be applied; must not be reused by the caller
+     * @param onApplied called on the region's thread with the result of the command, once applied
+     */
+    public void submit(Command command, Consumer<Result> onApplied)
+    {
+        Player player = command.getPlayer();
+        Mailbox mailbox = player.mailbox;
+        if (mailbox == null)
+            mailbox = createMailbox(player);
+        mailbox.commands.add(new PendingCommand(command, onApplied));
+        if (mailbox.size.getAndIncrement() == 0)
+            schedule(mailbox);
+    }
+
+    /**
+     * Retrieves the item at the specified coordinates.
+     * Looks the item up in the index of the region when called from the thread of the region containing the
+     * coordinates; in the map otherwise.
+     *
+     * @param x the position's x coordinate
+     * @param y the position's y coordinate
+     * @return the item at the specified coordinates; null if there are no items at the specified position
+     */
+    public Item getItemAtPosition(int x, int y)
+    {
+        Region region = indexItems ? getRegion(x, y) : null;
+        if (region != null && region.isCurrentThread())
+            return region.getItem(getCell(x, y));
+        return map.getItemAtPosition(x, y);
+    }
+
+    /**
+     * Removes an item collected from the index of its region. The item is removed right away when called from the
+     * region's thread; by the region's thread otherwise, and region lookups skip it until then.
+     *
+     * @param item the item collected
+     */
+    public void itemCollected(Item item)
+    {
+        Region region = indexItems ? getRegion(item.getPosition().getX(), item.getPosition().getY()) : null;
+        if (region == null)
+            return;
+        if (region.isCurrentThread())
+            region.removeItem(item);
+        else
+            region.execute(() -> region.removeItem(item));
+    }
+
+    /**
+     * Adds an item spawned on the map to the index of its region, from the region's thread.
+     *
+     * @param item the item spawned
+     */
+    public void itemSpawned(Item item)
+    {
+        Region region = indexItems ? getRegion(item.getPosition().getX(), item.getPosition().getY()) : null;
+        if (region != null)
+            region.execute(() -> region.addItem(item));
+    }
+
+    /**
+     * Stops the threads of the regions once the commands they are applying are applied. Commands still queued are not
+     * applied.
+     */
+    public void stop()
+    {
+        for (Region region : regions)
+            region.executor.shutdownNow();
+        try
+        {
+            for (Region region : regions)
+                region.executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        Logger.log(LogLevel.Info, toString());
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Region simulation: " + regionCols + "x" + regionRows + " regions, " + getCommandCount() + " commands, "
+               + getHandoffCount() + " handoffs";
+    }
+
+    // Retrieves the region containing the specified coordinates; null if they are outside the map.
+    // Region (col, row) covers the cells whose x * regionCols / cols is col and y * regionRows / rows is row.
+    private Region getRegion(int x, int y)
+    {
+        if (x < 0 || x >= map.getColsCount() || y < 0 || y >= map.getRowsCount())
+            return null;
+        int col = (int) ((long) x * regionCols / map.getColsCount());
+        int row = (int) ((long) y * regionRows / map.getRowsCount());
+        return regions[row * regionCols + col];
+    }
+
+    // Retrieves the cell at the specified coordinates, y * cols + x
+    private long getCell(int x, int y)
+    {
+        return (long) y * map.getColsCount() + x;
+    }
+
+    // Creates the mailbox of a player, unless another thread submitting a command of the player just created it.
+    private synchronized Mailbox createMailbox(Player player)
+    {
+        if (player.mailbox == null)
+            player.mailbox = new Mailbox(player);
+        return player.mailbox;
+    }
+
+    // Hands the next command of a mailbox to the region owning the mailbox's player.
+    private void schedule(Mailbox mailbox)
+    {
+        Position pos = mailbox.player.getPosition();
+        Region region = getRegion(pos.getX(), pos.getY());
+        if (region == null)
+            region = regions[0];
+        Region owner = region;
+        owner.execute(() -> applyNext(owner, mailbox));
+    }
+
+    // Applies the next command of a mailbox on the region's thread, then hands the following command, if any, to the
+    // region owning the player, which differs from this region if the command moved the player across a boundary.
+    private void applyNext(Region region, Mailbox mailbox)
+    {
+        PendingCommand pending = mailbox.commands.poll();
+        Player player = mailbox.player;
+        apply(pending);
+        region.commandCount++;
+        Position pos = player.getPosition();
+        Region next = getRegion(pos.getX(), pos.getY());
+        if (next != null && next != region)
+        {
+            region.handoffCount++;
+            if (Logger.isEnabled(LogLevel.Debug))
+                Logger.log(LogLevel.Debug, "Player " + player.getName() + " handed off from " + region + " to " + next);
+        }
+        if (player.getEventHandlerManager() != null)
+            player.getEventHandlerManager().flush();
+        if (mailbox.size.decrementAndGet() > 0)
+            schedule(mailbox);
+    }
+
+    // Applies a command and hands its result to the submitter.
+    private void apply(PendingCommand pending)
+    {
+        Result result = new Result();
+        try
+        {
+            game.processCommand(pending.command, result);
+        }
+        catch (RuntimeException e)
+        {
+            Logger.log(LogLevel.Error, "Error applying command: \"" + pending.command + "\"", e);
+            result.setResultCode(ResultCode.ServerError);
+            result.setMessage("Error. Cannot execute command.");
+        }
+        pending.onApplied.accept(result);
+    }
+
+    // The commands of a player waiting to be applied.
+    // Size counts the commands submitted and not yet applied: the submitter that raises it from zero schedules the
+    // first command, and the region applying a command schedules the next one.
+    static class Mailbox
+    {
+        private Player player = null;                                                        // the player
+        private Queue<PendingCommand> commands = new ConcurrentLinkedQueue<PendingCommand>(); // commands waiting
+        private AtomicInteger size = new AtomicInteger(0);                                   // commands not applied
+
+        // Constructor.
+        Mailbox(Player player)
+        {
+            this.player = player;
+        }
+    }
+
+    // A command waiting to be applied, with the callback receiving its result.
+    private static class PendingCommand
+    {
+        private Command command = null;            // the command to be applied
+        private Consumer<Result> onApplied = null; // receives the result of the command
+
+        // Constructor.
+        PendingCommand(Command command, Consumer<Result> onApplied)
+        {
+            this.command = command;
+            this.onApplied = onApplied;
+        }
+    }
+
+    // A region of the map, owned by a single thread.
+    // Indexes the first item of each cell in its area, the further items of a cell going to the overflow, like the map.
+    // The index is only used by the region's thread.
+    private class Region
+    {
+        private int col = 0;                                 // column of the region in the grid
+        private int row = 0;                                 // row of the region in the grid
+        private ExecutorService executor = null;             // applies the region's commands
+        private volatile Thread thread = null;               // the executor's thread, once started
+        private List<Item> items = new ArrayList<Item>();    // first item of each cell indexed
+        private CellIndex itemCells = new CellIndex();       // slot in items + 1 of the first item in each cell
+        private Map<Long, List<Item>> overflowItems = new HashMap<Long, List<Item>>(); // further items, by cell
+        private volatile long commandCount = 0;              // commands applied; only updated by the region's thread
+        private volatile long handoffCount = 0;              // players handed off to other regions
+
+        // Constructor.
+        Region(int col, int row)
+        {
+            this.col = col;
+            this.row = row;
+            executor = Executors.newSingleThreadExecutor(task ->
+            {
+                thread = new Thread(task, "Region-" + col + "-" + row);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        // Checks whether the caller runs on the region's thread.
+        boolean isCurrentThread()
+        {
+            return Thread.currentThread() == thread;
+        }
+
+        // Runs a task on the region's thread. Tasks submitted once the simulation is stopped are dropped.
+        void execute(Runnable task)
+        {
+            try
+            {
+                executor.execute(task);
+            }
+            catch (RejectedExecutionException e)
+            {
+                Logger.log(LogLevel.Debug, "Task dropped by stopped " + this);
+            }
+        }
+
+        // Retrieves the first item not collected yet in the specified cell; null if none.
+        Item getItem(long cell)
+        {
+            int slot = itemCells.get(cell);
+            if (slot == 0)
+                return null;
+            Item item = items.get(slot - 1);
+            if (!item.isCollected())
+                return item;
+            for (Item overflow : overflowItems.getOrDefault(cell, List.of()))
+            {
+                if (!overflow.isCollected())
+                    return overflow;
+            }
+            return null;
+        }
+
+        // Adds an item to the index.
+        void addItem(Item item)
+        {
+            long cell = getCell(item.getPosition().getX(), item.getPosition().getY());
+            if (itemCells.get(cell) == 0)
+            {
+                items.add(item);
+                itemCells.put(cell, items.size());
+            }
+            else
+                overflowItems.computeIfAbsent(cell, c -> new ArrayList<Item>()).add(item);
+        }
+
+        // Removes an item from the index.
+        // An item from the overflow of the cell, if any, takes the slot of the first item of the cell; otherwise the
+        // last item indexed is moved into that slot.
+        void removeItem(Item item)
+        {
+            long cell = getCell(item.getPosition().getX(), item.getPosition().getY());
+            int slot = itemCells.get(cell) - 1;
+            List<Item> overflow = overflowItems.get(cell);
+            if (slot < 0)
+                return;
+            if (items.get(slot) != item)
+            {
+                if (overflow != null)
+                    overflow.remove(item);
+            }
+            else if (overflow != null)
+                items.set(slot, overflow.remove(overflow.size() - 1));
+            else
+            {
+                itemCells.remove(cell);
+                Item last = items.remove(items.size() - 1);
+                if (last != item)
+                {
+                    items.set(slot, last);
+                    itemCells.put(getCell(last.getPosition().getX(), last.getPosition().getY()), slot + 1);
+                }
+            }
+            if (overflow != null && overflow.isEmpty())
+                overflowItems.remove(cell);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "region (" + col + ", " + row + ")";
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package server.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Loads the layout of a map from a text map file.
+ * The rows of the map file are parsed in parallel, in chunks of consecutive rows, straight into an ObstacleGrid.
+ * All rows in the map file must have the same length, and be terminated by "\n" or "\r\n" (the last row may be left
+ * unterminated).
+ */
+public class TextMapLoader extends MapLoader
+{
+    private static final byte OBSTACLE = '#';
+    private static final byte SPAWN = 'S';
+    private static final byte ITEM = 'i';
+    private static final int MIN_CHUNK_ROWS = 64; // fewest rows parsed by a single task
+
+    /**
+     * Constructor.
+     *
+     * @param mapFile the text file containing the map layout
+     * @param storage where the obstacle grid should be stored
+     */
+    public TextMapLoader(File mapFile, MapStorage storage)
+    {
+        super(mapFile, storage);
+    }
+
+    // Finds the map dimensions from the first row, then parses chunks of rows in parallel.
+    // Chunks only write the words of the grid they fully own; the words shared with neighbouring chunks are merged
+    // once all the chunks are parsed.
+    @Override
+    protected void parse(MappedByteBuffer buffer) throws IOException
+    {
+        int size = buffer.limit();
+        int newline = indexOf(buffer, (byte) '\n', size);
+        int eol = newline > 0 && buffer.get(newline - 1) == '\r' ? 2 : 1;
+        cols = newline < 0 ? size : newline - eol + 1;
+        if (cols == 0)
+            throw new IOException("Map file is empty: \"" + mapFile.getAbsolutePath() + "\"");
+        int stride = cols + eol;
+        rows = (int) (((long) size + eol) / stride);
+        if (size != (long) rows * stride && size != (long) rows * stride - eol)
+            throw new IOException("Map rows must all have " + cols + " columns: \"" + mapFile.getAbsolutePath()
+                                  + "\"");
+        obstacles = new ObstacleGrid(rows, cols, storage);
+
+        int chunkRows = Math.max(MIN_CHUNK_ROWS, rows / (Runtime.getRuntime().availableProcessors() * 4) + 1);
+        int chunkCount = (rows + chunkRows - 1) / chunkRows;
+        Chunk[] chunks = new Chunk[chunkCount];
+        IntStream.range(0, chunkCount).parallel().forEach(i ->
+        {
+            Chunk chunk = new Chunk(i * chunkRows, Math.min(rows, (i + 1) * chunkRows));
+            chunk.parse(buffer, stride, eol);
+            chunks[i] = chunk;
+        });
+        mergeChunks(chunks);
+    }
+
+    // Merges the edge words, spawn points and items of the chunks parsed, in file order.
+    private void mergeChunks(Chunk[] chunks) throws IOException
+    {
+        int itemCount = 0;
+        for (Chunk chunk : chunks)
+        {
+            if (chunk.error != null)
+                throw new IOException(chunk.error + ": \"" + mapFile.getAbsolutePath() + "\"");
+            itemCount += chunk.itemCount;
+        }
+        itemCells = new long[itemCount];
+        itemCount = 0;
+        for (Chunk chunk : chunks)
+        {
+            obstacles.orWord(chunk.firstWord, chunk.firstBits);
+            obstacles.orWord(chunk.lastWord, chunk.lastBits);
+            if (chunk.spawnCell >= 0)
+                spawnCell = chunk.spawnCell;
+            System.arraycopy(chunk.itemCells, 0, itemCells, itemCount, chunk.itemCount);
+            itemCount += chunk.itemCount;
+        }
+    }
+
+    // Retrieves the index of the first occurrence of value in the buffer; -1 if not found
+    private static int indexOf(MappedByteBuffer buffer, byte value, int size)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (buffer.get(i) == value)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Represents a range of consecutive rows parsed by a single task.
+     */
+    private class Chunk
+    {
+        private int firstRow = 0;                // first row of the chunk
+        private int endRow = 0;                  // row following the last row of the chunk
+        private int firstWord = 0;               // first word of the grid, possibly shared with the previous chunk
+        private int lastWord = 0;                // last word of the grid, possibly shared with the next chunk
+        private long firstBits = 0;              // obstacles of the chunk in its first word
+        private long lastBits = 0;               // obstacles of the chunk in its last word
+        private long spawnCell = -1;             // cell of the spawn point found in the chunk
+        private long[] itemCells = new long[16]; // cells of the items found in the chunk
+        private int itemCount = 0;               // number of items found in the chunk
+        private String error = null;             // error found while parsing the chunk
+
+        // Constructor
+        private Chunk(int firstRow, int endRow)
+        {
+            this.firstRow = firstRow;
+            this.endRow = endRow;
+            firstWord = (int) (((long) firstRow * cols) >>> 6);
+            lastWord = (int) (((long) endRow * cols - 1) >>> 6);
+        }
+
+        // Parses the rows of the chunk, writing the words it fully owns into the obstacle grid.
+        private void parse(MappedByteBuffer buffer, int stride, int eol)
+        {
+            int word = firstWord;
+            long bits = 0;
+            for (int row = firstRow; row < endRow; row++)
+            {
+                int offset = row * stride;
+                if (row < rows - 1 && buffer.get(offset + stride - 1) != '\n')
+                {
+                    error = "Map rows must all have " + cols + " columns (row " + row + ")";
+                    return;
+                }
+                long cell = (long) row * cols;
+                for (int col = 0; col < cols; col++, cell++)
+                {
+                    if ((int) (cell >>> 6) != word)
+                    {
+                        storeWord(word, bits);
+                        word = (int) (cell >>> 6);
+                        bits = 0;
+                    }
+                    byte c = buffer.get(offset + col);
+                    if (c == OBSTACLE)
+                        bits |= 1L << cell;
+                    else if (c == SPAWN)
+                        spawnCell = cell;
+                    else if (c == ITEM)
+                        addItemCell(cell);
+                }
+            }
+            storeWord(word, bits);
+        }
+
+        // Keeps the edge words of the chunk for merging; writes the others into the obstacle grid.
+        private void storeWord(int word, long bits)
+        {
+            if (word == firstWord)
+                firstBits |= bits;
+            else if (word == lastWord)
+                lastBits |= bits;
+            else
+                obstacles.orWord(word, bits);
+        }
+
+        // Adds an item cell, growing the array of item cells when needed.
+        private void addItemCell(long cell)
+        {
+            if (itemCount == itemCells.length)
+                itemCells = Arrays.copyOf(itemCells, itemCount * 2);
+            itemCells[itemCount++] = cell;
+        }
+    }
+}
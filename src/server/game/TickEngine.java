@@ -0,0 +1,212 @@
+package server.game;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import logger.LogLevel;
+import logger.Logger;
+import server.command.Command;
+import server.command.Result;
+import server.command.ResultCode;
+import server.eventmanager.EventManager;
+
+/**
+ * Runs the game simulation at a fixed tick rate on a single thread.
+ * Commands submitted by player handlers are queued, and applied in one batch per tick, in the order they were
+ * submitted, so players never mutate the game concurrently. The events notified while applying a tick's commands are
+ * held and handed to players at the end of the tick, together with the flush of the responses to the commands: each
+ * player's connection is flushed once per tick.
+ * Commands submitted while a tick is being applied wait for the next tick. Ticks taking longer than the tick period
+ * delay the following ticks, and are counted as overruns.
+ * The engine keeps tick-duration metrics, logged every REPORT_PERIOD seconds and when the engine stops.
+ */
+public class TickEngine
+{
+    private static final int REPORT_PERIOD = 60; // seconds between metric reports
+
+    private Game game = null;                                                             // the game simulated
+    private EventManager eventManager = null;                                             // the game's event manager
+    private int tickRate = 0;                                                             // ticks per second
+    private long periodNanos = 0;                                                         // duration of a tick period
+    private Queue<PendingCommand> commands = new ConcurrentLinkedQueue<PendingCommand>(); // commands to be applied
+    private AtomicInteger queuedCommands = new AtomicInteger(0);                          // commands in the queue
+    private Thread thread = null;                                                         // the simulation thread
+    private volatile boolean running = false;                                             // whether ticks keep running
+    private volatile long tickCount = 0;      // ticks run since the engine started
+    private volatile long commandCount = 0;   // commands applied since the engine started
+    private volatile long lastTickNanos = 0;  // duration of the last tick
+    private volatile long maxTickNanos = 0;   // longest tick since the last report
+    private volatile long totalTickNanos = 0; // duration of all the ticks run
+    private volatile long overrunCount = 0;   // ticks that took longer than the tick period
+
+    /**
+     * Constructor.
+     *
+     * @param game         the game simulated
+     * @param eventManager the game's event manager
+     * @param tickRate     the number of ticks per second
+     */
+    public TickEngine(Game game, EventManager eventManager, int tickRate)
+    {
+        this.game = game;
+        this.eventManager = eventManager;
+        this.tickRate = tickRate;
+        periodNanos = TimeUnit.SECONDS.toNanos(1) / tickRate;
+    }
+
+    // Setters and Getters
+    public int getTickRate() { return tickRate; }
+    public int getQueuedCommandCount() { return queuedCommands.get(); }
+    public long getTickCount() { return tickCount; }
+    public long getCommandCount() { return commandCount; }
+    public long getOverrunCount() { return overrunCount; }
+    public double getLastTickMillis() { return lastTickNanos / 1e6; }
+    public double getMaxTickMillis() { return maxTickNanos / 1e6; }
+    public double getAverageTickMillis() { return tickCount == 0 ? 0 : totalTickNanos / 1e6 / tickCount; }
+
+    /**
+     * Starts the simulation thread.
+     */
+    public void start()
+    {
+        running = true;
+        thread = new Thread(this::runTicks, "Simulation");
+        thread.setDaemon(true);
+        thread.start();
+        Logger.log(LogLevel.Info, "Tick engine started at " + tickRate + " ticks per second");
+    }
+
+    /**
+     * Stops the simulation thread once the current tick is applied. Commands still queued are not applied.
+     */
+    public void stop()
+    {
+        running = false;
+        if (thread == null)
+            return;
+        LockSupport.unpark(thread);
+        try
+        {
+            thread.join(TimeUnit.NANOSECONDS.toMillis(periodNanos) + 1000);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        Logger.log(LogLevel.Info, toString());
+    }
+
+    /**
+     * Queues a command to be applied on the next tick.
+     *
+     * @param command   the command to be applied; must not be reused by the caller
+     * @param onApplied called on the simulation thread with the result of the command, once applied
+     */
+    public void submit(Command command, Consumer<Result> onApplied)
+    {
+        commands.add(new PendingCommand(command, onApplied));
+        queuedCommands.incrementAndGet();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("Tick engine: %d ticks/s, %d ticks, %d commands, %.3f ms average tick, %.3f ms max tick, "
+                             + "%d overruns", tickRate, tickCount, commandCount, getAverageTickMillis(),
+                             getMaxTickMillis(), overrunCount);
+    }
+
+    // Runs ticks at the tick rate until the engine is stopped.
+    private void runTicks()
+    {
+        long nextTick = System.nanoTime();
+        while (running)
+        {
+            long wait = nextTick - System.nanoTime();
+            if (wait > 0)
+            {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            long start = System.nanoTime();
+            tick();
+            long duration = System.nanoTime() - start;
+            updateMetrics(duration);
+            nextTick += periodNanos;
+            if (duration > periodNanos)
+                nextTick = Math.max(nextTick, System.nanoTime()); // do not run the missed ticks back to back
+        }
+    }
+
+    // Applies the commands queued before the tick started, holding the events they notify until all are applied.
+    private void tick()
+    {
+        int count = queuedCommands.get();
+        eventManager.beginBatch();
+        try
+        {
+            for (int i = 0; i < count; i++)
+                apply(commands.poll());
+        }
+        finally
+        {
+            queuedCommands.addAndGet(-count);
+            eventManager.endBatch();
+        }
+        commandCount += count;
+    }
+
+    // Applies a command and hands its result to the submitter.
+    // The player's event listener is included in the batch, so its connection is flushed at the end of the tick.
+    private void apply(PendingCommand pending)
+    {
+        Result result = new Result();
+        try
+        {
+            game.processCommand(pending.command, result);
+        }
+        catch (RuntimeException e)
+        {
+            Logger.log(LogLevel.Error, "Error applying command: \"" + pending.command + "\"", e);
+            result.setResultCode(ResultCode.ServerError);
+            result.setMessage("Error. Cannot execute command.");
+        }
+        if (pending.command.getPlayer().getEventHandlerManager() != null)
+            eventManager.includeInBatch(pending.command.getPlayer().getEventHandlerManager());
+        pending.onApplied.accept(result);
+    }
+
+    // Updates the tick-duration metrics, reporting them every REPORT_PERIOD seconds.
+    private void updateMetrics(long duration)
+    {
+        tickCount++;
+        lastTickNanos = duration;
+        totalTickNanos += duration;
+        maxTickNanos = Math.max(maxTickNanos, duration);
+        if (duration > periodNanos)
+            overrunCount++;
+        if (tickCount % ((long) tickRate * REPORT_PERIOD) == 0)
+        {
+            Logger.log(LogLevel.Info, toString());
+            maxTickNanos = 0;
+        }
+    }
+
+    // A command waiting to be applied, with the callback receiving its result.
+    private static class PendingCommand
+    {
+        private Command command = null;            // the command to be applied
+        private Consumer<Result> onApplied = null; // receives the result of the command
+
+        // Constructor.
+        PendingCommand(Command command, Consumer<Result> onApplied)
+        {
+            this.command = command;
+            this.onApplied = onApplied;
+        }
+    }
+}
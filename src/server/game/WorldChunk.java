@@ -0,0 +1,211 @@
+package server.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a square chunk of a ChunkedWorld, SIZE x SIZE cells.
+ * Obstacles are kept as one long per row, one bit per column. Items are indexed by the cell they occupy within the
+ * chunk.
+ * A chunk is filled by a ChunkGenerator before it is shared; afterwards obstacles can be changed and items collected.
+ * Changing obstacles marks the chunk as modified, so it is never evicted from the chunk cache. Collected items are
+ * only recorded by the cells they occupied, so the cache can keep those cells once the chunk is evicted, and drop the
+ * items from the chunk generated again.
+ */
+public class WorldChunk
+{
+    public static final int SHIFT = 6;         // log2 of the chunk size
+    public static final int SIZE = 1 << SHIFT; // number of rows and columns in a chunk
+    public static final int MASK = SIZE - 1;   // mask of the coordinates within a chunk
+
+    private int chunkX = 0;                           // x coordinate of the chunk, in chunks
+    private int chunkY = 0;                           // y coordinate of the chunk, in chunks
+    private long[] rows = new long[SIZE];             // obstacles of each row, one bit per column
+    private List<Item> items = new ArrayList<Item>(); // items in the chunk
+    private CellIndex itemCells = new CellIndex();    // slot in items + 1 of the item in each cell
+    private CellIndex collectedCells = null;          // cells of the items collected; null if none
+    private volatile boolean modified = false;        // set once obstacles are changed after generation
+
+    /**
+     * Constructor.
+     * Creates an empty chunk: without obstacles or items.
+     * 
+     * @param chunkX the x coordinate of the chunk, in chunks
+     * @param chunkY the y coordinate of the chunk, in chunks
+     */
+    public WorldChunk(int chunkX, int chunkY)
+    {
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+    }
+
+    // Setters and Getters
+    public int getChunkX() { return chunkX; }
+    public int getChunkY() { return chunkY; }
+    public boolean isModified() { return modified; }
+
+    /**
+     * Checks whether the cell at the specified coordinates within the chunk holds an obstacle.
+     * 
+     * @param x the x coordinate within the chunk
+     * @param y the y coordinate within the chunk
+     * @return true if the cell holds an obstacle; false otherwise
+     */
+    public boolean isObstacle(int x, int y)
+    {
+        return (rows[y] & (1L << x)) != 0;
+    }
+
+    /**
+     * Adds or removes an obstacle at the specified coordinates within the chunk, marking the chunk as modified.
+     * 
+     * @param x        the x coordinate within the chunk
+     * @param y        the y coordinate within the chunk
+     * @param obstacle true to place an obstacle at the cell; false to clear it
+     */
+    public synchronized void setObstacle(int x, int y, boolean obstacle)
+    {
+        rows[y] = obstacle ? rows[y] | (1L << x) : rows[y] & ~(1L << x);
+        modified = true;
+    }
+
+    /**
+     * Sets the obstacles of a row while the chunk is generated.
+     * 
+     * @param y    the y coordinate of the row within the chunk
+     * @param bits the obstacles of the row, one bit per column
+     */
+    public void setRow(int y, long bits)
+    {
+        rows[y] = bits;
+    }
+
+    /**
+     * Adds an item while the chunk is generated.
+     * Only the first item added to a cell can be retrieved by its position.
+     * 
+     * @param item the item to be added; must be positioned within the chunk
+     */
+    public void addItem(Item item)
+    {
+        item.setSlot(items.size());
+        items.add(item);
+        long cell = getLocalCell(item.getPosition().getX(), item.getPosition().getY());
+        if (itemCells.get(cell) == 0)
+            itemCells.put(cell, items.size());
+    }
+
+    /**
+     * Retrieves the item at the specified coordinates within the chunk.
+     * 
+     * @param x the x coordinate within the chunk
+     * @param y the y coordinate within the chunk
+     * @return the item at the specified coordinates; null if there are no items at the specified position
+     */
+    public synchronized Item getItem(int x, int y)
+    {
+        int slot = itemCells.get(y * SIZE + x);
+        return slot == 0 ? null : items.get(slot - 1);
+    }
+
+    /**
+     * Retrieves the items in the chunk.
+     * 
+     * @return a copy of the list of items in the chunk
+     */
+    public synchronized List<Item> getItems()
+    {
+        return new ArrayList<Item>(items);
+    }
+
+    /**
+     * Takes the cells of the items collected in the chunk, once the chunk is evicted: items collected afterwards by
+     * players still holding the chunk are recorded apart, so the cells taken are not modified anymore.
+     * Cells are indexed by their position within the chunk, y * SIZE + x.
+     * 
+     * @return the cells of the items collected; null if no item was collected
+     */
+    public synchronized CellIndex takeCollectedCells()
+    {
+        CellIndex collected = collectedCells;
+        collectedCells = null;
+        return collected;
+    }
+
+    /**
+     * Removes the items collected before the chunk was evicted from the chunk generated again.
+     * Must be called before the chunk is shared.
+     * 
+     * @param collected the cells of the items collected, as retrieved from the evicted chunk
+     */
+    public synchronized void dropCollectedItems(CellIndex collected)
+    {
+        collectedCells = collected;
+        for (int slot = items.size() - 1; slot >= 0; slot--)
+        {
+            Item item = items.get(slot);
+            if (collected.get(getLocalCell(item.getPosition().getX(), item.getPosition().getY())) != 0)
+                removeItem(item);
+        }
+    }
+
+    /**
+     * Removes a collected item from the chunk, recording the cell it occupied.
+     * The last item in the chunk takes the slot of the item removed, so removal takes constant time.
+     * 
+     * @param item the item to be removed
+     * @return true if the item was removed; false if it was not in the chunk
+     */
+    public synchronized boolean removeItem(Item item)
+    {
+        int slot = item.getSlot();
+        if (slot < 0 || slot >= items.size() || items.get(slot) != item)
+            return false;
+        long cell = getLocalCell(item.getPosition().getX(), item.getPosition().getY());
+        if (itemCells.get(cell) == slot + 1)
+            itemCells.remove(cell);
+        Item last = items.remove(items.size() - 1);
+        if (last != item)
+        {
+            items.set(slot, last);
+            last.setSlot(slot);
+            long lastCell = getLocalCell(last.getPosition().getX(), last.getPosition().getY());
+            if (itemCells.get(lastCell) == items.size() + 1)
+                itemCells.put(lastCell, slot + 1);
+        }
+        item.setSlot(-1);
+        if (collectedCells == null)
+            collectedCells = new CellIndex();
+        collectedCells.put(cell, 1);
+        return true;
+    }
+
+    /**
+     * Writes the characters representing a range of a row into the specified array.
+     * Obstacles are written as '#'; any other cell as ' '.
+     * 
+     * @param y      the y coordinate of the row within the chunk
+     * @param fromX  the first x coordinate within the chunk
+     * @param count  the number of cells to be written
+     * @param out    the array receiving the characters
+     * @param offset the position in out of the first character
+     */
+    public void getRow(int y, int fromX, int count, char[] out, int offset)
+    {
+        long bits = rows[y];
+        for (int i = 0; i < count; i++)
+            out[offset + i] = (bits & (1L << (fromX + i))) != 0 ? '#' : ' ';
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Chunk (" + chunkX + ", " + chunkY + "): " + items.size() + " items" + (modified ? ", modified" : "");
+    }
+
+    // Retrieves the index of a cell within the chunk from its world coordinates
+    private static long getLocalCell(int x, int y)
+    {
+        return (y & MASK) * SIZE + (x & MASK);
+    }
+}
@@ -0,0 +1,92 @@
+package server.gameserver;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defines when the responses queued in a player's connection are written into the connection.
+ * Responses are coalesced in the connection's outbound queue and written together, in a single write, when:
+ * - the queued responses reach the maximum number of bytes, or
+ * - the connection is flushed at the end of a drain cycle (a request processed, a batch of notifications delivered).
+ *   If a maximum delay is defined, the write is deferred up to that delay so that responses from several drain cycles
+ *   are coalesced as well.
+ */
+public class FlushPolicy
+{
+    public static final int DEFAULT_MAX_BYTES = 16 * 1024; // default number of bytes that triggers a write
+    public static final FlushPolicy DEFAULT = new FlushPolicy(DEFAULT_MAX_BYTES, 0);
+
+    private static ScheduledExecutorService flusher = null; // writes connections whose flush was deferred
+
+    private int maxBytes = DEFAULT_MAX_BYTES; // queued bytes that trigger a write
+    private int maxDelay = 0;                 // maximum delay (ms) of a write after a flush; 0 writes immediately
+
+    /**
+     * Constructor.
+     * 
+     * @param maxBytes the number of queued bytes that trigger a write
+     * @param maxDelay the maximum delay, in milliseconds, of a write after a flush; 0 to write immediately
+     */
+    public FlushPolicy(int maxBytes, int maxDelay)
+    {
+        this.maxBytes = maxBytes;
+        this.maxDelay = maxDelay;
+    }
+
+    // Setters and Getters
+    public int getMaxBytes() { return maxBytes; }
+    public int getMaxDelay() { return maxDelay; }
+
+    /**
+     * Checks whether the number of queued bytes specified should trigger a write.
+     * 
+     * @param queuedBytes the number of bytes queued in a connection
+     * @return true if the queued bytes should be written immediately; false otherwise
+     */
+    public boolean isFull(int queuedBytes)
+    {
+        return queuedBytes >= maxBytes;
+    }
+
+    /**
+     * Checks whether a flush writes the queued bytes immediately.
+     * 
+     * @return true if there is no maximum delay; false if writes are deferred after a flush
+     */
+    public boolean isImmediate()
+    {
+        return maxDelay == 0;
+    }
+
+    /**
+     * Runs the write specified once the maximum delay elapses.
+     * 
+     * @param write the deferred write
+     */
+    public void defer(Runnable write)
+    {
+        getFlusher().schedule(write, maxDelay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "flush at " + maxBytes + " bytes or after " + maxDelay + " ms";
+    }
+
+    // Retrieves the thread running deferred writes, creating it when first needed.
+    private static synchronized ScheduledExecutorService getFlusher()
+    {
+        if (flusher == null)
+        {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable ->
+            {
+                Thread thread = new Thread(runnable, "OutboundFlusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return flusher;
+    }
+}
@@ -0,0 +1,105 @@
+package server.gameserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * An immutable block of encoded responses, ready to be written into a player's connection.
+ * Each response is encoded as "<code>:<message>\r\n". A Frame can be shared by any number of connections: the same
+ * bytes are written to every player receiving it, so a notification broadcast to many players is encoded only once.
+ */
+public class Frame
+{
+    private final byte[] bytes;      // the encoded responses
+    private final int responseCount; // the number of responses encoded in this frame
+    private final boolean binary;    // whether the responses are encoded in the Binary protocol
+
+    /**
+     * Constructor.
+     * Builds a frame of responses encoded in the Text protocol.
+     * 
+     * @param bytes         the encoded responses
+     * @param responseCount the number of responses encoded
+     */
+    public Frame(byte[] bytes, int responseCount)
+    {
+        this(bytes, responseCount, false);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param bytes         the encoded responses
+     * @param responseCount the number of responses encoded
+     * @param binary        whether the responses are encoded in the Binary protocol
+     */
+    public Frame(byte[] bytes, int responseCount, boolean binary)
+    {
+        this.bytes = bytes;
+        this.responseCount = responseCount;
+        this.binary = binary;
+    }
+
+    /**
+     * Encodes a single response into a frame.
+     * 
+     * @param response the response to be encoded
+     * @return a frame containing the encoded response
+     */
+    public static Frame of(Response response)
+    {
+        return new Frame((response + "\r\n").getBytes(StandardCharsets.UTF_8), 1);
+    }
+
+    /**
+     * Encodes a list of responses into a single frame, keeping the order of the responses.
+     * 
+     * @param responses the responses to be encoded
+     * @return a frame containing the encoded responses
+     */
+    public static Frame of(List<Response> responses)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Response response : responses)
+            sb.append(response).append("\r\n");
+        return new Frame(sb.toString().getBytes(StandardCharsets.UTF_8), responses.size());
+    }
+
+    // Setters and Getters
+    public int size() { return bytes.length; }
+    public int getResponseCount() { return responseCount; }
+    public boolean isBinary() { return binary; }
+
+    /**
+     * Retrieves a read-only buffer over the bytes of this frame.
+     * Each call returns a new buffer with its own position, so the frame can be written to many connections.
+     * 
+     * @return a read-only buffer containing the encoded responses
+     */
+    public ByteBuffer toByteBuffer()
+    {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    /**
+     * Writes the bytes of this frame into the output stream specified.
+     * 
+     * @param out the output stream the frame is written into
+     * @throws IOException if an I/O error occurs while writing into the output stream
+     */
+    public void writeTo(OutputStream out) throws IOException
+    {
+        out.write(bytes);
+    }
+
+    @Override
+    public String toString()
+    {
+        if (binary)
+            return responseCount + " binary messages, " + bytes.length + " bytes";
+        return new String(bytes, StandardCharsets.UTF_8).trim();
+    }
+}
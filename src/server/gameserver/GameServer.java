@@ -2,59 +2,87 @@ package server.gameserver;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ThreadFactory;
 
 import logger.LogLevel;
 import logger.Logger;
+import server.eventmanager.EventDispatcher;
 import server.game.Game;
 
 /**
  * A GameServer hosts a game and coordinates the coonections of players to the game being hosted.
  * It creates a socket and listens for new player connections.
- * When a new player connects, it starts a new thread for the player so the player can interact with the game running.
+ * In the blocking I/O mode, when a new player connects, it starts a new thread for the player so the player can
+ * interact with the game running.
+ * In the non-blocking I/O mode, new player connections are distributed among a small pool of reactors, each one
+ * serving many connections from a single thread.
  */
 public class GameServer
 {
+    private ServerConfig config;          // settings of the GameServer
     private int port;                     // port to which the GameServer is bound
     private ServerSocket socket;          // socket that will be listening for new player connections
+    private ServerSocketChannel channel;  // channel that will be listening for new player connections (Nio mode)
+    private Reactor[] reactors;           // reactors serving player connections (Nio mode)
     private boolean running;              // indicates the current state of the GameServer
     private Game game;                    // the game hosted
     private List<PlayerHandler> handlers; // list of player handlers connected to this game server
+    private ThreadFactory threadFactory;  // creates the threads running player handlers and event dispatchers
+    private EventDispatcher dispatcher;   // processes the events queued for players
     
     /**
      * Constructor.
      * Defines the port the GameServer will be listening for new connections.
+     * Uses the blocking I/O mode.
      * 
      * @param port the port this server will be bound to and listening for new connections
      */
     public GameServer(int port)
     {
-        this.port = port;
+        this(new ServerConfig(port));
+    }
+
+    /**
+     * Constructor.
+     * Defines the port the GameServer will be listening for new connections and the I/O mode used to serve them.
+     * 
+     * @param config the settings of this server
+     */
+    public GameServer(ServerConfig config)
+    {
+        this.config = config;
+        this.port = config.getPort();
         handlers = new ArrayList<PlayerHandler>();
+        threadFactory = config.getThreadMode().getThreadFactory();
     }
     
     /**
      * Starts the GameServer.
      * Instantiates the game being hosted and sets the GameServer status to true.
      * Initializers the server socket and starts listening for player connections.
-     * When a new player connection is established, creates a thread for this player and starts it.
+     * When a new player connection is established, creates a thread for this player and starts it, or assigns the
+     * connection to a reactor in the non-blocking I/O mode.
      * 
      * @param mapFile the file containing map data
      */
     public void runGameServer(File mapFile)
     {
-        game = new Game(mapFile);
+        dispatcher = new EventDispatcher(config.getDispatcherCount(), threadFactory);
+        EventDispatcher.setDefault(dispatcher);
+        game = new Game(config.createMap(mapFile), config);
         running = true;
-        socket = createServerSocket(port);
-        while (running)
-        {
-            PlayerHandler handler = acceptConnection(socket);
-            handlers.add(handler);
-            startPlayerThread(handler);
-        }
+        Logger.log(LogLevel.Info, "Starting game server: " + config);
+        if (config.getIoMode() == IoMode.Nio)
+            runNonBlocking();
+        else
+            runBlocking();
         stopGameServer();
     }
     
@@ -71,7 +99,22 @@ public class GameServer
             for (PlayerHandler handler : handlers)
                 handler.terminate();
             Logger.log(LogLevel.Info, "Stopping the server...");
-            socket.close();
+            if (reactors != null)
+            {
+                for (Reactor reactor : reactors)
+                    reactor.stop();
+            }
+            if (dispatcher != null)
+            {
+                Logger.log(LogLevel.Info, dispatcher.toString());
+                dispatcher.shutdown();
+            }
+            if (game != null)
+                game.stop();
+            if (socket != null)
+                socket.close();
+            if (channel != null)
+                channel.close();
             Logger.log(LogLevel.Info, "Goodbye");
         }
         catch (IOException e)
@@ -81,6 +124,36 @@ public class GameServer
         }
     }
     
+    // Accepts player connections, running a thread for each player.
+    private void runBlocking()
+    {
+        socket = createServerSocket(port);
+        while (running)
+        {
+            PlayerHandler handler = acceptConnection(socket);
+            if (handler == null)
+                continue;
+            handlers.add(handler);
+            startPlayerThread(handler);
+        }
+    }
+
+    // Accepts player connections, assigning them to the reactors in a round-robin fashion.
+    private void runNonBlocking()
+    {
+        channel = createServerSocketChannel(port);
+        reactors = createReactors(config.getReactorCount());
+        int next = 0;
+        while (running)
+        {
+            PlayerHandler handler = acceptConnection(channel, reactors[next]);
+            if (handler == null)
+                continue;
+            handlers.add(handler);
+            next = (next + 1) % reactors.length;
+        }
+    }
+
     // Creates a server socket that is listening for new connections on the specified port.
     private ServerSocket createServerSocket(int port)
     {
@@ -99,6 +172,47 @@ public class GameServer
         return server;
     }
     
+    // Creates a server socket channel that is listening for new connections on the specified port.
+    // The channel accepts connections in blocking mode; the connections accepted are served by the reactors.
+    private ServerSocketChannel createServerSocketChannel(int port)
+    {
+        ServerSocketChannel server = null;
+        try
+        {
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(port));
+            Logger.log(LogLevel.Info, "Listening on port " + port + " (non-blocking I/O)");
+        }
+        catch (IOException e)
+        {
+            running = false;
+            Logger.log(LogLevel.Error, "Something went wrong while setting up the server socket channel on port "
+                                       + port);
+            e.printStackTrace();
+        }
+        return server;
+    }
+
+    // Creates and starts the reactors that will serve player connections.
+    private Reactor[] createReactors(int count)
+    {
+        Reactor[] reactors = new Reactor[Math.max(count, 1)];
+        try
+        {
+            for (int i = 0; i < reactors.length; i++)
+            {
+                reactors[i] = new Reactor(i + 1);
+                reactors[i].start();
+            }
+        }
+        catch (IOException e)
+        {
+            running = false;
+            Logger.log(LogLevel.Error, "Something went wrong while setting up the reactors", e);
+        }
+        return reactors;
+    }
+
     // Accepts a new connection from a player.
     // Creates a PlayerHandler associated with the new connection.
     private PlayerHandler acceptConnection(ServerSocket server)
@@ -108,7 +222,7 @@ public class GameServer
         {
             Logger.log(LogLevel.Debug, "Waiting for a new connection...");
             Socket playerSocket = server.accept();
-            handler = new PlayerHandler(playerSocket, game);
+            handler = new PlayerHandler(new PlayerSocket(playerSocket, config.getFlushPolicy()), game);
             Logger.log(LogLevel.Info, "New connection: " + playerSocket);
         }
         catch (IOException e)
@@ -119,10 +233,33 @@ public class GameServer
         return handler;
     }
 
+    // Accepts a new connection from a player through the server socket channel.
+    // Creates a PlayerHandler associated with the new connection and assigns the connection to the reactor specified.
+    private PlayerHandler acceptConnection(ServerSocketChannel server, Reactor reactor)
+    {
+        PlayerHandler handler = null;
+        try
+        {
+            Logger.log(LogLevel.Debug, "Waiting for a new connection...");
+            SocketChannel playerChannel = server.accept();
+            NioPlayerSocket playerSocket = new NioPlayerSocket(playerChannel, reactor, config.getFlushPolicy());
+            handler = new PlayerHandler(playerSocket, game);
+            playerSocket.setHandler(handler);
+            reactor.register(playerSocket);
+            Logger.log(LogLevel.Info, "New connection: " + playerChannel + " assigned to reactor " + reactor.getId());
+        }
+        catch (IOException e)
+        {
+            Logger.log(LogLevel.Error, "Something went wrong while accepting connection from player...");
+            e.printStackTrace();
+        }
+        return handler;
+    }
+
     // Starts a new thread for the PlayerHandler specified.
     private void startPlayerThread(PlayerHandler handler)
     {
-        Thread thread = new Thread(handler);
+        Thread thread = threadFactory.newThread(handler);
         thread.start();
     }    
 }
@@ -0,0 +1,28 @@
+package server.gameserver;
+
+/**
+ * Represents the I/O model used by the GameServer to serve player connections.
+ * - Blocking: one thread per player connection, blocking on reads from the player's socket
+ * - Nio: a small pool of reactor threads multiplexing all player connections through selectors
+ */
+public enum IoMode
+{
+    Blocking,
+    Nio,
+    Unknown;
+
+    /**
+     * Retrieves the IoMode based on a string.
+     * 
+     * @param mode the string representing the I/O mode
+     * @return the IoMode represented by the specified string
+     */
+    public static IoMode fromString(String mode)
+    {
+        if (mode.equalsIgnoreCase("blocking"))
+            return Blocking;
+        if (mode.equalsIgnoreCase("nio"))
+            return Nio;
+        return Unknown;
+    }
+}
@@ -0,0 +1,234 @@
+package server.gameserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import logger.LogLevel;
+import logger.Logger;
+import server.protocol.InvalidRequestException;
+import server.protocol.Protocol;
+import server.protocol.RequestParser;
+
+/**
+ * Represents a non-blocking connection for a player connected to the GameServer.
+ * A NioPlayerSocket is owned by a single Reactor. The Reactor notifies the NioPlayerSocket when its channel is ready
+ * for reading or writing. Requests are parsed from the bytes read and pushed to the PlayerHandler associated with this
+ * NioPlayerSocket. Responses can be sent from any thread: they are queued and written by the Reactor when the
+ * connection is flushed, using gathering writes so several queued responses go out in a single system call.
+ */
+public class NioPlayerSocket implements PlayerConnection
+{
+    private static final int READ_BUFFER_SIZE = 4096; // size of the buffer used to read from the channel
+    private static final int MAX_GATHER = 64;         // most buffers written in a single gathering write
+
+    private static int socketCount = 0;       // number of NioPlayerSockets created
+    private int id = 0;                       // identifier of the NioPlayerSocket
+    private SocketChannel channel = null;     // the channel connected to the player's client
+    private Reactor reactor = null;           // the reactor serving this connection
+    private SelectionKey key = null;          // this connection's registration with the reactor's selector
+    private PlayerHandler handler = null;     // the handler processing the requests received
+    private volatile boolean closing = false; // set once the connection should close after pending writes
+    private FlushPolicy policy = null;        // defines when queued responses are written
+    private volatile Protocol protocol = Protocol.Text; // protocol of requests and responses
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);          // bytes read from the channel
+    private RequestParser parser = protocol.createRequestParser();                  // assembles requests read
+    private Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<ByteBuffer>(); // responses waiting to be written
+    private AtomicBoolean writeRequested = new AtomicBoolean(false);                // reactor was asked to write
+    private AtomicBoolean flushDeferred = new AtomicBoolean(false);                 // a deferred flush is scheduled
+    private AtomicInteger queuedBytes = new AtomicInteger(0);                       // bytes waiting to be written
+    private ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];                       // buffers of a gathering write
+
+    /**
+     * Constructor.
+     * Associates a NioPlayerSocket with the channel and the reactor specified.
+     *
+     * @param channel the channel connected to the player's client
+     * @param reactor the reactor that will serve this connection
+     * @param policy  the policy defining when queued responses are written
+     */
+    public NioPlayerSocket(SocketChannel channel, Reactor reactor, FlushPolicy policy)
+    {
+        this.channel = channel;
+        this.reactor = reactor;
+        this.policy = policy;
+        id = ++socketCount;
+    }
+
+    // Setters and Getters
+    @Override
+    public int getId() { return id; }
+    @Override
+    public Protocol getProtocol() { return protocol; }
+    public SocketChannel getChannel() { return channel; }
+    public void setHandler(PlayerHandler handler) { this.handler = handler; }
+    public PlayerHandler getHandler() { return handler; }
+    void setKey(SelectionKey key) { this.key = key; }
+
+    // Called by the reactor thread while processing a request, so the bytes still in the read buffer are parsed in
+    // the new protocol.
+    @Override
+    public void setProtocol(Protocol protocol)
+    {
+        this.protocol = protocol;
+        parser = protocol.createRequestParser();
+    }
+
+    /**
+     * Queues the specified Frame to be written by the reactor serving this connection.
+     * The reactor is asked to write the queued frames when the connection is flushed, or immediately if they exceed
+     * the size allowed by the flush policy.
+     *
+     * @param frame the frame to be sent
+     */
+    @Override
+    public void send(Frame frame) throws IOException
+    {
+        if (!channel.isOpen())
+            throw new IOException("Socket channel is closed for connection " + id);
+        Logger.log(LogLevel.Debug, "Queueing message...");
+        writeQueue.add(frame.toByteBuffer());
+        if (policy.isFull(queuedBytes.addAndGet(frame.size())))
+            requestWrite();
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        if (policy.isImmediate())
+            requestWrite();
+        else if (flushDeferred.compareAndSet(false, true))
+            policy.defer(this::requestDeferredWrite);
+    }
+
+    /**
+     * Closes this connection once the responses already queued have been written.
+     */
+    @Override
+    public void close()
+    {
+        closing = true;
+        requestWrite();
+    }
+
+    // Reads the bytes available in the channel and pushes the complete requests to the player handler.
+    // The requests read together are processed as a batch: their responses are flushed once, in order.
+    // Called by the reactor when the channel is ready for reading.
+    void read() throws IOException
+    {
+        int count = channel.read(readBuffer);
+        if (count < 0)
+        {
+            Logger.log(LogLevel.Info, "Connection " + id + " closed by the client");
+            handler.terminate();
+            return;
+        }
+        readBuffer.flip();
+        boolean handled = false;
+        try
+        {
+            while (readBuffer.hasRemaining() && !closing)
+            {
+                Request request = parser.parse(readBuffer.get());
+                if (request == null)
+                    continue;
+                handled = true;
+                if (!handler.handleRequest(request))
+                    handler.terminate();
+            }
+            if (handled && !closing)
+                handler.requestsHandled();
+        }
+        catch (InvalidRequestException e)
+        {
+            Logger.log(LogLevel.Error, "Invalid request from connection " + id + ": " + e.getMessage());
+            handler.terminate();
+        }
+        readBuffer.clear();
+    }
+
+    // Writes the queued responses into the channel, gathering up to MAX_GATHER buffers in each write.
+    // Keeps OP_WRITE interest while the channel cannot accept more bytes.
+    // Called by the reactor when responses were flushed or when the channel is ready for writing.
+    void write() throws IOException
+    {
+        writeRequested.set(false);
+        if (!channel.isOpen() || key == null)
+            return;
+        while (!writeQueue.isEmpty())
+        {
+            int count = 0;
+            for (ByteBuffer buffer : writeQueue)
+            {
+                gather[count++] = buffer;
+                if (count == MAX_GATHER)
+                    break;
+            }
+            channel.write(gather, 0, count);
+            boolean blocked = releaseWritten(count);
+            if (blocked)
+            {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        if (closing)
+            closeChannel();
+    }
+
+    // Closes the underlying channel, dropping any response still queued.
+    void closeChannel()
+    {
+        try
+        {
+            Logger.log(LogLevel.Debug, "Client " + id + " - Closing connection");
+            if (key != null)
+                key.cancel();
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            Logger.log(LogLevel.Error, "Error closing socket channel: " + channel, e);
+        }
+    }
+
+    // Removes the buffers fully written from the write queue and clears the gathering array.
+    // Returns true if a buffer was only partially written, meaning the channel cannot accept more bytes.
+    private boolean releaseWritten(int count)
+    {
+        boolean blocked = false;
+        for (int i = 0; i < count; i++)
+        {
+            if (!blocked && gather[i].hasRemaining())
+                blocked = true;
+            else if (!blocked)
+            {
+                writeQueue.poll();
+                queuedBytes.addAndGet(-gather[i].limit());
+            }
+            gather[i] = null;
+        }
+        return blocked;
+    }
+
+    // Asks the reactor to write the queued responses once the delay defined by the flush policy has elapsed.
+    private void requestDeferredWrite()
+    {
+        flushDeferred.set(false);
+        requestWrite();
+    }
+
+    // Asks the reactor to write the queued responses, unless a write has already been requested.
+    private void requestWrite()
+    {
+        if (writeRequested.compareAndSet(false, true))
+            reactor.requestWrite(this);
+    }
+}
@@ -0,0 +1,75 @@
+package server.gameserver;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import server.protocol.Protocol;
+
+/**
+ * Represents the connection between the GameServer and a player's client.
+ * A PlayerConnection delivers Responses to the player's client. Responses sent are queued in the connection and written
+ * together when the connection is flushed, according to the connection's FlushPolicy. How Requests are received
+ * depends on the I/O mode the GameServer is running: blocking connections are polled by the PlayerHandler,
+ * non-blocking connections push Requests to the PlayerHandler as they are parsed.
+ * Requests and Responses are encoded in the connection's Protocol, which starts as Text and can be switched once by
+ * the player's client before logging in.
+ */
+public interface PlayerConnection extends Closeable
+{
+    /**
+     * Retrieves the identifier of this connection.
+     * 
+     * @return the identifier of this connection
+     */
+    public abstract int getId();
+
+    /**
+     * Retrieves the protocol used to encode requests and responses in this connection.
+     * 
+     * @return the protocol of this connection
+     */
+    public abstract Protocol getProtocol();
+
+    /**
+     * Switches the protocol used in this connection.
+     * The bytes received after the request being processed are parsed in the new protocol, and the responses sent
+     * afterwards are encoded in the new protocol.
+     * 
+     * @param protocol the new protocol of this connection
+     */
+    public abstract void setProtocol(Protocol protocol);
+
+    /**
+     * Sends the specified Response to the player's client.
+     * 
+     * @param response the response to be sent
+     * @throws IOException if the response cannot be sent through this connection
+     */
+    public default void send(Response response) throws IOException
+    {
+        send(getProtocol().encode(response));
+    }
+
+    /**
+     * Sends the specified Frame to the player's client.
+     * The frame is not modified, so the same frame can be sent to many players.
+     * 
+     * @param frame the frame containing the encoded responses to be sent
+     * @throws IOException if the frame cannot be sent through this connection
+     */
+    public abstract void send(Frame frame) throws IOException;
+
+    /**
+     * Writes the frames queued in this connection, coalescing them in as few writes as possible.
+     * The write can be deferred according to the connection's FlushPolicy.
+     * 
+     * @throws IOException if the queued frames cannot be written into this connection
+     */
+    public abstract void flush() throws IOException;
+
+    /**
+     * Closes this connection.
+     */
+    @Override
+    public abstract void close();
+}
@@ -2,6 +2,7 @@ package server.gameserver;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.ArrayList;
 
 import logger.LogLevel;
 import logger.Logger;
@@ -16,31 +17,51 @@ import server.eventhandler.ItemDataEventHandler;
 import server.eventhandler.MapDataEventHandler;
 import server.eventhandler.PlayerConnectedEventHandler;
 import server.eventhandler.PlayerDisconnectedEventHandler;
+import server.eventhandler.PlayerOutOfRangeEventHandler;
 import server.eventhandler.PlayerUpdateEventHandler;
 import server.eventhandler.SendMessageEventHandler;
 import server.game.Game;
 import server.game.Player;
+import server.protocol.Protocol;
 
 /**
  * Coordinates the communication between the Player and the Game.
+ * If the game queues commands (i.e. it runs a tick engine or regions), requests are submitted to the game and their
+ * responses are sent, and flushed, when the game applies them.
  */
 public class PlayerHandler implements Runnable
 {
-    private PlayerSocket socket = null; // the socket associated with the player
-    private Game game = null;           // the instance of the game the player is playing
-    private boolean connected = false;  // indicates whether the player is connected to the game
-    private Player player = null;       // the player associated with this PlayerHandler
-    private EventHandlerManager handlers = null; // 
+    private PlayerConnection socket = null; // the connection associated with the player
+    private Game game = null;               // the instance of the game the player is playing
+    private volatile boolean connected = false; // indicates whether the player is connected to the game
+    private Player player = null;           // the player associated with this PlayerHandler
+    private EventHandlerManager handlers = null; // the player's outbound notification channel
+    private Command command = new Command();     // reused for every request processed
+    private Result result = new Result();        // reused for every request processed
+    private Response response = new Response();  // reused for every request processed
     
     /**
      * Constructor.
+     * Used by the blocking I/O mode: the PlayerHandler reads requests from the socket when it runs.
      * 
      * @param socket the socket connected to the player's client
      * @param game   the instance of the game the player will be playing
      */
     public PlayerHandler(Socket socket, Game game)
     {
-        this.socket = new PlayerSocket(socket);
+        this(new PlayerSocket(socket), game);
+    }
+
+    /**
+     * Constructor.
+     * Used by the non-blocking I/O mode: requests are pushed to the PlayerHandler through handleRequest().
+     * 
+     * @param socket the connection to the player's client
+     * @param game   the instance of the game the player will be playing
+     */
+    public PlayerHandler(PlayerConnection socket, Game game)
+    {
+        this.socket = socket;
         this.game = game;
         handlers = createEventHandlerManager();
         player = new Player(null);
@@ -48,10 +69,17 @@ public class PlayerHandler implements Runnable
     }
     
     // Setters and Getters
-    public PlayerSocket getSocket() { return socket; }
-    public synchronized void setConnected(boolean connected) { this.connected = connected; }
-    public synchronized boolean isConnected() { return connected; }
+    public PlayerConnection getSocket() { return socket; }
+    public void setConnected(boolean connected) { this.connected = connected; }
+    public boolean isConnected() { return connected; }
 
+    /**
+     * Runs the blocking request loop: reads requests from the player's socket until the player quits or the
+     * connection is closed.
+     * Requests pipelined by the client are processed as a batch: the connection is flushed only once no more input is
+     * buffered, so the responses of the batch are written together, in order.
+     * Only supported when the PlayerHandler was created with a blocking PlayerSocket.
+     */
     @Override
     public void run()
     {
@@ -60,28 +88,73 @@ public class PlayerHandler implements Runnable
         setConnected(true);
         try
         {
+            PlayerSocket playerSocket = (PlayerSocket) socket;
             Request request = null;
-            while (isConnected() && (request = socket.receive()) != null)
+            while (isConnected() && (request = playerSocket.receive()) != null)
             {
-                Logger.log(LogLevel.Info, "Request received: \"" + request.toString() + "\"");
-                Command command = requestToCommand(request);
-                Result result = game.processCommand(command);
-                player.setName(result.getPlayer());
-                Response response = resultToResponse(result);
-                Logger.log(LogLevel.Info, "Sending response: \"" + response.toString() + "\"");
-                socket.send(response);
-                if (command.getAction() == Action.Quit && response.getResponseCode() == ResultCode.Success)
-                    setConnected(false);
+                handleRequest(request);
+                if (!playerSocket.hasBufferedInput())
+                    requestsHandled();
             }
             terminate();
         }
         catch (IOException e)
         {
-            Logger.log(LogLevel.Error, "Socket error receiving or sending message", e);
-            setConnected(false);;
+            if (isConnected()) // otherwise the socket was closed once the player quit
+                Logger.log(LogLevel.Error, "Socket error receiving or sending message", e);
+            setConnected(false);
         }
     }
 
+    /**
+     * Processes a request received from the player and queues the response to the player in the connection.
+     * The caller flushes the connection once it has processed all the requests received together.
+     * Disconnects the player once a quit request succeeds.
+     * Protocol requests are handled by the PlayerHandler itself, as they change the connection and not the game.
+     * Requests of a connection are processed one at a time, so the same Command, Result and Response are reused for
+     * every request.
+     * 
+     * @param request the request received from the player
+     * @return true if the player is still connected after processing the request; false otherwise
+     * @throws IOException if the response cannot be sent to the player
+     */
+    public boolean handleRequest(Request request) throws IOException
+    {
+        if (Logger.isEnabled(LogLevel.Debug))
+            Logger.log(LogLevel.Debug, "Request received: \"" + request.toString() + "\"");
+        if (request.getAction() == Action.Protocol)
+            return negotiateProtocol(request);
+        if (game.queuesCommands())
+        {
+            Command submitted = new Command(player, request.getAction(), new ArrayList<String>(request.getArgs()));
+            game.submitCommand(submitted, result -> commandApplied(submitted, result));
+            return isConnected();
+        }
+        requestToCommand(request);
+        result.reset();
+        game.processCommand(command, result);
+        player.setName(result.getPlayer());
+        resultToResponse(result);
+        if (Logger.isEnabled(LogLevel.Debug))
+            Logger.log(LogLevel.Debug, "Sending response: \"" + response.toString() + "\"");
+        socket.send(response);
+        if (command.getAction() == Action.Quit && response.getResponseCode() == ResultCode.Success)
+            setConnected(false);
+        return isConnected();
+    }
+
+    /**
+     * Flushes the responses to the requests handled since the last call, so they are written to the player together.
+     * Does nothing if the game queues commands, flushing their responses once applied.
+     * 
+     * @throws IOException if the responses cannot be sent to the player
+     */
+    public void requestsHandled() throws IOException
+    {
+        if (!game.queuesCommands())
+            socket.flush();
+    }
+
     /**
      * Terminates the PlayerHandler and the threads associated with it.
      * Closes the underlying socket.
@@ -92,35 +165,85 @@ public class PlayerHandler implements Runnable
         socket.close();
     }
 
-    // Prepares a game command from a request
-    private Command requestToCommand(Request request)
+    // Switches the connection to the first protocol requested that the server supports.
+    // The protocol can only be switched before logging in. The response is sent in the protocol being replaced.
+    private boolean negotiateProtocol(Request request) throws IOException
+    {
+        Protocol protocol = Protocol.Unknown;
+        Response response = new Response(ResultCode.BadRequest, "Error. Protocol can only be changed before login");
+        if (player.getName() == null)
+        {
+            for (String arg : request.getArgs())
+            {
+                protocol = Protocol.fromString(arg);
+                if (protocol != Protocol.Unknown)
+                    break;
+            }
+            if (protocol == Protocol.Unknown)
+                response = new Response(ResultCode.BadRequest, "Error. None of the protocols requested is supported");
+            else
+                response = new Response(ResultCode.Success, protocol.getName());
+        }
+        Logger.log(LogLevel.Info, "Sending response: \"" + response.toString() + "\"");
+        socket.send(response);
+        socket.flush();
+        if (protocol != Protocol.Unknown)
+        {
+            socket.setProtocol(protocol);
+            Logger.log(LogLevel.Info, "Connection " + socket.getId() + " switched to the " + protocol + " protocol");
+        }
+        return isConnected();
+    }
+
+    // Sends the response to a command applied by the game's tick engine or regions.
+    // Called on the thread applying the command: the connection is flushed once the events notified while applying it
+    // are delivered. Closes the connection once a quit command succeeds.
+    private void commandApplied(Command command, Result result)
+    {
+        player.setName(result.getPlayer());
+        Response response = new Response(result.getResultCode(), result.getMessage());
+        if (Logger.isEnabled(LogLevel.Debug))
+            Logger.log(LogLevel.Debug, "Sending response: \"" + response.toString() + "\"");
+        try
+        {
+            socket.send(response);
+            if (command.getAction() == Action.Quit && response.getResponseCode() == ResultCode.Success)
+                terminate();
+        }
+        catch (IOException e)
+        {
+            Logger.log(LogLevel.Error, "Socket error sending message", e);
+            setConnected(false);
+        }
+    }
+
+    // Prepares the game command from a request
+    private void requestToCommand(Request request)
     {
-        Command command = new Command();
         command.setPlayer(player);
         command.setAction(request.getAction());
         command.setArgs(request.getArgs());
-        return command;
     }
     
-    // Prepares a response based on a game result
-    private Response resultToResponse(Result result)
+    // Prepares the response based on a game result
+    private void resultToResponse(Result result)
     {
-        Response response = new Response();
         response.setResponseCode(result.getResultCode());
         response.setMessage(result.getMessage());
-        return response;
     }
 
+    // Creates the player's outbound notification channel, installing the event handlers encoding each subject.
     private EventHandlerManager createEventHandlerManager()
     {
-        EventHandlerManager handlers = new EventHandlerManager();
-        handlers.installEventHandler(Subject.MapData, new MapDataEventHandler(this));
-        handlers.installEventHandler(Subject.ItemCollected, new ItemCollectedEventHandler(this));
-        handlers.installEventHandler(Subject.ItemData, new ItemDataEventHandler(this));
-        handlers.installEventHandler(Subject.PlayerConnected, new PlayerConnectedEventHandler(this));
-        handlers.installEventHandler(Subject.PlayerDisconnected, new PlayerDisconnectedEventHandler(this));
-        handlers.installEventHandler(Subject.PlayerUpdate, new PlayerUpdateEventHandler(this));
-        handlers.installEventHandler(Subject.SendMessage, new SendMessageEventHandler(this));
+        EventHandlerManager handlers = new EventHandlerManager(this);
+        handlers.installEventHandler(Subject.MapData, new MapDataEventHandler());
+        handlers.installEventHandler(Subject.ItemCollected, new ItemCollectedEventHandler());
+        handlers.installEventHandler(Subject.ItemData, new ItemDataEventHandler());
+        handlers.installEventHandler(Subject.PlayerConnected, new PlayerConnectedEventHandler());
+        handlers.installEventHandler(Subject.PlayerDisconnected, new PlayerDisconnectedEventHandler());
+        handlers.installEventHandler(Subject.PlayerOutOfRange, new PlayerOutOfRangeEventHandler());
+        handlers.installEventHandler(Subject.PlayerUpdate, new PlayerUpdateEventHandler());
+        handlers.installEventHandler(Subject.SendMessage, new SendMessageEventHandler());
         return handlers;
     }
 }
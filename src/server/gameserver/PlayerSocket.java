@@ -1,44 +1,86 @@
 package server.gameserver;
 
-import java.io.BufferedReader;
-import java.io.Closeable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import logger.LogLevel;
 import logger.Logger;
+import server.protocol.Protocol;
+import server.protocol.RequestParser;
 
 /**
  * Represents a socket for a player connected to the GameServer.
  * The PlayerSocket provides access to the socket connected to the client by receiving Requests and sending Responses
  * through this socket.
  */
-public class PlayerSocket implements Closeable
+public class PlayerSocket implements PlayerConnection
 {
-    private static int id = 0;            // identifier of the PlayerSocket
+    private static int socketCount = 0;   // number of PlayerSockets created
+    private int id = 0;                   // identifier of the PlayerSocket
     private Socket socket;                // the socket connected to the player's client
-    private BufferedReader reader = null; // reads data from the socket
-    private PrintWriter writer = null;    // writes data into the socket
+    private InputStream reader = null;    // reads data from the socket
+    private OutputStream writer = null;   // writes data into the socket
+    private Lock writeLock = new ReentrantLock();                  // serializes responses sent from different threads
+    private FlushPolicy policy = null;                             // defines when queued frames are written
+    private volatile Protocol protocol = Protocol.Text;            // protocol of requests and responses
+    private RequestParser parser = protocol.createRequestParser(); // assembles requests from the bytes read
+
+    private Queue<Frame> outbound = new ConcurrentLinkedQueue<Frame>(); // frames waiting to be written
+    private AtomicInteger queuedBytes = new AtomicInteger(0);           // bytes waiting to be written
+    private AtomicBoolean flushDeferred = new AtomicBoolean(false);     // a deferred write is scheduled
     
     /**
      * Constructor.
      * Associates a PlayerSocket with the socket specified.
      * Initializes this PlayerSocket's reader and writer.
+     * Uses the default flush policy.
      * 
      * @param socket the socket associated to this PlayerSocket
      */
     public PlayerSocket(Socket socket)
+    {
+        this(socket, FlushPolicy.DEFAULT);
+    }
+
+    /**
+     * Constructor.
+     * Associates a PlayerSocket with the socket specified.
+     * Initializes this PlayerSocket's reader and writer.
+     * 
+     * @param socket the socket associated to this PlayerSocket
+     * @param policy the policy defining when queued frames are written
+     */
+    public PlayerSocket(Socket socket, FlushPolicy policy)
     {
         this.socket = socket;
+        this.policy = policy;
         reader = getSocketReader(socket);
         writer = getSocketWriter(socket);
-        id++;
+        id = ++socketCount;
     }
     
     // Setters and Getters
+    @Override
     public int getId() { return id; }
+    @Override
+    public Protocol getProtocol() { return protocol; }
+
+    @Override
+    public void setProtocol(Protocol protocol)
+    {
+        this.protocol = protocol;
+        parser = protocol.createRequestParser();
+    }
     
     /**
      * Receives a Request from the underlying socket.
@@ -53,36 +95,62 @@ public class PlayerSocket implements Closeable
         if (reader != null)
         {
             Request request = null;
-            String message = null;
-            if ((message = reader.readLine()) != null)
-                request = new Request(message);
+            int b = 0;
+            while (request == null && (b = reader.read()) >= 0)
+                request = parser.parse((byte) b);
             return request;
         }
         throw new IOException("Socket reader is not set up correctly for this socket");
     }
     
     /**
-     * Sends the specified Response through the underlying socket.
+     * Queues the specified Frame to be sent through the underlying socket.
+     * The queued frames are written when the socket is flushed, or immediately if they exceed the size allowed by the
+     * flush policy.
      * 
-     * @param response the response to be sent
+     * @param frame the frame to be sent
      */
-    public synchronized void send(Response response) throws IOException
+    @Override
+    public void send(Frame frame) throws IOException
     {
-        Logger.log(LogLevel.Debug, "Sending message...");
+        Logger.log(LogLevel.Debug, "Queueing message...");
         if (writer != null)
         {
-            writer.print(response + "\r\n");
-            writer.flush();
+            outbound.add(frame);
+            if (policy.isFull(queuedBytes.addAndGet(frame.size())))
+                writeQueued();
             return;
         }
         throw new IOException("Socket writer is not set up correctly for this socket");
     }
+
+    /**
+     * Checks whether bytes received from the client are waiting to be read, i.e. whether the client has pipelined
+     * more requests.
+     * 
+     * @return true if input is buffered or readable without blocking; false otherwise
+     * @throws IOException if an I/O error occurs while checking the underlying socket
+     */
+    public boolean hasBufferedInput() throws IOException
+    {
+        return reader != null && reader.available() > 0;
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        if (policy.isImmediate())
+            writeQueued();
+        else if (flushDeferred.compareAndSet(false, true))
+            policy.defer(this::writeDeferred);
+    }
     
     @Override
     public void close()
     {
         try
         {
+            writeQueued();
             Logger.log(LogLevel.Debug, "Client " + id + " - Closing connection");
             if (reader != null)
                 reader.close();
@@ -97,15 +165,53 @@ public class PlayerSocket implements Closeable
         }
     }
     
+    // Writes all queued frames into the socket with a single flush of the socket's output stream.
+    // Uses a lock instead of a monitor so virtual threads blocked on the socket write do not pin their carrier thread.
+    private void writeQueued() throws IOException
+    {
+        writeLock.lock();
+        try
+        {
+            Frame frame = null;
+            int written = 0;
+            while ((frame = outbound.poll()) != null)
+            {
+                frame.writeTo(writer);
+                written += frame.size();
+            }
+            queuedBytes.addAndGet(-written);
+            if (written > 0)
+                writer.flush();
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    // Writes the queued frames once the delay defined by the flush policy has elapsed.
+    private void writeDeferred()
+    {
+        flushDeferred.set(false);
+        try
+        {
+            writeQueued();
+        }
+        catch (IOException e)
+        {
+            Logger.log(LogLevel.Error, "Error writing into socket: " + socket, e);
+        }
+    }
+
     // Creates a socket reader for the socket specified.
     // Returns null if an error occurs while setting up the socket reader.
-    private BufferedReader getSocketReader(Socket socket)
+    private InputStream getSocketReader(Socket socket)
     {
-        BufferedReader reader = null;
+        InputStream reader = null;
         try
         {
             Logger.log(LogLevel.Debug, "Setting up socket reader");
-            reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            reader = new BufferedInputStream(socket.getInputStream());
         }
         catch (IOException e)
         {
@@ -117,13 +223,13 @@ public class PlayerSocket implements Closeable
     
     // Creates a socket writer for the socket specified.
     // Returns null if an error occurs while setting up the socket writer.
-    private PrintWriter getSocketWriter(Socket socket)
+    private OutputStream getSocketWriter(Socket socket)
     {
-        PrintWriter writer = null;
+        OutputStream writer = null;
         try
         {
             Logger.log(LogLevel.Debug, "Setting up socket writer");
-            writer = new PrintWriter(socket.getOutputStream());
+            writer = new BufferedOutputStream(socket.getOutputStream(), Math.max(policy.getMaxBytes(), 8192));
         }
         catch (IOException e)
         {
@@ -0,0 +1,190 @@
+package server.gameserver;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import logger.LogLevel;
+import logger.Logger;
+
+/**
+ * An I/O reactor serving player connections in the non-blocking I/O mode.
+ * Each Reactor runs a single thread that multiplexes the connections assigned to it through a Selector. Requests read
+ * from a connection are processed on the reactor thread; responses queued from other threads are written by the
+ * reactor thread once it is woken up.
+ */
+public class Reactor implements Runnable
+{
+    private int id = 0;                       // identifier of the Reactor
+    private Selector selector = null;         // selector multiplexing the connections served by this Reactor
+    private Thread thread = null;             // the reactor thread
+    private volatile boolean running = false; // indicates whether the reactor thread should keep running
+
+    private Queue<NioPlayerSocket> pendingRegistrations = new ConcurrentLinkedQueue<NioPlayerSocket>(); // new sockets
+    private Queue<NioPlayerSocket> pendingWrites = new ConcurrentLinkedQueue<NioPlayerSocket>();        // to write
+
+    /**
+     * Constructor.
+     * Opens the selector used by this Reactor.
+     * 
+     * @param id the identifier of this Reactor
+     * @throws IOException if the selector cannot be opened
+     */
+    public Reactor(int id) throws IOException
+    {
+        this.id = id;
+        selector = Selector.open();
+    }
+
+    // Setters and Getters
+    public int getId() { return id; }
+
+    /**
+     * Starts the reactor thread.
+     */
+    public void start()
+    {
+        running = true;
+        thread = new Thread(this, "Reactor" + id);
+        thread.start();
+    }
+
+    /**
+     * Stops the reactor thread and closes the selector.
+     */
+    public void stop()
+    {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Assigns a connection to this Reactor.
+     * The connection is registered with the selector by the reactor thread.
+     * 
+     * @param socket the connection to be served by this Reactor
+     */
+    public void register(NioPlayerSocket socket)
+    {
+        pendingRegistrations.add(socket);
+        selector.wakeup();
+    }
+
+    /**
+     * Asks the reactor thread to write the responses queued in the connection specified.
+     * 
+     * @param socket the connection with responses waiting to be written
+     */
+    public void requestWrite(NioPlayerSocket socket)
+    {
+        pendingWrites.add(socket);
+        if (Thread.currentThread() != thread)
+            selector.wakeup();
+    }
+
+    @Override
+    public void run()
+    {
+        Logger.log(LogLevel.Info, "Reactor " + id + " started");
+        while (running)
+        {
+            try
+            {
+                selector.select();
+                registerPendingConnections();
+                handleSelectedKeys();
+                writePendingResponses();
+            }
+            catch (IOException e)
+            {
+                Logger.log(LogLevel.Error, "Reactor " + id + " - Selector error", e);
+            }
+        }
+        closeSelector();
+        Logger.log(LogLevel.Info, "Reactor " + id + " stopped");
+    }
+
+    // Registers the connections assigned to this Reactor for reading.
+    private void registerPendingConnections()
+    {
+        NioPlayerSocket socket = null;
+        while ((socket = pendingRegistrations.poll()) != null)
+        {
+            try
+            {
+                SocketChannel channel = socket.getChannel();
+                channel.configureBlocking(false);
+                socket.setKey(channel.register(selector, SelectionKey.OP_READ, socket));
+                socket.getHandler().setConnected(true);
+            }
+            catch (IOException e)
+            {
+                Logger.log(LogLevel.Error, "Could not register connection " + socket.getId(), e);
+                socket.closeChannel();
+            }
+        }
+    }
+
+    // Reads from and writes into the connections whose channels are ready.
+    private void handleSelectedKeys()
+    {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext())
+        {
+            SelectionKey key = keys.next();
+            keys.remove();
+            NioPlayerSocket socket = (NioPlayerSocket) key.attachment();
+            try
+            {
+                if (key.isValid() && key.isReadable())
+                    socket.read();
+                if (key.isValid() && key.isWritable())
+                    socket.write();
+            }
+            catch (IOException e)
+            {
+                Logger.log(LogLevel.Error, "Socket error receiving or sending message", e);
+                socket.getHandler().setConnected(false);
+                socket.closeChannel();
+            }
+        }
+    }
+
+    // Writes the responses queued since the last iteration.
+    private void writePendingResponses()
+    {
+        NioPlayerSocket socket = null;
+        while ((socket = pendingWrites.poll()) != null)
+        {
+            try
+            {
+                socket.write();
+            }
+            catch (IOException e)
+            {
+                Logger.log(LogLevel.Error, "Socket error sending message", e);
+                socket.getHandler().setConnected(false);
+                socket.closeChannel();
+            }
+        }
+    }
+
+    // Closes the selector and every connection still registered with it.
+    private void closeSelector()
+    {
+        try
+        {
+            for (SelectionKey key : selector.keys())
+                ((NioPlayerSocket) key.attachment()).closeChannel();
+            selector.close();
+        }
+        catch (IOException e)
+        {
+            Logger.log(LogLevel.Error, "Error closing selector of reactor " + id, e);
+        }
+    }
+}
@@ -43,10 +43,40 @@ public class Request
             this.args.add(s);
     }
     
+    /**
+     * Default constructor.
+     * Builds an empty request, to be filled by a request parser.
+     */
+    public Request()
+    {
+    }
+    
     // Setters and Getters
     public Action getAction() { return action; }
     public List<String> getArgs() { return args; }
 
+    /**
+     * Clears the arguments of this request and sets its action, so the request can be reused for the next request
+     * received in a connection.
+     * 
+     * @param action the action of the request
+     */
+    public void reset(Action action)
+    {
+        this.action = action;
+        args.clear();
+    }
+
+    /**
+     * Appends an argument to this request.
+     * 
+     * @param arg the argument to be appended
+     */
+    public void addArg(String arg)
+    {
+        args.add(arg);
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,152 @@
+package server.gameserver;
+
+import java.io.File;
+import java.util.Random;
+
+import server.game.ChunkGenerator;
+import server.game.ChunkedWorld;
+import server.game.DiskChunkGenerator;
+import server.game.GameMap;
+import server.game.ItemRespawner;
+import server.game.MapStorage;
+import server.game.NoiseChunkGenerator;
+import server.game.PathAlgorithm;
+
+/**
+ * Holds the settings used to start a GameServer.
+ * Settings not provided in the command line keep their default values.
+ */
+public class ServerConfig
+{
+    public static final int DEFAULT_CHUNK_CACHE_SIZE = 4096; // chunks kept in memory by default
+
+    private int port = 0;                                                     // port the GameServer is bound to
+    private IoMode ioMode = IoMode.Blocking;                                  // I/O model for player connections
+    private int reactorCount = Runtime.getRuntime().availableProcessors();    // reactor threads in Nio mode
+    private ThreadMode threadMode = ThreadMode.Platform;                      // threads for players and events
+    private int dispatcherCount = Runtime.getRuntime().availableProcessors(); // event dispatcher workers
+    private int flushBytes = FlushPolicy.DEFAULT_MAX_BYTES;                   // bytes queued before a forced write
+    private int flushDelay = 0;                                               // delay of flushes, in milliseconds
+    private MapStorage mapStorage = MapStorage.Auto;                          // where map obstacles are stored
+    private Long worldSeed = null;                                            // seed of a chunked world; null if none
+    private File chunkDir = null;                                             // directory of chunk files; null if none
+    private int chunkCacheSize = DEFAULT_CHUNK_CACHE_SIZE;                    // chunks of the world kept in memory
+    private Long seed = null;                                                 // seed of the game's random numbers
+    private Random random = null;                                             // the game's random number generator
+    private int itemRespawnDelay = ItemRespawner.DEFAULT_DELAY;               // delay of item respawns, in milliseconds
+    private int tickRate = 0;                                                 // simulation ticks per second; 0 if none
+    private int regionCols = 0;                                               // regions along the x axis; 0 if none
+    private int regionRows = 0;                                               // regions along the y axis; 0 if none
+    private int viewRadius = 0;                                               // area of interest radius; 0 if none
+    private int revealRadius = 0;                                             // item reveal radius; 0 for all items
+    private int fovCacheSize = 0;                                             // field of view masks cached; 0 if none
+    private PathAlgorithm pathAlgorithm = PathAlgorithm.AStar;                // search finding goto paths
+
+    /**
+     * Constructor.
+     * 
+     * @param port the port the GameServer will be bound to
+     */
+    public ServerConfig(int port)
+    {
+        this.port = port;
+    }
+
+    // Setters and Getters
+    public int getPort() { return port; }
+    public void setIoMode(IoMode ioMode) { this.ioMode = ioMode; }
+    public IoMode getIoMode() { return ioMode; }
+    public void setReactorCount(int reactorCount) { this.reactorCount = reactorCount; }
+    public int getReactorCount() { return reactorCount; }
+    public void setThreadMode(ThreadMode threadMode) { this.threadMode = threadMode; }
+    public ThreadMode getThreadMode() { return threadMode; }
+    public void setDispatcherCount(int dispatcherCount) { this.dispatcherCount = dispatcherCount; }
+    public int getDispatcherCount() { return dispatcherCount; }
+    public void setFlushBytes(int flushBytes) { this.flushBytes = flushBytes; }
+    public int getFlushBytes() { return flushBytes; }
+    public void setFlushDelay(int flushDelay) { this.flushDelay = flushDelay; }
+    public int getFlushDelay() { return flushDelay; }
+    public void setMapStorage(MapStorage mapStorage) { this.mapStorage = mapStorage; }
+    public MapStorage getMapStorage() { return mapStorage; }
+    public void setWorldSeed(Long worldSeed) { this.worldSeed = worldSeed; }
+    public Long getWorldSeed() { return worldSeed; }
+    public void setChunkDir(File chunkDir) { this.chunkDir = chunkDir; }
+    public File getChunkDir() { return chunkDir; }
+    public void setChunkCacheSize(int chunkCacheSize) { this.chunkCacheSize = chunkCacheSize; }
+    public int getChunkCacheSize() { return chunkCacheSize; }
+    public void setSeed(Long seed) { this.seed = seed; }
+    public Long getSeed() { return seed; }
+    public void setItemRespawnDelay(int itemRespawnDelay) { this.itemRespawnDelay = itemRespawnDelay; }
+    public int getItemRespawnDelay() { return itemRespawnDelay; }
+    public void setTickRate(int tickRate) { this.tickRate = tickRate; }
+    public int getTickRate() { return tickRate; }
+    public void setRegionCols(int regionCols) { this.regionCols = regionCols; }
+    public int getRegionCols() { return regionCols; }
+    public void setRegionRows(int regionRows) { this.regionRows = regionRows; }
+    public int getRegionRows() { return regionRows; }
+    public void setViewRadius(int viewRadius) { this.viewRadius = viewRadius; }
+    public int getViewRadius() { return viewRadius; }
+    public void setRevealRadius(int revealRadius) { this.revealRadius = revealRadius; }
+    public int getRevealRadius() { return revealRadius; }
+    public void setFovCacheSize(int fovCacheSize) { this.fovCacheSize = fovCacheSize; }
+    public int getFovCacheSize() { return fovCacheSize; }
+    public void setPathAlgorithm(PathAlgorithm pathAlgorithm) { this.pathAlgorithm = pathAlgorithm; }
+    public PathAlgorithm getPathAlgorithm() { return pathAlgorithm; }
+
+    /**
+     * Retrieves the random number generator shared by the game, e.g. to place spawn points and items.
+     * The generator is created on first use, from the seed if one is set.
+     * 
+     * @return the random number generator of the game
+     */
+    public synchronized Random getRandom()
+    {
+        if (random == null)
+            random = seed == null ? new Random() : new Random(seed);
+        return random;
+    }
+
+    /**
+     * Creates the flush policy defined by these settings.
+     * 
+     * @return the policy defining when the responses queued in a player connection are written
+     */
+    public FlushPolicy getFlushPolicy()
+    {
+        return new FlushPolicy(flushBytes, flushDelay);
+    }
+
+    /**
+     * Creates the game map defined by these settings: a chunked world if a world seed is set; the map in the specified
+     * file otherwise.
+     * Chunks of the world are loaded from the chunk directory when it holds a file for them, and generated from the
+     * seed otherwise.
+     * 
+     * @param mapFile the file containing the map layout, used if no world seed is set
+     * @return the game map
+     */
+    public GameMap createMap(File mapFile)
+    {
+        if (worldSeed == null)
+            return new GameMap(mapFile, mapStorage, getRandom());
+        ChunkGenerator generator = new NoiseChunkGenerator(worldSeed);
+        if (chunkDir != null)
+            generator = new DiskChunkGenerator(chunkDir, generator, getRandom());
+        return new GameMap(new ChunkedWorld("world-" + worldSeed, generator, chunkCacheSize), getRandom());
+    }
+
+    @Override
+    public String toString()
+    {
+        return "port " + port + ", I/O mode " + ioMode + ", " + reactorCount + " reactors, " + threadMode + " threads, "
+               + dispatcherCount + " event dispatchers, " + getFlushPolicy() + ", " + mapStorage + " map storage"
+               + (worldSeed == null ? "" : ", chunked world " + worldSeed + " caching " + chunkCacheSize + " chunks")
+               + (seed == null ? "" : ", seed " + seed) + ", item respawn delay " + itemRespawnDelay + " ms"
+               + (tickRate == 0 ? "" : ", " + tickRate + " ticks per second")
+               + (regionCols == 0 ? "" : ", " + regionCols + "x" + regionRows + " regions")
+               + (viewRadius == 0 ? "" : ", view radius " + viewRadius)
+               + (revealRadius == 0 ? "" : ", reveal radius " + revealRadius)
+               + (fovCacheSize == 0 ? "" : ", field of view caching " + fovCacheSize + " masks")
+               + ", " + pathAlgorithm + " pathfinding";
+    }
+}
@@ -0,0 +1,69 @@
+package server.gameserver;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import logger.LogLevel;
+import logger.Logger;
+
+/**
+ * Represents the kind of threads used to run player handlers and event processing.
+ * - Platform: one operating system thread per task
+ * - Virtual: lightweight threads scheduled by the JVM on a small pool of carrier threads
+ * Virtual threads are only available on Java 21 or newer. When they are not available, platform threads are used.
+ */
+public enum ThreadMode
+{
+    Platform,
+    Virtual,
+    Unknown;
+
+    /**
+     * Retrieves the ThreadMode based on a string.
+     * 
+     * @param mode the string representing the thread mode
+     * @return the ThreadMode represented by the specified string
+     */
+    public static ThreadMode fromString(String mode)
+    {
+        if (mode.equalsIgnoreCase("platform"))
+            return Platform;
+        if (mode.equalsIgnoreCase("virtual"))
+            return Virtual;
+        return Unknown;
+    }
+
+    /**
+     * Retrieves a thread factory creating threads of this kind.
+     * 
+     * @return a factory of threads of this kind
+     */
+    public ThreadFactory getThreadFactory()
+    {
+        if (this == Virtual)
+        {
+            ThreadFactory factory = createVirtualThreadFactory();
+            if (factory != null)
+                return factory;
+            Logger.log(LogLevel.Error, "Virtual threads require Java 21 or newer. Using platform threads");
+        }
+        return runnable -> new Thread(runnable);
+    }
+
+    // Creates a factory of virtual threads through Thread.ofVirtual().factory().
+    // Looked up by reflection so the server can still be compiled and run on Java 17.
+    // Returns null if virtual threads are not supported by the running JVM.
+    private static ThreadFactory createVirtualThreadFactory()
+    {
+        try
+        {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package server.protocol;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the fields of a message of the Binary protocol.
+ */
+public class BinaryReader
+{
+    private byte[] bytes = null; // the message being read
+    private int position = 0;    // position of the next byte to be read
+    private int limit = 0;       // number of bytes in the message
+
+    /**
+     * Constructor.
+     * 
+     * @param bytes  the buffer holding the message
+     * @param length the number of bytes in the message
+     */
+    public BinaryReader(byte[] bytes, int length)
+    {
+        this.bytes = bytes;
+        this.limit = length;
+    }
+
+    /**
+     * Points this reader to a new message, so the reader can be reused.
+     * 
+     * @param bytes  the buffer holding the message
+     * @param length the number of bytes in the message
+     */
+    public void reset(byte[] bytes, int length)
+    {
+        this.bytes = bytes;
+        this.limit = length;
+        position = 0;
+    }
+
+    /**
+     * Checks whether there are bytes left to be read in the message.
+     * 
+     * @return true if there are bytes left to be read; false otherwise
+     */
+    public boolean hasRemaining()
+    {
+        return position < limit;
+    }
+
+    /**
+     * Reads an unsigned byte.
+     * 
+     * @return the byte read, in the range [0,255]
+     * @throws InvalidRequestException if the message has no bytes left
+     */
+    public int readByte() throws InvalidRequestException
+    {
+        if (position == limit)
+            throw new InvalidRequestException("Unexpected end of message");
+        return bytes[position++] & 0xFF;
+    }
+
+    /**
+     * Reads an unsigned varint: 7 bits per byte, least significant group first, high bit set on all but the last byte.
+     * 
+     * @return the value read
+     * @throws InvalidRequestException if the varint is malformed or the message ends before the varint
+     */
+    public int readVarint() throws InvalidRequestException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new InvalidRequestException("Malformed varint");
+    }
+
+    /**
+     * Reads a string: its length in bytes, as a varint, followed by its UTF-8 bytes.
+     * 
+     * @return the string read
+     * @throws InvalidRequestException if the message ends before the string
+     */
+    public String readString() throws InvalidRequestException
+    {
+        int length = readVarint();
+        if (length < 0 || length > limit - position)
+            throw new InvalidRequestException("Invalid string length: " + length);
+        String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+}
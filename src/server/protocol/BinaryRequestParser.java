@@ -0,0 +1,114 @@
+package server.protocol;
+
+
+import server.command.Action;
+import server.gameserver.Request;
+
+/**
+ * Assembles requests of the Binary protocol.
+ * Each request is a message prefixed by its length, as a varint, starting with the opcode of the request.
+ * The same Request is reused for every message, so the Request returned is only valid until the next message is
+ * parsed.
+ */
+public class BinaryRequestParser implements RequestParser
+{
+    private static final int MAX_MESSAGE_LENGTH = 8192; // longest request message accepted from a player
+    private static final String[] DIRECTIONS = { "unknown", "north", "south", "east", "west" }; // move directions
+
+    private int length = 0;                // length of the message being assembled
+    private int lengthShift = 0;           // bits of the length prefix read so far
+    private boolean readingLength = true;  // whether the length prefix is being read
+    private byte[] message = new byte[64]; // message being assembled
+    private int received = 0;              // bytes of the message received so far
+
+    private BinaryReader reader = new BinaryReader(message, 0); // reads the fields of the message assembled
+    private Request request = new Request();                    // the request returned for every message
+
+    @Override
+    public Request parse(byte b) throws InvalidRequestException
+    {
+        if (readingLength)
+        {
+            readLength(b);
+            return null;
+        }
+        message[received++] = b;
+        if (received < length)
+            return null;
+        readingLength = true;
+        return decode();
+    }
+
+    // Reads a byte of the varint length prefix.
+    // Prepares the message buffer once the prefix is complete.
+    private void readLength(byte b) throws InvalidRequestException
+    {
+        length |= (b & 0x7F) << lengthShift;
+        lengthShift += 7;
+        if ((b & 0x80) != 0)
+        {
+            if (lengthShift > 28)
+                throw new InvalidRequestException("Malformed message length");
+            return;
+        }
+        if (length == 0 || length > MAX_MESSAGE_LENGTH)
+            throw new InvalidRequestException("Invalid message length: " + length);
+        if (length > message.length)
+            message = new byte[Math.max(length, message.length * 2)];
+        readingLength = false;
+        received = 0;
+        lengthShift = 0;
+    }
+
+    // Builds a request from the message assembled.
+    private Request decode() throws InvalidRequestException
+    {
+        reader.reset(message, length);
+        length = 0;
+        Opcode opcode = Opcode.fromCode(reader.readByte());
+        request.reset(toAction(opcode));
+        if (opcode == Opcode.Move)
+        {
+            request.addArg(getDirection(reader));
+            return request;
+        }
+        int count = reader.hasRemaining() ? reader.readVarint() : 0;
+        if (count < 0 || count > MAX_MESSAGE_LENGTH)
+            throw new InvalidRequestException("Invalid argument count: " + count);
+        for (int i = 0; i < count; i++)
+            request.addArg(reader.readString());
+        return request;
+    }
+
+    // Gets the direction argument of a move request from its code.
+    // Unknown directions are sent with code 0, followed by the direction as a string.
+    private String getDirection(BinaryReader reader) throws InvalidRequestException
+    {
+        int code = reader.readByte();
+        if (code > 0 && code < DIRECTIONS.length)
+            return DIRECTIONS[code];
+        return reader.hasRemaining() ? reader.readString() : DIRECTIONS[0];
+    }
+
+    // Gets the action requested by a request opcode.
+    private Action toAction(Opcode opcode)
+    {
+        if (opcode == Opcode.Login)
+            return Action.Login;
+        if (opcode == Opcode.Map)
+            return Action.Map;
+        if (opcode == Opcode.Move)
+            return Action.Move;
+        if (opcode == Opcode.Message)
+            return Action.Message;
+        if (opcode == Opcode.Players)
+            return Action.Players;
+        if (opcode == Opcode.Quit)
+            return Action.Quit;
+        if (opcode == Opcode.Nearby)
+            return Action.Nearby;
+        if (opcode == Opcode.Goto)
+            return Action.Goto;
+        return Action.Unknown;
+    }
+}
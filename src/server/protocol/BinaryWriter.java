@@ -0,0 +1,125 @@
+package server.protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import server.gameserver.Frame;
+import server.gameserver.Response;
+
+/**
+ * Encodes messages of the Binary protocol into a frame.
+ * Each message is started with begin(), which writes its opcode, filled with the fields of the message, and finished
+ * with end(), which prefixes the message with its length. Several messages can be written before building the frame.
+ */
+public class BinaryWriter
+{
+    private byte[] output = new byte[256]; // the length-prefixed messages written
+    private int outputLength = 0;          // bytes in the output
+    private byte[] message = new byte[64]; // the message being written
+    private int messageLength = 0;         // bytes in the message being written
+    private int messageCount = 0;          // number of messages written
+
+    /**
+     * Starts a new message with the opcode specified.
+     * 
+     * @param opcode the opcode of the message
+     */
+    public void begin(Opcode opcode)
+    {
+        messageLength = 0;
+        writeByte(opcode.getCode());
+    }
+
+    /**
+     * Writes a single byte into the current message.
+     * 
+     * @param b the byte to be written
+     */
+    public void writeByte(int b)
+    {
+        if (messageLength == message.length)
+            message = Arrays.copyOf(message, message.length * 2);
+        message[messageLength++] = (byte) b;
+    }
+
+    /**
+     * Writes an unsigned varint into the current message: 7 bits per byte, least significant group first.
+     * 
+     * @param value the value to be written
+     */
+    public void writeVarint(int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    /**
+     * Writes a signed value into the current message as a zigzag encoded varint, so small negative values are short.
+     * 
+     * @param value the value to be written
+     */
+    public void writeSignedVarint(int value)
+    {
+        writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Writes a string into the current message: its length in bytes, as a varint, followed by its UTF-8 bytes.
+     * 
+     * @param value the string to be written
+     */
+    public void writeString(String value)
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        for (byte b : bytes)
+            writeByte(b);
+    }
+
+    /**
+     * Finishes the current message, appending it to the output prefixed by its length.
+     */
+    public void end()
+    {
+        int required = outputLength + 5 + messageLength;
+        if (required > output.length)
+            output = Arrays.copyOf(output, Math.max(required, output.length * 2));
+        int length = messageLength;
+        while ((length & ~0x7F) != 0)
+        {
+            output[outputLength++] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        output[outputLength++] = (byte) length;
+        System.arraycopy(message, 0, output, outputLength, messageLength);
+        outputLength += messageLength;
+        messageCount++;
+    }
+
+    /**
+     * Writes a response as a Text message: its result code followed by its message.
+     * 
+     * @param response the response to be written
+     */
+    public void writeResponse(Response response)
+    {
+        begin(Opcode.Text);
+        writeVarint(response.getResponseCode().getCode());
+        writeString(response.getData());
+        end();
+    }
+
+    /**
+     * Builds a frame containing the messages written.
+     * 
+     * @return a frame containing the messages written
+     */
+    public Frame toFrame()
+    {
+        return new Frame(Arrays.copyOf(output, outputLength), messageCount, true);
+    }
+}
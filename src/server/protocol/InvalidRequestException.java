@@ -0,0 +1,21 @@
+package server.protocol;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the bytes received from a player's client do not form a valid request in the connection's protocol.
+ */
+public class InvalidRequestException extends IOException
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor.
+     * 
+     * @param message the description of the problem found in the request
+     */
+    public InvalidRequestException(String message)
+    {
+        super(message);
+    }
+}
@@ -0,0 +1,64 @@
+package server.protocol;
+
+/**
+ * Represents the type of a message in the Binary protocol.
+ * Every message starts with its opcode, followed by the fields of the message.
+ */
+public enum Opcode
+{
+    Unknown(0),
+    
+    // requests, from the client
+    Login(1),        // string name
+    Map(2),          // no fields
+    Message(3),      // varint count, string words
+    Move(4),         // byte direction; 0 followed by string direction if unknown
+    Players(5),      // no fields
+    Quit(6),         // no fields
+    Nearby(7),       // varint count, string number of players wanted if count is 1
+    Goto(8),         // varint count, string x, string y
+
+    // responses and notifications, from the server
+    Text(32),             // varint result code, string message
+    PlayerName(33),       // varint player id, string name
+    PlayerUpdate(34),     // varint player id, signed x, signed y, signed score
+    PlayerJoined(35),     // varint player id, signed x, signed y, signed score
+    PlayerLeft(36),       // varint player id
+    ItemData(37),         // varint item id, signed x, signed y, signed value
+    ItemTaken(38),        // varint player id, varint item id, signed value
+    MapData(39),          // varint columns, varint rows, string row for each row
+    MapRegion(40),        // varint x, varint y, varint columns, varint rows, string row for each row
+    PlayerOutOfRange(41); // varint player id
+
+    private static final Opcode[] BY_CODE = new Opcode[64]; // opcodes indexed by their value on the wire
+
+    private int code; // opcode value on the wire
+
+    static
+    {
+        for (Opcode opcode : values())
+            BY_CODE[opcode.code] = opcode;
+    }
+
+    // Constructor
+    private Opcode(int code)
+    {
+        this.code = code;
+    }
+
+    // Setters and Getters
+    public int getCode() { return code; }
+
+    /**
+     * Gets the Opcode based on the specified code.
+     * 
+     * @param code the opcode value read from the wire
+     * @return the Opcode represented by the code specified
+     */
+    public static Opcode fromCode(int code)
+    {
+        if (code < 0 || code >= BY_CODE.length || BY_CODE[code] == null)
+            return Unknown;
+        return BY_CODE[code];
+    }
+}
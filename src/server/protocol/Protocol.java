@@ -0,0 +1,71 @@
+package server.protocol;
+
+import server.gameserver.Frame;
+import server.gameserver.Response;
+
+/**
+ * Represents the wire protocol used to exchange requests and responses with a player's client.
+ * Connections start with the Text protocol. A client can switch its connection to another protocol with a "protocol"
+ * request, sent before logging in, listing the protocols it supports in order of preference.
+ */
+public enum Protocol
+{
+    Text("text"),     // "\r\n" terminated lines, "<code>:<message>" responses
+    Binary("binary"), // length-prefixed messages with an opcode and varint fields
+    Unknown("unknown");
+
+    private String name; // name of the protocol in the handshake
+
+    // Constructor
+    private Protocol(String name)
+    {
+        this.name = name;
+    }
+
+    // Setters and Getters
+    public String getName() { return name; }
+
+    /**
+     * Retrieves the Protocol based on a string.
+     * 
+     * @param protocol the string representing the protocol
+     * @return the Protocol represented by the specified string
+     */
+    public static Protocol fromString(String protocol)
+    {
+        if (protocol.equalsIgnoreCase("text"))
+            return Text;
+        if (protocol.equalsIgnoreCase("binary"))
+            return Binary;
+        return Unknown;
+    }
+
+    /**
+     * Encodes a single response into a frame in this protocol.
+     * 
+     * @param response the response to be encoded
+     * @return a frame containing the encoded response
+     */
+    public Frame encode(Response response)
+    {
+        if (this == Binary)
+        {
+            BinaryWriter writer = new BinaryWriter();
+            writer.writeResponse(response);
+            return writer.toFrame();
+        }
+        return Frame.of(response);
+    }
+
+    /**
+     * Creates a parser for the requests received in this protocol.
+     * 
+     * @return a new request parser
+     */
+    public RequestParser createRequestParser()
+    {
+        if (this == Binary)
+            return new BinaryRequestParser();
+        return new TextRequestParser();
+    }
+}
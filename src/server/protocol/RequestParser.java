@@ -0,0 +1,20 @@
+package server.protocol;
+
+import server.gameserver.Request;
+
+/**
+ * Assembles requests from the bytes received from a player's client.
+ * Bytes are pushed one at a time, in the order they were received, so the same parser serves blocking and
+ * non-blocking connections.
+ */
+public interface RequestParser
+{
+    /**
+     * Pushes the next byte received into the parser.
+     * 
+     * @param b the byte received
+     * @return the request completed by the byte pushed; null if the request is not complete yet
+     * @throws InvalidRequestException if the bytes received do not form a valid request
+     */
+    public abstract Request parse(byte b) throws InvalidRequestException;
+}
@@ -0,0 +1,97 @@
+package server.protocol;
+
+import java.nio.charset.StandardCharsets;
+
+import server.command.Action;
+import server.gameserver.Request;
+
+/**
+ * Assembles requests of the Text protocol: one request per "\n" or "\r\n" terminated line.
+ * The line is tokenized in place: the action is identified from its bytes, and arguments that are keywords of the
+ * protocol (e.g. move directions) are mapped to constant strings. The same Request is reused for every line, so a
+ * request such as "move north" is parsed without allocating. The Request returned is only valid until the next line is
+ * parsed.
+ */
+public class TextRequestParser implements RequestParser
+{
+    private static final int MAX_LINE_LENGTH = 8192; // longest request line accepted from a player
+    private static final String[] KEYWORDS = { "north", "south", "east", "west" }; // arguments mapped to constants
+
+    private byte[] line = new byte[256];     // request line being assembled
+    private int lineLength = 0;              // bytes in the current line
+    private Request request = new Request(); // the request returned for every line
+
+    @Override
+    public Request parse(byte b) throws InvalidRequestException
+    {
+        if (b == '\n')
+            return parseLine();
+        if (lineLength == MAX_LINE_LENGTH)
+            throw new InvalidRequestException("Request line longer than " + MAX_LINE_LENGTH + " bytes");
+        appendToLine(b);
+        return null;
+    }
+
+    // Appends a byte to the request line being assembled, growing the line buffer if needed.
+    private void appendToLine(byte b)
+    {
+        if (lineLength == line.length)
+        {
+            byte[] larger = new byte[Math.min(line.length * 2, MAX_LINE_LENGTH)];
+            System.arraycopy(line, 0, larger, 0, lineLength);
+            line = larger;
+        }
+        line[lineLength++] = b;
+    }
+
+    // Builds a request from the line assembled.
+    // Tokens are separated by single spaces, like String.split(" "): consecutive spaces produce empty arguments and
+    // trailing spaces are ignored. Strips the carriage return of "\r\n" terminated lines.
+    private Request parseLine()
+    {
+        int length = (lineLength > 0 && line[lineLength - 1] == '\r') ? lineLength - 1 : lineLength;
+        lineLength = 0;
+        while (length > 0 && line[length - 1] == ' ')
+            length--;
+        int end = nextSpace(0, length);
+        request.reset(Action.fromBytes(line, 0, end));
+        while (end < length)
+        {
+            int start = end + 1;
+            end = nextSpace(start, length);
+            request.addArg(toArg(start, end - start));
+        }
+        return request;
+    }
+
+    // Finds the position of the next space in the line, or the end of the line if there are no more spaces.
+    private int nextSpace(int from, int length)
+    {
+        while (from < length && line[from] != ' ')
+            from++;
+        return from;
+    }
+
+    // Gets the argument at the position specified.
+    // Keywords are mapped to their constant strings, ignoring case; other arguments are decoded as UTF-8.
+    private String toArg(int offset, int length)
+    {
+        for (String keyword : KEYWORDS)
+        {
+            if (keyword.length() == length && isKeyword(keyword, offset))
+                return keyword;
+        }
+        return new String(line, offset, length, StandardCharsets.UTF_8);
+    }
+
+    // Checks whether the bytes at offset spell the keyword specified, ignoring case.
+    private boolean isKeyword(String keyword, int offset)
+    {
+        for (int i = 0; i < keyword.length(); i++)
+        {
+            if ((line[offset + i] | 0x20) != keyword.charAt(i))
+                return false;
+        }
+        return true;
+    }
+}
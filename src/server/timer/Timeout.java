@@ -0,0 +1,78 @@
+package server.timer;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A task scheduled on a TimingWheel, which can be cancelled until it runs.
+ * Timeouts are linked into the slots of the wheel they are waiting in, so the wheel can unlink them in constant time.
+ * Until the ticker thread links a new timeout into its slot, the next link chains the stack of scheduled timeouts.
+ */
+public class Timeout
+{
+    static final int PENDING = 0;   // waiting to run
+    static final int CANCELLED = 1; // cancelled before running
+    static final int EXPIRED = 2;   // run, for one-shot timeouts
+
+    // Updates the state of timeouts atomically, without allocating an atomic holder for each timeout.
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private TimingWheel wheel = null;                         // the wheel the timeout is scheduled on
+    private Runnable task = null;                             // the task to be run
+    private volatile int state = PENDING;                     // PENDING, CANCELLED or EXPIRED
+    long tick = 0;                                            // tick of the wheel the task is due at
+    long period = 0;                                          // ticks between runs of a periodic task; 0 if one-shot
+    Timeout prev = null;                                      // previous timeout in the slot
+    Timeout next = null;                                      // next timeout in the slot
+    TimingWheel.Slot slot = null;                             // the slot the timeout is waiting in; null if none
+    Timeout nextCancelled = null;                             // next timeout in the stack of cancelled timeouts
+
+    /**
+     * Constructor.
+     *
+     * @param wheel  the wheel the timeout is scheduled on
+     * @param task   the task to be run
+     * @param tick   the tick of the wheel the task is due at
+     * @param period the number of ticks between runs of a periodic task; 0 for a one-shot task
+     */
+    Timeout(TimingWheel wheel, Runnable task, long tick, long period)
+    {
+        this.wheel = wheel;
+        this.task = task;
+        this.tick = tick;
+        this.period = period;
+    }
+
+    // Setters and Getters
+    public Runnable getTask() { return task; }
+    public boolean isCancelled() { return state == CANCELLED; }
+    public boolean isExpired() { return state == EXPIRED; }
+    boolean isPending() { return state == PENDING; }
+
+    /**
+     * Cancels the timeout, so its task will not run (again).
+     * Takes constant time: the timeout is unlinked from the wheel on its next tick.
+     *
+     * @return true if the timeout was cancelled by this call; false if it had already run or been cancelled
+     */
+    public boolean cancel()
+    {
+        if (!STATE.compareAndSet(this, PENDING, CANCELLED))
+            return false;
+        wheel.cancelled(this);
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        String status = isCancelled() ? "cancelled" : isExpired() ? "expired" : "due at tick " + tick;
+        return "Timeout " + status + (period > 0 ? ", every " + period + " ticks" : "");
+    }
+
+    // Marks a one-shot timeout as run. Returns false if it was cancelled first.
+    boolean expire()
+    {
+        return STATE.compareAndSet(this, PENDING, EXPIRED);
+    }
+}
@@ -0,0 +1,346 @@
+package server.timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import logger.LogLevel;
+import logger.Logger;
+
+/**
+ * Runs tasks after a delay, or periodically, from a single ticker thread.
+ * Time is divided into ticks of a fixed duration. Pending timeouts wait in a hierarchy of wheels of SLOTS slots each:
+ * the first wheel has one slot per tick, and each further wheel one slot per turn of the previous wheel. A timeout is
+ * linked into the slot of the lowest wheel whose range covers its delay; when a wheel completes a turn, the next slot
+ * of the wheel above is emptied and its timeouts are linked again into lower wheels, closer to their tick. Every
+ * timeout is moved at most once per wheel, so scheduling, cancelling and expiring a timeout take constant time however
+ * many timeouts are pending.
+ * Timeouts are scheduled and cancelled from any thread by pushing them onto lock-free stacks, linked through the
+ * timeouts themselves so scheduling does not allocate; the ticker thread takes both stacks whole on every tick.
+ * Tasks run on the ticker thread, in tick order: they should be short, and hand longer work off to other threads.
+ * Delays are rounded up to whole ticks; tasks run within one tick of their due time unless the ticker falls behind.
+ */
+public class TimingWheel
+{
+    public static final int DEFAULT_TICK = 10; // default tick duration, in milliseconds
+
+    private static final int SHIFT = 6;          // log2 of the number of slots in each wheel
+    private static final int SLOTS = 1 << SHIFT; // number of slots in each wheel
+    private static final int MASK = SLOTS - 1;   // mask of the slot index within a wheel
+    private static final int LEVELS = 6;         // number of wheels; they cover 2^36 ticks
+
+    private Slot[][] wheels = new Slot[LEVELS][SLOTS];                           // slots of each wheel
+    private AtomicReference<Timeout> scheduled = new AtomicReference<Timeout>(); // timeouts waiting to be linked
+    private AtomicReference<Timeout> cancelled = new AtomicReference<Timeout>(); // timeouts waiting to be unlinked
+    private long tickNanos = 0;                             // duration of a tick, in nanoseconds
+    private long startTime = 0;                             // System.nanoTime() at tick 0
+    private long currentTick = 0;                           // last tick processed; only used by the ticker thread
+    private Thread ticker = null;                           // the thread processing ticks and running tasks
+    private volatile boolean running = false;               // indicates whether the ticker should keep running
+    private AtomicLong pendingTimeouts = new AtomicLong(0); // timeouts scheduled and neither run nor cancelled
+    private AtomicLong expiredTimeouts = new AtomicLong(0); // tasks run since the wheel started
+
+    /**
+     * Constructor.
+     * Creates a wheel ticking every DEFAULT_TICK milliseconds and starts its ticker thread.
+     *
+     * @param name the name of the ticker thread
+     */
+    public TimingWheel(String name)
+    {
+        this(name, DEFAULT_TICK, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor.
+     * Creates a wheel and starts its ticker thread.
+     *
+     * @param name the name of the ticker thread
+     * @param tick the duration of a tick
+     * @param unit the unit of the tick duration
+     */
+    public TimingWheel(String name, long tick, TimeUnit unit)
+    {
+        tickNanos = Math.max(1, unit.toNanos(tick));
+        for (Slot[] wheel : wheels)
+        {
+            for (int i = 0; i < SLOTS; i++)
+                wheel[i] = new Slot();
+        }
+        startTime = System.nanoTime();
+        running = true;
+        ticker = new Thread(this::runTicker, name);
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    // Gauges
+    public long getTickDuration() { return TimeUnit.NANOSECONDS.toMillis(tickNanos); }
+    public long getPendingTimeoutCount() { return pendingTimeouts.get(); }
+    public long getExpiredTimeoutCount() { return expiredTimeouts.get(); }
+
+    /**
+     * Schedules a task to run once after the specified delay.
+     *
+     * @param task  the task to be run
+     * @param delay the delay before the task runs
+     * @param unit  the unit of the delay
+     * @return the timeout of the task, which can be used to cancel it
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit)
+    {
+        return add(new Timeout(this, task, getTickAfter(unit.toNanos(delay)), 0));
+    }
+
+    /**
+     * Schedules a task to run periodically: first after the initial delay, then every period, until it is cancelled.
+     * Runs are due at fixed ticks, so a late run does not delay the following ones; runs missed while the ticker was
+     * behind are skipped.
+     *
+     * @param task         the task to be run
+     * @param initialDelay the delay before the first run
+     * @param period       the period between runs; rounded up to a whole number of ticks
+     * @param unit         the unit of the initial delay and the period
+     * @return the timeout of the task, which can be used to cancel it
+     */
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit)
+    {
+        long periodTicks = Math.max(1, (unit.toNanos(period) + tickNanos - 1) / tickNanos);
+        return add(new Timeout(this, task, getTickAfter(unit.toNanos(initialDelay)), periodTicks));
+    }
+
+    /**
+     * Stops the ticker thread. Pending tasks do not run.
+     */
+    public void stop()
+    {
+        running = false;
+        ticker.interrupt();
+        try
+        {
+            ticker.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) + 1000);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Timing wheel: " + getTickDuration() + " ms ticks, " + getPendingTimeoutCount() + " pending timeouts, "
+               + getExpiredTimeoutCount() + " expired timeouts";
+    }
+
+    // Pushes a timeout cancelled by Timeout.cancel(), to be unlinked from its slot by the ticker thread.
+    void cancelled(Timeout timeout)
+    {
+        pendingTimeouts.decrementAndGet();
+        Timeout top = null;
+        do
+        {
+            top = cancelled.get();
+            timeout.nextCancelled = top;
+        }
+        while (!cancelled.compareAndSet(top, timeout));
+    }
+
+    // Pushes a new timeout, to be linked into its slot by the ticker thread.
+    // The timeout is not in a slot yet, so its slot link is used to chain the stack.
+    private Timeout add(Timeout timeout)
+    {
+        pendingTimeouts.incrementAndGet();
+        Timeout top = null;
+        do
+        {
+            top = scheduled.get();
+            timeout.next = top;
+        }
+        while (!scheduled.compareAndSet(top, timeout));
+        return timeout;
+    }
+
+    // Gets the first tick that starts after the specified delay from now.
+    private long getTickAfter(long delayNanos)
+    {
+        long due = System.nanoTime() - startTime + Math.max(0, delayNanos);
+        return (due + tickNanos - 1) / tickNanos;
+    }
+
+    // Processes ticks as they elapse: cascades timeouts down the wheels, links the timeouts scheduled and unlinks the
+    // timeouts cancelled since the previous tick, then runs the tasks due.
+    private void runTicker()
+    {
+        while (running)
+        {
+            long wait = startTime + (currentTick + 1) * tickNanos - System.nanoTime();
+            if (wait > 0)
+            {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            currentTick++;
+            cascade();
+            linkScheduled();
+            unlinkCancelled();
+            expire(wheels[0][(int) (currentTick & MASK)]);
+        }
+    }
+
+    // Moves the timeouts of the next slot of each wheel above the first into lower wheels, when the wheel below it
+    // completes a turn.
+    private void cascade()
+    {
+        for (int level = 1; level < LEVELS; level++)
+        {
+            if (((currentTick >>> (SHIFT * level - SHIFT)) & MASK) != 0)
+                return;
+            Slot slot = wheels[level][(int) ((currentTick >>> (SHIFT * level)) & MASK)];
+            Timeout timeout = slot.head;
+            slot.clear();
+            while (timeout != null)
+            {
+                Timeout next = timeout.next;
+                link(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    // Links the timeouts scheduled since the previous tick into their slots, in the order they were scheduled.
+    private void linkScheduled()
+    {
+        Timeout reversed = null;
+        for (Timeout timeout = scheduled.getAndSet(null); timeout != null; )
+        {
+            Timeout next = timeout.next;
+            timeout.next = reversed;
+            reversed = timeout;
+            timeout = next;
+        }
+        while (reversed != null)
+        {
+            Timeout next = reversed.next;
+            if (reversed.isPending())
+                link(reversed);
+            else
+                reversed.next = null;
+            reversed = next;
+        }
+    }
+
+    // Unlinks the timeouts cancelled since the previous tick from their slots.
+    private void unlinkCancelled()
+    {
+        Timeout timeout = cancelled.getAndSet(null);
+        while (timeout != null)
+        {
+            Timeout next = timeout.nextCancelled;
+            timeout.nextCancelled = null;
+            if (timeout.slot != null)
+                timeout.slot.unlink(timeout);
+            timeout = next;
+        }
+    }
+
+    // Runs the tasks of a slot of the first wheel, all due at the current tick, and links periodic tasks again for
+    // their next run.
+    private void expire(Slot slot)
+    {
+        Timeout timeout = slot.head;
+        slot.clear();
+        while (timeout != null)
+        {
+            Timeout next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.slot = null;
+            if (timeout.period > 0 ? timeout.isPending() : timeout.expire())
+            {
+                if (timeout.period == 0)
+                    pendingTimeouts.decrementAndGet();
+                run(timeout);
+                if (timeout.period > 0 && timeout.isPending())
+                {
+                    timeout.tick = Math.max(timeout.tick + timeout.period, currentTick + 1); // skip runs missed
+                    link(timeout);
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    // Runs the task of a timeout, logging any exception so that the ticker keeps running.
+    private void run(Timeout timeout)
+    {
+        try
+        {
+            timeout.getTask().run();
+        }
+        catch (RuntimeException e)
+        {
+            Logger.log(LogLevel.Error, "Timer task failed: " + timeout, e);
+        }
+        expiredTimeouts.incrementAndGet();
+    }
+
+    // Links a timeout into the slot of the lowest wheel covering the ticks left until it is due.
+    // Timeouts already due go into the current slot of the first wheel; timeouts beyond the range of the wheels go into
+    // the last slot of the top wheel, and are linked again as it turns.
+    private void link(Timeout timeout)
+    {
+        long tick = Math.max(timeout.tick, currentTick);
+        long delta = tick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SHIFT * (level + 1)))
+            level++;
+        if (delta >= 1L << (SHIFT * LEVELS))
+            tick = currentTick + (1L << (SHIFT * LEVELS)) - 1;
+        wheels[level][(int) ((tick >>> (SHIFT * level)) & MASK)].link(timeout);
+    }
+
+    // A slot of a wheel: a doubly-linked list of timeouts.
+    static class Slot
+    {
+        private Timeout head = null; // first timeout in the slot
+        private Timeout tail = null; // last timeout in the slot
+
+        // Appends a timeout to the slot.
+        void link(Timeout timeout)
+        {
+            timeout.slot = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null)
+                head = timeout;
+            else
+                tail.next = timeout;
+            tail = timeout;
+        }
+
+        // Removes a timeout from the slot.
+        void unlink(Timeout timeout)
+        {
+            if (timeout.prev == null)
+                head = timeout.next;
+            else
+                timeout.prev.next = timeout.next;
+            if (timeout.next == null)
+                tail = timeout.prev;
+            else
+                timeout.next.prev = timeout.prev;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.slot = null;
+        }
+
+        // Empties the slot, leaving the links of its timeouts for the caller to walk.
+        void clear()
+        {
+            head = null;
+            tail = null;
+        }
+    }
+}
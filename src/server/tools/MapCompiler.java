@@ -0,0 +1,59 @@
+package server.tools;
+
+import java.io.File;
+import java.io.IOException;
+
+import logger.LogLevel;
+import logger.Logger;
+import server.game.CompiledMap;
+import server.game.MapLoader;
+import server.game.MapStorage;
+
+/**
+ * Compiles a text map file into a compiled map file, which the game server loads without parsing text.
+ * The compiled map file can be used anywhere a map file is expected, e.g. as the map file of the game server.
+ * If no output file is specified, the compiled map is written next to the text map file, replacing its extension by
+ * ".mapc".
+ * 
+ * Usage: java server.tools.MapCompiler <map file> [<output file>]
+ */
+public class MapCompiler
+{
+    private static final String USAGE = "Usage: java server.tools.MapCompiler <map file> [<output file>]";
+
+    public static void main(String[] args)
+    {
+        if (args.length < 1 || args.length > 2)
+        {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        Logger.setLogLevel(LogLevel.Info);
+        File mapFile = new File(args[0]);
+        File outFile = args.length == 2 ? new File(args[1]) : getOutputFile(mapFile);
+        try
+        {
+            MapLoader loader = MapLoader.create(mapFile, MapStorage.Auto);
+            loader.load();
+            Logger.log(LogLevel.Info, loader.toString());
+            long hash = CompiledMap.write(loader, outFile);
+            Logger.log(LogLevel.Info, "Compiled map written to \"" + outFile.getAbsolutePath() + "\": "
+                                      + outFile.length() + " bytes, hash " + Long.toHexString(hash));
+        }
+        catch (IOException e)
+        {
+            Logger.log(LogLevel.Error, "Could not compile map file \"" + mapFile.getAbsolutePath() + "\"", e);
+            System.exit(1);
+        }
+    }
+
+    // Gets the compiled map file for a map file: same name, with the compiled map extension
+    private static File getOutputFile(File mapFile)
+    {
+        String name = mapFile.getName();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot < 0 ? name : name.substring(0, dot);
+        return new File(mapFile.getAbsoluteFile().getParentFile(), baseName + CompiledMap.EXTENSION);
+    }
+}